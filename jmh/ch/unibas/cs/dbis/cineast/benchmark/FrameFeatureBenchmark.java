@@ -0,0 +1,124 @@
+package ch.unibas.cs.dbis.cineast.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ch.unibas.cs.dbis.cineast.core.color.ColorConverter;
+import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
+import ch.unibas.cs.dbis.cineast.core.data.QueryContainer;
+import ch.unibas.cs.dbis.cineast.core.features.DominantColors;
+import ch.unibas.cs.dbis.cineast.core.features.EHD;
+import ch.unibas.cs.dbis.cineast.core.segmenter.FuzzyColorHistogramCalculator;
+import ch.unibas.cs.dbis.cineast.core.util.ColorLayoutDescriptor;
+
+/**
+ * Per-frame feature computations. The multi-threaded variants run one benchmark thread per core, each on its own frame, which
+ * is how the extraction thread pool uses them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameFeatureBenchmark {
+
+	@Param({"320p", "480p", "720p"})
+	public String resolution;
+
+	private MultiImage image;
+	private QueryContainer query;
+	private EHD ehd;
+
+	@Setup
+	public void setup(){
+		this.image = SyntheticFrames.image(this.resolution);
+		this.query = new QueryContainer(this.image);
+		this.ehd = new EHD();
+	}
+
+	@Benchmark
+	public void rgbToLab(Blackhole bh){
+		for(int c : this.image.getColors()){
+			bh.consume(ColorConverter.cachedRGBtoLab(c));
+		}
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void rgbToLabMultiThreaded(Blackhole bh){
+		rgbToLab(bh);
+	}
+
+	@Benchmark
+	public Object subdividedFuzzyHistogram(){
+		return FuzzyColorHistogramCalculator.getSubdividedHistogram(this.image.getBufferedImage(), 4);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public Object subdividedFuzzyHistogramMultiThreaded(){
+		return subdividedFuzzyHistogram();
+	}
+
+	@Benchmark
+	public Object colorLayoutDescriptor(){
+		return ColorLayoutDescriptor.calculateCLD(this.image);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public Object colorLayoutDescriptorMultiThreaded(){
+		return colorLayoutDescriptor();
+	}
+
+	/**
+	 * EHD.process on the query frame
+	 */
+	@Benchmark
+	public Object edgeHistogram(){
+		return this.ehd.getIndexQuery(this.query);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public Object edgeHistogramMultiThreaded(){
+		return edgeHistogram();
+	}
+
+	/**
+	 * weighted k-means++ over the colors of the thumbnail, restarts computed sequentially
+	 */
+	@Benchmark
+	public Object dominantColors(){
+		return DominantColors.getDominantColor(this.image, false);
+	}
+
+	/**
+	 * weighted k-means++ over the colors of the thumbnail, restarts computed concurrently
+	 */
+	@Benchmark
+	public Object dominantColorsParallelRestarts(){
+		return DominantColors.getDominantColor(this.image, true);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public Object dominantColorsMultiThreaded(){
+		return dominantColors();
+	}
+
+}
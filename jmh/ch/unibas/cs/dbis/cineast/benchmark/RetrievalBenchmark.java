@@ -0,0 +1,114 @@
+package ch.unibas.cs.dbis.cineast.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.unibas.cs.dbis.cineast.api.JSONEncoder;
+import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.data.QueryContainer;
+import ch.unibas.cs.dbis.cineast.core.db.ShotLookup.ShotDescriptor;
+import ch.unibas.cs.dbis.cineast.core.features.retriever.Retriever;
+import ch.unibas.cs.dbis.cineast.core.runtime.ContinousQueryDispatcher;
+import ch.unibas.cs.dbis.cineast.core.util.MaxPool;
+import gnu.trove.map.hash.TObjectDoubleHashMap;
+
+/**
+ * Query handling after the database has answered: fusing the candidate lists of the retrievers, sorting and pooling them and
+ * encoding the results for the API. The retrievers are stubs which return precomputed candidate lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RetrievalBenchmark {
+
+	@Param({"4", "16"})
+	public int retrievers;
+
+	@Param({"1000", "10000"})
+	public int candidates;
+
+	private TObjectDoubleHashMap<Retriever> stubs;
+	private QueryContainer query;
+	private List<LongDoublePair> concatenated, fused;
+	private List<ShotDescriptor> shots;
+
+	@Setup
+	public void setup(){
+		this.stubs = StubBackend.retrievers(this.retrievers, this.candidates);
+		this.query = new QueryContainer(SyntheticFrames.image("320p"));
+		this.concatenated = new ArrayList<>(this.retrievers * this.candidates);
+		for(Retriever r : this.stubs.keySet()){
+			this.concatenated.addAll(r.getSimilar(this.query));
+		}
+		Collections.shuffle(this.concatenated, new Random(this.candidates));
+		this.fused = MaxPool.maxPool(this.concatenated);
+		this.shots = new ArrayList<>(this.fused.size());
+		for(LongDoublePair pair : this.fused){
+			int shotNumber = (int) (pair.key & 0xFFFF);
+			this.shots.add(new ShotDescriptor(pair.key >> 16, shotNumber, shotNumber * 100, shotNumber * 100 + 99));
+		}
+	}
+
+	@TearDown
+	public void tearDown(){
+		ContinousQueryDispatcher.shutdown();
+	}
+
+	/**
+	 * runs the retrievers on the dispatcher pool and fuses their results as they complete, including the hand-off between the threads
+	 */
+	@Benchmark
+	public Object fuseByExample(){
+		return ContinousQueryDispatcher.retrieve(this.query, this.stubs, StubBackend.INITIALIZER, null);
+	}
+
+	@Benchmark
+	public Object fuseByShotId(){
+		return ContinousQueryDispatcher.retrieve(1l, this.stubs, StubBackend.INITIALIZER, null);
+	}
+
+	/**
+	 * includes copying the unsorted list
+	 */
+	@Benchmark
+	public Object sort(){
+		ArrayList<LongDoublePair> list = new ArrayList<>(this.concatenated);
+		Collections.sort(list, LongDoublePair.COMPARATOR);
+		return list;
+	}
+
+	@Benchmark
+	public Object maxPool(){
+		return MaxPool.maxPool(this.concatenated);
+	}
+
+	@Benchmark
+	public String encodeResultBatched(){
+		return JSONEncoder.encodeResultBatched(this.fused, "benchmark", 1).toString();
+	}
+
+	@Benchmark
+	public String encodeShotBatch(){
+		return JSONEncoder.encodeShotBatch(this.shots).toString();
+	}
+
+}
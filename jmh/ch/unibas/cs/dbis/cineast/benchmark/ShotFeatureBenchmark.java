@@ -0,0 +1,101 @@
+package ch.unibas.cs.dbis.cineast.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.data.Frame;
+import ch.unibas.cs.dbis.cineast.core.descriptor.AvgImg;
+import ch.unibas.cs.dbis.cineast.core.descriptor.MedianImg;
+import ch.unibas.cs.dbis.cineast.core.descriptor.PathList;
+
+/**
+ * Computations over all frames of a shot
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShotFeatureBenchmark {
+
+	@Param({"320p", "480p", "720p"})
+	public String resolution;
+
+	@Param({"50"})
+	public int length;
+
+	private List<Frame> frames;
+
+	@Setup
+	public void setup(){
+		this.frames = SyntheticFrames.shot(this.resolution, this.length);
+	}
+
+	@Benchmark
+	public Object averageImage(){
+		return AvgImg.getAvg(this.frames);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public Object averageImageMultiThreaded(){
+		return averageImage();
+	}
+
+	@Benchmark
+	public Object medianImage(){
+		return MedianImg.getMedian(this.frames);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public Object medianImageMultiThreaded(){
+		return medianImage();
+	}
+
+	/**
+	 * tracks the whole shot as one chunk at full resolution
+	 */
+	@Benchmark
+	public Object motionPaths(){
+		return PathList.getPaths(this.frames, 0, 0, 0);
+	}
+
+	/**
+	 * tracks the shot in four chunks which are processed concurrently
+	 */
+	@Benchmark
+	public Object motionPathsChunked(){
+		return PathList.getPaths(this.frames, this.length / 4, Config.getExtractorConfig().getMotionChunkOverlap(), 0);
+	}
+
+	/**
+	 * tracks the shot as one chunk on frames downscaled to a width of 320 pixels
+	 */
+	@Benchmark
+	public Object motionPathsDownscaled(){
+		return PathList.getPaths(this.frames, 0, 0, 320);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public Object motionPathsMultiThreaded(){
+		return motionPaths();
+	}
+
+}
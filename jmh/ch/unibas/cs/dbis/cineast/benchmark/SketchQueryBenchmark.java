@@ -0,0 +1,144 @@
+package ch.unibas.cs.dbis.cineast.benchmark;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+
+import ch.unibas.cs.dbis.cineast.api.JSONEncoder;
+import ch.unibas.cs.dbis.cineast.api.JSONUtils;
+import ch.unibas.cs.dbis.cineast.api.WebUtils;
+import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.data.QueryContainer;
+import ch.unibas.cs.dbis.cineast.core.features.retriever.Retriever;
+import ch.unibas.cs.dbis.cineast.core.runtime.ContinousQueryDispatcher;
+import gnu.trove.map.hash.TObjectDoubleHashMap;
+
+/**
+ * Handling of a multiSketch request as sent by the browser: a color sketch as PNG data URL with motion paths. Measures parsing
+ * the request, decoding the sketch and the whole query from request to encoded result with stub retrievers, which is the cost
+ * of a query minus the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SketchQueryBenchmark {
+
+	private static final long SEED = 20160602l;
+	private static final int STROKES = 60;
+	private static final int MOTION_PATHS = 4;
+	private static final int MOTION_POINTS = 200;
+	private static final int RETRIEVERS = 8;
+	private static final int CANDIDATES = 1000;
+
+	@Param({"320p", "480p", "720p"})
+	public String resolution;
+
+	private String request, dataUrl;
+	private TObjectDoubleHashMap<Retriever> stubs;
+
+	@Setup
+	public void setup(){
+		Random random = new Random(SEED);
+		this.dataUrl = WebUtils.BufferedImageToDataURL(sketch(SyntheticFrames.size(this.resolution), random), "png");
+		JsonArray motion = new JsonArray();
+		for(int p = 0; p < MOTION_PATHS; ++p){
+			JsonArray path = new JsonArray();
+			float x = random.nextFloat(), y = random.nextFloat();
+			for(int i = 0; i < MOTION_POINTS; ++i){
+				x = Math.max(0f, Math.min(1f, x + (random.nextFloat() - 0.5f) * 0.01f));
+				y = Math.max(0f, Math.min(1f, y + (random.nextFloat() - 0.5f) * 0.01f));
+				path.add(new JsonArray().add(x).add(y));
+			}
+			motion.add(path);
+		}
+		JsonObject query = new JsonObject().add("img", this.dataUrl).add("motion", motion).add("categories", new JsonArray().add("globalcolor").add("localcolor").add("edge").add("motion"));
+		this.request = new JsonObject().add("queryType", "multiSketch").add("query", new JsonArray().add(query)).add("resultname", "null").toString();
+		this.stubs = StubBackend.retrievers(RETRIEVERS, CANDIDATES);
+	}
+
+	@TearDown
+	public void tearDown(){
+		ContinousQueryDispatcher.shutdown();
+	}
+
+	/**
+	 * colored strokes and filled shapes on a white canvas, like a sketch drawn in the browser
+	 */
+	private static BufferedImage sketch(int[] size, Random random){
+		BufferedImage img = new BufferedImage(size[0], size[1], BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = img.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, size[0], size[1]);
+		for(int s = 0; s < STROKES; ++s){
+			g.setColor(new Color(random.nextInt(0xFFFFFF)));
+			int x = random.nextInt(size[0]), y = random.nextInt(size[1]);
+			int w = 1 + random.nextInt(size[0] / 4), h = 1 + random.nextInt(size[1] / 4);
+			if(s % 3 == 0){
+				g.fillOval(x, y, w, h);
+			}else{
+				g.setStroke(new BasicStroke(2 + random.nextInt(20), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+				g.drawLine(x, y, x + w - size[0] / 8, y + h - size[1] / 8);
+			}
+		}
+		g.dispose();
+		return img;
+	}
+
+	@Benchmark
+	public Object parseRequest(){
+		return JsonValue.readFrom(this.request);
+	}
+
+	@Benchmark
+	public Object decodeDataUrl(){
+		return WebUtils.dataURLtoBufferedImage(this.dataUrl);
+	}
+
+	@Benchmark
+	public Object queryContainerFromJSON(){
+		JsonObject query = JsonValue.readFrom(this.request).asObject().get("query").asArray().get(0).asObject();
+		return JSONUtils.queryContainerFromJSON(query);
+	}
+
+	/**
+	 * parses the request, runs every category of it with the stub retrievers and encodes the results
+	 */
+	@Benchmark
+	public String query(){
+		JsonObject query = JsonValue.readFrom(this.request).asObject().get("query").asArray().get(0).asObject();
+		QueryContainer qc = JSONUtils.queryContainerFromJSON(query);
+		StringBuilder sb = new StringBuilder();
+		for(JsonValue category : query.get("categories").asArray()){
+			List<LongDoublePair> result = ContinousQueryDispatcher.retrieve(qc, this.stubs, StubBackend.INITIALIZER, null);
+			sb.append(JSONEncoder.encodeResultBatched(result, category.asString(), 1));
+		}
+		return sb.toString();
+	}
+
+}
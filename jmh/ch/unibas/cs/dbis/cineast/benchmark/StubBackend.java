@@ -0,0 +1,141 @@
+package ch.unibas.cs.dbis.cineast.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
+import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.db.DBSelector;
+import ch.unibas.cs.dbis.cineast.core.features.retriever.Retriever;
+import ch.unibas.cs.dbis.cineast.core.features.retriever.RetrieverInitializer;
+import gnu.trove.map.hash.TObjectDoubleHashMap;
+
+/**
+ * Retrieval backend without a database: retrievers which answer every query with a fixed list of candidates, and a selector
+ * which has no connection. Candidates are drawn from an id space twice the size of a list, so the lists of different
+ * retrievers overlap like those of real feature modules.
+ */
+public class StubBackend {
+
+	private static final long SEED = 20160601l;
+
+	private StubBackend(){}
+
+	public static class StubDBSelector extends DBSelector {
+
+		public StubDBSelector(){
+			super((Connection) null);
+		}
+
+		@Override
+		public ResultSet select(String query) {
+			return null;
+		}
+
+		@Override
+		public PreparedStatement createPreparedStatement(String query) {
+			return null;
+		}
+
+		@Override
+		public void close() {
+		}
+
+	}
+
+	public static class StubRetriever implements Retriever {
+
+		private final List<LongDoublePair> candidates;
+
+		public StubRetriever(List<LongDoublePair> candidates){
+			this.candidates = candidates;
+		}
+
+		@Override
+		public void init(DBSelector selector) {
+		}
+
+		@Override
+		public List<LongDoublePair> getSimilar(FrameContainer qc) {
+			return this.candidates;
+		}
+
+		@Override
+		public List<LongDoublePair> getSimilar(FrameContainer qc, String resultCacheName) {
+			return this.candidates;
+		}
+
+		@Override
+		public List<LongDoublePair> getSimilar(long shotId) {
+			return this.candidates;
+		}
+
+		@Override
+		public List<LongDoublePair> getSimilar(long shotId, String resultCacheName) {
+			return this.candidates;
+		}
+
+		@Override
+		public void finish() {
+		}
+
+		@Override
+		public float getConfidenceWeight() {
+			return 1f;
+		}
+
+	}
+
+	public static final RetrieverInitializer INITIALIZER = new RetrieverInitializer() {
+
+		private final DBSelector selector = new StubDBSelector();
+
+		@Override
+		public void initialize(Retriever r) {
+			r.init(this.selector);
+		}
+	};
+
+	/**
+	 * @return a list of distinct shot ids with scores between 0 and 1, ordered by descending score
+	 */
+	public static List<LongDoublePair> candidates(int count, Random random){
+		ArrayList<LongDoublePair> _return = new ArrayList<>(count);
+		long space = 2l * count;
+		boolean[] used = new boolean[(int) space];
+		while(_return.size() < count){
+			int id = random.nextInt((int) space);
+			if(!used[id]){
+				used[id] = true;
+				_return.add(new LongDoublePair(shotId(id), random.nextDouble()));
+			}
+		}
+		Collections.sort(_return, LongDoublePair.COMPARATOR);
+		return _return;
+	}
+
+	/**
+	 * @return retrievers with the given number of candidates each and weights between 0.5 and 1.5
+	 */
+	public static TObjectDoubleHashMap<Retriever> retrievers(int count, int candidates){
+		Random random = new Random(SEED);
+		TObjectDoubleHashMap<Retriever> _return = new TObjectDoubleHashMap<>(count);
+		for(int i = 0; i < count; ++i){
+			_return.put(new StubRetriever(candidates(candidates, random)), 0.5 + random.nextDouble());
+		}
+		return _return;
+	}
+
+	/**
+	 * spreads the ids over videos of 100 shots with the same layout as real shot ids
+	 */
+	public static long shotId(int id){
+		return ((long) (id / 100 + 1) << 16) | (id % 100 + 1);
+	}
+
+}
@@ -0,0 +1,79 @@
+package ch.unibas.cs.dbis.cineast.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ch.unibas.cs.dbis.cineast.core.data.Frame;
+import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
+import ch.unibas.cs.dbis.cineast.core.data.MultiImageFactory;
+
+/**
+ * Deterministic frames for benchmarks: a color gradient background with noise and textured rectangles which move by a few pixels
+ * from frame to frame, so that color, edge and motion features all have something to work on.
+ */
+public class SyntheticFrames {
+
+	private static final int RECTANGLES = 12;
+	private static final long SEED = 20160518l;
+
+	private SyntheticFrames(){}
+
+	/**
+	 * @param resolution one of 320p, 480p or 720p
+	 * @return width and height of a 16:9 frame of the given height
+	 */
+	public static int[] size(String resolution){
+		switch(resolution){
+		case "320p":
+			return new int[]{568, 320};
+		case "480p":
+			return new int[]{854, 480};
+		case "720p":
+			return new int[]{1280, 720};
+		default:
+			throw new IllegalArgumentException("unknown resolution " + resolution);
+		}
+	}
+
+	public static MultiImage image(String resolution){
+		return shot(resolution, 1).get(0).getImage();
+	}
+
+	/**
+	 * @return consecutive frames of a shot with moving content
+	 */
+	public static List<Frame> shot(String resolution, int length){
+		int[] size = size(resolution);
+		int width = size[0], height = size[1];
+		Random random = new Random(SEED);
+		int[][] rects = new int[RECTANGLES][];
+		for(int r = 0; r < RECTANGLES; ++r){
+			int w = width / 16 + random.nextInt(width / 6), h = height / 16 + random.nextInt(height / 6);
+			rects[r] = new int[]{random.nextInt(width - w), random.nextInt(height - h), w, h, random.nextInt(5) - 2, random.nextInt(5) - 2, random.nextInt(0xFFFFFF)};
+		}
+		ArrayList<Frame> _return = new ArrayList<>(length);
+		for(int f = 0; f < length; ++f){
+			int[] colors = new int[width * height];
+			for(int y = 0; y < height; ++y){
+				for(int x = 0; x < width; ++x){
+					int r = (255 * x) / width, g = (255 * y) / height, b = 128 + random.nextInt(16);
+					colors[x + y * width] = 0xFF000000 | (r << 16) | (g << 8) | b;
+				}
+			}
+			for(int[] rect : rects){
+				int x0 = Math.max(0, Math.min(width - rect[2], rect[0] + f * rect[4]));
+				int y0 = Math.max(0, Math.min(height - rect[3], rect[1] + f * rect[5]));
+				for(int y = 0; y < rect[3]; ++y){
+					for(int x = 0; x < rect[2]; ++x){
+						boolean checker = ((x / 8) + (y / 8)) % 2 == 0; //texture for the feature tracker
+						colors[x0 + x + (y0 + y) * width] = 0xFF000000 | (checker ? rect[6] : ~rect[6] & 0xFFFFFF);
+					}
+				}
+			}
+			_return.add(new Frame(f, MultiImageFactory.newMultiImage(width, height, colors)));
+		}
+		return _return;
+	}
+
+}
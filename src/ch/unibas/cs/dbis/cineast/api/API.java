@@ -53,7 +53,13 @@ import ch.unibas.cs.dbis.cineast.core.features.SubtitleWordSearch;
 import ch.unibas.cs.dbis.cineast.core.features.exporter.QueryImageExporter;
 import ch.unibas.cs.dbis.cineast.core.features.retriever.Retriever;
 import ch.unibas.cs.dbis.cineast.core.features.retriever.RetrieverInitializer;
+import ch.unibas.cs.dbis.cineast.core.index.ShotGraphManager;
+import ch.unibas.cs.dbis.cineast.core.index.VectorIndexManager;
+import ch.unibas.cs.dbis.cineast.core.metrics.ExtractionMetrics;
+import ch.unibas.cs.dbis.cineast.core.metrics.QueryStatistics;
+import ch.unibas.cs.dbis.cineast.core.metrics.QueryTrace;
 import ch.unibas.cs.dbis.cineast.core.run.FeatureExtractionRunner;
+import ch.unibas.cs.dbis.cineast.core.util.ContinousRetrievalLogic;
 import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
 import gnu.trove.map.hash.TObjectDoubleHashMap;
 
@@ -68,8 +74,9 @@ public class API {
 
 		@Override
 		public void initialize(Retriever r) {
+			long start = System.nanoTime();
 			r.init(new DBSelector());
-
+			QueryTrace.record("connect", r.getClass().getSimpleName(), start);
 		}
 	};
 
@@ -116,6 +123,21 @@ public class API {
 						runner.extractFolder(videoFolder);
 						break;
 					}
+					case "metrics": {
+						System.out.println(ExtractionMetrics.toJSON());
+						break;
+					}
+					case "querystats": {
+						System.out.println(QueryStatistics.toJSON());
+						break;
+					}
+					case "reload": {
+						VectorIndexManager.reload();
+						ShotGraphManager.reload();
+						ContinousRetrievalLogic.invalidateResultCache();
+						System.out.println("indexes and shot graphs are read again on the next query, cached results were dropped");
+						break;
+					}
 					case "exit":
 					case "quit": {
 						running = false;
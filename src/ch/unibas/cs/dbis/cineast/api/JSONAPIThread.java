@@ -11,7 +11,9 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -22,12 +24,13 @@ import com.eclipsesource.json.JsonValue;
 
 import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
-import ch.unibas.cs.dbis.cineast.core.data.QueryContainer;
 import ch.unibas.cs.dbis.cineast.core.db.DBResultCache;
 import ch.unibas.cs.dbis.cineast.core.db.DBSelector;
 import ch.unibas.cs.dbis.cineast.core.db.ShotLookup;
 import ch.unibas.cs.dbis.cineast.core.db.ShotLookup.ShotDescriptor;
 import ch.unibas.cs.dbis.cineast.core.db.VideoLookup;
+import ch.unibas.cs.dbis.cineast.core.metrics.QueryStatistics;
+import ch.unibas.cs.dbis.cineast.core.metrics.QueryTrace;
 import ch.unibas.cs.dbis.cineast.core.util.ContinousRetrievalLogic;
 import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
 import gnu.trove.map.hash.TLongDoubleHashMap;
@@ -66,6 +69,16 @@ public class JSONAPIThread extends Thread {
 		try {
 			JsonObject clientJSON = JsonObject.readFrom(reader);
 
+			/*
+			 * with "debug": true the timed stages of the query are sent along with the results
+			 */
+			QueryTrace trace = null;
+			if(clientJSON.get("debug") != null && clientJSON.get("debug").isTrue()){
+				trace = new QueryTrace();
+			}
+			QueryTrace.attach(trace, null);
+			Set<String> tracedCategories = new LinkedHashSet<>();
+
 			switch (clientJSON.get("queryType").asString()) {
 				/*
 				 * Input: id: ID of a video
@@ -126,40 +139,34 @@ public class JSONAPIThread extends Thread {
 				JsonArray narr = queryObject.get("negative").asArray();
 				TLongHashSet shotids = new TLongHashSet();
 				TIntHashSet videoids = new TIntHashSet();
-				List<LongDoublePair> result;
 				TLongDoubleHashMap map;
 
 				String resultCacheName = clientJSON.get("resultname") == null ? null : clientJSON.get("resultname").asString(); 
 				
+				long[] examples = new long[parr.size() + narr.size()];
+				for (int i = 0; i < parr.size(); ++i) {
+					examples[i] = parr.get(i).asLong();
+				}
+				for (int i = 0; i < narr.size(); ++i) {
+					examples[parr.size() + i] = narr.get(i).asLong();
+				}
+				
 				for (JsonValue category : categories) {
 					map = new TLongDoubleHashMap();
 
-					for (JsonValue _el : parr) {
-						long _shotid = _el.asLong();
-						result = ContinousRetrievalLogic.retrieve(_shotid, category.asString(), resultCacheName);
-						for (LongDoublePair pair : result) {
-							if (Double.isInfinite(pair.value) || Double.isNaN(pair.value)) {
-								continue;
-							}
-							if (map.contains(pair.key)) {
-								map.put(pair.key, map.get(pair.key) + pair.value);
-								continue;
-							}
-							map.put(pair.key, pair.value);
-						}
+					if(trace != null){
+						trace.setCategory(category.asString());
 					}
-					for (JsonValue _el : narr) {
-						long _shotid = _el.asLong();
-						result = ContinousRetrievalLogic.retrieve(_shotid, category.asString(), resultCacheName);
-						for (LongDoublePair pair : result) {
+					tracedCategories.add(category.asString());
+					long start = System.nanoTime();
+					List<List<LongDoublePair>> results = ContinousRetrievalLogic.retrieve(examples, category.asString(), resultCacheName);
+					for (int i = 0; i < examples.length; ++i) {
+						double sign = i < parr.size() ? 1d : -1d;
+						for (LongDoublePair pair : results.get(i)) {
 							if (Double.isInfinite(pair.value) || Double.isNaN(pair.value)) {
 								continue;
 							}
-							if (map.contains(pair.key)) {
-								map.put(pair.key, map.get(pair.key) - pair.value);
-								continue;
-							}
-							map.put(pair.key, -pair.value);
+							map.adjustOrPutValue(pair.key, sign * pair.value, sign * pair.value);
 						}
 					}
 
@@ -181,14 +188,22 @@ public class JSONAPIThread extends Thread {
 					if (list.size() > MAX_RESULTS) {
 						list = list.subList(0, MAX_RESULTS);
 					}
+					QueryStatistics.record(category.asString(), System.nanoTime() - start);
+					QueryTrace.record("retrieve", start);
+					
+					start = System.nanoTime();
 					videoids = JSONUtils.printVideosBatched(printer, list, videoids);
 					shotids = JSONUtils.printShotsBatched(printer, list, shotids);
+					QueryTrace.record("lookup", start);
 					JSONUtils.printResultsBatched(printer, list, category, 1);
 
 				}
 				
 				String resultName = DBResultCache.newCachedResult(shotids);
 				JSONUtils.printResultName(printer, resultName);
+				if(trace != null){
+					JSONUtils.printTrace(printer, trace, tracedCategories);
+				}
 				break;
 			}
 
@@ -216,17 +231,19 @@ public class JSONAPIThread extends Thread {
 					JsonObject query = it.next().asObject();
 					for (JsonValue category : query.get("categories").asArray()) {
 
-						List<LongDoublePair> result;
-						if (query.get("id") != null && query.get("id").asLong() > 0) {
-							long id = query.get("id").asLong();
-							result = ContinousRetrievalLogic.retrieve(id, category.asString(), resultCacheName);
-						} else {
-							QueryContainer qc = JSONUtils.queryContainerFromJSON(query);
-							result = ContinousRetrievalLogic.retrieve(qc, category.asString(), resultCacheName);
+						if(trace != null){
+							trace.setCategory(category.asString());
 						}
+						tracedCategories.add(category.asString());
+						long start = System.nanoTime();
+						List<LongDoublePair> result = ContinousRetrievalLogic.retrieve(query, category.asString(), resultCacheName);
+						QueryStatistics.record(category.asString(), System.nanoTime() - start);
+						QueryTrace.record("retrieve", start);
 						
+						start = System.nanoTime();
 						videoids = JSONUtils.printVideosBatched(printer, result, videoids);
 						shotids = JSONUtils.printShotsBatched(printer, result, shotids);
+						QueryTrace.record("lookup", start);
 						JSONUtils.printResultsBatched(printer, result, category, index);
 
 					}
@@ -234,6 +251,9 @@ public class JSONAPIThread extends Thread {
 
 				String resultName = DBResultCache.newCachedResult(shotids);
 				JSONUtils.printResultName(printer, resultName);
+				if(trace != null){
+					JSONUtils.printTrace(printer, trace, tracedCategories);
+				}
 
 				break;
 			}
@@ -302,6 +322,7 @@ public class JSONAPIThread extends Thread {
 			LOGGER.error(e.getMessage() + " | " + e.toString() + "\n");
 			e.printStackTrace();
 		} finally {
+			QueryTrace.detach();
 			try {
 				LOGGER.debug("Finished API request in {} ms", (System.currentTimeMillis() - startTime));
 				this.printer.print(_return.toString());
@@ -1,5 +1,6 @@
 package ch.unibas.cs.dbis.cineast.api;
 
+import java.util.Collection;
 import java.util.List;
 
 import com.eclipsesource.json.JsonArray;
@@ -8,6 +9,8 @@ import com.eclipsesource.json.JsonObject;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.db.ShotLookup.ShotDescriptor;
 import ch.unibas.cs.dbis.cineast.core.db.VideoLookup.VideoDescriptor;
+import ch.unibas.cs.dbis.cineast.core.metrics.QueryStatistics;
+import ch.unibas.cs.dbis.cineast.core.metrics.QueryTrace;
 
 public final class JSONEncoder {
 
@@ -131,4 +134,21 @@ public final class JSONEncoder {
 		return _return;
 	}
 	
+	/**
+	 * @param categories the categories of the query, their rolling latency statistics are included
+	 */
+	public static final JsonObject encodeTrace(QueryTrace trace, Collection<String> categories){
+		JsonObject _return = trace.toJSON();
+		_return.add("type", "trace");
+		JsonObject statistics = new JsonObject();
+		for(String category : categories){
+			JsonObject stats = QueryStatistics.toJSON(category);
+			if(stats != null){
+				statistics.add(category, stats);
+			}
+		}
+		_return.add("statistics", statistics);
+		return _return;
+	}
+	
 }
@@ -5,7 +5,8 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.io.Reader;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
@@ -16,6 +17,7 @@ import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
 
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.data.MotionPaths;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImageFactory;
 import ch.unibas.cs.dbis.cineast.core.data.Pair;
 import ch.unibas.cs.dbis.cineast.core.data.QueryContainer;
@@ -23,8 +25,8 @@ import ch.unibas.cs.dbis.cineast.core.data.QuerySubTitleItem;
 import ch.unibas.cs.dbis.cineast.core.db.ShotLookup;
 import ch.unibas.cs.dbis.cineast.core.db.ShotLookup.ShotDescriptor;
 import ch.unibas.cs.dbis.cineast.core.decode.subtitle.SubtitleItem;
+import ch.unibas.cs.dbis.cineast.core.metrics.QueryTrace;
 import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
-import georegression.struct.point.Point2D_F32;
 import gnu.trove.map.hash.TObjectDoubleHashMap;
 import gnu.trove.set.hash.TIntHashSet;
 import gnu.trove.set.hash.TLongHashSet;
@@ -63,12 +65,14 @@ public class JSONUtils {
 		if(jobj.get("motion") != null){
 			JsonArray motion = jobj.get("motion").asArray();
 			for(JsonValue motionPath : motion){
-				LinkedList<Point2D_F32> pathList = new LinkedList<Point2D_F32>();
-				for(JsonValue point : motionPath.asArray()){
-					JsonArray pa = point.asArray();
-					pathList.add(new Point2D_F32(pa.get(0).asFloat(), pa.get(1).asFloat()));
+				JsonArray points = motionPath.asArray();
+				float[] xs = new float[points.size()], ys = new float[points.size()];
+				for(int i = 0; i < xs.length; ++i){
+					JsonArray pa = points.get(i).asArray();
+					xs[i] = pa.get(0).asFloat();
+					ys[i] = pa.get(1).asFloat();
 				}
-				qc.addPath(pathList);
+				qc.addPath(xs, ys);
 			}
 		}
 		
@@ -86,18 +90,66 @@ public class JSONUtils {
 		return qc;
 	}
 	
+	/**
+	 * @return a string representation of the value in which the members of all objects are ordered by name, so that equal
+	 * values have equal representations
+	 * @param ignoredMember name of a member of the top level object to leave out, may be null
+	 */
+	public static String canonicalJSON(JsonValue value, String ignoredMember){
+		StringBuilder sb = new StringBuilder();
+		appendCanonical(sb, value, ignoredMember);
+		return sb.toString();
+	}
+	
+	private static void appendCanonical(StringBuilder sb, JsonValue value, String ignoredMember){
+		if(value.isObject()){
+			JsonObject obj = value.asObject();
+			ArrayList<String> names = new ArrayList<>(obj.names());
+			Collections.sort(names);
+			sb.append('{');
+			boolean first = true;
+			for(String name : names){
+				if(name.equals(ignoredMember)){
+					continue;
+				}
+				if(!first){
+					sb.append(',');
+				}
+				first = false;
+				sb.append(JsonValue.valueOf(name).toString());
+				sb.append(':');
+				appendCanonical(sb, obj.get(name), null);
+			}
+			sb.append('}');
+		}else if(value.isArray()){
+			sb.append('[');
+			boolean first = true;
+			for(JsonValue element : value.asArray()){
+				if(!first){
+					sb.append(',');
+				}
+				first = false;
+				appendCanonical(sb, element, null);
+			}
+			sb.append(']');
+		}else{
+			sb.append(value.toString());
+		}
+	}
+	
 	public static String queryContainerToJSON(QueryContainer qc){
 		JsonObject jobj = new JsonObject();
 		jobj.add("img", WebUtils.BufferedImageToDataURL(qc.getMostRepresentativeFrame().getImage().getBufferedImage(), "PNG"));
 		
 		JsonArray paths = new JsonArray();
-		for(Pair<Integer, LinkedList<Point2D_F32>> pair : qc.getPaths()){
-			LinkedList<Point2D_F32> motionPath = pair.second;
+		MotionPaths motionPaths = qc.getPaths();
+		for(int p = 0; p < motionPaths.getPathCount(); ++p){
 			JsonArray arr = new JsonArray();
-			for(Point2D_F32 point : motionPath){
+			int start = motionPaths.getOffset(p), end = start + motionPaths.getPathLength(p);
+			for(int i = start; i < end; ++i){
 				JsonArray jpoint = new JsonArray();
-				jpoint.add(point.x);
-				jpoint.add(point.y);
+				jpoint.add(motionPaths.getX(i));
+				jpoint.add(motionPaths.getY(i));
 				arr.add(jpoint);
 			}
 			paths.add(arr);
@@ -256,4 +308,12 @@ public class JSONUtils {
 		printer.print(formatResultName(name));
 		printer.println(',');
 	}
+	
+	/**
+	 * Sends the timed stages of a query and the latency statistics of its categories, only done for queries with "debug": true
+	 */
+	public static void printTrace(PrintStream printer, QueryTrace trace, Collection<String> categories){
+		printer.print(JSONEncoder.encodeTrace(trace, categories).toString());
+		printer.println(',');
+	}
 }
@@ -4,7 +4,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.Properties;
+import java.util.Set;
 import java.util.UUID;
 
 import org.apache.logging.log4j.LogManager;
@@ -84,7 +86,67 @@ public class Config {
 			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
 		}
 		
-		extractorConfig = new ExtractorConfig(shotQueueSize, poolthreads, ExtractorConfig.DEFAULT_TASK_QUEUE_SIZE);
+		ExtractorConfig.SegmenterMode segmenterMode = ExtractorConfig.DEFAULT_SEGMENTER_MODE;
+		property = properties.getProperty("segmenterMode", "" + segmenterMode);
+		try{
+			segmenterMode = ExtractorConfig.SegmenterMode.valueOf(property.trim().toUpperCase());
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		int motionChunkLength = ExtractorConfig.DEFAULT_MOTION_CHUNK_LENGTH;
+		property = properties.getProperty("motionChunkLength", "" + motionChunkLength);
+		try{
+			motionChunkLength = Integer.parseInt(property.trim());
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		int motionChunkOverlap = ExtractorConfig.DEFAULT_MOTION_CHUNK_OVERLAP;
+		property = properties.getProperty("motionChunkOverlap", "" + motionChunkOverlap);
+		try{
+			motionChunkOverlap = Integer.parseInt(property.trim());
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		int motionTrackingMaxWidth = ExtractorConfig.DEFAULT_MOTION_TRACKING_MAX_WIDTH;
+		property = properties.getProperty("motionTrackingMaxWidth", "" + motionTrackingMaxWidth);
+		try{
+			motionTrackingMaxWidth = Integer.parseInt(property.trim());
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		int metricsInterval = ExtractorConfig.DEFAULT_METRICS_INTERVAL;
+		property = properties.getProperty("metricsInterval", "" + metricsInterval);
+		try{
+			metricsInterval = Integer.parseInt(property.trim());
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		String metricsFile = properties.getProperty("metricsFile", ExtractorConfig.DEFAULT_METRICS_FILE);
+		
+		boolean profiling = Boolean.parseBoolean(properties.getProperty("profiling", "" + ExtractorConfig.DEFAULT_PROFILING).trim());
+		
+		int writerThreads = ExtractorConfig.DEFAULT_WRITER_THREADS;
+		property = properties.getProperty("writerThreads", "" + writerThreads);
+		try{
+			writerThreads = Integer.parseInt(property.trim());
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		int writeQueueSize = ExtractorConfig.DEFAULT_WRITE_QUEUE_SIZE;
+		property = properties.getProperty("writeQueueSize", "" + writeQueueSize);
+		try{
+			writeQueueSize = Integer.parseInt(property.trim());
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		extractorConfig = new ExtractorConfig(shotQueueSize, poolthreads, ExtractorConfig.DEFAULT_TASK_QUEUE_SIZE, segmenterMode, motionChunkLength, motionChunkOverlap, motionTrackingMaxWidth, metricsInterval, metricsFile, profiling, writerThreads, writeQueueSize);
 		
 		
 		int resultsPerModule = RetrieverConfig.DEFAULT_RESULTS_PER_MODULE, maxResults = RetrieverConfig.DEFAULT_MAX_RESULTS;
@@ -103,7 +165,60 @@ public class Config {
 			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
 		}
 		
-		retrieverConfig = new RetrieverConfig(poolthreads, RetrieverConfig.DEFAULT_TASK_QUEUE_SIZE, maxResults, resultsPerModule);
+		File indexFolder = new File(properties.getProperty("indexFolder", RetrieverConfig.DEFAULT_INDEX_FOLDER.getPath()));
+		
+		int indexProbes = RetrieverConfig.DEFAULT_INDEX_PROBES;
+		property = properties.getProperty("indexProbes", "" + indexProbes);
+		try{
+			indexProbes = Integer.parseInt(property.trim());
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		int indexRerankFactor = RetrieverConfig.DEFAULT_INDEX_RERANK_FACTOR;
+		property = properties.getProperty("indexRerankFactor", "" + indexRerankFactor);
+		try{
+			indexRerankFactor = Integer.parseInt(property.trim());
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		boolean thresholdFusion = RetrieverConfig.DEFAULT_THRESHOLD_FUSION;
+		property = properties.getProperty("thresholdFusion", "" + thresholdFusion);
+		try{
+			thresholdFusion = Boolean.parseBoolean(property.trim());
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		int cascadePoolSize = RetrieverConfig.DEFAULT_CASCADE_POOL_SIZE;
+		property = properties.getProperty("cascadePoolSize", "" + cascadePoolSize);
+		try{
+			cascadePoolSize = Integer.parseInt(property.trim());
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		Set<String> cascadeCoarseModules = RetrieverConfig.DEFAULT_CASCADE_COARSE_MODULES;
+		property = properties.getProperty("cascadeCoarseModules");
+		if(property != null){
+			cascadeCoarseModules = new HashSet<>();
+			for(String module : property.split(",")){
+				if(!module.trim().isEmpty()){
+					cascadeCoarseModules.add(module.trim());
+				}
+			}
+		}
+		
+		long resultCacheSize = RetrieverConfig.DEFAULT_RESULT_CACHE_SIZE;
+		property = properties.getProperty("resultCacheSize", "" + resultCacheSize);
+		try{
+			resultCacheSize = Long.parseLong(property.trim());
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		retrieverConfig = new RetrieverConfig(poolthreads, RetrieverConfig.DEFAULT_TASK_QUEUE_SIZE, maxResults, resultsPerModule, indexFolder, indexProbes, indexRerankFactor, thresholdFusion, cascadePoolSize, cascadeCoarseModules, resultCacheSize);
 		
 		
 		int maxFrameWidth = DecoderConfig.DEFAULT_MAX_FRAME_WIDTH, maxFrameHeight = DecoderConfig.DEFAULT_MAX_FRAME_HEIGHT;
@@ -122,7 +237,39 @@ public class Config {
 			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
 		}
 		
-		decoderConfig = new DecoderConfig(maxFrameWidth, maxFrameHeight);
+		DecoderConfig.SamplingMode samplingMode = DecoderConfig.DEFAULT_SAMPLING_MODE;
+		property = properties.getProperty("samplingMode", "" + samplingMode);
+		try{
+			samplingMode = DecoderConfig.SamplingMode.valueOf(property.trim().toUpperCase());
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		int samplingInterval = DecoderConfig.DEFAULT_SAMPLING_INTERVAL;
+		property = properties.getProperty("samplingInterval", "" + samplingInterval);
+		try{
+			samplingInterval = Integer.parseInt(property);
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		boolean lazyFrameConversion = DecoderConfig.DEFAULT_LAZY_FRAME_CONVERSION;
+		property = properties.getProperty("lazyFrameConversion", "" + lazyFrameConversion);
+		try{
+			lazyFrameConversion = Boolean.parseBoolean(property.trim());
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		int maxLazyFrames = DecoderConfig.DEFAULT_MAX_LAZY_FRAMES;
+		property = properties.getProperty("maxLazyFrames", "" + maxLazyFrames);
+		try{
+			maxLazyFrames = Integer.parseInt(property.trim());
+		}catch(Exception e){
+			LOGGER.warn("error while parsing properties: {}", LogHelper.getStackTrace(e));
+		}
+		
+		decoderConfig = new DecoderConfig(maxFrameWidth, maxFrameHeight, samplingMode, samplingInterval, lazyFrameConversion, maxLazyFrames);
 		
 		int port = APIConfig.DEFAULT_JSON_API_PORT;
 		
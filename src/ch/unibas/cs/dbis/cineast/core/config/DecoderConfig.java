@@ -4,13 +4,35 @@ public final class DecoderConfig { //TODO add decoder class
 
 	private final int maxFrameWidth;
 	private final int maxFrameHeight;
+	private final SamplingMode samplingMode;
+	private final int samplingInterval;
+	private final boolean lazyFrameConversion;
+	private final int maxLazyFrames;
 	
 	public static final int DEFAULT_MAX_FRAME_WIDTH = Integer.MAX_VALUE;
 	public static final int DEFAULT_MAX_FRAME_HEIGHT = Integer.MAX_VALUE;
+	public static final SamplingMode DEFAULT_SAMPLING_MODE = SamplingMode.ALL;
+	public static final int DEFAULT_SAMPLING_INTERVAL = 1;
+	public static final boolean DEFAULT_LAZY_FRAME_CONVERSION = false;
+	public static final int DEFAULT_MAX_LAZY_FRAMES = 256;
 	
-	public DecoderConfig(int maxFrameWidth, int maxFrameHeight){
+	public static enum SamplingMode{
+		ALL, //every frame is returned
+		INTERVAL, //every samplingInterval-th frame is returned
+		KEYFRAMES //only key frames are returned
+	}
+	
+	public DecoderConfig(int maxFrameWidth, int maxFrameHeight, SamplingMode samplingMode, int samplingInterval, boolean lazyFrameConversion, int maxLazyFrames){
 		this.maxFrameWidth = maxFrameWidth;
 		this.maxFrameHeight = maxFrameHeight;
+		this.samplingMode = samplingMode;
+		this.samplingInterval = Math.max(1, samplingInterval);
+		this.lazyFrameConversion = lazyFrameConversion;
+		this.maxLazyFrames = Math.max(0, maxLazyFrames);
+	}
+	
+	public DecoderConfig(int maxFrameWidth, int maxFrameHeight){
+		this(maxFrameWidth, maxFrameHeight, DEFAULT_SAMPLING_MODE, DEFAULT_SAMPLING_INTERVAL, DEFAULT_LAZY_FRAME_CONVERSION, DEFAULT_MAX_LAZY_FRAMES);
 	}
 	
 	public DecoderConfig(){
@@ -25,4 +47,32 @@ public final class DecoderConfig { //TODO add decoder class
 		return this.maxFrameHeight;
 	}
 	
+	public SamplingMode getSamplingMode(){
+		return this.samplingMode;
+	}
+	
+	/**
+	 * only relevant for {@link SamplingMode#INTERVAL}
+	 */
+	public int getSamplingInterval(){
+		return this.samplingInterval;
+	}
+	
+	/**
+	 * if true, decoders only produce the thumbnail right away and keep the decoded frame to compute the full resolution image on demand.
+	 * The full resolution image is the same as without lazy conversion, only frames which are never looked at in full resolution
+	 * are cheaper.
+	 */
+	public boolean isLazyFrameConversion(){
+		return this.lazyFrameConversion;
+	}
+	
+	/**
+	 * the maximum number of decoded frames kept for lazy conversion at any time. They are held in native memory, which the
+	 * image memory policy does not see, frames decoded beyond the limit are converted right away.
+	 */
+	public int getMaxLazyFrames(){
+		return this.maxLazyFrames;
+	}
+	
 }
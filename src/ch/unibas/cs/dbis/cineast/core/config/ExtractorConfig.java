@@ -5,19 +5,51 @@ public final class ExtractorConfig {
 	private final int shotQueueSize;
 	private final int threadPoolSize;
 	private final int taskQueueSize;
+	private final SegmenterMode segmenterMode;
+	private final int motionChunkLength;
+	private final int motionChunkOverlap;
+	private final int motionTrackingMaxWidth;
+	private final int metricsInterval;
+	private final String metricsFile;
+	private final boolean profiling;
+	private final int writerThreads;
+	private final int writeQueueSize;
 	
 	public static final int DEFAULT_SHOT_QUEUE_SIZE = 5;
 	public static final int DEFAULT_THREAD_POOL_SIZE = 4;
 	public static final int DEFAULT_TASK_QUEUE_SIZE = 10;
+	public static final SegmenterMode DEFAULT_SEGMENTER_MODE = SegmenterMode.FUZZY_COLOR;
+	public static final int DEFAULT_MOTION_CHUNK_LENGTH = 0; //frames, 0 tracks every shot in one piece. Chunking changes the stored motion histograms
+	public static final int DEFAULT_MOTION_CHUNK_OVERLAP = 5;
+	public static final int DEFAULT_MOTION_TRACKING_MAX_WIDTH = 0; //0 tracks at full resolution
+	public static final int DEFAULT_METRICS_INTERVAL = 60; //seconds, 0 disables the export
+	public static final String DEFAULT_METRICS_FILE = null; //only log the metrics
+	public static final boolean DEFAULT_PROFILING = false;
+	public static final int DEFAULT_WRITER_THREADS = 0; //writes synchronously from the extraction threads, write-behind is opt-in
+	public static final int DEFAULT_WRITE_QUEUE_SIZE = 1000;
+	
+	public static enum SegmenterMode{
+		FUZZY_COLOR, //subdivided fuzzy color histogram with fixed threshold
+		FAST //small RGB / luma histogram on the thumbnail with adaptive threshold
+	}
 	
 	public ExtractorConfig(){
-		this(DEFAULT_SHOT_QUEUE_SIZE, DEFAULT_THREAD_POOL_SIZE, DEFAULT_TASK_QUEUE_SIZE);
+		this(DEFAULT_SHOT_QUEUE_SIZE, DEFAULT_THREAD_POOL_SIZE, DEFAULT_TASK_QUEUE_SIZE, DEFAULT_SEGMENTER_MODE, DEFAULT_MOTION_CHUNK_LENGTH, DEFAULT_MOTION_CHUNK_OVERLAP, DEFAULT_MOTION_TRACKING_MAX_WIDTH, DEFAULT_METRICS_INTERVAL, DEFAULT_METRICS_FILE, DEFAULT_PROFILING, DEFAULT_WRITER_THREADS, DEFAULT_WRITE_QUEUE_SIZE);
 	}
 	
-	public ExtractorConfig(int shotQueueSize, int threadPoolSize, int taskQueueSize){
+	public ExtractorConfig(int shotQueueSize, int threadPoolSize, int taskQueueSize, SegmenterMode segmenterMode, int motionChunkLength, int motionChunkOverlap, int motionTrackingMaxWidth, int metricsInterval, String metricsFile, boolean profiling, int writerThreads, int writeQueueSize){
 		this.shotQueueSize = shotQueueSize;
 		this.threadPoolSize = threadPoolSize;
 		this.taskQueueSize = taskQueueSize;
+		this.segmenterMode = segmenterMode;
+		this.motionChunkLength = motionChunkLength;
+		this.motionChunkOverlap = motionChunkOverlap;
+		this.motionTrackingMaxWidth = motionTrackingMaxWidth;
+		this.metricsInterval = metricsInterval;
+		this.metricsFile = metricsFile;
+		this.profiling = profiling;
+		this.writerThreads = writerThreads;
+		this.writeQueueSize = writeQueueSize;
 	}
 	
 	
@@ -32,4 +64,67 @@ public final class ExtractorConfig {
 	public int getTaskQueueSize() {
 		return this.taskQueueSize;
 	}
+
+	public SegmenterMode getSegmenterMode() {
+		return this.segmenterMode;
+	}
+
+	/**
+	 * @return the number of frames per chunk when tracking motion in parallel, shots which are not longer than
+	 * motionChunkLength + motionChunkOverlap are tracked in one piece. 0, the default, disables chunking. Chunked tracking
+	 * yields slightly different paths, so the motion histograms of collections extracted with and without chunking should
+	 * not be compared.
+	 */
+	public int getMotionChunkLength() {
+		return this.motionChunkLength;
+	}
+
+	/**
+	 * @return the number of frames shared by consecutive chunks, used to stitch the tracks together
+	 */
+	public int getMotionChunkOverlap() {
+		return this.motionChunkOverlap;
+	}
+
+	/**
+	 * @return the maximal width of the images used for motion tracking, larger frames are downscaled by powers of two
+	 */
+	public int getMotionTrackingMaxWidth() {
+		return this.motionTrackingMaxWidth;
+	}
+
+	/**
+	 * @return the interval in seconds in which the extraction metrics are exported, 0 if they are not exported
+	 */
+	public int getMetricsInterval() {
+		return this.metricsInterval;
+	}
+
+	/**
+	 * @return the file to which the extraction metrics are written as JSON, null if they are only logged
+	 */
+	public String getMetricsFile() {
+		return this.metricsFile;
+	}
+
+	/**
+	 * @return true if the timers of {@link ch.unibas.cs.dbis.cineast.core.util.TimeHelper} are collected
+	 */
+	public boolean getProfiling() {
+		return this.profiling;
+	}
+
+	/**
+	 * @return the number of threads writing the extracted features to the database, 0 if they are written synchronously
+	 */
+	public int getWriterThreads() {
+		return this.writerThreads;
+	}
+
+	/**
+	 * @return the maximal number of tuples waiting to be written, extraction blocks while the queue is full
+	 */
+	public int getWriteQueueSize() {
+		return this.writeQueueSize;
+	}
 }
@@ -1,26 +1,71 @@
 package ch.unibas.cs.dbis.cineast.core.config;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 public final class RetrieverConfig {
 
 	private final int threadPoolSize;
 	private final int taskQueueSize;
 	private final int maxResults;
 	private final int resultsPerModule;
+	private final File indexFolder;
+	private final int indexProbes;
+	private final int indexRerankFactor;
+	private final boolean thresholdFusion;
+	private final int cascadePoolSize;
+	private final Set<String> cascadeCoarseModules;
+	private final long resultCacheSize;
 	
 	public static final int DEFAULT_THREAD_POOL_SIZE = 4;
 	public static final int DEFAULT_TASK_QUEUE_SIZE = 10;
 	public static final int DEFAULT_MAX_RESULTS = 100;
 	public static final int DEFAULT_RESULTS_PER_MODULE = 50;
+	public static final File DEFAULT_INDEX_FOLDER = new File("index");
+	public static final int DEFAULT_INDEX_PROBES = 8;
+	public static final int DEFAULT_INDEX_RERANK_FACTOR = 4;
+	public static final boolean DEFAULT_THRESHOLD_FUSION = false;
+	public static final int DEFAULT_CASCADE_POOL_SIZE = 0;
+	public static final Set<String> DEFAULT_CASCADE_COARSE_MODULES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"AverageColor", "MedianColor", "DominantColors", "AverageColorCLD", "CLD", "AverageColorGrid8", "MedianColorGrid8",
+			"AverageFuzzyHist", "MedianFuzzyHist", "MotionHistogram", "MotionSum")));
+	public static final long DEFAULT_RESULT_CACHE_SIZE = 32 * 1024 * 1024;
 	
 	public RetrieverConfig(){
 		this(DEFAULT_THREAD_POOL_SIZE, DEFAULT_TASK_QUEUE_SIZE, DEFAULT_MAX_RESULTS, DEFAULT_RESULTS_PER_MODULE);
 	}
 	
 	public RetrieverConfig(int threadPoolSize, int taskQueueSize, int maxResults, int resultsPerModule){
+		this(threadPoolSize, taskQueueSize, maxResults, resultsPerModule, DEFAULT_INDEX_FOLDER, DEFAULT_INDEX_PROBES, DEFAULT_INDEX_RERANK_FACTOR);
+	}
+	
+	public RetrieverConfig(int threadPoolSize, int taskQueueSize, int maxResults, int resultsPerModule, File indexFolder, int indexProbes, int indexRerankFactor){
+		this(threadPoolSize, taskQueueSize, maxResults, resultsPerModule, indexFolder, indexProbes, indexRerankFactor, DEFAULT_THRESHOLD_FUSION);
+	}
+	
+	public RetrieverConfig(int threadPoolSize, int taskQueueSize, int maxResults, int resultsPerModule, File indexFolder, int indexProbes, int indexRerankFactor, boolean thresholdFusion){
+		this(threadPoolSize, taskQueueSize, maxResults, resultsPerModule, indexFolder, indexProbes, indexRerankFactor, thresholdFusion, DEFAULT_CASCADE_POOL_SIZE, DEFAULT_CASCADE_COARSE_MODULES);
+	}
+	
+	public RetrieverConfig(int threadPoolSize, int taskQueueSize, int maxResults, int resultsPerModule, File indexFolder, int indexProbes, int indexRerankFactor, boolean thresholdFusion, int cascadePoolSize, Set<String> cascadeCoarseModules){
+		this(threadPoolSize, taskQueueSize, maxResults, resultsPerModule, indexFolder, indexProbes, indexRerankFactor, thresholdFusion, cascadePoolSize, cascadeCoarseModules, DEFAULT_RESULT_CACHE_SIZE);
+	}
+	
+	public RetrieverConfig(int threadPoolSize, int taskQueueSize, int maxResults, int resultsPerModule, File indexFolder, int indexProbes, int indexRerankFactor, boolean thresholdFusion, int cascadePoolSize, Set<String> cascadeCoarseModules, long resultCacheSize){
 		this.threadPoolSize = threadPoolSize;
 		this.taskQueueSize = taskQueueSize;
 		this.maxResults = maxResults;
 		this.resultsPerModule = resultsPerModule;
+		this.indexFolder = indexFolder;
+		this.indexProbes = indexProbes;
+		this.indexRerankFactor = indexRerankFactor;
+		this.thresholdFusion = thresholdFusion;
+		this.cascadePoolSize = cascadePoolSize;
+		this.cascadeCoarseModules = Collections.unmodifiableSet(new HashSet<>(cascadeCoarseModules));
+		this.resultCacheSize = resultCacheSize;
 	}
 	
 	public int getThreadPoolSize(){
@@ -38,4 +83,56 @@ public final class RetrieverConfig {
 	public int getMaxResultsPerModule(){
 		return this.resultsPerModule;
 	}
+	
+	/**
+	 * @return the folder containing the approximate nearest neighbour indexes of the feature tables
+	 */
+	public File getIndexFolder(){
+		return this.indexFolder;
+	}
+	
+	/**
+	 * @return the number of inverted lists scanned per index query, higher values increase recall and latency
+	 */
+	public int getIndexProbes(){
+		return this.indexProbes;
+	}
+	
+	/**
+	 * @return how many times more candidates than results are read from the index and re-ranked by their exact distance,
+	 * values below 2 disable re-ranking
+	 */
+	public int getIndexRerankFactor(){
+		return this.indexRerankFactor;
+	}
+	
+	/**
+	 * @return true if retrievers are run in order of descending weight and the remaining ones are skipped as soon as the top
+	 * results can no longer change
+	 */
+	public boolean getThresholdFusion(){
+		return this.thresholdFusion;
+	}
+	
+	/**
+	 * @return the number of candidates the coarse modules select for the other modules of a category, 0 if all modules search
+	 * the whole collection
+	 */
+	public int getCascadePoolSize(){
+		return this.cascadePoolSize;
+	}
+	
+	/**
+	 * @return the simple class names of the modules which search the whole collection when cascaded retrieval is enabled
+	 */
+	public Set<String> getCascadeCoarseModules(){
+		return this.cascadeCoarseModules;
+	}
+	
+	/**
+	 * @return the approximate number of bytes used to cache fused results of repeated queries, 0 disables the cache
+	 */
+	public long getResultCacheSize(){
+		return this.resultCacheSize;
+	}
 }
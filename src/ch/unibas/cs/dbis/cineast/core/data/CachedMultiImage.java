@@ -15,6 +15,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.metrics.ExtractionMetrics;
 import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
 import net.coobird.thumbnailator.Thumbnails;
 
@@ -126,6 +127,7 @@ public class CachedMultiImage implements MultiImage {
 		LOGGER.entry();
 		int[] _return = null;
 		
+		ExtractionMetrics.recordCacheRead();
 		try {
 			ObjectInputStream oin = new ObjectInputStream(new FileInputStream(file));
 			_return = (int[]) oin.readObject();
@@ -4,11 +4,20 @@ package ch.unibas.cs.dbis.cineast.core.data;
 public class Frame {
 
 	private final int id;
+	private final boolean sampled;
 	private MultiImage img;
 	
 	public Frame(int id, MultiImage image){
+		this(id, image, true);
+	}
+	
+	/**
+	 * @param sampled false if the frame was only decoded for motion tracking and is not selected by the sampling mode of the decoder
+	 */
+	public Frame(int id, MultiImage image, boolean sampled){
 		this.id = id;
 		this.img = image;
+		this.sampled = sampled;
 	}
 	
 	public int getId(){
@@ -19,6 +28,10 @@ public class Frame {
 		return this.img;
 	}
 	
+	public boolean isSampled(){
+		return this.sampled;
+	}
+	
 	public void clear(){
 		this.img.clear();
 		this.img = null;
@@ -6,14 +6,20 @@ import ch.unibas.cs.dbis.cineast.core.data.providers.AvgImgProvider;
 import ch.unibas.cs.dbis.cineast.core.data.providers.DurationProvider;
 import ch.unibas.cs.dbis.cineast.core.data.providers.MedianImgProvider;
 import ch.unibas.cs.dbis.cineast.core.data.providers.MostRepresentativeFrameProvider;
+import ch.unibas.cs.dbis.cineast.core.data.providers.MotionHistogramProvider;
 import ch.unibas.cs.dbis.cineast.core.data.providers.PathProvider;
 import ch.unibas.cs.dbis.cineast.core.data.providers.SubtitleItemProvider;
 import ch.unibas.cs.dbis.cineast.core.data.providers.TagProvider;
 
-public interface FrameContainer extends AvgImgProvider, DurationProvider, MedianImgProvider, MostRepresentativeFrameProvider, SubtitleItemProvider, PathProvider, TagProvider{
+public interface FrameContainer extends AvgImgProvider, DurationProvider, MedianImgProvider, MostRepresentativeFrameProvider, SubtitleItemProvider, PathProvider, MotionHistogramProvider, TagProvider{
 
 	List<Frame> getFrames();
 	
+	/**
+	 * @return every decoded frame including those not selected by the sampling mode, motion paths are tracked on these
+	 */
+	List<Frame> getAllFrames();
+	
 	/**
 	 * @return a unique id of this 
 	 */
@@ -0,0 +1,137 @@
+package ch.unibas.cs.dbis.cineast.core.data;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * {@link MultiImage} which only holds the thumbnail and a reference to the decoded frame.
+ * The full resolution RGB image is computed on the first call to {@link #getColors()} or {@link #getBufferedImage()},
+ * frames which are only ever looked at as thumbnails are never converted. The conversion is done by the decoder which
+ * produced the frame, so the result is the same as if the frame had been converted right away.
+ */
+public class LazyMultiImage implements MultiImage {
+
+	private static final int[] MASKS = new int[] { 0x00ff0000, 0x0000ff00, 0x000000ff };
+
+	/**
+	 * a decoded frame which has not been converted yet
+	 */
+	public interface Source {
+
+		/**
+		 * converts the frame into packed RGB at the size of the image
+		 */
+		void convert(int[] out);
+
+		/**
+		 * called once the frame is no longer needed, either after the conversion or when the image is cleared
+		 */
+		void release();
+
+	}
+
+	private final int width, height; //size of the full resolution image after scaling
+	private Source source;
+
+	private BufferedImage thumb;
+	private int[] thumbColors;
+
+	private BufferedImage bimg;
+	private int[] colors;
+
+	/**
+	 * @param width width of the full resolution image
+	 * @param height height of the full resolution image
+	 */
+	LazyMultiImage(int width, int height, Source source, BufferedImage thumb){
+		this.width = width;
+		this.height = height;
+		this.source = source;
+		this.thumb = thumb;
+		this.thumbColors = thumb.getRGB(0, 0, thumb.getWidth(), thumb.getHeight(), null, 0, thumb.getWidth());
+	}
+
+	@Override
+	public synchronized BufferedImage getBufferedImage() {
+		materialize();
+		return this.bimg;
+	}
+
+	@Override
+	public BufferedImage getThumbnailImage() {
+		return this.thumb;
+	}
+
+	@Override
+	public synchronized int[] getColors() {
+		materialize();
+		return this.colors;
+	}
+
+	@Override
+	public int[] getThumbnailColors() {
+		return this.thumbColors;
+	}
+
+	@Override
+	public int getWidth() {
+		return this.width;
+	}
+
+	@Override
+	public int getHeight() {
+		return this.height;
+	}
+
+	/**
+	 * @return true if the full resolution image has already been computed
+	 */
+	public synchronized boolean isMaterialized(){
+		return this.colors != null;
+	}
+
+	@Override
+	public synchronized void clear() {
+		if(this.source != null){
+			this.source.release();
+			this.source = null;
+		}
+		this.colors = null;
+		this.bimg = null;
+	}
+
+	private void materialize(){
+		if(this.colors != null || this.source == null){
+			return;
+		}
+		int[] colors = new int[this.width * this.height];
+		try{
+			this.source.convert(colors);
+		}finally{
+			this.source.release();
+			this.source = null;
+		}
+		for(int i = 0; i < colors.length; ++i){
+			colors[i] |= 0xFF000000; //same as BufferedImage.getRGB() on an opaque image
+		}
+		this.colors = colors;
+
+		DataBuffer db = new DataBufferInt(this.colors, this.colors.length);
+		SampleModel sm = new SinglePixelPackedSampleModel(DataBuffer.TYPE_INT, this.width, this.height, MASKS);
+		WritableRaster wr = Raster.createWritableRaster(sm, db, new Point());
+		this.bimg = new BufferedImage(new DirectColorModel(24, MASKS[0], MASKS[1], MASKS[2]), wr, false, null);
+	}
+
+	@Override
+	public String toString() {
+		return "LazyMultiImage (" + this.width + "x" + this.height + ")" + (this.colors == null ? "" : " materialized");
+	}
+
+}
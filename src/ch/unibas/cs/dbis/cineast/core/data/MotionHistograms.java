@@ -0,0 +1,44 @@
+package ch.unibas.cs.dbis.cineast.core.data;
+
+/**
+ * Motion sums and 8 bin direction histograms of a set of motion paths for all grid subdivisions from 1x1 to
+ * {@link #MAX_SUBDIV}x{@link #MAX_SUBDIV}. For a subdivision s, the sum of cell i is at getSums(s)[i] and its
+ * L1 normalized histogram occupies getHistograms(s)[8 * i, 8 * i + 8).
+ * The arrays are shared and must not be modified.
+ */
+public class MotionHistograms {
+
+	public static final int MAX_SUBDIV = 5;
+	public static final int BINS = 8;
+
+	private final double[][] sums;
+	private final float[][] hists;
+
+	public MotionHistograms(double[][] sums, float[][] hists){
+		if(sums.length != MAX_SUBDIV || hists.length != MAX_SUBDIV){
+			throw new IllegalArgumentException("expected " + MAX_SUBDIV + " subdivision levels");
+		}
+		this.sums = sums;
+		this.hists = hists;
+	}
+
+	/**
+	 * @param subdiv number of cells per row and column, 1 to MAX_SUBDIV
+	 */
+	public double[] getSums(int subdiv){
+		return this.sums[subdiv - 1];
+	}
+
+	/**
+	 * @param subdiv number of cells per row and column, 1 to MAX_SUBDIV
+	 */
+	public float[] getHistograms(int subdiv){
+		return this.hists[subdiv - 1];
+	}
+
+	@Override
+	public String toString() {
+		return "MotionHistograms (1x1 to " + MAX_SUBDIV + "x" + MAX_SUBDIV + ", total " + this.sums[0][0] + ")";
+	}
+
+}
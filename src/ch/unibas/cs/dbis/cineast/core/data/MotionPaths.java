@@ -0,0 +1,104 @@
+package ch.unibas.cs.dbis.cineast.core.data;
+
+import java.util.Arrays;
+
+/**
+ * Packed set of motion paths. The points of all paths are stored in two flat coordinate arrays, path i occupies the
+ * points [getOffset(i), getOffset(i + 1)). Coordinates are relative to the frame size, i.e. in [0, 1].
+ * Paths are appended using {@link #beginPath(int)} followed by {@link #addPoint(float, float)}.
+ */
+public class MotionPaths {
+
+	private float[] xs, ys;
+	private int pointCount = 0;
+
+	private int[] offsets; //offsets[pathCount] == pointCount
+	private int[] startFrames;
+	private int pathCount = 0;
+
+	public MotionPaths(){
+		this(16, 256);
+	}
+
+	public MotionPaths(int pathCapacity, int pointCapacity){
+		this.xs = new float[Math.max(1, pointCapacity)];
+		this.ys = new float[this.xs.length];
+		this.offsets = new int[Math.max(1, pathCapacity) + 1];
+		this.startFrames = new int[this.offsets.length - 1];
+	}
+
+	/**
+	 * starts a new path, subsequent calls to {@link #addPoint(float, float)} add points to it
+	 * @param startFrame id of the frame the path starts in
+	 * @return the index of the new path
+	 */
+	public int beginPath(int startFrame){
+		if(this.pathCount == this.startFrames.length){
+			this.startFrames = Arrays.copyOf(this.startFrames, this.startFrames.length * 2);
+			this.offsets = Arrays.copyOf(this.offsets, this.startFrames.length + 1);
+		}
+		this.startFrames[this.pathCount] = startFrame;
+		this.offsets[this.pathCount] = this.pointCount;
+		++this.pathCount;
+		this.offsets[this.pathCount] = this.pointCount;
+		return this.pathCount - 1;
+	}
+
+	/**
+	 * adds a point to the path started last
+	 */
+	public void addPoint(float x, float y){
+		if(this.pathCount == 0){
+			throw new IllegalStateException("no path started");
+		}
+		if(this.pointCount == this.xs.length){
+			this.xs = Arrays.copyOf(this.xs, this.xs.length * 2);
+			this.ys = Arrays.copyOf(this.ys, this.xs.length);
+		}
+		this.xs[this.pointCount] = x;
+		this.ys[this.pointCount] = y;
+		++this.pointCount;
+		this.offsets[this.pathCount] = this.pointCount;
+	}
+
+	public int getPathCount(){
+		return this.pathCount;
+	}
+
+	public int getPointCount(){
+		return this.pointCount;
+	}
+
+	/**
+	 * @return the index of the first point of path i
+	 */
+	public int getOffset(int i){
+		return this.offsets[i];
+	}
+
+	public int getPathLength(int i){
+		return this.offsets[i + 1] - this.offsets[i];
+	}
+
+	public int getStartFrame(int i){
+		return this.startFrames[i];
+	}
+
+	public float getX(int point){
+		return this.xs[point];
+	}
+
+	public float getY(int point){
+		return this.ys[point];
+	}
+
+	public boolean isEmpty(){
+		return this.pathCount == 0;
+	}
+
+	@Override
+	public String toString() {
+		return "MotionPaths (" + this.pathCount + " paths, " + this.pointCount + " points)";
+	}
+
+}
@@ -9,6 +9,7 @@ import org.apache.logging.log4j.Logger;
 
 import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.config.ImageMemoryConfig.Policy;
+import ch.unibas.cs.dbis.cineast.core.metrics.ExtractionMetrics;
 
 public class MultiImageFactory {
 
@@ -41,6 +42,20 @@ public class MultiImageFactory {
 		}
 	}
 	
+	/**
+	 * creates a {@link LazyMultiImage} which converts the decoded frame on first use. If the image can not be kept in memory,
+	 * it is converted immediately and cached to disk.
+	 */
+	public static MultiImage newLazyMultiImage(int width, int height, LazyMultiImage.Source source, BufferedImage thumb){
+		LazyMultiImage img = new LazyMultiImage(width, height, source, thumb);
+		if(keepInMemory()){
+			return img;
+		}
+		MultiImage _return = new CachedMultiImage(img.getBufferedImage(), thumb);
+		img.clear();
+		return _return;
+	}
+	
 	public static MultiImage newInMemoryMultiImage(BufferedImage bimg){
 		if(Config.getImageMemoryConfig().getCachingPolicy() == Policy.FORCE_DISK_CACHE){
 			LOGGER.warn("creating cached instead of in memory MultiImage because of policy");
@@ -54,6 +69,12 @@ public class MultiImageFactory {
 	 * @return
 	 */
 	private static boolean keepInMemory(){
+		boolean _return = hasMemory();
+		ExtractionMetrics.recordImage(_return);
+		return _return;
+	}
+	
+	private static boolean hasMemory(){
 		long freeMemory = Runtime.getRuntime().freeMemory();
 		
 		Policy cachePolicy = Config.getImageMemoryConfig().getCachingPolicy();
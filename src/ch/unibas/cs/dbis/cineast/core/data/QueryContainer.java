@@ -1,18 +1,18 @@
 package ch.unibas.cs.dbis.cineast.core.data;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 import ch.unibas.cs.dbis.cineast.core.decode.subtitle.SubtitleItem;
-import georegression.struct.point.Point2D_F32;
+import ch.unibas.cs.dbis.cineast.core.descriptor.SubDivMotionHistograms;
 
 public class QueryContainer implements FrameContainer {
 
 	private MultiImage img;
 	private Frame frame;
 	private ArrayList<SubtitleItem> subitem = new ArrayList<SubtitleItem>(1);
-	private List<Pair<Integer, LinkedList<Point2D_F32>>> paths = new ArrayList<Pair<Integer, LinkedList<Point2D_F32>>>();
+	private MotionPaths paths = new MotionPaths();
+	private MotionHistograms motionHistograms = null;
 	private ArrayList<String> tags = new ArrayList<>();
 	private float relativeStart = 0, relativeEnd = 0;
 	
@@ -75,9 +75,17 @@ public class QueryContainer implements FrameContainer {
 	}
 
 	@Override
-	public List<Pair<Integer, LinkedList<Point2D_F32>>> getPaths() {
+	public MotionPaths getPaths() {
 		return this.paths;
 	}
+	
+	@Override
+	public synchronized MotionHistograms getMotionHistograms() {
+		if(this.motionHistograms == null){
+			this.motionHistograms = SubDivMotionHistograms.getHistograms(this.paths);
+		}
+		return this.motionHistograms;
+	}
 
 	@Override
 	public List<Frame> getFrames() {
@@ -85,6 +93,11 @@ public class QueryContainer implements FrameContainer {
 		_return.add(this.frame);
 		return _return;
 	}
+	
+	@Override
+	public List<Frame> getAllFrames() {
+		return getFrames();
+	}
 
 	@Override
 	public long getId() {
@@ -96,8 +109,15 @@ public class QueryContainer implements FrameContainer {
 		return 0;
 	}
 	
-	public void addPath(LinkedList<Point2D_F32> path){
-		this.paths.add(new Pair<Integer, LinkedList<Point2D_F32>>(0, path));
+	/**
+	 * adds a path starting in the first frame, xs and ys hold the relative coordinates of its points
+	 */
+	public synchronized void addPath(float[] xs, float[] ys){
+		this.motionHistograms = null;
+		this.paths.beginPath(0);
+		for(int i = 0; i < xs.length; ++i){
+			this.paths.addPoint(xs[i], ys[i]);
+		}
 	}
 
 	@Override
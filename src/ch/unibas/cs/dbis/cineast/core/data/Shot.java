@@ -1,6 +1,7 @@
 package ch.unibas.cs.dbis.cineast.core.data;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -12,17 +13,19 @@ import ch.unibas.cs.dbis.cineast.core.descriptor.AvgImg;
 import ch.unibas.cs.dbis.cineast.core.descriptor.MedianImg;
 import ch.unibas.cs.dbis.cineast.core.descriptor.MostRepresentative;
 import ch.unibas.cs.dbis.cineast.core.descriptor.PathList;
-import georegression.struct.point.Point2D_F32;
+import ch.unibas.cs.dbis.cineast.core.descriptor.SubDivMotionHistograms;
 
 public class Shot implements FrameContainer{
 
 	private static final Logger LOGGER = LogManager.getLogger();
 	
-	private LinkedList<Frame> frames = new LinkedList<>();
+	private LinkedList<Frame> frames = new LinkedList<>(); //frames selected by the sampling mode
+	private LinkedList<Frame> allFrames = new LinkedList<>(); //including the frames only decoded for motion tracking
 	private LinkedList<SubtitleItem> subItems = new LinkedList<>();
 	private MultiImage avgImg = null, medianImg = null;
 	private Frame mostRepresentative = null;
-	private List<Pair<Integer, LinkedList<Point2D_F32>>> paths = null;
+	private MotionPaths paths = null;
+	private MotionHistograms motionHistograms = null;
 	private ArrayList<String> tags = new ArrayList<>(1);
 	private final long movieId;
 	private final int movieFrameCount;
@@ -34,16 +37,30 @@ public class Shot implements FrameContainer{
 	}
 	
 	public int getNumberOfFrames(){
-		return this.frames.size();
+		return this.allFrames.size();
 	}
 
 
+	/**
+	 * @return the sampled frames, the middle frame if the shot is too short to contain a sampled frame
+	 */
 	public List<Frame> getFrames() {
+		if(this.frames.isEmpty() && !this.allFrames.isEmpty()){
+			return Collections.singletonList(this.allFrames.get(this.allFrames.size() / 2));
+		}
 		return this.frames;
 	}
 	
+	@Override
+	public List<Frame> getAllFrames() {
+		return this.allFrames;
+	}
+	
 	public void addFrame(Frame f){
-		this.frames.add(f);
+		this.allFrames.add(f);
+		if(f.isSampled()){
+			this.frames.add(f);
+		}
 	}
 	
 	@Override
@@ -59,7 +76,7 @@ public class Shot implements FrameContainer{
 	public MultiImage getAvgImg(){
 		synchronized (getAvgLock) {
 			if(avgImg == null){
-				avgImg = AvgImg.getAvg(frames);			
+				avgImg = AvgImg.getAvg(getFrames());			
 			}
 			return avgImg;
 		}
@@ -69,30 +86,42 @@ public class Shot implements FrameContainer{
 	public MultiImage getMedianImg(){
 		synchronized (getMedianLock) {
 			if(this.medianImg == null){
-				this.medianImg = MedianImg.getMedian(frames);
+				this.medianImg = MedianImg.getMedian(getFrames());
 		}
 		return this.medianImg;
 		}
 	}
 	
 	private Object getPathsLock = new Object();
-	public List<Pair<Integer, LinkedList<Point2D_F32>>> getPaths() {
+	public MotionPaths getPaths() {
 		synchronized (getPathsLock) {
 			if(this.paths == null){
-				this.paths = PathList.getPaths(frames);
+				this.paths = PathList.getPaths(allFrames);
 			}
+			return this.paths;
+		}
+	}
+	
+	private Object getMotionHistogramsLock = new Object();
+	public MotionHistograms getMotionHistograms() {
+		synchronized (getMotionHistogramsLock) {
+			if(this.motionHistograms == null){
+				this.motionHistograms = SubDivMotionHistograms.getHistograms(getPaths());
+			}
+			return this.motionHistograms;
 		}
-		return this.paths;
 	}
 
 	public void clear(){
 		LOGGER.trace("clear shot {}", shotId);
-		for(Frame f : frames){
+		for(Frame f : allFrames){
 			f.clear();
 		}
 		frames.clear();
+		allFrames.clear();
 		subItems.clear();
 		this.frames = null;
+		this.allFrames = null;
 		if(avgImg != null){
 			this.avgImg.clear();
 			this.avgImg = null;
@@ -101,10 +130,8 @@ public class Shot implements FrameContainer{
 			this.medianImg.clear();
 			this.medianImg = null;
 		}
-		if(this.paths != null){
-			this.paths.clear();
-			this.paths = null;
-		}
+		this.paths = null;
+		this.motionHistograms = null;
 		
 		this.mostRepresentative = null;
 	}
@@ -120,17 +147,17 @@ public class Shot implements FrameContainer{
 	}
 
 	public int getStart(){
-		if(this.frames.isEmpty()){
+		if(this.allFrames.isEmpty()){
 			return 0;
 		}
-		return this.frames.getFirst().getId();
+		return this.allFrames.getFirst().getId();
 	}
 	
 	public int getEnd(){
-		if(this.frames.isEmpty()){
+		if(this.allFrames.isEmpty()){
 			return 0;
 		}
-		return this.frames.getLast().getId();
+		return this.allFrames.getLast().getId();
 	}
 	
 	public void setShotId(long id){
@@ -0,0 +1,9 @@
+package ch.unibas.cs.dbis.cineast.core.data.providers;
+
+import ch.unibas.cs.dbis.cineast.core.data.MotionHistograms;
+
+public interface MotionHistogramProvider {
+
+	MotionHistograms getMotionHistograms();
+	
+}
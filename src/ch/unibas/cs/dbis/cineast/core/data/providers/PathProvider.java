@@ -1,14 +1,10 @@
 package ch.unibas.cs.dbis.cineast.core.data.providers;
 
-import java.util.LinkedList;
-import java.util.List;
-
-import ch.unibas.cs.dbis.cineast.core.data.Pair;
-import georegression.struct.point.Point2D_F32;
+import ch.unibas.cs.dbis.cineast.core.data.MotionPaths;
 
 
 public interface PathProvider {
 
-	List<Pair<Integer, LinkedList<Point2D_F32>>> getPaths();
+	MotionPaths getPaths();
 	
 }
@@ -5,21 +5,25 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
 import java.util.Properties;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.metrics.ExtractionMetrics;
 import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
 
-public abstract class ADAMWriter implements PersistencyWriter<AbstractADAMTuple> {
+public abstract class ADAMWriter implements BatchPersistencyWriter<AbstractADAMTuple> {
 
 	private static final Logger LOGGER = LogManager.getLogger();
 
 	Connection connection;
 	String name;
 	String returning;
+	private boolean failOnError = false;
 	
 	public ADAMWriter(){
 		this(Config.getDatabaseConfig().getLocation(),
@@ -73,6 +77,7 @@ public abstract class ADAMWriter implements PersistencyWriter<AbstractADAMTuple>
 
 	@Override
 	public void write(AbstractADAMTuple tuple) {
+		long start = System.nanoTime();
 		try {
 			if(tuple instanceof ReturningADAMTuple){
 				ResultSet result = tuple.getPersistentRepresentation().executeQuery();
@@ -84,6 +89,77 @@ public abstract class ADAMWriter implements PersistencyWriter<AbstractADAMTuple>
 			}			
 		} catch (SQLException e) {
 			LOGGER.fatal(LogHelper.SQL_MARKER, LogHelper.getStackTrace(e));
+			if(this.failOnError){
+				throw new IllegalStateException("could not write tuple to " + this.name, e);
+			}
+		}finally{
+			ExtractionMetrics.recordDBWrite(System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * by default a failed {@link #write(AbstractADAMTuple)} is only logged. If set, it throws an {@link IllegalStateException},
+	 * so the caller can retry the work which produced the tuple.
+	 */
+	public void setFailOnError(boolean failOnError){
+		this.failOnError = failOnError;
+	}
+
+	/**
+	 * writes the tuples in one transaction, plain inserts are sent to the database as a single batch
+	 */
+	@Override
+	public boolean writeBatch(List<AbstractADAMTuple> tuples) {
+		long start = System.nanoTime();
+		Statement statement = null;
+		boolean _return = false;
+		try {
+			this.connection.setAutoCommit(false);
+			statement = this.connection.createStatement();
+			for(AbstractADAMTuple tuple : tuples){
+				if(tuple instanceof ReturningADAMTuple){
+					ResultSet result = tuple.getPersistentRepresentation().executeQuery();
+					if(result.next()){
+						((ReturningADAMTuple)tuple).setResult(result.getLong(1));
+					}
+				}else{
+					String sql = tuple.makeSQL();
+					LOGGER.debug(LogHelper.SQL_MARKER, sql);
+					statement.addBatch(sql);
+				}
+			}
+			statement.executeBatch();
+			this.connection.commit();
+			_return = true;
+		} catch (SQLException e) {
+			LOGGER.warn(LogHelper.SQL_MARKER, LogHelper.getStackTrace(e.getNextException() == null ? e : e.getNextException()));
+			rollback();
+		} catch (Exception e){
+			LOGGER.error(LogHelper.getStackTrace(e));
+			rollback();
+		} finally {
+			try {
+				if(statement != null){
+					statement.close();
+				}
+				if(this.connection != null){
+					this.connection.setAutoCommit(true);
+				}
+			} catch (SQLException e) {
+				LOGGER.warn(LogHelper.SQL_MARKER, LogHelper.getStackTrace(e));
+			}
+		}
+		ExtractionMetrics.recordDBWrite(System.nanoTime() - start);
+		return _return;
+	}
+
+	private void rollback(){
+		try {
+			if(this.connection != null){
+				this.connection.rollback();
+			}
+		} catch (SQLException e) {
+			LOGGER.warn(LogHelper.SQL_MARKER, LogHelper.getStackTrace(e));
 		}
 	}
 
@@ -0,0 +1,16 @@
+package ch.unibas.cs.dbis.cineast.core.db;
+
+import java.util.List;
+
+/**
+ * A writer which can persist several tuples at once at about the cost of a single one
+ */
+public interface BatchPersistencyWriter<T extends PersistentTuple<?>> extends PersistencyWriter<T> {
+
+	/**
+	 * writes either all tuples or none of them
+	 * @return false if the tuples could not be written, the batch can then be retried
+	 */
+	boolean writeBatch(List<T> tuples);
+
+}
@@ -12,6 +12,7 @@ import org.apache.logging.log4j.Logger;
 
 import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.config.DatabaseConfig;
+import ch.unibas.cs.dbis.cineast.core.metrics.QueryTrace;
 import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
 
 public class DBSelector {
@@ -42,8 +43,16 @@ private static final Logger LOGGER = LogManager.getLogger();
 			LOGGER.fatal(LogHelper.SQL_MARKER, LogHelper.getStackTrace(e));
 		}
 	}
-	
+
+	/**
+	 * uses an existing connection, which may be null for selectors which do not access a database
+	 */
+	protected DBSelector(Connection connection){
+		this.connection = connection;
+	}
+
 	public ResultSet select(String query){
+		long start = System.nanoTime();
 		try {
 			PreparedStatement statement = connection.prepareStatement(query);
 			LOGGER.debug(LogHelper.SQL_MARKER, query);
@@ -52,6 +61,8 @@ private static final Logger LOGGER = LogManager.getLogger();
 			LOGGER.warn(LogHelper.SQL_MARKER, LogHelper.getStackTrace(e));
 		} catch (Exception e){
 			LOGGER.error(LogHelper.getStackTrace(e));
+		} finally {
+			QueryTrace.record("sql", start);
 		}
 		return null;
 	}
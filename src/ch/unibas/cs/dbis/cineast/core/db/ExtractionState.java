@@ -0,0 +1,131 @@
+package ch.unibas.cs.dbis.cineast.core.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
+
+/**
+ * Knows which shots of a video already have an entry in which feature table, so the extractors do not have to ask the
+ * database for every shot. Shot ids are composed of the video id and the shot number (see {@link
+ * ch.unibas.cs.dbis.cineast.core.segmenter.ShotSegmenter}), so the shots of a video are kept as one bitset per table indexed
+ * by shot number. The state is loaded with a single query when the extraction of a video starts. Shots of other videos and
+ * tables without a shotid column are checked in the database as before.
+ */
+public class ExtractionState {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private static final int SHOT_NUMBER_BITS = 16;
+
+	private static volatile ExtractionState current = null;
+
+	private final int videoId;
+	private final boolean empty;
+	private final Map<String, BitSet> tables = new HashMap<>();
+
+	private ExtractionState(int videoId, boolean empty){
+		this.videoId = videoId;
+		this.empty = empty;
+	}
+
+	/**
+	 * @return a state for a video which has just been added, none of its shots has been extracted
+	 */
+	public static ExtractionState empty(int videoId){
+		return new ExtractionState(videoId, true);
+	}
+
+	/**
+	 * loads the shots of the video present in every table of the features schema which has a shotid column
+	 * @return the state or null if it could not be loaded
+	 */
+	public static ExtractionState load(int videoId){
+		long start = System.currentTimeMillis();
+		DBSelector selector = new DBSelector();
+		try{
+			ResultSet rset = selector.select("SELECT table_name FROM information_schema.columns WHERE table_schema = 'features' AND column_name = 'shotid'");
+			if(rset == null){
+				return null;
+			}
+			List<String> names = new ArrayList<>();
+			while(rset.next()){
+				names.add(rset.getString(1));
+			}
+
+			ExtractionState _return = new ExtractionState(videoId, false);
+			if(names.isEmpty()){
+				return _return;
+			}
+			long first = ((long) videoId) << SHOT_NUMBER_BITS, last = first | ((1l << SHOT_NUMBER_BITS) - 1);
+			StringBuilder sb = new StringBuilder();
+			for(int i = 0; i < names.size(); ++i){
+				String name = names.get(i);
+				_return.tables.put("features." + name.toLowerCase(), new BitSet());
+				if(i > 0){
+					sb.append(" UNION ALL ");
+				}
+				sb.append("SELECT ");
+				sb.append(i);
+				sb.append(", shotid FROM features.\"");
+				sb.append(name.replace("\"", "\"\""));
+				sb.append("\" WHERE shotid BETWEEN ");
+				sb.append(first);
+				sb.append(" AND ");
+				sb.append(last);
+			}
+			rset = selector.select(sb.toString());
+			if(rset == null){
+				return null;
+			}
+			int shots = 0;
+			while(rset.next()){
+				_return.tables.get("features." + names.get(rset.getInt(1)).toLowerCase()).set((int) (rset.getLong(2) - first));
+				++shots;
+			}
+			LOGGER.info("loaded {} extracted shots of video {} in {} tables in {}ms", shots, videoId, names.size(), System.currentTimeMillis() - start);
+			return _return;
+		}catch(SQLException e){
+			LOGGER.warn(LogHelper.SQL_MARKER, LogHelper.getStackTrace(e));
+			return null;
+		}finally{
+			selector.close();
+		}
+	}
+
+	/**
+	 * sets the state used by {@link #isExtracted(PersistencyWriter, String, long)}
+	 * @param state the state of the video being extracted or null once it is done
+	 */
+	public static void setCurrent(ExtractionState state){
+		current = state;
+	}
+
+	/**
+	 * @param table the feature table including the schema, e.g. features.AverageColor
+	 * @return true if the table already contains the shot, answered from the current state if it covers the shot and with
+	 * a query through the writer otherwise
+	 */
+	public static boolean isExtracted(PersistencyWriter<?> writer, String table, long shotId){
+		ExtractionState state = current;
+		if(state != null && (shotId >>> SHOT_NUMBER_BITS) == state.videoId){
+			if(state.empty){
+				return false;
+			}
+			BitSet shots = state.tables.get(table.toLowerCase());
+			if(shots != null){
+				return shots.get((int) (shotId & ((1l << SHOT_NUMBER_BITS) - 1)));
+			}
+		}
+		return writer.check("SELECT 1 FROM " + table + " WHERE shotid = " + shotId + " LIMIT 1");
+	}
+
+}
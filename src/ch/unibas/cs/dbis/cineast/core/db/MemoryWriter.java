@@ -0,0 +1,80 @@
+package ch.unibas.cs.dbis.cineast.core.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the written tuples in memory in their CSV representation, for benchmarks and tests which should not depend on a
+ * database. Nothing is ever reported as already extracted. Tuples may be written from several threads.
+ */
+public class MemoryWriter implements PersistencyWriter<CSVTuple> {
+
+	private String name = null;
+	private final List<String> rows = Collections.synchronizedList(new ArrayList<String>());
+	private long bytes = 0;
+
+	@Override
+	public boolean open(String name) {
+		this.name = name;
+		return true;
+	}
+
+	@Override
+	public boolean check(String condition) {
+		return false;
+	}
+
+	@Override
+	public CSVTuple makeTuple(Object... objects) {
+		CSVTuple tuple = new CSVTuple(this);
+		for(Object o : objects){
+			tuple.addElement(o);
+		}
+		return tuple;
+	}
+
+	@Override
+	public void write(CSVTuple tuple) {
+		String row = tuple.getPersistentRepresentation();
+		synchronized (this.rows) {
+			this.rows.add(row);
+			this.bytes += row.length();
+		}
+	}
+
+	@Override
+	public boolean close() {
+		return true;
+	}
+
+	/**
+	 * @return the name the writer was opened with, null if it was never opened
+	 */
+	public String getName(){
+		return this.name;
+	}
+
+	public int size(){
+		return this.rows.size();
+	}
+
+	/**
+	 * @return the number of characters written
+	 */
+	public long getBytes(){
+		synchronized (this.rows) {
+			return this.bytes;
+		}
+	}
+
+	/**
+	 * @return a copy of the written rows
+	 */
+	public List<String> getRows(){
+		synchronized (this.rows) {
+			return new ArrayList<>(this.rows);
+		}
+	}
+
+}
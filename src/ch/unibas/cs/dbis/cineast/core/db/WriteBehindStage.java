@@ -0,0 +1,190 @@
+package ch.unibas.cs.dbis.cineast.core.db;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
+
+/**
+ * Writes the tuples of {@link WriteBehindWriter}s in the background, so the extraction threads do not wait for the database.
+ * The tuples are kept in a bounded queue, extraction blocks while it is full. A few writer threads take up to BATCH_SIZE
+ * tuples at a time, group them by table and write every group as one batch, failed batches are retried with growing delay.
+ * Batches which still fail are dropped and reported to their writer as such. The queue is drained when the stage is shut
+ * down, which also happens to the shared stage when the JVM exits.
+ */
+public class WriteBehindStage {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private static final int BATCH_SIZE = 100;
+	private static final int MAX_ATTEMPTS = 5;
+	private static final long RETRY_DELAY = 200; //ms, doubled for every attempt
+
+	private static WriteBehindStage instance = null;
+	private static boolean shutdownHookAdded = false;
+
+	private final BlockingQueue<Entry> queue;
+	private final Thread[] threads;
+	private volatile boolean running = true;
+
+	private static final class Entry{
+		private final WriteBehindWriter<?> writer;
+		private final PersistentTuple<?> tuple;
+		private final long sequence;
+
+		private Entry(WriteBehindWriter<?> writer, PersistentTuple<?> tuple, long sequence){
+			this.writer = writer;
+			this.tuple = tuple;
+			this.sequence = sequence;
+		}
+	}
+
+	/**
+	 * @return the shared stage, configured by the {@link ch.unibas.cs.dbis.cineast.core.config.ExtractorConfig}
+	 */
+	public static synchronized WriteBehindStage getInstance(){
+		if(instance == null || !instance.running){
+			instance = new WriteBehindStage(Config.getExtractorConfig().getWriterThreads(), Config.getExtractorConfig().getWriteQueueSize());
+		}
+		if(!shutdownHookAdded){
+			//a single hook for all stages, it drains whichever one is current when the JVM exits
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					WriteBehindStage stage;
+					synchronized (WriteBehindStage.class) {
+						stage = instance;
+					}
+					stage.shutdown();
+				}
+			}, "WriteBehindStageShutdown"));
+			shutdownHookAdded = true;
+		}
+		return instance;
+	}
+
+	public WriteBehindStage(int threadCount, int queueSize){
+		this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+		this.threads = new Thread[Math.max(1, threadCount)];
+		for(int i = 0; i < this.threads.length; ++i){
+			this.threads[i] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					work();
+				}
+			}, "WriteBehindStage-" + i);
+			this.threads[i].setDaemon(true);
+			this.threads[i].start();
+		}
+	}
+
+	/**
+	 * queues a tuple, blocks while the queue is full
+	 * @param sequence the sequence number the writer assigned to the tuple, reported back once it is written or dropped
+	 * @return false if the stage is shut down and the tuple has to be written by the caller
+	 */
+	boolean enqueue(WriteBehindWriter<?> writer, PersistentTuple<?> tuple, long sequence) throws InterruptedException{
+		Entry entry = new Entry(writer, tuple, sequence);
+		while(this.running){
+			if(this.queue.offer(entry, 100, TimeUnit.MILLISECONDS)){
+				//the writer threads may have stopped in the meantime, then the entry is taken back
+				return this.running || !this.queue.remove(entry);
+			}
+		}
+		return false;
+	}
+
+	public int getQueueSize(){
+		return this.queue.size();
+	}
+
+	private void work(){
+		List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+		Map<WriteBehindWriter<?>, List<Entry>> tables = new LinkedHashMap<>();
+		while(this.running || !this.queue.isEmpty()){
+			Entry first;
+			try {
+				first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				continue; //only stops once the queue is drained
+			}
+			if(first == null){
+				continue;
+			}
+			batch.add(first);
+			this.queue.drainTo(batch, BATCH_SIZE - 1);
+			for(Entry entry : batch){
+				List<Entry> entries = tables.get(entry.writer);
+				if(entries == null){
+					entries = new ArrayList<>();
+					tables.put(entry.writer, entries);
+				}
+				entries.add(entry);
+			}
+			for(Map.Entry<WriteBehindWriter<?>, List<Entry>> table : tables.entrySet()){
+				write(table.getKey(), table.getValue());
+			}
+			batch.clear();
+			tables.clear();
+		}
+	}
+
+	private void write(WriteBehindWriter<?> writer, List<Entry> entries){
+		List<PersistentTuple<?>> tuples = new ArrayList<>(entries.size());
+		long[] sequences = new long[entries.size()];
+		for(int i = 0; i < sequences.length; ++i){
+			tuples.add(entries.get(i).tuple);
+			sequences[i] = entries.get(i).sequence;
+		}
+		long delay = RETRY_DELAY;
+		boolean success = false;
+		try{
+			for(int attempt = 1; attempt <= MAX_ATTEMPTS; ++attempt){
+				if(writer.writeNow(tuples)){
+					success = true;
+					return;
+				}
+				if(attempt < MAX_ATTEMPTS){
+					LOGGER.warn("writing {} tuples to {} failed, retrying in {}ms", tuples.size(), writer.getName(), delay);
+					try {
+						Thread.sleep(delay);
+					} catch (InterruptedException e) {
+						//retry right away
+					}
+					delay *= 2;
+				}
+			}
+			LOGGER.error("dropping {} tuples for {} after {} attempts", tuples.size(), writer.getName(), MAX_ATTEMPTS);
+		}catch(Exception e){
+			LOGGER.error("dropping {} tuples for {}: {}", tuples.size(), writer.getName(), LogHelper.getStackTrace(e));
+		}finally{
+			writer.written(sequences, success);
+		}
+	}
+
+	/**
+	 * writes all queued tuples and stops the writer threads, tuples queued afterwards are written by the callers
+	 */
+	public void shutdown(){
+		this.running = false;
+		for(Thread thread : this.threads){
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				LOGGER.warn("interrupted while waiting for {}", thread.getName());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,232 @@
+package ch.unibas.cs.dbis.cineast.core.db;
+
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.set.hash.TLongHashSet;
+
+/**
+ * Hands the written tuples of a writer to the {@link WriteBehindStage} instead of writing them on the calling thread. Writers
+ * which implement {@link BatchPersistencyWriter} get the tuples in batches. Every tuple gets a sequence number, so callers
+ * can take a {@link #mark()} and later {@link #flush(long) wait} for the tuples written up to it, while new tuples keep
+ * arriving. Tuples the stage gave up on are counted as dropped. Threads which {@link #setCurrentShot(long) set} the shot they
+ * write tuples for can find out which shots lost tuples with {@link #takeDroppedShots()}. Closing the writer waits until all
+ * of its tuples are written.
+ */
+public class WriteBehindWriter<T extends PersistentTuple<?>> implements PersistencyWriter<T> {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private static final ThreadLocal<Long> currentShot = new ThreadLocal<>();
+
+	private final PersistencyWriter<T> writer;
+	private final WriteBehindStage stage;
+	private final Object lock = new Object();
+	private long sequence = 0; //of the last tuple handed to the stage
+	private final TreeSet<Long> pending = new TreeSet<>();
+	private final TLongLongHashMap shots = new TLongLongHashMap(); //shot id by sequence number, while pending
+	private long dropped = 0;
+	private long firstDropped = Long.MAX_VALUE; //of the drops not yet taken
+	private TLongHashSet droppedShots = new TLongHashSet();
+	private long unknownDropped = 0; //dropped tuples written without a current shot
+	private String name = null;
+
+	public WriteBehindWriter(PersistencyWriter<T> writer, WriteBehindStage stage){
+		this.writer = writer;
+		this.stage = stage;
+	}
+
+	/**
+	 * @return the writer wrapped with the shared stage, or the writer itself if write-behind is switched off
+	 */
+	public static <T extends PersistentTuple<?>> PersistencyWriter<T> wrap(PersistencyWriter<T> writer){
+		if(Config.getExtractorConfig().getWriterThreads() <= 0){
+			return writer;
+		}
+		return new WriteBehindWriter<>(writer, WriteBehindStage.getInstance());
+	}
+
+	/**
+	 * sets the shot the calling thread writes tuples for until it is {@link #clearCurrentShot() cleared}
+	 */
+	public static void setCurrentShot(long shotId){
+		currentShot.set(shotId);
+	}
+
+	public static void clearCurrentShot(){
+		currentShot.remove();
+	}
+
+	@Override
+	public boolean open(String name) {
+		this.name = name;
+		return this.writer.open(name);
+	}
+
+	@Override
+	public boolean check(String condition) {
+		synchronized (this.writer) {
+			return this.writer.check(condition);
+		}
+	}
+
+	@Override
+	public T makeTuple(Object... objects) {
+		return this.writer.makeTuple(objects);
+	}
+
+	@Override
+	public void write(T tuple) {
+		long sequence;
+		Long shotId = currentShot.get();
+		synchronized (this.lock) {
+			sequence = ++this.sequence;
+			this.pending.add(sequence);
+			if(shotId != null){
+				this.shots.put(sequence, shotId);
+			}
+		}
+		try {
+			if(this.stage.enqueue(this, tuple, sequence)){
+				return;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		//the stage is gone, write it here
+		boolean success = false;
+		try{
+			synchronized (this.writer) {
+				this.writer.write(tuple);
+			}
+			success = true;
+		}finally{
+			written(new long[]{sequence}, success);
+		}
+	}
+
+	/**
+	 * called by the stage
+	 * @return false if the tuples could not be written
+	 */
+	@SuppressWarnings("unchecked")
+	boolean writeNow(List<PersistentTuple<?>> tuples){
+		synchronized (this.writer) {
+			if(this.writer instanceof BatchPersistencyWriter){
+				return ((BatchPersistencyWriter<T>) this.writer).writeBatch((List<T>) (List<?>) tuples);
+			}
+			for(PersistentTuple<?> tuple : tuples){
+				this.writer.write((T) tuple);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * called by the stage once tuples have been written or dropped
+	 * @param success false if the tuples were dropped
+	 */
+	void written(long[] sequences, boolean success){
+		synchronized (this.lock) {
+			for(long sequence : sequences){
+				this.pending.remove(sequence);
+				boolean known = this.shots.containsKey(sequence);
+				long shotId = this.shots.remove(sequence);
+				if(!success){
+					this.firstDropped = Math.min(this.firstDropped, sequence);
+					if(known){
+						this.droppedShots.add(shotId);
+					}else{
+						++this.unknownDropped;
+					}
+				}
+			}
+			if(!success){
+				this.dropped += sequences.length;
+			}
+			this.lock.notifyAll();
+		}
+	}
+
+	/**
+	 * @return the sequence number of the last tuple written so far, to be passed to {@link #flush(long)}
+	 */
+	public long mark(){
+		synchronized (this.lock) {
+			return this.sequence;
+		}
+	}
+
+	/**
+	 * waits until all tuples written so far have reached the database
+	 * @return false if a tuple was dropped or the wait was interrupted
+	 */
+	public boolean flush(){
+		return flush(mark());
+	}
+
+	/**
+	 * waits until the tuples up to a {@link #mark()} have reached the database, tuples written afterwards are not waited for
+	 * @return false if a tuple up to the mark was dropped since the last {@link #takeDroppedShots()} or the wait was interrupted
+	 */
+	public boolean flush(long mark){
+		synchronized (this.lock) {
+			while(!this.pending.isEmpty() && this.pending.first() <= mark){
+				try {
+					this.lock.wait(1000);
+				} catch (InterruptedException e) {
+					LOGGER.warn("interrupted while flushing {}, {} tuples pending", this.name, this.pending.size());
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+			return this.firstDropped > mark;
+		}
+	}
+
+	/**
+	 * @return the shots which lost tuples since the last call, the drops are considered handled afterwards
+	 */
+	public long[] takeDroppedShots(){
+		synchronized (this.lock) {
+			long[] _return = this.droppedShots.toArray();
+			this.droppedShots = new TLongHashSet();
+			this.firstDropped = Long.MAX_VALUE;
+			if(this.unknownDropped > 0){
+				LOGGER.error("{} dropped tuples for {} belong to no known shot", this.unknownDropped, this.name);
+				this.unknownDropped = 0;
+			}
+			return _return;
+		}
+	}
+
+	/**
+	 * @return the number of tuples the stage gave up on
+	 */
+	public long getDroppedCount(){
+		synchronized (this.lock) {
+			return this.dropped;
+		}
+	}
+
+	@Override
+	public boolean close() {
+		boolean flushed = flush();
+		if(!flushed){
+			LOGGER.error("not all tuples for {} reached the database, {} were dropped", this.name, getDroppedCount());
+		}
+		synchronized (this.writer) {
+			return this.writer.close() && flushed;
+		}
+	}
+
+	public String getName(){
+		return this.name;
+	}
+
+}
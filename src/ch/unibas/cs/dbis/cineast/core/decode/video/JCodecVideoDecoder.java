@@ -11,6 +11,8 @@ import org.jcodec.common.FileChannelWrapper;
 import org.jcodec.common.NIOUtils;
 import org.jcodec.common.model.Picture;
 
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.config.DecoderConfig.SamplingMode;
 import ch.unibas.cs.dbis.cineast.core.data.Frame;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImageFactory;
 import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
@@ -22,6 +24,9 @@ public class JCodecVideoDecoder implements VideoDecoder {
 	private static final Logger LOGGER = LogManager.getLogger();
 	private FileChannelWrapper channel;
 	private JcodecFrameGrab fg;
+	private SamplingMode samplingMode = Config.getDecoderConfig().getSamplingMode();
+	private int samplingInterval = Config.getDecoderConfig().getSamplingInterval();
+	private boolean dense = false;
 	
 	public JCodecVideoDecoder(File file){
 		String path = file.getAbsolutePath().toLowerCase();
@@ -53,7 +58,7 @@ public class JCodecVideoDecoder implements VideoDecoder {
 	@Override
 	public void seekToFrame(int frameNumber){
 		try {
-			this.fg.seekToFramePrecise(frameNumber);
+			this.fg.seekToFrame(Math.max(0, frameNumber - 1)); //the grabber counts from 0
 			LOGGER.debug("seeking to frame {}", frameNumber);
 		} catch (IOException e) {
 			LOGGER.warn("could not seek to frame {}", frameNumber);
@@ -80,11 +85,29 @@ public class JCodecVideoDecoder implements VideoDecoder {
 		Picture p = null;
 		int width = 0, height = 0;
 		int[] _return = null;
+		boolean sampled = true;
 		try {
-			p = this.fg.getNativeFrame();
+			while(true){
+				if(this.samplingMode == SamplingMode.KEYFRAMES && !this.dense && !this.fg.seekToNextKeyFrame()){
+					return null;
+				}
+				long frameNumber = this.fg.getCurrentFrameNum();
+				p = this.fg.getNativeFrame();
+				if(p == null){
+					return null;
+				}
+				sampled = isSampled((int)frameNumber);
+				//frames in between still need to be decoded as reference, but are not converted
+				if(sampled || this.dense){
+					break;
+				}
+			}
 			_return = PictureUtil.toColorArray(p);
 			width = p.getWidth();
 			height = p.getHeight();
+		} catch (JCodecException e) {
+			LOGGER.warn("error while seeking to next key frame");
+			LOGGER.warn(LogHelper.getStackTrace(e));
 		} catch (IOException e) {
 			LOGGER.warn("error while reading frame");
 			LOGGER.warn(LogHelper.getStackTrace(e));
@@ -94,7 +117,18 @@ public class JCodecVideoDecoder implements VideoDecoder {
 		if(_return == null){
 			return null;
 		}
-		return new Frame((int)this.fg.getCurrentFrameNum(), MultiImageFactory.newMultiImage(width, height, _return));
+		return new Frame((int)this.fg.getCurrentFrameNum(), MultiImageFactory.newMultiImage(width, height, _return), sampled);
+	}
+	
+	private boolean isSampled(int frameNumber){
+		switch(this.samplingMode){
+		case INTERVAL:
+			return frameNumber % this.samplingInterval == 0;
+		case KEYFRAMES:
+			return this.fg.isKeyFrame(frameNumber);
+		default:
+			return true;
+		}
 	}
 	
 	/* (non-Javadoc)
@@ -146,6 +180,22 @@ public class JCodecVideoDecoder implements VideoDecoder {
 	public int getHeight() {
 		return this.getOriginalHeight();
 	}
+
+	@Override
+	public void setSampling(SamplingMode mode, int interval) {
+		this.samplingMode = mode;
+		this.samplingInterval = Math.max(1, interval);
+	}
+
+	@Override
+	public SamplingMode getSamplingMode() {
+		return this.samplingMode;
+	}
+	
+	@Override
+	public void setDenseDecoding(boolean dense) {
+		this.dense = dense;
+	}
 	
 	
 }
\ No newline at end of file
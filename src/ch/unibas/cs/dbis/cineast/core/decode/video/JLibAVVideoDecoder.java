@@ -21,15 +21,19 @@ import org.libav.LibavException;
 import org.libav.avcodec.FrameWrapperFactory;
 import org.libav.avcodec.ICodecContextWrapper;
 import org.libav.avcodec.IFrameWrapper;
+import org.libav.avcodec.IPacketWrapper;
 import org.libav.avformat.IStreamWrapper;
 import org.libav.avutil.bridge.PixelFormat;
 import org.libav.data.IFrameConsumer;
+import org.libav.data.IPacketConsumer;
 import org.libav.swscale.ScaleContextWrapper;
 import org.libav.swscale.bridge.SWScaleLibrary;
 import org.libav.video.VideoFrameDecoder;
 
 import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.config.DecoderConfig.SamplingMode;
 import ch.unibas.cs.dbis.cineast.core.data.Frame;
+import ch.unibas.cs.dbis.cineast.core.data.LazyMultiImage;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImageFactory;
 import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
 
@@ -48,22 +52,27 @@ public class JLibAVVideoDecoder implements VideoDecoder {
 	
 	private boolean hasMorePackets = true;
 	
+	private static final int PKT_FLAG_KEY = 1;
+	private static final long NO_PTS = Long.MIN_VALUE;
+	private static final int MAX_SEEK_ATTEMPTS = 3;
+	
+	private File file;
+	private KeyFrameIndex keyFrames = null;
+	private double timeBase, frameRate;
+	private long startTime;
+	private LandingPacketConsumer landingConsumer = new LandingPacketConsumer();
+	
 	public JLibAVVideoDecoder(File file){
 		if(!file.exists()){
 			LOGGER.error("File does not exist {}", file.getAbsoluteFile());
 			return;
 		}
+		this.file = file;
 		
-		try {
-			this.mediaReader = new DefaultMediaReader(file.getAbsolutePath());
-			this.decoder = new VideoFrameDecoder(this.mediaReader.getVideoStream(videoStreamIndex));
-		} catch (LibavException e) {
-			LOGGER.error("Error while initialising JLibAVVideoDecoder: {}", LogHelper.getStackTrace(e));
+		if(!openReader()){
+			return;
 		}
 		
-		this.mediaReader.addVideoPacketConsumer(videoStreamIndex, this.decoder);
-		this.mediaReader.setVideoStreamBufferingEnabled(videoStreamIndex, true);
-		
 		 ICodecContextWrapper codecContext = decoder.getCodecContext();
 		 this.originalWidth = codecContext.getWidth();
 	     this.originalHeight = codecContext.getHeight();
@@ -79,25 +88,210 @@ public class JLibAVVideoDecoder implements VideoDecoder {
 	     }
 	     
 	     this.frameConsumer = new JLibAVFrameConsumer(this.originalWidth, this.originalHeight, this.width, this.height, codecContext.getPixelFormat());
+	     this.frameConsumer.setSampling(Config.getDecoderConfig().getSamplingMode(), Config.getDecoderConfig().getSamplingInterval());
 	     this.decoder.addFrameConsumer(this.frameConsumer);
 	     
 	     IStreamWrapper stream = decoder.getStream();
 	     this.fps = getFPS(stream);
 	     this.framecount = (int) stream.getFrameCount();
+	     this.timeBase = (double) stream.getTimeBase().getNumerator() / (double) stream.getTimeBase().getDenominator();
+	     this.frameRate = (double) stream.getRFrameRate().getNumerator() / (double) stream.getRFrameRate().getDenominator();
+	     this.startTime = stream.getStartTime() == NO_PTS ? 0 : stream.getStartTime();
 	     
 	    // MultiImageFactory.announceImageDimensions(this.width, this.height);
 	     
 	}
 	
+	/**
+	 * creates the reader and the decoder, the landing consumer has to see every packet before the decoder
+	 */
+	private boolean openReader(){
+		try {
+			this.mediaReader = new DefaultMediaReader(this.file.getAbsolutePath());
+			this.decoder = new VideoFrameDecoder(this.mediaReader.getVideoStream(videoStreamIndex));
+		} catch (LibavException e) {
+			LOGGER.error("Error while initialising JLibAVVideoDecoder: {}", LogHelper.getStackTrace(e));
+			return false;
+		}
+		
+		this.mediaReader.addVideoPacketConsumer(videoStreamIndex, this.landingConsumer);
+		this.mediaReader.addVideoPacketConsumer(videoStreamIndex, this.decoder);
+		this.mediaReader.setVideoStreamBufferingEnabled(videoStreamIndex, true);
+		this.hasMorePackets = true;
+		return true;
+	}
+	
+	/**
+	 * Decodes forward if there is no key frame between the current position and the frame, otherwise seeks to the last key
+	 * frame before it (see {@link KeyFrameIndex}) and decodes from there. The index is built by reading the packets of the
+	 * file once, without decoding them. If the demuxer does not land on a known key frame before the requested frame, the
+	 * file is decoded from the start.
+	 */
 	@Override
 	public void seekToFrame(int frameNumber) {
-		this.frameConsumer.setSeek(true);
-		while(frameNumber > frameConsumer.getFrameNumber()){
-			if(getFrame() == null){
-				break;
+		int target = Math.max(0, frameNumber - 1); //frames before the requested one
+		if(this.frameConsumer.skipQueuedFrames(target)){
+			return;
+		}
+		int current = this.frameConsumer.getFrameNumber();
+		this.frameConsumer.setSeekTarget(target);
+		if(target != current){
+			KeyFrameIndex index = getKeyFrameIndex();
+			int keyFrame = index.floor(target);
+			if(target < current || (keyFrame >= 0 && index.getPosition(keyFrame) > current)){
+				if(!seekToKeyFrame(index, keyFrame, target)){
+					LOGGER.warn("could not seek to a key frame before frame {}, decoding from the start", frameNumber);
+					reopen();
+					this.frameConsumer.setSeekTarget(target);
+				}
 			}
 		}
-		this.frameConsumer.setSeek(false);
+		//the remaining frames are decoded but not converted
+		while(this.hasMorePackets && target > this.frameConsumer.getFrameNumber()){
+			readNextPacket();
+		}
+		this.frameConsumer.setSeekTarget(0);
+	}
+	
+	private boolean seekToKeyFrame(KeyFrameIndex index, int keyFrame, int target){
+		for(int i = keyFrame; i >= 0 && i > keyFrame - MAX_SEEK_ATTEMPTS; --i){
+			long millis = (long) Math.floor((index.getTimestamp(i) - this.startTime) * this.timeBase * 1000d);
+			try {
+				this.mediaReader.seek(millis);
+				this.decoder.flush();
+			} catch (LibavException e) {
+				LOGGER.warn("Error while seeking to {}ms: {}", millis, LogHelper.getStackTrace(e));
+				return false;
+			}
+			this.landingConsumer.await(index);
+			readNextPacket();
+			int landed = this.landingConsumer.getLandedPosition();
+			if(landed >= 0 && landed <= target){
+				LOGGER.debug("seeked to key frame {} for frame {}", landed, target + 1);
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private void reopen(){
+		this.decoder.close();
+		try {
+			this.mediaReader.close();
+		} catch (LibavException e) {
+			LOGGER.warn("Error while closing mediaReader: {}", LogHelper.getStackTrace(e));
+		}
+		if(openReader()){
+			this.decoder.addFrameConsumer(this.frameConsumer);
+		}else{
+			this.hasMorePackets = false;
+		}
+		this.frameConsumer.reset(0);
+	}
+	
+	private void readNextPacket(){
+		try {
+			this.hasMorePackets = this.mediaReader.readNextPacket(this.videoStreamIndex);
+		} catch (LibavException e) {
+			this.hasMorePackets = false;
+			LOGGER.error("Error while decoding video: {}", LogHelper.getStackTrace(e));
+		}
+	}
+	
+	private KeyFrameIndex getKeyFrameIndex(){
+		if(this.keyFrames == null){
+			this.keyFrames = KeyFrameIndex.getCached(this.file);
+		}
+		if(this.keyFrames == null){
+			this.keyFrames = buildKeyFrameIndex();
+			if(this.keyFrames.size() > 0){
+				KeyFrameIndex.cache(this.file, this.keyFrames);
+			}
+		}
+		return this.keyFrames;
+	}
+	
+	/**
+	 * reads all packets of the video stream with a second reader and records the key frames, nothing is decoded
+	 */
+	private KeyFrameIndex buildKeyFrameIndex(){
+		final KeyFrameIndex _return = new KeyFrameIndex();
+		long start = System.currentTimeMillis();
+		DefaultMediaReader reader = null;
+		try {
+			reader = new DefaultMediaReader(this.file.getAbsolutePath());
+			reader.addVideoPacketConsumer(videoStreamIndex, new IPacketConsumer() {
+				
+				@Override
+				public void processPacket(Object producer, IPacketWrapper packet) throws LibavException {
+					if((packet.getFlags() & PKT_FLAG_KEY) != 0){
+						long timestamp = getTimestamp(packet);
+						_return.add(toPosition(timestamp), timestamp);
+					}
+				}
+			});
+			reader.setVideoStreamBufferingEnabled(videoStreamIndex, true);
+			while(reader.readNextPacket(videoStreamIndex)){
+				//packets are handled by the consumer
+			}
+		} catch (LibavException e) {
+			LOGGER.warn("Error while indexing key frames of {}: {}", this.file.getAbsolutePath(), LogHelper.getStackTrace(e));
+		} finally {
+			if(reader != null){
+				try {
+					reader.close();
+				} catch (LibavException e) {
+					LOGGER.warn("Error while closing mediaReader: {}", LogHelper.getStackTrace(e));
+				}
+			}
+		}
+		LOGGER.debug("indexed {} key frames of {} in {}ms", _return.size(), this.file.getName(), System.currentTimeMillis() - start);
+		return _return;
+	}
+	
+	private static long getTimestamp(IPacketWrapper packet){
+		return packet.getPts() != NO_PTS ? packet.getPts() : packet.getDts();
+	}
+	
+	/**
+	 * @return the number of frames before the given time stamp
+	 */
+	private int toPosition(long timestamp){
+		return (int) Math.round((timestamp - this.startTime) * this.timeBase * this.frameRate);
+	}
+	
+	/**
+	 * looks at the first packet after a seek before the decoder gets it and sets the frame number of the consumer to the
+	 * position of the key frame the demuxer has landed on
+	 */
+	private final class LandingPacketConsumer implements IPacketConsumer {
+		
+		private KeyFrameIndex index = null;
+		private int landedPosition = -1;
+		
+		void await(KeyFrameIndex index){
+			this.index = index;
+			this.landedPosition = -1;
+		}
+		
+		int getLandedPosition(){
+			return this.landedPosition;
+		}
+
+		@Override
+		public void processPacket(Object producer, IPacketWrapper packet) throws LibavException {
+			if(this.index == null){
+				return;
+			}
+			if((packet.getFlags() & PKT_FLAG_KEY) != 0){
+				this.landedPosition = this.index.getPositionOf(getTimestamp(packet));
+			}
+			if(this.landedPosition >= 0){
+				frameConsumer.reset(this.landedPosition);
+			}
+			this.index = null;
+		}
+		
 	}
 	
 	@Override
@@ -112,12 +306,7 @@ public class JLibAVVideoDecoder implements VideoDecoder {
 			return _return;
 		}
 		while(this.hasMorePackets && (_return = this.frameConsumer.getNextFrame()) == null){
-			try {
-				this.hasMorePackets = this.mediaReader.readNextPacket(this.videoStreamIndex);
-			} catch (LibavException e) {
-				this.hasMorePackets = false;
-				LOGGER.error("Error while decoding video: {}", LogHelper.getStackTrace(e));
-			}
+			readNextPacket();
 		}
 		return _return;
 	}
@@ -182,13 +371,31 @@ public class JLibAVVideoDecoder implements VideoDecoder {
 	public int getHeight() {
 		return this.height;
 	}
+
+	@Override
+	public void setSampling(SamplingMode mode, int interval) {
+		this.frameConsumer.setSampling(mode, interval);
+	}
+
+	@Override
+	public SamplingMode getSamplingMode() {
+		return this.frameConsumer.getSamplingMode();
+	}
+
+	@Override
+	public void setDenseDecoding(boolean dense) {
+		this.frameConsumer.setDenseDecoding(dense);
+	}
 }
 
 class JLibAVFrameConsumer implements IFrameConsumer{
 
 	private static final int MAX_THUMB_SIZE = 200;
-	private boolean seek = false;
+	private int seekTarget = 0;
 	private int frameNumber = 0;
+	private SamplingMode samplingMode = SamplingMode.ALL;
+	private int samplingInterval = 1;
+	private boolean dense = false;
 	//private int width, height, pixelFormat;
 	private ArrayDeque<Frame> frameQueue;
 	
@@ -198,10 +405,16 @@ class JLibAVFrameConsumer implements IFrameConsumer{
     private BufferedImage img, thumb;
     private int[] imageData, thumbData;
     
-    private int inHeight;
+    private int inWidth, inHeight, width, height;
+    private LazyFrameConverter lazyConverter = null;
 	
 	JLibAVFrameConsumer(int inwidth, int inheight, int width, int height, int pixelFormat) {
+		this.inWidth = inwidth;
 		this.inHeight = inheight;
+		this.width = width;
+		this.height = height;
+		//the decoded frame can only be kept for later conversion if its layout is known
+		boolean lazy = Config.getDecoderConfig().isLazyFrameConversion() && pixelFormat == PixelFormat.PIX_FMT_YUV420P;
 		
 		this.frameQueue = new ArrayDeque<>();
 		
@@ -223,6 +436,10 @@ class JLibAVFrameConsumer implements IFrameConsumer{
         	this.thumbScaleContext = ScaleContextWrapper.createContext(inwidth, inheight, PixelFormat.PIX_FMT_YUV420P, thumbWith, thumbHeight, dstPixelFormat, SWScaleLibrary.SWS_BICUBIC);
         	this.rgbThumb = FrameWrapperFactory.getInstance().allocPicture(dstPixelFormat, thumbWith, thumbHeight);
         	this.rgbThumbData = this.rgbThumb.getData().get();
+        	
+        	if(lazy){
+        		this.lazyConverter = new LazyFrameConverter(inwidth, inheight, width, height, dstPixelFormat);
+        	}
         } catch (LibavException ex) {
 	    	  
         }
@@ -246,29 +463,104 @@ class JLibAVFrameConsumer implements IFrameConsumer{
 		return this.frameNumber;
 	}
 	
-	void setSeek(boolean seek){
-		this.seek = seek;
+	/**
+	 * frames up to the target are counted but not converted
+	 */
+	void setSeekTarget(int seekTarget){
+		this.seekTarget = seekTarget;
+	}
+	
+	/**
+	 * drops the queued frames and continues counting at the given frame number, used after seeking
+	 */
+	void reset(int frameNumber){
+		for(Frame frame : this.frameQueue){
+			frame.clear();
+		}
+		this.frameQueue.clear();
+		this.frameNumber = frameNumber;
+	}
+	
+	/**
+	 * drops queued frames up to the target
+	 * @return true if the next queued frame is the first one after the target, i.e. no decoding is needed
+	 */
+	boolean skipQueuedFrames(int target){
+		if(this.frameQueue.isEmpty() || this.frameQueue.peek().getId() > target + 1){
+			return false;
+		}
+		while(!this.frameQueue.isEmpty() && this.frameQueue.peek().getId() <= target){
+			this.frameQueue.pop().clear();
+		}
+		return !this.frameQueue.isEmpty();
+	}
+	
+	void setSampling(SamplingMode mode, int interval){
+		this.samplingMode = mode;
+		this.samplingInterval = Math.max(1, interval);
+	}
+	
+	SamplingMode getSamplingMode(){
+		return this.samplingMode;
+	}
+	
+	void setDenseDecoding(boolean dense){
+		this.dense = dense;
+	}
+	
+	/**
+	 * frames which are not sampled are still decoded, to keep the frame count and the reference frames intact, but not scaled and copied
+	 */
+	private boolean isSampled(IFrameWrapper frame){
+		switch(this.samplingMode){
+		case INTERVAL:
+			return this.frameNumber % this.samplingInterval == 0;
+		case KEYFRAMES:
+			return frame.isKeyFrame();
+		default:
+			return true;
+		}
 	}
 	
 	@Override
 	public void processFrame(Object producer, IFrameWrapper frame) throws LibavException {
-		if(seek){
+		boolean sampled = isSampled(frame);
+		if(this.frameNumber < this.seekTarget || !(sampled || this.dense)){
 			++this.frameNumber;
 			return;
 		}
 		
+		if(this.lazyConverter != null){
+			LazyMultiImage.Source source = this.lazyConverter.keep(frame);
+			if(source != null){
+				processFrameLazy(frame, source, sampled);
+				return;
+			}
+			//too many decoded frames are kept already, this one is converted right away
+		}
+		
 		this.scaleContext.scale(frame, this.rgbFrame, 0, this.inHeight);
 		this.rgbFrameData.getIntsAtOffset(0, this.imageData, 0, this.imageData.length);
 		
 		this.thumbScaleContext.scale(frame, rgbThumb, 0, this.thumbData.length);
 		this.rgbThumbData.getIntsAtOffset(0, this.thumbData, 0, this.thumbData.length);
         
-        this.frameQueue.add(new Frame(++this.frameNumber, MultiImageFactory.newMultiImage(MultiImageFactory.copyBufferedImg(this.img), MultiImageFactory.copyBufferedImg(this.thumb))));
+        this.frameQueue.add(new Frame(++this.frameNumber, MultiImageFactory.newMultiImage(MultiImageFactory.copyBufferedImg(this.img), MultiImageFactory.copyBufferedImg(this.thumb)), sampled));
         //this.frameQueue.add(new Frame(++this.frameNumber, MultiImageFactory.copyIntoMultiImage(img)));
 		
 	}
 	
 	
+	/**
+	 * only computes the thumbnail and keeps a copy of the decoded frame, see {@link ch.unibas.cs.dbis.cineast.core.data.LazyMultiImage}
+	 */
+	private void processFrameLazy(IFrameWrapper frame, LazyMultiImage.Source source, boolean sampled) throws LibavException {
+		this.thumbScaleContext.scale(frame, rgbThumb, 0, this.thumbData.length);
+		this.rgbThumbData.getIntsAtOffset(0, this.thumbData, 0, this.thumbData.length);
+		
+		this.frameQueue.add(new Frame(++this.frameNumber, MultiImageFactory.newLazyMultiImage(this.width, this.height, source, MultiImageFactory.copyBufferedImg(this.thumb)), sampled));
+	}
+	
 	Frame getNextFrame(){
 		if(this.frameQueue.isEmpty()){
 			return null;
@@ -283,6 +575,10 @@ class JLibAVFrameConsumer implements IFrameConsumer{
             rgbFrame.free();
         
         scaleContext = null;
+        
+        if(this.lazyConverter != null){
+        	this.lazyConverter.close();
+        }
 	}
 	
 }
\ No newline at end of file
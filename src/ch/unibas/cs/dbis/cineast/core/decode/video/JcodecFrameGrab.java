@@ -41,6 +41,7 @@ public class JcodecFrameGrab {
     private DemuxerTrack videoTrack;
     private ContainerAdaptor decoder;
     private ThreadLocal<int[][]> buffers = new ThreadLocal<int[][]>();
+    private KeyFrameIndex keyFrames = null;
     
 
     public JcodecFrameGrab(SeekableByteChannel in) throws IOException, JCodecException {
@@ -61,12 +62,24 @@ public class JcodecFrameGrab {
         default:
             throw new UnsupportedFormatException("Container format is not supported by JCodec");
         }
+        indexKeyFrames();
         decodeLeadingFrames();
     }
 
     public JcodecFrameGrab(SeekableDemuxerTrack videoTrack, ContainerAdaptor decoder) {
         this.videoTrack = videoTrack;
         this.decoder = decoder;
+        indexKeyFrames();
+    }
+
+    /**
+     * the key frames are taken from the sync sample table of the container, null means that every frame is a key frame
+     */
+    private void indexKeyFrames() {
+        int[] seekFrames = videoTrack.getMeta().getSeekFrames();
+        if (seekFrames != null && seekFrames.length > 0) {
+            keyFrames = KeyFrameIndex.fromPositions(seekFrames);
+        }
     }
 
     private SeekableDemuxerTrack sdt() throws JCodecException {
@@ -117,6 +130,38 @@ public class JcodecFrameGrab {
         return this;
     }
 
+    /**
+     * Position frame grabber to a specific frame in a movie. As a result the
+     * next decoded frame will be precisely the requested frame number.
+     * 
+     * Unlike {@link #seekToFramePrecise(int)}, frames are decoded forward from
+     * the current position if there is no key frame between it and the
+     * requested frame, which is the case when skipping a few frames.
+     * 
+     * @param frameNumber
+     * @return
+     * @throws IOException
+     * @throws JCodecException
+     */
+    public JcodecFrameGrab seekToFrame(int frameNumber) throws IOException, JCodecException {
+        SeekableDemuxerTrack sdt = sdt();
+        int curFrame = (int) sdt.getCurFrame();
+        if (frameNumber == curFrame) {
+            return this;
+        }
+        if (decoder != null && frameNumber > curFrame && detectKeyFrame(frameNumber) <= curFrame) {
+            while (sdt.getCurFrame() < frameNumber) {
+                Packet frame = sdt.nextFrame();
+                if (frame == null) {
+                    break;
+                }
+                decoder.decodeFrame(frame, getBuffer());
+            }
+            return this;
+        }
+        return seekToFramePrecise(frameNumber);
+    }
+
     /**
      * Position frame grabber to a specific second in a movie.
      * 
@@ -157,6 +202,41 @@ public class JcodecFrameGrab {
         return this;
     }
 
+    /**
+     * Moves to the first key frame at or after the current position.
+     * 
+     * @return false if there is no such key frame
+     * @throws IOException
+     * @throws JCodecException
+     */
+    public boolean seekToNextKeyFrame() throws IOException, JCodecException {
+        if (keyFrames == null) { //every frame is a key frame
+            return true;
+        }
+        int curFrame = (int) sdt().getCurFrame();
+        int index = keyFrames.ceiling(curFrame);
+        if (index < 0) {
+            return false;
+        }
+        int seekFrame = keyFrames.getPosition(index);
+        if (seekFrame > curFrame) {
+            sdt().gotoFrame(seekFrame);
+        }
+        return true;
+    }
+
+    /**
+     * @param frame position of the frame, counted from 0
+     * @return true if the frame is a key frame
+     */
+    public boolean isKeyFrame(int frame) {
+        if (keyFrames == null) { //every frame is a key frame
+            return true;
+        }
+        int index = keyFrames.floor(frame);
+        return index >= 0 && keyFrames.getPosition(index) == frame;
+    }
+
     private void goToPrevKeyframe() throws IOException, JCodecException {
         sdt().gotoFrame(detectKeyFrame((int) sdt().getCurFrame()));
     }
@@ -188,18 +268,10 @@ public class JcodecFrameGrab {
     }
 
     private int detectKeyFrame(int start) throws IOException {
-        int[] seekFrames = videoTrack.getMeta().getSeekFrames();
-        if (seekFrames == null) {
+        if (keyFrames == null) {
 			return start;
 		}
-        int prev = seekFrames[0];
-        for (int i = 1; i < seekFrames.length; i++) {
-            if (seekFrames[i] > start) {
-				break;
-			}
-            prev = seekFrames[i];
-        }
-        return prev;
+        return keyFrames.getPosition(Math.max(0, keyFrames.floor(start)));
     }
 
     private ContainerAdaptor detectDecoder(SeekableDemuxerTrack videoTrack, Packet frame) throws JCodecException {
@@ -0,0 +1,122 @@
+package ch.unibas.cs.dbis.cineast.core.decode.video;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongIntHashMap;
+
+/**
+ * The key frames of a video, sorted by position. The position of a key frame is the number of frames before it, so when
+ * decoding starts at the key frame at position p the next frame has the id p + 1. Every key frame can also carry the time
+ * stamp the container uses for it. Decoders seek to the last key frame before a requested frame and decode from there
+ * instead of decoding the video from the start.<br>
+ * Indexes of files are kept in a small cache, so a file which is opened again does not have to be indexed again.
+ */
+public class KeyFrameIndex {
+
+	private static final int CACHE_SIZE = 16;
+
+	private static final Map<String, KeyFrameIndex> cache = new LinkedHashMap<String, KeyFrameIndex>(CACHE_SIZE, 0.75f, true){
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, KeyFrameIndex> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private final TIntArrayList positions = new TIntArrayList();
+	private final TLongArrayList timestamps = new TLongArrayList();
+	private final TLongIntHashMap byTimestamp = new TLongIntHashMap(16, 0.5f, Long.MIN_VALUE, -1);
+
+	/**
+	 * @param positions the positions of the key frames in any order
+	 */
+	public static KeyFrameIndex fromPositions(int[] positions){
+		KeyFrameIndex _return = new KeyFrameIndex();
+		for(int position : positions){
+			_return.add(position, position);
+		}
+		return _return;
+	}
+
+	/**
+	 * adds a key frame, a key frame already known at the same position is replaced
+	 * @param timestamp the time stamp of the key frame in the time base of the container
+	 */
+	public synchronized void add(int position, long timestamp){
+		int index = this.positions.binarySearch(position);
+		if(index >= 0){
+			this.byTimestamp.remove(this.timestamps.get(index));
+			this.timestamps.set(index, timestamp);
+		}else{
+			index = -(index + 1);
+			this.positions.insert(index, position);
+			this.timestamps.insert(index, timestamp);
+		}
+		this.byTimestamp.put(timestamp, position);
+	}
+
+	/**
+	 * @return the index of the last key frame at or before the position, -1 if there is none
+	 */
+	public synchronized int floor(int position){
+		int index = this.positions.binarySearch(position);
+		return index >= 0 ? index : -(index + 1) - 1;
+	}
+
+	/**
+	 * @return the index of the first key frame at or after the position, -1 if there is none
+	 */
+	public synchronized int ceiling(int position){
+		int index = this.positions.binarySearch(position);
+		if(index >= 0){
+			return index;
+		}
+		index = -(index + 1);
+		return index < this.positions.size() ? index : -1;
+	}
+
+	public synchronized int getPosition(int index){
+		return this.positions.get(index);
+	}
+
+	public synchronized long getTimestamp(int index){
+		return this.timestamps.get(index);
+	}
+
+	/**
+	 * @return the position of the key frame with the time stamp, -1 if it is not a known key frame
+	 */
+	public synchronized int getPositionOf(long timestamp){
+		return this.byTimestamp.get(timestamp);
+	}
+
+	public synchronized int size(){
+		return this.positions.size();
+	}
+
+	/**
+	 * @return the cached index of the file or null if the file has not been indexed or has changed since
+	 */
+	public static KeyFrameIndex getCached(File file){
+		synchronized (cache) {
+			return cache.get(cacheKey(file));
+		}
+	}
+
+	public static void cache(File file, KeyFrameIndex index){
+		synchronized (cache) {
+			cache.put(cacheKey(file), index);
+		}
+	}
+
+	private static String cacheKey(File file){
+		return file.getAbsolutePath() + ':' + file.length() + ':' + file.lastModified();
+	}
+
+}
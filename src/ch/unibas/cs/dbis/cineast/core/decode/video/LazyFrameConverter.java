@@ -0,0 +1,146 @@
+package ch.unibas.cs.dbis.cineast.core.decode.video;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Semaphore;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bridj.Pointer;
+import org.libav.LibavException;
+import org.libav.avcodec.FrameWrapperFactory;
+import org.libav.avcodec.IFrameWrapper;
+import org.libav.avutil.bridge.PixelFormat;
+import org.libav.swscale.ScaleContextWrapper;
+import org.libav.swscale.bridge.SWScaleLibrary;
+
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.data.LazyMultiImage;
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
+
+/**
+ * Keeps decoded YUV 4:2:0 frames for {@link LazyMultiImage}s and converts them on demand. The frames are copied into pooled
+ * native pictures, so no plane is copied onto the heap, and converted with the same bicubic scaler settings as the eager path
+ * of {@link JLibAVVideoDecoder}, so lazy and eager conversion produce the same pixels. The native resources are freed once the
+ * decoder is closed and all frames have been released.<br>
+ * The kept frames live outside of the Java heap, so their number is limited over all decoders by
+ * {@link ch.unibas.cs.dbis.cineast.core.config.DecoderConfig#getMaxLazyFrames()}. Once the limit is reached, frames are
+ * converted right away.
+ */
+class LazyFrameConverter {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private static final int MAX_POOL_SIZE = 64;
+
+	private static final Semaphore kept = new Semaphore(Config.getDecoderConfig().getMaxLazyFrames());
+
+	private final int inWidth, inHeight, width, height;
+	private final ScaleContextWrapper copyContext, scaleContext;
+	private final IFrameWrapper rgbFrame;
+	private final Pointer<Byte> rgbFrameData;
+	private final ArrayDeque<IFrameWrapper> pool = new ArrayDeque<>();
+	private int outstanding = 0;
+	private boolean closed = false;
+
+	LazyFrameConverter(int inWidth, int inHeight, int width, int height, int dstPixelFormat) throws LibavException {
+		this.inWidth = inWidth;
+		this.inHeight = inHeight;
+		this.width = width;
+		this.height = height;
+		this.copyContext = ScaleContextWrapper.createContext(inWidth, inHeight, PixelFormat.PIX_FMT_YUV420P, inWidth, inHeight, PixelFormat.PIX_FMT_YUV420P, SWScaleLibrary.SWS_BICUBIC);
+		this.scaleContext = ScaleContextWrapper.createContext(inWidth, inHeight, PixelFormat.PIX_FMT_YUV420P, width, height, dstPixelFormat, SWScaleLibrary.SWS_BICUBIC);
+		this.rgbFrame = FrameWrapperFactory.getInstance().allocPicture(dstPixelFormat, width, height);
+		this.rgbFrameData = this.rgbFrame.getData().get();
+	}
+
+	/**
+	 * copies the decoded frame, which is reused by the decoder, into a pooled picture
+	 * @return null if the maximum number of frames is kept already, the frame then has to be converted right away
+	 */
+	synchronized LazyMultiImage.Source keep(IFrameWrapper frame) throws LibavException {
+		if(!kept.tryAcquire()){
+			return null;
+		}
+		IFrameWrapper copy = this.pool.poll();
+		try{
+			if(copy == null){
+				copy = FrameWrapperFactory.getInstance().allocPicture(PixelFormat.PIX_FMT_YUV420P, this.inWidth, this.inHeight);
+			}
+			this.copyContext.scale(frame, copy, 0, this.inHeight);
+		}catch(LibavException e){
+			kept.release();
+			throw e;
+		}
+		++this.outstanding;
+		return new PooledFrame(copy);
+	}
+
+	private synchronized void convert(IFrameWrapper frame, int[] out){
+		try {
+			this.scaleContext.scale(frame, this.rgbFrame, 0, this.inHeight);
+			this.rgbFrameData.getIntsAtOffset(0, out, 0, this.width * this.height);
+		} catch (LibavException e) {
+			LOGGER.error("Error while converting frame: {}", LogHelper.getStackTrace(e));
+		}
+	}
+
+	private synchronized void release(IFrameWrapper frame){
+		--this.outstanding;
+		kept.release();
+		if(this.closed || this.pool.size() >= MAX_POOL_SIZE){
+			frame.free();
+		}else{
+			this.pool.add(frame);
+		}
+		if(this.closed && this.outstanding == 0){
+			free();
+		}
+	}
+
+	/**
+	 * called when the decoder is closed, frames which have not been released yet can still be converted
+	 */
+	synchronized void close(){
+		if(this.closed){
+			return;
+		}
+		this.closed = true;
+		for(IFrameWrapper frame : this.pool){
+			frame.free();
+		}
+		this.pool.clear();
+		if(this.outstanding == 0){
+			free();
+		}
+	}
+
+	private void free(){
+		this.copyContext.free();
+		this.scaleContext.free();
+		this.rgbFrame.free();
+	}
+
+	private final class PooledFrame implements LazyMultiImage.Source {
+
+		private IFrameWrapper frame;
+
+		private PooledFrame(IFrameWrapper frame){
+			this.frame = frame;
+		}
+
+		@Override
+		public void convert(int[] out) {
+			LazyFrameConverter.this.convert(this.frame, out);
+		}
+
+		@Override
+		public void release() {
+			if(this.frame != null){
+				LazyFrameConverter.this.release(this.frame);
+				this.frame = null;
+			}
+		}
+
+	}
+
+}
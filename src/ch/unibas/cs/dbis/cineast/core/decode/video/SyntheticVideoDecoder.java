@@ -0,0 +1,247 @@
+package ch.unibas.cs.dbis.cineast.core.decode.video;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.config.DecoderConfig.SamplingMode;
+import ch.unibas.cs.dbis.cineast.core.data.Frame;
+import ch.unibas.cs.dbis.cineast.core.data.MultiImageFactory;
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Generates a deterministic video without reading a file: scenes of random length separated by hard cuts, each with a panning
+ * color gradient as background and textured rectangles and ellipses moving across it. Frames are rendered on demand, so
+ * skipped and seeked over frames cost nothing. Frame ids start at 1 like those of the other decoders.
+ */
+public class SyntheticVideoDecoder implements VideoDecoder {
+
+	public static final double DEFAULT_FPS = 25d;
+
+	private static final int MIN_SCENE_LENGTH = 24;
+	private static final int MAX_SCENE_LENGTH = 200;
+	private static final int MAX_SHAPES = 12;
+	private static final int KEYFRAME_INTERVAL = 250;
+
+	private final int width, height, frameCount;
+	private final double fps;
+	private final long seed;
+	private final int[] sceneStarts;
+	private int nextFrame = 1;
+	private Scene scene = null;
+	private SamplingMode samplingMode = Config.getDecoderConfig().getSamplingMode();
+	private int samplingInterval = Config.getDecoderConfig().getSamplingInterval();
+	private boolean dense = false;
+
+	public SyntheticVideoDecoder(int width, int height, int frameCount, double fps, long seed){
+		if(width < 16 || height < 16 || frameCount < 1){
+			throw new IllegalArgumentException("invalid video dimensions " + width + "x" + height + ", " + frameCount + " frames");
+		}
+		this.width = width;
+		this.height = height;
+		this.frameCount = frameCount;
+		this.fps = fps;
+		this.seed = seed;
+
+		Random random = new Random(seed);
+		TIntArrayList starts = new TIntArrayList();
+		for(int start = 1; start <= frameCount; start += MIN_SCENE_LENGTH + random.nextInt(MAX_SCENE_LENGTH - MIN_SCENE_LENGTH + 1)){
+			starts.add(start);
+		}
+		this.sceneStarts = starts.toArray();
+	}
+
+	public SyntheticVideoDecoder(int width, int height, int frameCount){
+		this(width, height, frameCount, DEFAULT_FPS, 0l);
+	}
+
+	/**
+	 * @return the first frame of every scene, every start except the first is a hard cut
+	 */
+	public int[] getSceneStarts(){
+		return Arrays.copyOf(this.sceneStarts, this.sceneStarts.length);
+	}
+
+	private static final class Scene{
+		private final int index, start;
+		private final int colorA, colorB;
+		private final boolean horizontal;
+		private final int pan; //pixels per frame
+		private final int[][] shapes; //x, y, width, height, dx, dy, color, ellipse
+
+		private Scene(int index, int start, int width, int height, long seed){
+			Random random = new Random(seed * 31 + index);
+			this.index = index;
+			this.start = start;
+			this.colorA = random.nextInt(0xFFFFFF);
+			this.colorB = random.nextInt(0xFFFFFF);
+			this.horizontal = random.nextBoolean();
+			this.pan = random.nextInt(5);
+			this.shapes = new int[random.nextInt(MAX_SHAPES + 1)][];
+			for(int s = 0; s < this.shapes.length; ++s){
+				int w = width / 16 + random.nextInt(width / 5), h = height / 16 + random.nextInt(height / 5);
+				this.shapes[s] = new int[]{random.nextInt(width - w), random.nextInt(height - h), w, h,
+						random.nextInt(13) - 6, random.nextInt(13) - 6, random.nextInt(0xFFFFFF), random.nextInt(2)};
+			}
+		}
+	}
+
+	private int sceneIndex(int frameNumber){
+		int index = Arrays.binarySearch(this.sceneStarts, frameNumber);
+		return index >= 0 ? index : -index - 2;
+	}
+
+	private boolean isKeyFrame(int frameNumber){
+		return (frameNumber - 1) % KEYFRAME_INTERVAL == 0 || Arrays.binarySearch(this.sceneStarts, frameNumber) >= 0;
+	}
+
+	/**
+	 * reflects a position moving back and forth between 0 and range
+	 */
+	private static int bounce(int position, int range){
+		if(range <= 0){
+			return 0;
+		}
+		int m = position % (2 * range);
+		if(m < 0){
+			m += 2 * range;
+		}
+		return m > range ? 2 * range - m : m;
+	}
+
+	private static int mix(int a, int b, int weight){ //weight in [0, 256]
+		int r = (((a >> 16) & 0xFF) * (256 - weight) + ((b >> 16) & 0xFF) * weight) >> 8;
+		int g = (((a >> 8) & 0xFF) * (256 - weight) + ((b >> 8) & 0xFF) * weight) >> 8;
+		int bl = ((a & 0xFF) * (256 - weight) + (b & 0xFF) * weight) >> 8;
+		return (r << 16) | (g << 8) | bl;
+	}
+
+	private int[] render(int frameNumber){
+		int index = sceneIndex(frameNumber);
+		if(this.scene == null || this.scene.index != index){
+			this.scene = new Scene(index, this.sceneStarts[index], this.width, this.height, this.seed);
+		}
+		Scene sc = this.scene;
+		int t = frameNumber - sc.start;
+		int extent = sc.horizontal ? this.width : this.height;
+
+		//the gradient only varies along one axis
+		int[] line = new int[extent];
+		for(int i = 0; i < extent; ++i){
+			line[i] = mix(sc.colorA, sc.colorB, (256 * bounce(i + t * sc.pan, extent)) / extent);
+		}
+		int[] colors = new int[this.width * this.height];
+		for(int y = 0; y < this.height; ++y){
+			for(int x = 0; x < this.width; ++x){
+				int noise = ((x * 73856093) ^ (y * 19349663) ^ (frameNumber * 83492791)) & 0x07;
+				colors[x + y * this.width] = 0xFF000000 | (line[sc.horizontal ? x : y] & 0xF8F8F8) | (noise * 0x010101);
+			}
+		}
+
+		for(int[] shape : sc.shapes){
+			int w = shape[2], h = shape[3];
+			int x0 = bounce(shape[0] + t * shape[4], this.width - w);
+			int y0 = bounce(shape[1] + t * shape[5], this.height - h);
+			int inverse = ~shape[6] & 0xFFFFFF;
+			for(int y = 0; y < h; ++y){
+				for(int x = 0; x < w; ++x){
+					if(shape[7] == 1){
+						double dx = (2d * x) / w - 1d, dy = (2d * y) / h - 1d;
+						if(dx * dx + dy * dy > 1d){
+							continue;
+						}
+					}
+					boolean checker = ((x / 8) + (y / 8)) % 2 == 0; //texture for the feature tracker
+					colors[x0 + x + (y0 + y) * this.width] = 0xFF000000 | (checker ? shape[6] : inverse);
+				}
+			}
+		}
+		return colors;
+	}
+
+	@Override
+	public void seekToFrame(int frameNumber) {
+		this.nextFrame = Math.max(1, frameNumber);
+	}
+
+	@Override
+	public int getFrameNumber() {
+		return this.nextFrame - 1;
+	}
+
+	@Override
+	public Frame getFrame() {
+		while(this.nextFrame <= this.frameCount){
+			int frameNumber = this.nextFrame++;
+			boolean sampled = isSampled(frameNumber);
+			if(!sampled && !this.dense){
+				continue;
+			}
+			return new Frame(frameNumber, MultiImageFactory.newMultiImage(this.width, this.height, render(frameNumber)), sampled);
+		}
+		return null;
+	}
+
+	@Override
+	public int getTotalFrameCount() {
+		return this.frameCount;
+	}
+
+	@Override
+	public double getFPS() {
+		return this.fps;
+	}
+
+	@Override
+	public void close() {
+		this.scene = null;
+	}
+
+	@Override
+	public int getOriginalWidth() {
+		return this.width;
+	}
+
+	@Override
+	public int getOriginalHeight() {
+		return this.height;
+	}
+
+	@Override
+	public int getWidth() {
+		return this.width;
+	}
+
+	@Override
+	public int getHeight() {
+		return this.height;
+	}
+
+	@Override
+	public void setSampling(SamplingMode mode, int interval) {
+		this.samplingMode = mode;
+		this.samplingInterval = Math.max(1, interval);
+	}
+
+	@Override
+	public SamplingMode getSamplingMode() {
+		return this.samplingMode;
+	}
+
+	@Override
+	public void setDenseDecoding(boolean dense) {
+		this.dense = dense;
+	}
+
+	private boolean isSampled(int frameNumber){
+		switch(this.samplingMode){
+		case INTERVAL:
+			return frameNumber % this.samplingInterval == 0;
+		case KEYFRAMES:
+			return isKeyFrame(frameNumber);
+		default:
+			return true;
+		}
+	}
+
+}
@@ -1,9 +1,15 @@
 package ch.unibas.cs.dbis.cineast.core.decode.video;
 
+import ch.unibas.cs.dbis.cineast.core.config.DecoderConfig.SamplingMode;
 import ch.unibas.cs.dbis.cineast.core.data.Frame;
 
 public interface VideoDecoder {
 
+	/**
+	 * positions the decoder so that the next frame returned by {@link #getFrame()} is the frame with the given id, or the
+	 * first sampled frame after it. Frame ids start at 1. Seeking backwards is possible.
+	 * @param frameNumber
+	 */
 	void seekToFrame(int frameNumber);
 
 	int getFrameNumber();
@@ -39,5 +45,22 @@ public interface VideoDecoder {
 	 * @return
 	 */
 	int getHeight();
+	
+	/**
+	 * sets which frames are returned by {@link #getFrame()}. Frames which are skipped are not converted and the ids of
+	 * returned frames still correspond to their position in the video. Applies to all frames decoded after the call.
+	 * @param mode
+	 * @param interval only relevant for {@link SamplingMode#INTERVAL}
+	 */
+	void setSampling(SamplingMode mode, int interval);
+	
+	SamplingMode getSamplingMode();
+	
+	/**
+	 * if enabled, {@link #getFrame()} also returns the frames skipped by the sampling mode, marked as not {@link Frame#isSampled() sampled}.
+	 * This is used for motion tracking, which needs every frame, while the other features only look at the sampled frames.
+	 * @param dense
+	 */
+	void setDenseDecoding(boolean dense);
 
 }
\ No newline at end of file
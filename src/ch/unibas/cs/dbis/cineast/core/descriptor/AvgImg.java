@@ -19,7 +19,15 @@ public class AvgImg {
 	private AvgImg(){}
 	
 	public static MultiImage getAvg(List<Frame> frames){
-		TimeHelper.tic();
+		TimeHelper.Timer timer = TimeHelper.start("AvgImg.getAvg");
+		try{
+			return getAvg(frames, timer);
+		}finally{
+			timer.close();
+		}
+	}
+	
+	private static MultiImage getAvg(List<Frame> frames, TimeHelper.Timer timer){
 		LOGGER.entry();
 		MultiImage first = frames.get(0).getImage();
 		int width = first.getWidth(), height = first.getHeight();
@@ -62,7 +70,7 @@ public class AvgImg {
 		buffer = null;
 		
 		System.gc();
-		LOGGER.debug("AvgImg.getAvg() done in {}", TimeHelper.toc());
+		LOGGER.debug("AvgImg.getAvg() done in {}", timer.elapsed());
 		LOGGER.exit();
 		return MultiImageFactory.newMultiImage(width, height, colors);
 	}
@@ -1,8 +1,17 @@
 package ch.unibas.cs.dbis.cineast.core.descriptor;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import boofcv.abst.feature.detect.interest.ConfigGeneralDetector;
 import boofcv.abst.feature.tracker.PointTrack;
@@ -12,64 +21,308 @@ import boofcv.alg.tracker.klt.PkltConfig;
 import boofcv.factory.feature.tracker.FactoryPointTracker;
 import boofcv.io.image.ConvertBufferedImage;
 import boofcv.struct.image.GrayU8;
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.config.ExtractorConfig;
 import ch.unibas.cs.dbis.cineast.core.data.Frame;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
-import ch.unibas.cs.dbis.cineast.core.data.Pair;
-import georegression.struct.point.Point2D_F32;
+import ch.unibas.cs.dbis.cineast.core.data.MotionPaths;
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
+import gnu.trove.list.array.TFloatArrayList;
+import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TLongIntHashMap;
-import gnu.trove.map.hash.TLongObjectHashMap;
 
 public class PathList {
 
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private static final float MATCH_TOLERANCE = 1.5f; //pixels in the tracked image
+
 private PathList(){}
-	
-	public static ArrayList<Pair<Integer, LinkedList<Point2D_F32>>> getPaths(List<Frame> frames){
+
+	private static ExecutorService executor = null;
+
+	private static synchronized ExecutorService getExecutor(){
+		if(executor == null){
+			executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "PathList");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return executor;
+	}
+
+	public static MotionPaths getPaths(List<Frame> frames){
+		ExtractorConfig config = Config.getExtractorConfig();
+		return getPaths(frames, config.getMotionChunkLength(), config.getMotionChunkOverlap(), config.getMotionTrackingMaxWidth());
+	}
+
+	/**
+	 * tracks points over the frames. Shots longer than chunkLength + overlap are split into chunks which share overlap frames,
+	 * the chunks are tracked in parallel and tracks which continue in the next chunk are joined.
+	 *
+	 * @param chunkLength number of frames per chunk, 0 to track all frames in one piece
+	 * @param overlap number of frames shared by consecutive chunks
+	 * @param maxWidth frames wider than this are downscaled by a power of two before tracking, 0 to track at full resolution
+	 */
+	public static MotionPaths getPaths(final List<Frame> frames, int chunkLength, int overlap, int maxWidth){
 		if(frames.size() < 2){
-			return new ArrayList<Pair<Integer, LinkedList<Point2D_F32>>>(1);
+			return new MotionPaths(1, 1);
 		}
-		
+
 		MultiImage img = frames.get(0).getImage();
-		int numberOfPointsToTrack = img.getWidth() * img.getHeight() / 10000;
-		
+		int scale = 1;
+		while(maxWidth > 0 && img.getWidth() / scale > maxWidth && img.getWidth() / (2 * scale) > 0){
+			scale *= 2;
+		}
+		final int trackScale = scale;
+		final int width = img.getWidth() / scale, height = img.getHeight() / scale;
+		//as many points as at full resolution, the motion histograms sum over all tracked points and stay comparable across scales
+		final int numberOfPointsToTrack = img.getWidth() * img.getHeight() / 10000;
+
+		overlap = Math.max(1, overlap);
+		if(chunkLength <= 0 || frames.size() <= chunkLength + overlap){
+			return toFrameIds(track(frames, 0, frames.size(), trackScale, numberOfPointsToTrack), frames);
+		}
+
+		TIntArrayList chunkStarts = new TIntArrayList();
+		TIntArrayList chunkEnds = new TIntArrayList();
+		int start = 0;
+		while(frames.size() - start > chunkLength + overlap){
+			chunkStarts.add(start);
+			chunkEnds.add(start + chunkLength + overlap);
+			start += chunkLength;
+		}
+		chunkStarts.add(start);
+		chunkEnds.add(frames.size());
+
+		ExecutorService ex = getExecutor();
+		List<Future<MotionPaths>> futures = new ArrayList<>(chunkStarts.size());
+		for(int i = 0; i < chunkStarts.size(); ++i){
+			final int from = chunkStarts.get(i), to = chunkEnds.get(i);
+			futures.add(ex.submit(new Callable<MotionPaths>() {
+
+				@Override
+				public MotionPaths call() throws Exception {
+					return track(frames, from, to, trackScale, numberOfPointsToTrack);
+				}
+			}));
+		}
+
+		MotionPaths[] chunks = new MotionPaths[futures.size()];
+		for(int i = 0; i < chunks.length; ++i){
+			try {
+				chunks[i] = futures.get(i).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				LOGGER.warn(LogHelper.getStackTrace(e));
+			} catch (ExecutionException e) {
+				LOGGER.warn(LogHelper.getStackTrace(e));
+			}
+			if(chunks[i] == null){
+				chunks[i] = new MotionPaths(1, 1);
+			}
+		}
+
+		return stitch(chunks, chunkStarts, frames, width, height);
+	}
+
+	/**
+	 * tracks points in the frames [from, to)
+	 * @return the paths with the index of their first frame in the list as start frame
+	 */
+	private static MotionPaths track(List<Frame> frames, int from, int to, int scale, int numberOfPointsToTrack){
+		MultiImage img = frames.get(from).getImage();
+
 		PkltConfig config = new PkltConfig();
 		config.templateRadius = 3;
 		config.pyramidScaling = new int[] { 1, 2, 4, 8 };
 		PointTracker<GrayU8> tracker = FactoryPointTracker.klt(config, new ConfigGeneralDetector(numberOfPointsToTrack, 3, 1), GrayU8.class, GImageDerivativeOps.getDerivativeType(GrayU8.class));
-		
-		TLongObjectHashMap<LinkedList<Point2D_F32>> paths = new TLongObjectHashMap<LinkedList<Point2D_F32>>();
-		TLongIntHashMap trackStartFrames = new TLongIntHashMap();
+
+		//points are recorded in the order they are tracked and grouped by path at the end
+		TLongIntHashMap pathIndices = new TLongIntHashMap();
+		TIntArrayList pathStartFrames = new TIntArrayList();
+		TIntArrayList pointPaths = new TIntArrayList(numberOfPointsToTrack * (to - from));
+		TFloatArrayList pointXs = new TFloatArrayList(numberOfPointsToTrack * (to - from));
+		TFloatArrayList pointYs = new TFloatArrayList(numberOfPointsToTrack * (to - from));
+
 		ArrayList<PointTrack> tracks = new ArrayList<PointTrack>(numberOfPointsToTrack);
-		GrayU8 gray = null;
-		for(Frame f : frames){
-			gray = ConvertBufferedImage.convertFrom(f.getImage().getBufferedImage(), gray);
-			
+		GrayU8 gray = null, buffer = new GrayU8(img.getWidth(), img.getHeight());
+		GrayU8 scaled = scale > 1 ? new GrayU8(img.getWidth() / scale, img.getHeight() / scale) : null;
+		for(int frame = from; frame < to; ++frame){
+			gray = ConvertBufferedImage.convertFrom(frames.get(frame).getImage().getBufferedImage(), buffer);
+			if(scaled != null){
+				gray = downscale(gray, scale, scaled);
+			}
+
 			tracker.process(gray);
 			tracks.clear();
 			tracker.spawnTracks();
 			if (tracker.getActiveTracks(tracks).size() < (numberOfPointsToTrack * 0.9f)){
 				tracker.spawnTracks();
 			}
-			
+
 			for(PointTrack p : tracks){
-				if(!trackStartFrames.containsKey(p.featureId)){
-					trackStartFrames.put(p.featureId, f.getId());
+				int pathIndex;
+				if(pathIndices.containsKey(p.featureId)){
+					pathIndex = pathIndices.get(p.featureId);
+				}else{
+					pathIndex = pathStartFrames.size();
+					pathIndices.put(p.featureId, pathIndex);
+					pathStartFrames.add(frame);
+				}
+				pointPaths.add(pathIndex);
+				pointXs.add((float)(p.x / gray.width));
+				pointYs.add((float)(p.y / gray.height));
+			}
+		}
+
+		//counting sort of the points by path, keeps the temporal order within a path
+		int pathCount = pathStartFrames.size(), pointCount = pointPaths.size();
+		int[] offsets = new int[pathCount + 1];
+		for(int i = 0; i < pointCount; ++i){
+			++offsets[pointPaths.get(i) + 1];
+		}
+		for(int i = 0; i < pathCount; ++i){
+			offsets[i + 1] += offsets[i];
+		}
+		int[] order = new int[pointCount];
+		for(int i = 0; i < pointCount; ++i){
+			order[offsets[pointPaths.get(i)]++] = i;
+		}
+
+		MotionPaths _return = new MotionPaths(pathCount, pointCount);
+		int next = 0;
+		for(int path = 0; path < pathCount; ++path){
+			_return.beginPath(pathStartFrames.get(path));
+			int end = offsets[path]; //offsets now point to the end of each path
+			for(; next < end; ++next){
+				_return.addPoint(pointXs.get(order[next]), pointYs.get(order[next]));
+			}
+		}
+
+		return _return;
+	}
+
+	/**
+	 * joins the paths of consecutive chunks. The paths of a chunk are cut at the first frame of the next chunk, a path which is still
+	 * alive there continues with the path of the next chunk which starts in that frame and stays closest to it during the overlap.
+	 */
+	private static MotionPaths stitch(MotionPaths[] chunks, TIntArrayList chunkStarts, List<Frame> frames, int width, int height){
+		int[][] successors = new int[chunks.length][];
+		boolean[][] continued = new boolean[chunks.length][];
+		for(int c = 0; c < chunks.length; ++c){
+			successors[c] = new int[chunks[c].getPathCount()];
+			continued[c] = new boolean[chunks[c].getPathCount()];
+			Arrays.fill(successors[c], -1);
+		}
+		for(int c = 0; c + 1 < chunks.length; ++c){
+			match(chunks[c], chunks[c + 1], chunkStarts.get(c + 1), successors[c], continued[c + 1], width, height);
+		}
+
+		MotionPaths _return = new MotionPaths();
+		for(int c = 0; c < chunks.length; ++c){
+			int cut = c + 1 < chunks.length ? chunkStarts.get(c + 1) : Integer.MAX_VALUE;
+			for(int p = 0; p < chunks[c].getPathCount(); ++p){
+				if(continued[c][p] || chunks[c].getStartFrame(p) >= cut){
+					continue; //part of a path of an earlier chunk or entirely covered by the next chunk
+				}
+				_return.beginPath(frames.get(chunks[c].getStartFrame(p)).getId());
+				append(_return, chunks[c], p, 0, cut);
+				int chunk = c, path = p;
+				while(successors[chunk][path] >= 0){
+					path = successors[chunk][path];
+					++chunk;
+					int nextCut = chunk + 1 < chunks.length ? chunkStarts.get(chunk + 1) : Integer.MAX_VALUE;
+					append(_return, chunks[chunk], path, 1, nextCut); //the first point is the one the path was cut at
+				}
+			}
+		}
+		return _return;
+	}
+
+	/**
+	 * appends the points of path p, skipping the first skip points and all points in frames after cut
+	 */
+	private static void append(MotionPaths target, MotionPaths source, int p, int skip, int cut){
+		int start = source.getOffset(p), length = source.getPathLength(p);
+		int last = Math.min(length - 1, cut - source.getStartFrame(p));
+		for(int i = skip; i <= last; ++i){
+			target.addPoint(source.getX(start + i), source.getY(start + i));
+		}
+	}
+
+	/**
+	 * greedily assigns to every path of current which is alive in frame cut the closest path of next starting in frame cut
+	 */
+	private static void match(MotionPaths current, MotionPaths next, int cut, int[] successors, boolean[] continued, int width, int height){
+		float maxDistance = MATCH_TOLERANCE * MATCH_TOLERANCE;
+		for(int n = 0; n < next.getPathCount(); ++n){
+			if(next.getStartFrame(n) != cut){
+				continue;
+			}
+			int best = -1;
+			float bestDistance = maxDistance;
+			for(int p = 0; p < current.getPathCount(); ++p){
+				if(successors[p] >= 0){
+					continue;
+				}
+				int startFrame = current.getStartFrame(p);
+				int common = Math.min(startFrame + current.getPathLength(p), cut + next.getPathLength(n)) - cut;
+				if(startFrame >= cut || common < 1){
+					continue;
+				}
+				float distance = 0;
+				for(int i = 0; i < common; ++i){
+					int a = current.getOffset(p) + cut - startFrame + i, b = next.getOffset(n) + i;
+					float dx = (current.getX(a) - next.getX(b)) * width, dy = (current.getY(a) - next.getY(b)) * height;
+					distance += dx * dx + dy * dy;
 				}
-				LinkedList<Point2D_F32> path = paths.get(p.featureId);
-				if(path == null){
-					path = new LinkedList<Point2D_F32>();
-					paths.put(p.featureId, path);
+				distance /= common;
+				if(distance < bestDistance){
+					bestDistance = distance;
+					best = p;
 				}
-				path.add(new Point2D_F32((float)(p.x / gray.width), (float)(p.y / gray.height)));
+			}
+			if(best >= 0){
+				successors[best] = n;
+				continued[n] = true;
 			}
 		}
-		
-		long[] keys = paths.keys();
-		ArrayList<Pair<Integer, LinkedList<Point2D_F32>>> pathList = new ArrayList<Pair<Integer, LinkedList<Point2D_F32>>>(keys.length);
-		for(long key : keys){
-			pathList.add(new Pair<>(trackStartFrames.get(key), paths.get(key)));
+	}
+
+	private static MotionPaths toFrameIds(MotionPaths paths, List<Frame> frames){
+		MotionPaths _return = new MotionPaths(paths.getPathCount(), paths.getPointCount());
+		for(int p = 0; p < paths.getPathCount(); ++p){
+			_return.beginPath(frames.get(paths.getStartFrame(p)).getId());
+			append(_return, paths, p, 0, Integer.MAX_VALUE);
 		}
-		
-		return pathList;
+		return _return;
 	}
-	
+
+	/**
+	 * box filter downscaling by an integer factor
+	 */
+	private static GrayU8 downscale(GrayU8 input, int scale, GrayU8 output){
+		int area = scale * scale;
+		for(int y = 0; y < output.height; ++y){
+			int outIndex = output.startIndex + y * output.stride;
+			for(int x = 0; x < output.width; ++x){
+				int sum = 0;
+				for(int dy = 0; dy < scale; ++dy){
+					int inIndex = input.startIndex + (y * scale + dy) * input.stride + x * scale;
+					for(int dx = 0; dx < scale; ++dx){
+						sum += input.data[inIndex + dx] & 0xFF;
+					}
+				}
+				output.data[outIndex++] = (byte) (sum / area);
+			}
+		}
+		return output;
+	}
+
 }
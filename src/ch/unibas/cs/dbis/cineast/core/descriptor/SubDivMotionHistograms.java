@@ -0,0 +1,70 @@
+package ch.unibas.cs.dbis.cineast.core.descriptor;
+
+import ch.unibas.cs.dbis.cineast.core.data.MotionHistograms;
+import ch.unibas.cs.dbis.cineast.core.data.MotionPaths;
+
+public class SubDivMotionHistograms {
+
+	private SubDivMotionHistograms(){}
+	
+	/**
+	 * computes the motion histograms of all subdivisions in a single pass over the paths, the direction and length of
+	 * every path segment are computed once and added to the cell containing its start point on every level
+	 */
+	public static MotionHistograms getHistograms(MotionPaths paths){
+		int levels = MotionHistograms.MAX_SUBDIV, bins = MotionHistograms.BINS;
+		double[][] sums = new double[levels][];
+		float[][] hists = new float[levels][];
+		for(int l = 0; l < levels; ++l){
+			int cells = (l + 1) * (l + 1);
+			sums[l] = new double[cells];
+			hists[l] = new float[cells * bins];
+		}
+		
+		for(int p = 0; p < paths.getPathCount(); ++p){
+			int start = paths.getOffset(p), end = start + paths.getPathLength(p);
+			if(end - start < 2){
+				continue;
+			}
+			float lastX = paths.getX(start), lastY = paths.getY(start);
+			for(int i = start + 1; i < end; ++i){
+				float currentX = paths.getX(i), currentY = paths.getY(i);
+				double dx = currentX - lastX, dy = currentY - lastY;
+				int bin = ((int) Math.floor(4 * Math.atan2(dy, dx) / Math.PI) + 4) % 8;
+				double len = Math.sqrt(dx * dx + dy * dy);
+				for(int l = 0; l < levels; ++l){
+					hists[l][getIndex(l + 1, lastX, lastY) * bins + bin] += len;
+				}
+				lastX = currentX;
+				lastY = currentY;
+			}
+		}
+		
+		for(int l = 0; l < levels; ++l){
+			float[] hist = hists[l];
+			for(int c = 0; c < sums[l].length; ++c){
+				double sum = 0;
+				for(int j = c * bins; j < (c + 1) * bins; ++j){
+					sum += hist[j];
+				}
+				if(sum > 0){
+					for(int j = c * bins; j < (c + 1) * bins; ++j){
+						hist[j] /= sum;
+					}
+				}
+				sums[l][c] = sum;
+			}
+		}
+		
+		return new MotionHistograms(sums, hists);
+	}
+	
+	private static int getIndex(int subdiv, float x, float y) {
+		int ix = (int) Math.floor(subdiv * x), iy = (int) Math.floor(subdiv * y);
+		ix = Math.max(Math.min(ix, subdiv - 1), 0);
+		iy = Math.max(Math.min(iy, subdiv - 1), 0);
+
+		return ix * subdiv + iy;
+	}
+	
+}
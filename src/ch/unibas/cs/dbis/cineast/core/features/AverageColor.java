@@ -12,6 +12,7 @@ import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.util.ColorUtils;
 import ch.unibas.cs.dbis.cineast.core.util.TimeHelper;
@@ -31,14 +32,15 @@ public class AverageColor extends AbstractFeatureModule {
 	
 	@Override
 	public void processShot(FrameContainer shot) {
-		TimeHelper.tic();
 		LOGGER.entry();
-		if (!phandler.check("SELECT * FROM features.AverageColor WHERE shotid = " + shot.getId())) {
-			ReadableLabContainer avg = getAvg(shot.getAvgImg());
-			long shotId = shot.getId();
-			addToDB(shotId, avg);
-			LOGGER.debug("AverageColor.processShot() done in {}",
-					TimeHelper.toc());
+		if (!ExtractionState.isExtracted(phandler, "features.AverageColor", shot.getId())) {
+			try(TimeHelper.Timer timer = TimeHelper.start("AverageColor.processShot")){
+				ReadableLabContainer avg = getAvg(shot.getAvgImg());
+				long shotId = shot.getId();
+				addToDB(shotId, avg);
+				LOGGER.debug("AverageColor.processShot() done in {}",
+						timer.elapsed());
+			}
 		}
 		LOGGER.exit();
 	}
@@ -8,6 +8,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FloatVector;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.util.ARPartioner;
 
@@ -29,7 +30,7 @@ public class AverageColorARP44 extends AbstractFeatureModule {
 
 	@Override
 	public void processShot(FrameContainer shot) {
-		if(!phandler.check("SELECT * FROM features.AverageColorARP44 WHERE shotid = " + shot.getId())){
+		if(!ExtractionState.isExtracted(phandler, "features.AverageColorARP44", shot.getId())){
 			Pair<FloatVector, float[]> p = ARPartioner.partitionImage(shot.getAvgImg(), 4, 4);
 			addToDB(shot.getId(), p.first);
 		}
@@ -8,6 +8,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FloatVector;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.util.ARPartioner;
 import ch.unibas.cs.dbis.cineast.core.util.ImageHistogramEqualizer;
@@ -20,7 +21,7 @@ public class AverageColorARP44Normalized extends AbstractFeatureModule {
 
 	@Override
 	public void processShot(FrameContainer shot) {
-		if(!phandler.check("SELECT * FROM features.AverageColorARP44Normalized WHERE shotid = " + shot.getId())){
+		if(!ExtractionState.isExtracted(phandler, "features.AverageColorARP44Normalized", shot.getId())){
 			Pair<FloatVector, float[]> p = ARPartioner.partitionImage(ImageHistogramEqualizer.getEqualized(shot.getAvgImg()), 4, 4);
 			addToDB(shot.getId(), p.first);
 		}
@@ -7,6 +7,7 @@ import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.data.FloatVector;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.util.ColorLayoutDescriptor;
 
@@ -27,7 +28,7 @@ public class AverageColorCLD extends AbstractFeatureModule {
 
 	@Override
 	public void processShot(FrameContainer shot) {
-		if(!phandler.check("SELECT * FROM features.AverageColorCLD WHERE shotid = " + shot.getId())){
+		if(!ExtractionState.isExtracted(phandler, "features.AverageColorCLD", shot.getId())){
 			FloatVector fv = ColorLayoutDescriptor.calculateCLD(shot.getAvgImg());
 			addToDB(shot.getId(), fv);
 		}
@@ -7,6 +7,7 @@ import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.data.FloatVector;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.util.ColorLayoutDescriptor;
 import ch.unibas.cs.dbis.cineast.core.util.ImageHistogramEqualizer;
@@ -19,7 +20,7 @@ public class AverageColorCLDNormalized extends AbstractFeatureModule {
 	
 	@Override
 	public void processShot(FrameContainer shot) {
-		if(!phandler.check("SELECT * FROM features.AverageColorCLDNormalized WHERE shotid = " + shot.getId())){
+		if(!ExtractionState.isExtracted(phandler, "features.AverageColorCLDNormalized", shot.getId())){
 			FloatVector fv = ColorLayoutDescriptor.calculateCLD(ImageHistogramEqualizer.getEqualized(shot.getAvgImg()));
 			addToDB(shot.getId(), fv);
 		}
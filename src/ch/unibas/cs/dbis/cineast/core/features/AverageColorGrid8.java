@@ -18,11 +18,13 @@ import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
 import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
+import ch.unibas.cs.dbis.cineast.core.index.IndexableFeature;
 import ch.unibas.cs.dbis.cineast.core.util.ColorUtils;
 import ch.unibas.cs.dbis.cineast.core.util.GridPartitioner;
 
-public class AverageColorGrid8 extends AbstractFeatureModule {
+public class AverageColorGrid8 extends AbstractFeatureModule implements IndexableFeature {
 
 	public AverageColorGrid8(){
 		super("features.AverageColorGrid8", "grid", 12595f / 4f);
@@ -57,10 +59,21 @@ public class AverageColorGrid8 extends AbstractFeatureModule {
 		return manageResultSet(rset);
 	}
 
+	@Override
+	public int getNorm() {
+		return 1;
+	}
+
+	@Override
+	public Pair<float[], float[]> getIndexQuery(FrameContainer qc) {
+		Pair<FloatVector, float[]> p = partition(qc.getAvgImg());
+		return new Pair<float[], float[]>(p.first.toFloatArray(), p.second);
+	}
+
 	@Override
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
-		if (!phandler.check("SELECT * FROM features.AverageColorGrid8 WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.AverageColorGrid8", shot.getId())) {
 			MultiImage avgimg = shot.getAvgImg();
 			
 			addToDB(shot.getId(), partition(avgimg).first);
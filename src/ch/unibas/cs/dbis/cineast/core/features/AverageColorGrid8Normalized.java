@@ -9,6 +9,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
 import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.util.ImageHistogramEqualizer;
 
 public class AverageColorGrid8Normalized extends AverageColorGrid8 {
@@ -41,7 +42,7 @@ public class AverageColorGrid8Normalized extends AverageColorGrid8 {
 
 	@Override
 	public void processShot(FrameContainer shot) {
-		if (!phandler.check("SELECT * FROM features.AverageColorGrid8Normalized WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.AverageColorGrid8Normalized", shot.getId())) {
 			MultiImage avgimg = ImageHistogramEqualizer.getEqualized(shot.getAvgImg());
 			
 			addToDB(shot.getId(), partition(avgimg).first);
@@ -20,6 +20,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FloatVectorImpl;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.db.PersistentTuple;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.util.ColorUtils;
@@ -84,7 +85,7 @@ public class AverageColorRaster extends AbstractFeatureModule {
 	@Override
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
-		if (!phandler.check("SELECT * FROM features.AverageColorRaster WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.AverageColorRaster", shot.getId())) {
 			MultiImage avg = shot.getAvgImg();
 			int[] colors = avg.getColors();
 			ArrayList<Integer> ints = new ArrayList<>(colors.length);
@@ -9,6 +9,7 @@ import org.apache.logging.log4j.Logger;
 import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.segmenter.FuzzyColorHistogram;
 import ch.unibas.cs.dbis.cineast.core.segmenter.FuzzyColorHistogramCalculator;
@@ -42,7 +43,7 @@ public class AverageFuzzyHist extends AbstractFeatureModule {
 	@Override
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
-		if (!phandler.check("SELECT * FROM features.AverageFuzzyHist WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.AverageFuzzyHist", shot.getId())) {
 			FuzzyColorHistogram fch = FuzzyColorHistogramCalculator.getHistogramNormalized(shot.getAvgImg().getBufferedImage());
 			addToDB(shot.getId(), fch);
 		}
@@ -6,6 +6,7 @@ import java.util.List;
 import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.segmenter.FuzzyColorHistogram;
 import ch.unibas.cs.dbis.cineast.core.segmenter.FuzzyColorHistogramCalculator;
@@ -19,7 +20,7 @@ public class AverageFuzzyHistNormalized extends AbstractFeatureModule {
 	
 	@Override
 	public void processShot(FrameContainer shot) {
-		if (!phandler.check("SELECT * FROM features.AverageFuzzyHistNormalized WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.AverageFuzzyHistNormalized", shot.getId())) {
 			FuzzyColorHistogram fch = FuzzyColorHistogramCalculator.getHistogramNormalized(ImageHistogramEqualizer.getEqualized(shot.getAvgImg()).getBufferedImage());
 			addToDB(shot.getId(), fch);
 		}
@@ -7,10 +7,13 @@ import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.data.FloatVector;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
+import ch.unibas.cs.dbis.cineast.core.index.IndexableFeature;
 import ch.unibas.cs.dbis.cineast.core.util.ColorLayoutDescriptor;
 
-public class CLD extends AbstractFeatureModule {
+public class CLD extends AbstractFeatureModule implements IndexableFeature {
 
 	public CLD(){
 		super("features.CLD", "cld", 1960f / 4f);
@@ -37,10 +40,21 @@ public class CLD extends AbstractFeatureModule {
 
 	@Override
 	public void processShot(FrameContainer shot) {
-		if(!phandler.check("SELECT * FROM features.CLD WHERE shotid = " + shot.getId())){
+		if(!ExtractionState.isExtracted(phandler, "features.CLD", shot.getId())){
 			FloatVector fv = ColorLayoutDescriptor.calculateCLD(shot.getMostRepresentativeFrame().getImage());
 			addToDB(shot.getId(), fv);
 		}
 	}
 
+	@Override
+	public int getNorm() {
+		return 1;
+	}
+
+	@Override
+	public Pair<float[], float[]> getIndexQuery(FrameContainer qc) {
+		FloatVector query = ColorLayoutDescriptor.calculateCLD(qc.getMostRepresentativeFrame().getImage());
+		return new Pair<float[], float[]>(query.toFloatArray(), null);
+	}
+
 }
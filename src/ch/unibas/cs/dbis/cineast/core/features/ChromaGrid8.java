@@ -20,6 +20,7 @@ import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
 import ch.unibas.cs.dbis.cineast.core.data.Pair;
 import ch.unibas.cs.dbis.cineast.core.data.StatElement;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.util.GridPartitioner;
 
@@ -97,7 +98,7 @@ public class ChromaGrid8 extends AbstractFeatureModule {
 	@Override
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
-		if (!phandler.check("SELECT * FROM features.ChromaGrid8 WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.ChromaGrid8", shot.getId())) {
 			ArrayList<StatElement> stats = new ArrayList<StatElement>(64);
 			for(int i = 0; i < 64; ++i){
 				stats.add(new StatElement());
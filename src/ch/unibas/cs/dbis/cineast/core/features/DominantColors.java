@@ -1,7 +1,6 @@
 package ch.unibas.cs.dbis.cineast.core.features;
 
 import java.sql.ResultSet;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -13,15 +12,17 @@ import ch.unibas.cs.dbis.cineast.core.color.LabContainer;
 import ch.unibas.cs.dbis.cineast.core.color.ReadableLabContainer;
 import ch.unibas.cs.dbis.cineast.core.color.ReadableRGBContainer;
 import ch.unibas.cs.dbis.cineast.core.config.Config;
-import ch.unibas.cs.dbis.cineast.core.data.FloatVector;
 import ch.unibas.cs.dbis.cineast.core.data.FloatVectorImpl;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.db.PersistentTuple;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
-import ch.unibas.cs.dbis.cineast.core.util.KMeansPP;
+import ch.unibas.cs.dbis.cineast.core.util.FastKMeansPP;
 import ch.unibas.cs.dbis.cineast.core.util.TimeHelper;
+import gnu.trove.iterator.TIntIntIterator;
+import gnu.trove.map.hash.TIntIntHashMap;
 
 public class DominantColors extends AbstractFeatureModule {
 
@@ -32,42 +33,66 @@ public class DominantColors extends AbstractFeatureModule {
 	}
 	
 	public static LabContainer[] getDominantColor(MultiImage img){
+		return getDominantColor(img, false);
+	}
+	
+	/**
+	 * identical colors are collapsed into one weighted point before clustering
+	 * 
+	 * @param parallel if true, the k-means restarts are computed concurrently
+	 */
+	public static LabContainer[] getDominantColor(MultiImage img, boolean parallel){
 		int[] colors = img.getThumbnailColors();
-		ArrayList<ReadableLabContainer> colorList = new ArrayList<ReadableLabContainer>(colors.length);
+		TIntIntHashMap counts = new TIntIntHashMap();
+		int total = 0;
 		for(int col : colors){
 			if(ReadableRGBContainer.getAlpha(col) < 127){
 				continue;
 			}
-			colorList.add(ColorConverter.cachedRGBtoLab(col));
+			counts.adjustOrPutValue(col & 0xFFFFFF, 1, 1);
+			++total;
 		}
 		
-		if(colorList.size() < 3){
+		if(total < 3){
 			return new LabContainer[]{new LabContainer(), new LabContainer(), new LabContainer()};
 		}
 		
-		KMeansPP.KMenasResult<ReadableLabContainer> result = KMeansPP.bestOfkMeansPP(colorList, new LabContainer(0, 0, 0), 3, 0.001, 10);
+		int n = counts.size();
+		float[] points = new float[3 * n];
+		float[] weights = new float[n];
+		TIntIntIterator iter = counts.iterator();
+		for(int i = 0; i < n; ++i){
+			iter.advance();
+			ReadableLabContainer lab = ColorConverter.cachedRGBtoLab(iter.key() | 0xFF000000);
+			points[3 * i] = lab.getL();
+			points[3 * i + 1] = lab.getA();
+			points[3 * i + 2] = lab.getB();
+			weights[i] = iter.value();
+		}
+		
+		FastKMeansPP.Result result = FastKMeansPP.bestOfKMeansPP(points, weights, n, 3, 3, 0.001, 10, parallel);
 		
-		FloatVector[] vectors = result.getCenters().toArray(new FloatVectorImpl[3]);
 		LabContainer[] _return = new LabContainer[]{new LabContainer(0, 0, 0),new LabContainer(0, 0, 0),new LabContainer(0, 0, 0)};
-		for(int i = 0; i < Math.min(3, vectors.length); ++i){
-			if(vectors[i] == null){
+		for(int i = 0; i < Math.min(3, result.getK()); ++i){
+			if(result.getWeight(i) <= 0){
 				break;
 			}
-			_return[i] = new LabContainer(vectors[i].getElement(0), vectors[i].getElement(1), vectors[i].getElement(2));
+			_return[i] = new LabContainer(result.getCenterElement(i, 0), result.getCenterElement(i, 1), result.getCenterElement(i, 2));
 		}
 		return _return;
 	}
 	
 	@Override
 	public void processShot(FrameContainer shot) {
-		if(!phandler.check("SELECT * FROM features.DominantColors WHERE shotid = " + shot.getId())){
-			TimeHelper.tic();
+		if(!ExtractionState.isExtracted(phandler, "features.DominantColors", shot.getId())){
 			LOGGER.entry();
-			LabContainer[] dominant = getDominantColor(shot.getMostRepresentativeFrame().getImage());
-			long shotId = shot.getId();
-	
-			addToDB(shotId, dominant);
-			LOGGER.debug("DominantColor.processShot() done in {}", TimeHelper.toc());
+			try(TimeHelper.Timer timer = TimeHelper.start("DominantColors.processShot")){
+				LabContainer[] dominant = getDominantColor(shot.getMostRepresentativeFrame().getImage());
+				long shotId = shot.getId();
+		
+				addToDB(shotId, dominant);
+				LOGGER.debug("DominantColor.processShot() done in {}", timer.elapsed());
+			}
 			LOGGER.exit();
 		}
 	}
@@ -87,7 +112,7 @@ public class DominantColors extends AbstractFeatureModule {
 
 	@Override
 	public List<LongDoublePair> getSimilar(FrameContainer qc) {
-		LabContainer[] query = getDominantColor(qc.getMostRepresentativeFrame().getImage());
+		LabContainer[] query = getDominantColor(qc.getMostRepresentativeFrame().getImage(), true);
 
 		int limit = Config.getRetrieverConfig().getMaxResultsPerModule();
 		
@@ -104,7 +129,7 @@ public class DominantColors extends AbstractFeatureModule {
 
 	@Override
 	public List<LongDoublePair> getSimilar(FrameContainer qc, String resultCacheName) {
-		LabContainer[] query = getDominantColor(qc.getMostRepresentativeFrame().getImage());
+		LabContainer[] query = getDominantColor(qc.getMostRepresentativeFrame().getImage(), true);
 
 		int limit = Config.getRetrieverConfig().getMaxResultsPerModule();
 		
@@ -15,6 +15,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FloatVectorImpl;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.descriptor.EdgeList;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import georegression.struct.point.Point2D_I32;
@@ -30,7 +31,7 @@ public class DominantEdgeGrid16 extends AbstractFeatureModule {
 	@Override
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
-		if (!phandler.check("SELECT * FROM features.DominantEdgeGrid16 WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.DominantEdgeGrid16", shot.getId())) {
 			short[][][] edgeHist = new short[16][16][4];
 			buildEdgeHist(edgeHist, shot.getMostRepresentativeFrame().getImage());
 			short[] dominant = getDominants(edgeHist);
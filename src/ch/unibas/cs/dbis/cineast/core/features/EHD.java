@@ -15,7 +15,10 @@ import ch.unibas.cs.dbis.cineast.core.data.Frame;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
+import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
+import ch.unibas.cs.dbis.cineast.core.index.IndexableFeature;
 import ch.unibas.cs.dbis.cineast.core.util.MathHelper;
 /**
  * see Efficient Use of MPEG-7 Edge Histogram Descriptor by Won '02
@@ -23,7 +26,7 @@ import ch.unibas.cs.dbis.cineast.core.util.MathHelper;
  * @author rosluc00
  *
  */
-public class EHD extends AbstractFeatureModule {
+public class EHD extends AbstractFeatureModule implements IndexableFeature {
 
 	private static final Logger LOGGER = LogManager.getLogger();
 
@@ -43,7 +46,7 @@ public class EHD extends AbstractFeatureModule {
 	@Override
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
-		if (!phandler.check("SELECT * FROM features.EHD WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.EHD", shot.getId())) {
 			List<Frame> frames = shot.getFrames();
 			float[] hist = new float[80];
 			for(Frame f : frames){
@@ -77,6 +80,16 @@ public class EHD extends AbstractFeatureModule {
 		return manageResultSet(rset);
 	}
 
+	@Override
+	public int getNorm() {
+		return 1;
+	}
+
+	@Override
+	public Pair<float[], float[]> getIndexQuery(FrameContainer qc) {
+		return new Pair<float[], float[]>(process(qc.getMostRepresentativeFrame().getImage(), new float[80]), null);
+	}
+	
 	protected static float[] process(MultiImage img, float[] hist){
 		GrayU8 gray = ConvertBufferedImage.convertFrom(img.getBufferedImage(), (GrayU8) null);
 		int width = img.getWidth(), height = img.getHeight();
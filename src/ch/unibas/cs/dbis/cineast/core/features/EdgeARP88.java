@@ -15,6 +15,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
 import ch.unibas.cs.dbis.cineast.core.data.StatElement;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.descriptor.EdgeImg;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.util.ARPartioner;
@@ -30,7 +31,7 @@ public class EdgeARP88 extends AbstractFeatureModule {
 	@Override
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
-		if (!phandler.check("SELECT * FROM features.EdgeARP88 WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.EdgeARP88", shot.getId())) {
 			addToDB(shot.getId(), getEdges(shot.getMostRepresentativeFrame().getImage()));
 		}
 		LOGGER.exit();
@@ -16,6 +16,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
 import ch.unibas.cs.dbis.cineast.core.data.StatElement;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.descriptor.EdgeImg;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.util.ARPartioner;
@@ -31,7 +32,7 @@ public class EdgeARP88Full extends AbstractFeatureModule {
 	@Override
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
-		if (!phandler.check("SELECT * FROM features.EdgeARP88Full WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.EdgeARP88Full", shot.getId())) {
 			StatElement[] stats = new StatElement[64];
 			for(int i = 0; i < 64; ++i){
 				stats[i] = new StatElement();
@@ -16,6 +16,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
 import ch.unibas.cs.dbis.cineast.core.data.StatElement;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.descriptor.EdgeImg;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.util.GridPartitioner;
@@ -32,7 +33,7 @@ public class EdgeGrid16Full extends AbstractFeatureModule {
 	@Override
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
-		if (!phandler.check("SELECT * FROM features.EdgeGrid16Full WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.EdgeGrid16Full", shot.getId())) {
 			StatElement[] stats = new StatElement[256];
 			for(int i = 0; i < 256; ++i){
 				stats[i] = new StatElement();
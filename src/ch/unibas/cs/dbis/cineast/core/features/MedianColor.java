@@ -15,6 +15,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
 import ch.unibas.cs.dbis.cineast.core.data.providers.MedianImgProvider;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.util.TimeHelper;
 
@@ -62,14 +63,15 @@ public class MedianColor extends AbstractFeatureModule {
 
 	@Override
 	public void processShot(FrameContainer shot) {
-		if(!phandler.check("SELECT * FROM features.MedianColor WHERE shotid = " + shot.getId())){
-			TimeHelper.tic();
+		if(!ExtractionState.isExtracted(phandler, "features.MedianColor", shot.getId())){
 			LOGGER.entry();
-			LabContainer median = getMedian(shot);
-			long shotId = shot.getId();
-	
-			addToDB(shotId, median);
-			LOGGER.debug("MedianColor.processShot() done in {}", TimeHelper.toc());
+			try(TimeHelper.Timer timer = TimeHelper.start("MedianColor.processShot")){
+				LabContainer median = getMedian(shot);
+				long shotId = shot.getId();
+		
+				addToDB(shotId, median);
+				LOGGER.debug("MedianColor.processShot() done in {}", timer.elapsed());
+			}
 			LOGGER.exit();
 		}
 	}
@@ -12,6 +12,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
 import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.util.ARPartioner;
 
@@ -47,7 +48,7 @@ public class MedianColorARP44 extends AbstractFeatureModule {
 	@Override
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
-		if(!phandler.check("SELECT * FROM features.MedianColorARP44 WHERE shotid = " + shot.getId())){
+		if(!ExtractionState.isExtracted(phandler, "features.MedianColorARP44", shot.getId())){
 			MultiImage median = shot.getMedianImg();
 			FloatVector vec = ARPartioner.partitionImage(median, 4, 4).first;
 			addToDB(shot.getId(), vec);
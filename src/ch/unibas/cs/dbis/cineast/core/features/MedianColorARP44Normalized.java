@@ -9,6 +9,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
 import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.util.ARPartioner;
 import ch.unibas.cs.dbis.cineast.core.util.ImageHistogramEqualizer;
@@ -21,7 +22,7 @@ public class MedianColorARP44Normalized extends AbstractFeatureModule {
 	
 	@Override
 	public void processShot(FrameContainer shot) {
-		if(!phandler.check("SELECT * FROM features.MedianColorARP44Normalized WHERE shotid = " + shot.getId())){
+		if(!ExtractionState.isExtracted(phandler, "features.MedianColorARP44Normalized", shot.getId())){
 			MultiImage median = ImageHistogramEqualizer.getEqualized(shot.getMedianImg());
 			FloatVector vec = ARPartioner.partitionImage(median, 4, 4).first;
 			addToDB(shot.getId(), vec);
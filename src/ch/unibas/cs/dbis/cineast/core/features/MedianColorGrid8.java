@@ -18,6 +18,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
 import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.util.ColorUtils;
 import ch.unibas.cs.dbis.cineast.core.util.GridPartitioner;
@@ -38,7 +39,7 @@ public class MedianColorGrid8 extends AbstractFeatureModule {
 	@Override
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
-		if (!phandler.check("SELECT * FROM features.MedianColorGrid8 WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.MedianColorGrid8", shot.getId())) {
 			MultiImage medimg = shot.getMedianImg();
 			
 			addToDB(shot.getId(), partition(medimg).first);
@@ -9,6 +9,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
 import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.util.ImageHistogramEqualizer;
 
 public class MedianColorGrid8Normalized extends MedianColorGrid8 {
@@ -20,7 +21,7 @@ public class MedianColorGrid8Normalized extends MedianColorGrid8 {
 	
 	@Override
 	public void processShot(FrameContainer shot) {
-		if (!phandler.check("SELECT * FROM features.MedianColorGrid8Normalized WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.MedianColorGrid8Normalized", shot.getId())) {
 			MultiImage medimg = ImageHistogramEqualizer.getEqualized(shot.getMedianImg());
 			
 			addToDB(shot.getId(), partition(medimg).first);
@@ -19,6 +19,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
 import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.db.PersistencyWriter;
 import ch.unibas.cs.dbis.cineast.core.util.ColorUtils;
 import ch.unibas.cs.dbis.cineast.core.util.GridPartitioner;
@@ -37,7 +38,7 @@ public class MedianColorRaster extends AverageColorRaster {
 	@Override
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
-		if (!phandler.check("SELECT * FROM features.MedianColorRaster WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.MedianColorRaster", shot.getId())) {
 			MultiImage med = shot.getMedianImg();
 			int[] colors = med.getColors();
 			ArrayList<Integer> ints = new ArrayList<>(colors.length);
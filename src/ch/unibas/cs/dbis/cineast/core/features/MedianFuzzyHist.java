@@ -9,6 +9,7 @@ import org.apache.logging.log4j.Logger;
 import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.segmenter.FuzzyColorHistogram;
 import ch.unibas.cs.dbis.cineast.core.segmenter.FuzzyColorHistogramCalculator;
@@ -43,7 +44,7 @@ public class MedianFuzzyHist extends AbstractFeatureModule {
 	@Override
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
-		if (!phandler.check("SELECT * FROM features.MedianFuzzyHist WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.MedianFuzzyHist", shot.getId())) {
 			FuzzyColorHistogram fch = FuzzyColorHistogramCalculator.getHistogramNormalized(shot.getMedianImg().getBufferedImage());
 			addToDB(shot.getId(), fch);
 		}
@@ -1,7 +1,6 @@
 package ch.unibas.cs.dbis.cineast.core.features;
 
 import java.sql.ResultSet;
-import java.util.ArrayList;
 import java.util.List;
 
 import ch.unibas.cs.dbis.cineast.core.config.Config;
@@ -10,6 +9,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FloatVectorImpl;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.db.PersistencyWriter;
 import ch.unibas.cs.dbis.cineast.core.db.PersistentTuple;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.SubDivMotionHistogram;
@@ -29,12 +29,12 @@ public class MotionHistogram extends SubDivMotionHistogram {
 
 	@Override
 	public void processShot(FrameContainer shot) {
-		if(!phandler.check("SELECT * FROM features.MotionHistogram WHERE shotid = " + shot.getId())){
+		if(!ExtractionState.isExtracted(phandler, "features.MotionHistogram", shot.getId())){
 			
-			Pair<List<Double>, ArrayList<ArrayList<Float>>> pair = getSubDivHist(1, shot.getPaths());
+			Pair<double[], float[]> pair = getSubDivHist(1, shot);
 			
-			double sum = pair.first.get(0);
-			FloatVectorImpl fv = new FloatVectorImpl(pair.second.get(0));
+			double sum = pair.first[0];
+			FloatVectorImpl fv = new FloatVectorImpl(pair.second);
 
 			addToDB(shot.getId(), sum, fv);
 		}
@@ -49,9 +49,9 @@ public class MotionHistogram extends SubDivMotionHistogram {
 	public List<LongDoublePair> getSimilar(FrameContainer qc) {		
 		int limit = Config.getRetrieverConfig().getMaxResultsPerModule();
 		
-		Pair<List<Double>, ArrayList<ArrayList<Float>>> pair = getSubDivHist(1, qc.getPaths());
+		Pair<double[], float[]> pair = getSubDivHist(1, qc);
 
-		FloatVectorImpl fv = new FloatVectorImpl(pair.second.get(0));
+		FloatVectorImpl fv = new FloatVectorImpl(pair.second);
 		
 		ResultSet rset = this.selector.select("SELECT * FROM features.MotionHistogram USING DISTANCE MINKOWSKI(2)(\'" + fv.toFeatureString() + "\', hist) ORDER USING DISTANCE LIMIT " + limit);
 		return manageResultSet(rset);
@@ -61,9 +61,9 @@ public class MotionHistogram extends SubDivMotionHistogram {
 	public List<LongDoublePair> getSimilar(FrameContainer qc, String resultCacheName) {
 		int limit = Config.getRetrieverConfig().getMaxResultsPerModule();
 		
-		Pair<List<Double>, ArrayList<ArrayList<Float>>> pair = getSubDivHist(1, qc.getPaths());
+		Pair<double[], float[]> pair = getSubDivHist(1, qc);
 
-		FloatVectorImpl fv = new FloatVectorImpl(pair.second.get(0));
+		FloatVectorImpl fv = new FloatVectorImpl(pair.second);
 		
 		ResultSet rset = this.selector.select(getResultCacheLimitSQL(resultCacheName) + " SELECT * FROM features.MotionHistogram, c WHERE shotid = c.filter USING DISTANCE MINKOWSKI(2)(\'" + fv.toFeatureString() + "\', hist) ORDER USING DISTANCE LIMIT " + limit);
 		return manageResultSet(rset);
@@ -1,7 +1,6 @@
 package ch.unibas.cs.dbis.cineast.core.features;
 
 import java.sql.ResultSet;
-import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
@@ -25,9 +24,9 @@ public class MotionSum extends MotionHistogramCalculator {
 	public List<LongDoublePair> getSimilar(FrameContainer qc) {
 		int limit = Config.getRetrieverConfig().getMaxResultsPerModule();
 		
-		Pair<List<Double>, ArrayList<ArrayList<Float>>> pair = getSubDivHist(1, qc.getPaths());
+		Pair<double[], float[]> pair = getSubDivHist(1, qc);
 
-		double sum = pair.first.get(0);
+		double sum = pair.first[0];
 		
 		ResultSet rset = this.selector.select("SELECT shotid , pow(sum - " + sum + ", 2) as dist FROM features.MotionHistogram ORDER BY dist ASC LIMIT " + limit);
 		return manageResultSet(rset);
@@ -45,9 +44,9 @@ public class MotionSum extends MotionHistogramCalculator {
 	public List<LongDoublePair> getSimilar(FrameContainer qc, String resultCacheName) {
 		int limit = Config.getRetrieverConfig().getMaxResultsPerModule();
 		
-		Pair<List<Double>, ArrayList<ArrayList<Float>>> pair = getSubDivHist(1, qc.getPaths());
+		Pair<double[], float[]> pair = getSubDivHist(1, qc);
 
-		double sum = pair.first.get(0);
+		double sum = pair.first[0];
 		
 		ResultSet rset = this.selector.select(getResultCacheLimitSQL(resultCacheName) + " SELECT shotid , pow(sum - " + sum + ", 2) as dist FROM features.MotionHistogram, c WHERE shotid = c.filter ORDER BY dist ASC LIMIT " + limit);
 		return manageResultSet(rset);
@@ -15,6 +15,7 @@ import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
 import ch.unibas.cs.dbis.cineast.core.data.StatElement;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.db.PersistencyWriter;
 import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
 import ch.unibas.cs.dbis.cineast.core.util.MathHelper;
@@ -33,7 +34,7 @@ public class STMP7EH extends EHD {
 	@Override
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
-		if (!phandler.check("SELECT * FROM features.STMP7EH WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.STMP7EH", shot.getId())) {
 			List<Frame> frames = shot.getFrames();
 			float[] hist = new float[80];
 			StatElement[] stats = new StatElement[80];
@@ -1,62 +1,154 @@
 package ch.unibas.cs.dbis.cineast.core.features;
 
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import ch.unibas.cs.dbis.cineast.core.color.RGBContainer;
 import ch.unibas.cs.dbis.cineast.core.color.ReadableRGBContainer;
 import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.MultiImage;
+import ch.unibas.cs.dbis.cineast.core.db.DBSelector;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.db.PersistentTuple;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
+import ch.unibas.cs.dbis.cineast.core.index.HammingIndex;
 import ch.unibas.cs.dbis.cineast.core.util.ColorUtils;
 import ch.unibas.cs.dbis.cineast.core.util.GridPartitioner;
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
+import ch.unibas.cs.dbis.cineast.core.util.MathHelper;
+import gnu.trove.set.hash.TLongHashSet;
 
+/**
+ * 64 bit average hash of the most representative frame. Retrieval finds near-duplicates, i.e. all shots whose hash is within a
+ * small Hamming distance of the query, using a {@link HammingIndex} over all stored hashes which is loaded on first use and kept
+ * up to date by the extraction running in the same process.
+ */
 public class SimplePerceptualHash extends AbstractFeatureModule {
 
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	public static final int DEFAULT_RADIUS = 6;
+
+	private static HammingIndex index = null;
+
+	private final int radius;
+
 	public SimplePerceptualHash() {
-		super("features.SimplePerceptualHash", "hash", 1);
+		this(DEFAULT_RADIUS);
+	}
+
+	/**
+	 * @param radius the maximum Hamming distance between the hashes of near-duplicates
+	 */
+	public SimplePerceptualHash(int radius) {
+		super("features.SimplePerceptualHash", "hash", radius + 1);
+		this.radius = radius;
+	}
+
+	/**
+	 * @return the index of all stored hashes, read from the database on the first call
+	 */
+	private static synchronized HammingIndex getIndex(DBSelector selector){
+		if(index == null){
+			index = HammingIndex.load(selector, "features.SimplePerceptualHash", "hash");
+		}
+		return index;
+	}
+
+	/**
+	 * @return the index if it has already been loaded, null otherwise
+	 */
+	private static synchronized HammingIndex getLoadedIndex(){
+		return index;
 	}
 
 	@Override
 	public void processShot(FrameContainer shot) {
-		if(!phandler.check("SELECT * FROM features.SimplePerceptualHash WHERE shotid = " + shot.getId())){
-			addToDB(shot.getId(), hash(shot.getMostRepresentativeFrame().getImage()));
+		if(!ExtractionState.isExtracted(phandler, "features.SimplePerceptualHash", shot.getId())){
+			long hash = hash(shot.getMostRepresentativeFrame().getImage());
+			addToDB(shot.getId(), hash);
+			HammingIndex loaded = getLoadedIndex();
+			if(loaded != null){
+				loaded.add(shot.getId(), hash);
+			}
 		}
 	}
 
+	/**
+	 * @return all shots with a hash within the given Hamming distance, as pairs of shot id and distance ordered by ascending distance
+	 */
+	public List<LongDoublePair> getNearDuplicates(long hash, int radius){
+		return getIndex(this.selector).search(hash, radius, Integer.MAX_VALUE);
+	}
+
 	@Override
 	public List<LongDoublePair> getSimilar(FrameContainer qc) {
-		int limit = Config.getRetrieverConfig().getMaxResultsPerModule();
-		ResultSet rset = this.selector.select("SELECT 0 as dist, shotId FROM features.SimplePerceptualHash, q WHERE SimplePerceptualHash.hash = " + hash(qc.getMostRepresentativeFrame().getImage()) + " LIMIT " + limit);
-		return manageResultSet(rset);
+		return search(hash(qc.getMostRepresentativeFrame().getImage()), null);
 	}
 
 	@Override
 	public List<LongDoublePair> getSimilar(long shotId) {
-		int limit = Config.getRetrieverConfig().getMaxResultsPerModule();
-		
-		ResultSet rset = this.selector.select("WITH q AS (SELECT hash FROM features.SimplePerceptualHash WHERE shotid = " + shotId + ") SELECT 0 as dist, shotId FROM features.SimplePerceptualHash, q WHERE SimplePerceptualHash.hash = q.hash LIMIT " + limit);
-		return manageResultSet(rset);
+		HammingIndex index = getIndex(this.selector);
+		if(!index.contains(shotId)){
+			return new ArrayList<>(0);
+		}
+		return search(index.getHash(shotId), null);
 	}
 	
 	@Override
 	public List<LongDoublePair> getSimilar(FrameContainer qc, String resultCacheName) {
-		int limit = Config.getRetrieverConfig().getMaxResultsPerModule();
-		ResultSet rset = this.selector.select(getResultCacheLimitSQL(resultCacheName) + " SELECT 0 as dist, shotId FROM features.SimplePerceptualHash, q, c WHERE shotid = c.filter AND SimplePerceptualHash.hash = " + hash(qc.getMostRepresentativeFrame().getImage()) + " LIMIT " + limit);
-		return manageResultSet(rset);
+		return search(hash(qc.getMostRepresentativeFrame().getImage()), getResultCache(resultCacheName));
 	}
 	
 	@Override
 	public List<LongDoublePair> getSimilar(long shotId, String resultCacheName) {
+		HammingIndex index = getIndex(this.selector);
+		if(!index.contains(shotId)){
+			return new ArrayList<>(0);
+		}
+		return search(index.getHash(shotId), getResultCache(resultCacheName));
+	}
+
+	/**
+	 * @param filter the shots to consider, all if null
+	 */
+	private List<LongDoublePair> search(long hash, TLongHashSet filter){
 		int limit = Config.getRetrieverConfig().getMaxResultsPerModule();
-		
-		ResultSet rset = this.selector.select(getResultCacheLimitSQL(resultCacheName) + ", q AS (SELECT hash FROM features.SimplePerceptualHash WHERE shotid = " + shotId + ") SELECT 0 as dist, shotId FROM features.SimplePerceptualHash, q, c WHERE shotid = c.filter AND SimplePerceptualHash.hash = q.hash LIMIT " + limit);
-		return manageResultSet(rset);
+		List<LongDoublePair> candidates = getIndex(this.selector).search(hash, this.radius, filter == null ? limit : Integer.MAX_VALUE);
+		ArrayList<LongDoublePair> _return = new ArrayList<>(Math.min(limit, candidates.size()));
+		for(LongDoublePair pair : candidates){
+			if(_return.size() >= limit){
+				break;
+			}
+			if(filter == null || filter.contains(pair.key)){
+				pair.value = MathHelper.getScore(pair.value, this.maxDist);
+				_return.add(pair);
+			}
+		}
+		return _return;
+	}
+
+	private TLongHashSet getResultCache(String resultCacheName){
+		TLongHashSet _return = new TLongHashSet();
+		ResultSet rset = this.selector.select(getResultCacheLimitSQL(resultCacheName) + " SELECT filter FROM c");
+		if(rset != null){
+			try {
+				while(rset.next()){
+					_return.add(rset.getLong(1));
+				}
+			} catch (SQLException e) {
+				LOGGER.fatal(LogHelper.SQL_MARKER, LogHelper.getStackTrace(e));
+			}
+		}
+		return _return;
 	}
 
 	private void addToDB(long shotId, long hash) {
@@ -9,6 +9,7 @@ import org.apache.logging.log4j.Logger;
 import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.segmenter.FuzzyColorHistogramCalculator;
 import ch.unibas.cs.dbis.cineast.core.segmenter.SubdividedFuzzyColorHistogram;
@@ -42,7 +43,7 @@ public class SubDivMedianFuzzyColor extends AbstractFeatureModule {
 	@Override
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
-		if (!phandler.check("SELECT * FROM features.SubDivMedianFuzzyColor WHERE shotid = " + shot.getId())) {
+		if (!ExtractionState.isExtracted(phandler, "features.SubDivMedianFuzzyColor", shot.getId())) {
 			SubdividedFuzzyColorHistogram fch = FuzzyColorHistogramCalculator.getSubdividedHistogramNormalized(shot.getMedianImg().getBufferedImage(), 2);
 			addToDB(shot.getId(), fch);
 		}
@@ -1,7 +1,6 @@
 package ch.unibas.cs.dbis.cineast.core.features;
 
 import java.sql.ResultSet;
-import java.util.ArrayList;
 import java.util.List;
 
 import ch.unibas.cs.dbis.cineast.core.config.Config;
@@ -10,10 +9,12 @@ import ch.unibas.cs.dbis.cineast.core.data.FloatVectorImpl;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.SubDivMotionHistogram;
+import ch.unibas.cs.dbis.cineast.core.index.IndexableFeature;
 import ch.unibas.cs.dbis.cineast.core.util.MathHelper;
 
-public class SubDivMotionHistogram2 extends SubDivMotionHistogram {
+public class SubDivMotionHistogram2 extends SubDivMotionHistogram implements IndexableFeature {
 
 	public SubDivMotionHistogram2() {
 		super("features.SubDivMotionHistogram2", "hists", MathHelper.SQRT2 * 4);
@@ -21,18 +22,12 @@ public class SubDivMotionHistogram2 extends SubDivMotionHistogram {
 
 	@Override
 	public void processShot(FrameContainer shot) {
-		if(!phandler.check("SELECT * FROM features.SubDivMotionHistogram2 WHERE shotid = " + shot.getId())){
+		if(!ExtractionState.isExtracted(phandler, "features.SubDivMotionHistogram2", shot.getId())){
 			
-			Pair<List<Double>, ArrayList<ArrayList<Float>>> pair = getSubDivHist(2, shot.getPaths());
+			Pair<double[], float[]> pair = getSubDivHist(2, shot);
 			
 			FloatVector sum = new FloatVectorImpl(pair.first);
-			ArrayList<Float> tmp = new ArrayList<Float>(2 * 2 * 8);
-			for(List<Float> l : pair.second){
-				for(float f : l){
-					tmp.add(f);
-				}
-			}
-			FloatVectorImpl fv = new FloatVectorImpl(tmp);
+			FloatVectorImpl fv = new FloatVectorImpl(pair.second);
 
 			addToDB(shot.getId(), sum, fv);
 		}
@@ -42,15 +37,9 @@ public class SubDivMotionHistogram2 extends SubDivMotionHistogram {
 	public List<LongDoublePair> getSimilar(FrameContainer qc) {
 		int limit = Config.getRetrieverConfig().getMaxResultsPerModule();
 		
-		Pair<List<Double>, ArrayList<ArrayList<Float>>> pair = getSubDivHist(2, qc.getPaths());
+		Pair<double[], float[]> pair = getSubDivHist(2, qc);
 
-		ArrayList<Float> tmp = new ArrayList<Float>(2 * 2 * 8);
-		for(List<Float> l : pair.second){
-			for(float f : l){
-				tmp.add(f);
-			}
-		}
-		FloatVectorImpl fv = new FloatVectorImpl(tmp);
+		FloatVectorImpl fv = new FloatVectorImpl(pair.second);
 		
 		ResultSet rset = this.selector.select("SELECT * FROM features.SubDivMotionHistogram2 USING DISTANCE MINKOWSKI(2)(\'" + fv.toFeatureString() + "\', hists) ORDER USING DISTANCE LIMIT " + limit);
 		return manageResultSet(rset);
@@ -60,17 +49,21 @@ public class SubDivMotionHistogram2 extends SubDivMotionHistogram {
 	public List<LongDoublePair> getSimilar(FrameContainer qc, String resultCacheName) {
 		int limit = Config.getRetrieverConfig().getMaxResultsPerModule();
 		
-		Pair<List<Double>, ArrayList<ArrayList<Float>>> pair = getSubDivHist(2, qc.getPaths());
+		Pair<double[], float[]> pair = getSubDivHist(2, qc);
 
-		ArrayList<Float> tmp = new ArrayList<Float>(2 * 2 * 8);
-		for(List<Float> l : pair.second){
-			for(float f : l){
-				tmp.add(f);
-			}
-		}
-		FloatVectorImpl fv = new FloatVectorImpl(tmp);
+		FloatVectorImpl fv = new FloatVectorImpl(pair.second);
 		
 		ResultSet rset = this.selector.select(getResultCacheLimitSQL(resultCacheName) + " SELECT * FROM features.SubDivMotionHistogram2, c WHERE shotid = c.filter USING DISTANCE MINKOWSKI(2)(\'" + fv.toFeatureString() + "\', hists) ORDER USING DISTANCE LIMIT " + limit);
 		return manageResultSet(rset);
 	}
+
+	@Override
+	public int getNorm() {
+		return 2;
+	}
+
+	@Override
+	public Pair<float[], float[]> getIndexQuery(FrameContainer qc) {
+		return new Pair<float[], float[]>(getSubDivHist(2, qc).second, null);
+	}
 }
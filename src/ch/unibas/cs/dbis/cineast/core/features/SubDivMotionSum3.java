@@ -1,7 +1,6 @@
 package ch.unibas.cs.dbis.cineast.core.features;
 
 import java.sql.ResultSet;
-import java.util.ArrayList;
 import java.util.List;
 
 import ch.unibas.cs.dbis.cineast.core.config.Config;
@@ -21,7 +20,7 @@ public class SubDivMotionSum3 extends MotionHistogramCalculator {
 	public List<LongDoublePair> getSimilar(FrameContainer qc) {
 		int limit = Config.getRetrieverConfig().getMaxResultsPerModule();
 		
-		Pair<List<Double>, ArrayList<ArrayList<Float>>> pair = getSubDivHist(3, qc.getPaths());
+		Pair<double[], float[]> pair = getSubDivHist(3, qc);
 
 		FloatVectorImpl fv = new FloatVectorImpl(pair.first);
 		
@@ -33,7 +32,7 @@ public class SubDivMotionSum3 extends MotionHistogramCalculator {
 	public List<LongDoublePair> getSimilar(FrameContainer qc, String resultCacheName) {
 		int limit = Config.getRetrieverConfig().getMaxResultsPerModule();
 		
-		Pair<List<Double>, ArrayList<ArrayList<Float>>> pair = getSubDivHist(3, qc.getPaths());
+		Pair<double[], float[]> pair = getSubDivHist(3, qc);
 
 		FloatVectorImpl fv = new FloatVectorImpl(pair.first);
 		
@@ -12,6 +12,7 @@ import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.db.ADAMTuple;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.db.PersistentTuple;
 import ch.unibas.cs.dbis.cineast.core.decode.subtitle.SubtitleItem;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
@@ -29,7 +30,7 @@ public class SubtitleFulltextSearch extends AbstractFeatureModule {
 	public void processShot(FrameContainer shot) {
 		LOGGER.entry();
 		List<SubtitleItem> subiItems = shot.getSubtitleItems();
-		if (!subiItems.isEmpty() && !phandler.check("SELECT * FROM features.fulltext WHERE shotid = " + shot.getId())) {
+		if (!subiItems.isEmpty() && !ExtractionState.isExtracted(phandler, "features.fulltext", shot.getId())) {
 			StringBuffer buf = new StringBuffer();
 			for(SubtitleItem si : subiItems){
 				buf.append(si.getText());
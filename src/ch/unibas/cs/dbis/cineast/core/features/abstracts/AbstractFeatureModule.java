@@ -158,6 +158,18 @@ public abstract class AbstractFeatureModule implements Extractor, Retriever {
 		return this.confidence;
 	}
 	
+	public String getTableName(){
+		return this.tableName;
+	}
+	
+	public String getColumnName(){
+		return this.colName;
+	}
+	
+	public float getMaxDistance(){
+		return this.maxDist;
+	}
+	
 	protected void setConfidenceWeight(float weight){
 		this.confidence = Math.min(1f, Math.max(0f, weight));
 	}
@@ -5,18 +5,14 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
 
 import javax.imageio.ImageIO;
 
 import ch.unibas.cs.dbis.cineast.core.data.Frame;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
-import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.data.MotionPaths;
 import ch.unibas.cs.dbis.cineast.core.db.PersistencyWriter;
 import ch.unibas.cs.dbis.cineast.core.features.extractor.Extractor;
-import georegression.struct.point.Point2D_F32;
 
 public class MotionFrameExporter implements Extractor {
 
@@ -32,12 +28,12 @@ private static File folder = new File("debug2");
 
 	@Override
 	public void processShot(FrameContainer shot) {
-		List<Pair<Integer,LinkedList<Point2D_F32>>> paths = shot.getPaths();
-		for(Frame f : shot.getFrames()){
+		MotionPaths paths = shot.getPaths();
+		for(Frame f : shot.getAllFrames()){
 			File file = new File(folder, String.format("%06d",f.getId()) + ".jpg");
 			BufferedImage bimg = f.getImage().getBufferedImage();
-			for(Pair<Integer, LinkedList<Point2D_F32>> pair : paths){
-				draw(bimg, pair.second);
+			for(int i = 0; i < paths.getPathCount(); ++i){
+				draw(bimg, paths, i);
 			}
 			try {
 				ImageIO.write(bimg, "jpg", file);
@@ -66,19 +62,16 @@ private static File folder = new File("debug2");
 
 	//private static BasicStroke fgStroke = new BasicStroke(1f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
 	
-	public static void draw(BufferedImage img, LinkedList<Point2D_F32> path){
+	public static void draw(BufferedImage img, MotionPaths paths, int path){
 		int col = 0, width = img.getWidth(), height = img.getHeight();
-		if(path.size() > 1){
+		int start = paths.getOffset(path), end = start + paths.getPathLength(path);
+		if(end - start > 1){
 			Graphics2D g = (Graphics2D) img.getGraphics();
-			Iterator<Point2D_F32> iter = path.iterator();
-			Point2D_F32 last = iter.next();
 			//g.setStroke(fgStroke);
-			while(iter.hasNext()){
+			for(int i = start + 1; i < end; ++i){
 				g.setColor(colors[col]);
 				col = (col + 1) % colors.length;
-				Point2D_F32 current = iter.next();
-				g.drawLine((int)(last.x * width), (int)(last.y * height),(int)(current.x * width), (int)(current.y * height));
-				last = current;
+				g.drawLine((int)(paths.getX(i - 1) * width), (int)(paths.getY(i - 1) * height),(int)(paths.getX(i) * width), (int)(paths.getY(i) * height));
 			}
 		}
 	}
@@ -0,0 +1,18 @@
+package ch.unibas.cs.dbis.cineast.core.features.retriever;
+
+import java.util.List;
+
+import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+
+/**
+ * A retriever which can answer several queries at once at about the cost of a single one
+ */
+public interface BatchRetriever extends Retriever {
+
+	/**
+	 * @param resultCacheName the result cache to restrict the results to or null
+	 * @return one result list per shot, in the order of the shot ids
+	 */
+	List<List<LongDoublePair>> getSimilar(long[] shotIds, String resultCacheName);
+
+}
@@ -0,0 +1,21 @@
+package ch.unibas.cs.dbis.cineast.core.features.retriever;
+
+import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
+import gnu.trove.map.hash.TLongDoubleHashMap;
+
+/**
+ * A retriever which can compute the score of given shots for a query without searching for the most similar shots
+ */
+public interface RandomAccessRetriever extends Retriever {
+
+	/**
+	 * @return the scores of the shots by shot id, shots which cannot be scored are missing
+	 */
+	TLongDoubleHashMap getScores(FrameContainer qc, long[] shotIds);
+
+	/**
+	 * @return the scores of the shots for the query shot by shot id, shots which cannot be scored are missing
+	 */
+	TLongDoubleHashMap getScores(long shotId, long[] shotIds);
+
+}
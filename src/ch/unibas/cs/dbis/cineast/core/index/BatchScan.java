@@ -0,0 +1,160 @@
+package ch.unibas.cs.dbis.cineast.core.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
+import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.db.DBSelector;
+import ch.unibas.cs.dbis.cineast.core.util.MathHelper;
+import gnu.trove.map.hash.TLongDoubleHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * Exact nearest neighbour search for several queries in a single pass over the stored vectors of a feature. The vectors are
+ * processed in blocks which are compared to every query before moving on, so each vector is read from memory once per block
+ * instead of once per query.
+ */
+public class BatchScan {
+
+	private static final int BLOCK_SIZE = 256;
+
+	private BatchScan(){}
+
+	/**
+	 * searches the stored vectors of the given shots
+	 * @param resultCacheName the result cache to search in or null to search all shots, which loads the whole table
+	 * @return per shot a list of shot ids and scores ordered by descending score, empty if the shot has no vector
+	 */
+	public static List<List<LongDoublePair>> search(DBSelector selector, IndexableFeature feature, long[] shotIds, String resultCacheName, int k){
+		TLongObjectHashMap<float[]> stored = FeatureVectors.load(selector, feature.getTableName(), feature.getColumnName(), shotIds);
+		FeatureVectors vectors = resultCacheName == null ?
+				FeatureVectors.load(selector, feature.getTableName(), feature.getColumnName()) :
+				FeatureVectors.load(selector, feature.getTableName(), feature.getColumnName(), resultCacheName);
+		float[][] queries = new float[shotIds.length][];
+		for(int q = 0; q < shotIds.length; ++q){
+			queries[q] = stored.get(shotIds[q]);
+		}
+		return toScores(search(vectors, queries, null, feature.getNorm(), k), feature);
+	}
+
+	/**
+	 * searches vectors which have already been loaded, the query vectors are taken from them as well
+	 * @return per shot a list of shot ids and scores ordered by descending score, empty if the shot has no vector
+	 */
+	public static List<List<LongDoublePair>> search(FeatureVectors vectors, IndexableFeature feature, long[] shotIds, int k){
+		float[][] queries = new float[shotIds.length][];
+		for(int q = 0; q < shotIds.length; ++q){
+			queries[q] = vectors.getVectorOf(shotIds[q]);
+		}
+		return toScores(search(vectors, queries, null, feature.getNorm(), k), feature);
+	}
+
+	private static List<List<LongDoublePair>> toScores(List<List<LongDoublePair>> results, IndexableFeature feature){
+		float maxDist = feature.getMaxDistance();
+		for(List<LongDoublePair> list : results){
+			for(LongDoublePair pair : list){
+				pair.value = MathHelper.getScore(pair.value, maxDist);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * @param queries the query vectors, queries which are null or of a different dimension than the vectors get no results
+	 * @param weights per query the per-element weights of the distance, null if all distances are unweighted
+	 * @param norm the order of the Minkowski distance, 1 or 2
+	 * @return per query a list of ids and distances ordered by ascending distance
+	 */
+	public static List<List<LongDoublePair>> search(FeatureVectors vectors, float[][] queries, float[][] weights, int norm, int k){
+		int dim = vectors.getDimension(), n = vectors.size();
+		float[] data = vectors.getVectors();
+		IVFPQIndex.ResultHeap[] heaps = new IVFPQIndex.ResultHeap[queries.length];
+		for(int q = 0; q < queries.length; ++q){
+			if(queries[q] != null && queries[q].length == dim){
+				heaps[q] = new IVFPQIndex.ResultHeap(k);
+			}
+		}
+
+		for(int blockStart = 0; blockStart < n; blockStart += BLOCK_SIZE){
+			int blockEnd = Math.min(n, blockStart + BLOCK_SIZE);
+			for(int q = 0; q < queries.length; ++q){
+				if(heaps[q] == null){
+					continue;
+				}
+				float[] query = queries[q];
+				float[] weight = weights == null ? null : weights[q];
+				IVFPQIndex.ResultHeap heap = heaps[q];
+				for(int i = blockStart; i < blockEnd; ++i){
+					double bound = heap.bound(); //squared for norm 2, the root is only taken for the results
+					double d = 0;
+					int offset = i * dim;
+					for(int e = 0; e < dim && d < bound; ++e){
+						double diff = Math.abs(query[e] - data[offset + e]);
+						d += (norm == 1 ? diff : diff * diff) * (weight == null ? 1f : weight[e]);
+					}
+					if(d < bound){
+						heap.offer(vectors.getId(i), d);
+					}
+				}
+			}
+		}
+
+		List<List<LongDoublePair>> _return = new ArrayList<>(queries.length);
+		for(IVFPQIndex.ResultHeap heap : heaps){
+			if(heap == null){
+				_return.add(new ArrayList<LongDoublePair>(0));
+				continue;
+			}
+			List<LongDoublePair> list = heap.toSortedList();
+			if(norm != 1){
+				for(LongDoublePair pair : list){
+					pair.value = Math.sqrt(pair.value);
+				}
+			}
+			_return.add(list);
+		}
+		return _return;
+	}
+
+	/**
+	 * computes the scores of the stored vectors of the given shots for a query
+	 * @param weights per-element weights of the distance, null for unweighted
+	 * @return the scores by shot id, shots without a vector of the query dimension are missing
+	 */
+	public static TLongDoubleHashMap score(DBSelector selector, IndexableFeature feature, float[] query, float[] weights, long[] shotIds){
+		TLongDoubleHashMap _return = new TLongDoubleHashMap(shotIds.length);
+		TLongObjectHashMap<float[]> vectors = FeatureVectors.load(selector, feature.getTableName(), feature.getColumnName(), shotIds);
+		for(long shotId : shotIds){
+			float[] vector = vectors.get(shotId);
+			if(vector != null && vector.length == query.length){
+				_return.put(shotId, MathHelper.getScore(IVFPQIndex.distance(query, vector, weights, feature.getNorm()), feature.getMaxDistance()));
+			}
+		}
+		return _return;
+	}
+
+	/**
+	 * computes the scores of the stored vectors of the given shots for a query by example
+	 */
+	public static TLongDoubleHashMap score(DBSelector selector, IndexableFeature feature, FrameContainer qc, long[] shotIds){
+		Pair<float[], float[]> query = feature.getIndexQuery(qc);
+		if(query == null){
+			return new TLongDoubleHashMap(1);
+		}
+		return score(selector, feature, query.first, query.second, shotIds);
+	}
+
+	/**
+	 * computes the scores of the stored vectors of the given shots for the stored vector of a query shot
+	 */
+	public static TLongDoubleHashMap score(DBSelector selector, IndexableFeature feature, long queryShotId, long[] shotIds){
+		float[] query = FeatureVectors.load(selector, feature.getTableName(), feature.getColumnName(), new long[]{queryShotId}).get(queryShotId);
+		if(query == null){
+			return new TLongDoubleHashMap(1);
+		}
+		return score(selector, feature, query, null, shotIds);
+	}
+
+}
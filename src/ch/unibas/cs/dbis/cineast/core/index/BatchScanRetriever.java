@@ -0,0 +1,105 @@
+package ch.unibas.cs.dbis.cineast.core.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
+import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.db.DBSelector;
+import ch.unibas.cs.dbis.cineast.core.features.retriever.BatchRetriever;
+import ch.unibas.cs.dbis.cineast.core.features.retriever.RandomAccessRetriever;
+import ch.unibas.cs.dbis.cineast.core.features.retriever.Retriever;
+import gnu.trove.map.hash.TLongDoubleHashMap;
+
+/**
+ * Passes single queries on to a feature module for which no index exists and answers batches of queries with a
+ * {@link BatchScan}. Batches restricted to a result cache scan the vectors of the cached shots, unrestricted batches scan
+ * the vectors of the whole table, which are loaded once and shared through {@link VectorIndexManager#getVectors(DBSelector, IndexableFeature)}.
+ */
+public class BatchScanRetriever implements BatchRetriever, RandomAccessRetriever {
+
+	private final Retriever retriever;
+	private final IndexableFeature feature;
+	private DBSelector selector;
+
+	public BatchScanRetriever(Retriever retriever){
+		if(!(retriever instanceof IndexableFeature)){
+			throw new IllegalArgumentException(retriever.getClass().getSimpleName() + " is not an IndexableFeature");
+		}
+		this.retriever = retriever;
+		this.feature = (IndexableFeature) retriever;
+	}
+
+	@Override
+	public void init(DBSelector selector) {
+		this.selector = selector;
+		this.retriever.init(selector);
+	}
+
+	@Override
+	public List<LongDoublePair> getSimilar(FrameContainer qc) {
+		return this.retriever.getSimilar(qc);
+	}
+
+	@Override
+	public List<LongDoublePair> getSimilar(FrameContainer qc, String resultCacheName) {
+		return this.retriever.getSimilar(qc, resultCacheName);
+	}
+
+	@Override
+	public List<LongDoublePair> getSimilar(long shotId) {
+		return this.retriever.getSimilar(shotId);
+	}
+
+	@Override
+	public List<LongDoublePair> getSimilar(long shotId, String resultCacheName) {
+		return this.retriever.getSimilar(shotId, resultCacheName);
+	}
+
+	@Override
+	public List<List<LongDoublePair>> getSimilar(long[] shotIds, String resultCacheName) {
+		if(this.selector != null && shotIds.length > 1){
+			if(resultCacheName == null){
+				FeatureVectors vectors = VectorIndexManager.getVectors(this.selector, this.feature);
+				return BatchScan.search(vectors, this.feature, shotIds, Config.getRetrieverConfig().getMaxResultsPerModule());
+			}
+			return BatchScan.search(this.selector, this.feature, shotIds, resultCacheName, Config.getRetrieverConfig().getMaxResultsPerModule());
+		}
+		List<List<LongDoublePair>> _return = new ArrayList<>(shotIds.length);
+		for(long shotId : shotIds){
+			_return.add(this.retriever.getSimilar(shotId));
+		}
+		return _return;
+	}
+
+	@Override
+	public TLongDoubleHashMap getScores(FrameContainer qc, long[] shotIds) {
+		return BatchScan.score(this.selector, this.feature, qc, shotIds);
+	}
+
+	@Override
+	public TLongDoubleHashMap getScores(long shotId, long[] shotIds) {
+		return BatchScan.score(this.selector, this.feature, shotId, shotIds);
+	}
+
+	@Override
+	public void finish() {
+		this.retriever.finish();
+	}
+
+	@Override
+	public float getConfidenceWeight() {
+		return this.retriever.getConfidenceWeight();
+	}
+
+	public Retriever getRetriever(){
+		return this.retriever;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchScanRetriever (" + this.retriever.getClass().getSimpleName() + ")";
+	}
+
+}
@@ -0,0 +1,179 @@
+package ch.unibas.cs.dbis.cineast.core.index;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ch.unibas.cs.dbis.cineast.core.db.DBSelector;
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
+import gnu.trove.list.array.TFloatArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * All vectors of a feature table, packed row by row
+ */
+public class FeatureVectors {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private final long[] ids;
+	private final float[] vectors;
+	private final int dim;
+	private TLongIntHashMap positions = null; //built on the first lookup by id
+
+	public FeatureVectors(long[] ids, float[] vectors, int dim){
+		if(vectors.length != ids.length * dim){
+			throw new IllegalArgumentException("expected " + (ids.length * dim) + " elements, got " + vectors.length);
+		}
+		this.ids = ids;
+		this.vectors = vectors;
+		this.dim = dim;
+	}
+
+	/**
+	 * reads all vectors of the column of a feature table, rows with a dimension different from the first row are skipped
+	 */
+	public static FeatureVectors load(DBSelector selector, String tableName, String columnName){
+		return select(selector, tableName, "SELECT shotid, " + columnName + " FROM " + tableName);
+	}
+
+	/**
+	 * reads the vectors of all shots in a result cache
+	 */
+	public static FeatureVectors load(DBSelector selector, String tableName, String columnName, String resultCacheName){
+		StringBuilder sb = new StringBuilder();
+		sb.append("WITH c AS (SELECT shotid AS filter FROM cineast.resultcacheelements, cineast.resultcachenames WHERE ");
+		sb.append("resultcacheelements.chacheid = resultcachenames.id AND resultcachenames.name = '");
+		sb.append(resultCacheName);
+		sb.append("') SELECT shotid, ");
+		sb.append(columnName);
+		sb.append(" FROM ");
+		sb.append(tableName);
+		sb.append(", c WHERE shotid = c.filter");
+		return select(selector, tableName, sb.toString());
+	}
+
+	private static FeatureVectors select(DBSelector selector, String tableName, String query){
+		TLongArrayList ids = new TLongArrayList();
+		TFloatArrayList vectors = new TFloatArrayList();
+		int dim = -1, skipped = 0;
+		ResultSet rset = selector.select(query);
+		if(rset != null){
+			try {
+				while(rset.next()){
+					float[] vector = parse(rset.getString(2));
+					if(dim < 0){
+						dim = vector.length;
+					}
+					if(vector.length != dim){
+						++skipped;
+						continue;
+					}
+					ids.add(rset.getLong(1));
+					vectors.add(vector);
+				}
+			} catch (SQLException e) {
+				LOGGER.fatal(LogHelper.SQL_MARKER, LogHelper.getStackTrace(e));
+			}
+		}
+		if(skipped > 0){
+			LOGGER.warn("skipped {} vectors of {} with unexpected dimension", skipped, tableName);
+		}
+		return new FeatureVectors(ids.toArray(), vectors.toArray(), Math.max(dim, 0));
+	}
+
+	/**
+	 * reads the vectors of the given shots
+	 * @return the vectors by shot id, shots without a vector are missing
+	 */
+	public static TLongObjectHashMap<float[]> load(DBSelector selector, String tableName, String columnName, long[] ids){
+		TLongObjectHashMap<float[]> _return = new TLongObjectHashMap<>(ids.length);
+		if(ids.length == 0){
+			return _return;
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append("SELECT shotid, ");
+		sb.append(columnName);
+		sb.append(" FROM ");
+		sb.append(tableName);
+		sb.append(" WHERE shotid IN (");
+		for(int i = 0; i < ids.length; ++i){
+			if(i > 0){
+				sb.append(", ");
+			}
+			sb.append(ids[i]);
+		}
+		sb.append(')');
+		ResultSet rset = selector.select(sb.toString());
+		if(rset != null){
+			try {
+				while(rset.next()){
+					_return.put(rset.getLong(1), parse(rset.getString(2)));
+				}
+			} catch (SQLException e) {
+				LOGGER.fatal(LogHelper.SQL_MARKER, LogHelper.getStackTrace(e));
+			}
+		}
+		return _return;
+	}
+
+	/**
+	 * parses a feature string of the form &lt;a, b, c&gt;
+	 */
+	static float[] parse(String feature){
+		String[] elements = feature.replace('<', ' ').replace('>', ' ').split(",");
+		float[] _return = new float[elements.length];
+		for(int i = 0; i < elements.length; ++i){
+			_return[i] = Float.parseFloat(elements[i].trim());
+		}
+		return _return;
+	}
+
+	public int size(){
+		return this.ids.length;
+	}
+
+	public int getDimension(){
+		return this.dim;
+	}
+
+	public long getId(int i){
+		return this.ids[i];
+	}
+
+	public long[] getIds(){
+		return this.ids;
+	}
+
+	/**
+	 * @return the packed vectors, vector i occupies the elements [i * dim, (i + 1) * dim)
+	 */
+	public float[] getVectors(){
+		return this.vectors;
+	}
+
+	public float[] getVector(int i){
+		float[] _return = new float[this.dim];
+		System.arraycopy(this.vectors, i * this.dim, _return, 0, this.dim);
+		return _return;
+	}
+
+	/**
+	 * @return a copy of the vector of the shot or null if it is not contained
+	 */
+	public synchronized float[] getVectorOf(long id){
+		if(this.positions == null){
+			this.positions = new TLongIntHashMap(this.ids.length, 0.5f, Long.MIN_VALUE, -1);
+			for(int i = 0; i < this.ids.length; ++i){
+				this.positions.put(this.ids[i], i);
+			}
+		}
+		int i = this.positions.get(id);
+		return i < 0 ? null : getVector(i);
+	}
+
+}
@@ -0,0 +1,194 @@
+package ch.unibas.cs.dbis.cineast.core.index;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.db.DBSelector;
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
+import gnu.trove.map.hash.TLongIntHashMap;
+
+/**
+ * In-memory index of 64 bit hashes supporting range queries in Hamming space using multi-index hashing: every hash is split into
+ * four 16 bit substrings, each indexed in its own table. By the pigeonhole principle, a hash within distance r of the query matches
+ * the query in at least one substring within distance r / 4, so only those buckets have to be checked. Larger radii fall back to
+ * a linear scan, which is still a single xor and bitCount per hash.
+ * All methods are thread-safe, hashes can be added while the index is queried.
+ */
+public class HammingIndex {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private static final int TABLES = 4;
+	private static final int SUBSTRING_BITS = 64 / TABLES;
+	private static final int BUCKETS = 1 << SUBSTRING_BITS;
+	private static final int MAX_SUBSTRING_RADIUS = 2; //137 buckets per table, beyond that a scan is cheaper
+
+	private long[] ids, hashes;
+	private boolean[] deleted;
+	private int[][] next; //per table, next entry in the same bucket or -1
+	private final int[][] heads = new int[TABLES][BUCKETS];
+	private int size = 0, count = 0;
+	private final TLongIntHashMap entries = new TLongIntHashMap(); //id -> entry
+
+	public HammingIndex(){
+		this(1024);
+	}
+
+	public HammingIndex(int capacity){
+		capacity = Math.max(capacity, 16);
+		this.ids = new long[capacity];
+		this.hashes = new long[capacity];
+		this.deleted = new boolean[capacity];
+		this.next = new int[TABLES][capacity];
+		for(int[] head : this.heads){
+			Arrays.fill(head, -1);
+		}
+	}
+
+	/**
+	 * reads all hashes of a table
+	 */
+	public static HammingIndex load(DBSelector selector, String tableName, String columnName){
+		HammingIndex _return = new HammingIndex();
+		ResultSet rset = selector.select("SELECT shotid, " + columnName + " FROM " + tableName);
+		if(rset != null){
+			try {
+				while(rset.next()){
+					_return.add(rset.getLong(1), rset.getLong(2));
+				}
+			} catch (SQLException e) {
+				LOGGER.fatal(LogHelper.SQL_MARKER, LogHelper.getStackTrace(e));
+			}
+		}
+		LOGGER.info("loaded {} hashes from {}", _return.size(), tableName);
+		return _return;
+	}
+
+	private static int substring(long hash, int table){
+		return (int) ((hash >>> (table * SUBSTRING_BITS)) & (BUCKETS - 1));
+	}
+
+	/**
+	 * adds a hash, replacing a previous hash of the same id
+	 */
+	public synchronized void add(long id, long hash){
+		if(this.entries.containsKey(id)){
+			int old = this.entries.get(id);
+			if(this.hashes[old] == hash){
+				return;
+			}
+			this.deleted[old] = true; //stays in its buckets, skipped by queries
+			--this.count;
+		}
+		if(this.size == this.ids.length){
+			int capacity = this.ids.length * 2;
+			this.ids = Arrays.copyOf(this.ids, capacity);
+			this.hashes = Arrays.copyOf(this.hashes, capacity);
+			this.deleted = Arrays.copyOf(this.deleted, capacity);
+			for(int t = 0; t < TABLES; ++t){
+				this.next[t] = Arrays.copyOf(this.next[t], capacity);
+			}
+		}
+		int entry = this.size++;
+		this.ids[entry] = id;
+		this.hashes[entry] = hash;
+		for(int t = 0; t < TABLES; ++t){
+			int bucket = substring(hash, t);
+			this.next[t][entry] = this.heads[t][bucket];
+			this.heads[t][bucket] = entry;
+		}
+		this.entries.put(id, entry);
+		++this.count;
+	}
+
+	/**
+	 * @return true if the id is in the index
+	 */
+	public synchronized boolean contains(long id){
+		return this.entries.containsKey(id);
+	}
+
+	/**
+	 * @return the hash of the id, undefined if the id is not in the index
+	 */
+	public synchronized long getHash(long id){
+		return this.hashes[this.entries.get(id)];
+	}
+
+	public synchronized int size(){
+		return this.count;
+	}
+
+	/**
+	 * @return all ids with a hash within the given Hamming distance of the query, as pairs of id and distance ordered by ascending
+	 * distance, at most limit many
+	 */
+	public synchronized List<LongDoublePair> search(long hash, int radius, int limit){
+		ArrayList<LongDoublePair> _return = new ArrayList<>();
+		if(radius < 0 || limit <= 0){
+			return _return;
+		}
+		int substringRadius = radius / TABLES;
+		if(substringRadius > MAX_SUBSTRING_RADIUS){
+			for(int e = 0; e < this.size; ++e){
+				int distance = Long.bitCount(hash ^ this.hashes[e]);
+				if(distance <= radius && !this.deleted[e]){
+					_return.add(new LongDoublePair(this.ids[e], distance));
+				}
+			}
+		}else{
+			boolean[] seen = new boolean[this.size];
+			for(int t = 0; t < TABLES; ++t){
+				collect(hash, radius, t, substring(hash, t), 0, substringRadius, seen, _return);
+			}
+		}
+		Collections.sort(_return, new Comparator<LongDoublePair>() {
+
+			@Override
+			public int compare(LongDoublePair o1, LongDoublePair o2) {
+				return Double.compare(o1.value, o2.value);
+			}
+		});
+		if(_return.size() > limit){
+			return new ArrayList<>(_return.subList(0, limit));
+		}
+		return _return;
+	}
+
+	/**
+	 * checks all buckets of table t whose key differs from bucket in at most remaining of the bits from lowestBit upwards
+	 */
+	private void collect(long hash, int radius, int t, int bucket, int lowestBit, int remaining, boolean[] seen, List<LongDoublePair> result){
+		for(int e = this.heads[t][bucket]; e >= 0; e = this.next[t][e]){
+			if(seen[e]){
+				continue;
+			}
+			seen[e] = true;
+			int distance = Long.bitCount(hash ^ this.hashes[e]);
+			if(distance <= radius && !this.deleted[e]){
+				result.add(new LongDoublePair(this.ids[e], distance));
+			}
+		}
+		if(remaining == 0){
+			return;
+		}
+		for(int bit = lowestBit; bit < SUBSTRING_BITS; ++bit){
+			collect(hash, radius, t, bucket ^ (1 << bit), bit + 1, remaining - 1, seen, result);
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "HammingIndex (" + this.count + " hashes)";
+	}
+
+}
@@ -0,0 +1,444 @@
+package ch.unibas.cs.dbis.cineast.core.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.util.FastKMeansPP;
+import gnu.trove.map.hash.TLongLongHashMap;
+
+/**
+ * Approximate nearest neighbour index for fixed-dimension vectors. The vectors are partitioned into nlist inverted lists by a
+ * coarse k-means quantizer (IVF) and stored as product quantization (PQ) codes of one byte per subspace. A query only scans the
+ * nprobe lists closest to it, the distances to the codes are looked up in per-query tables (asymmetric distance computation).
+ * Since the vectors themselves are quantized rather than their residuals, any element-wise weighted Minkowski-1 or -2 distance can
+ * be evaluated, which is what the feature modules use.
+ */
+public class IVFPQIndex {
+
+	private static final int MAGIC = 0x49564651;
+	private static final int VERSION = 1;
+
+	public static final int MAX_CODEBOOK_SIZE = 256;
+	private static final int KMEANS_ITERATIONS = 20;
+
+	private final int dim, norm, nlist, m, ksub;
+	private final float[] coarse; //nlist x dim
+	private final int[] subStart; //subspace j covers the elements [subStart[j], subStart[j + 1])
+	private final float[] codebooks; //codebook of subspace j: ksub x subspace length, starting at ksub * subStart[j]
+	private final long[][] listIds;
+	private final byte[][] listCodes; //m bytes per vector
+	private final TLongLongHashMap positions = new TLongLongHashMap(); //id -> list << 32 | position
+
+	private IVFPQIndex(int dim, int norm, int nlist, int m, int ksub, float[] coarse, int[] subStart, float[] codebooks, long[][] listIds, byte[][] listCodes){
+		this.dim = dim;
+		this.norm = norm;
+		this.nlist = nlist;
+		this.m = m;
+		this.ksub = ksub;
+		this.coarse = coarse;
+		this.subStart = subStart;
+		this.codebooks = codebooks;
+		this.listIds = listIds;
+		this.listCodes = listCodes;
+		for(int l = 0; l < nlist; ++l){
+			for(int i = 0; i < listIds[l].length; ++i){
+				this.positions.put(listIds[l][i], (((long) l) << 32) | i);
+			}
+		}
+	}
+
+	/**
+	 * trains the quantizers on a random sample of the vectors and encodes all of them
+	 *
+	 * @param norm order of the Minkowski distance used for searching, 1 or 2
+	 * @param nlist number of inverted lists
+	 * @param m number of PQ subspaces, i.e. bytes per vector
+	 * @param trainingSize maximal number of vectors used for training the quantizers
+	 */
+	public static IVFPQIndex build(FeatureVectors vectors, int norm, int nlist, int m, int trainingSize, long seed){
+		int n = vectors.size(), dim = vectors.getDimension();
+		if(n == 0 || dim == 0){
+			throw new IllegalArgumentException("cannot build index without vectors");
+		}
+		if(norm != 1 && norm != 2){
+			throw new IllegalArgumentException("unsupported norm " + norm);
+		}
+		float[] data = vectors.getVectors();
+
+		//random training sample
+		int t = Math.min(n, Math.max(trainingSize, 1));
+		int[] sample = new int[n];
+		for(int i = 0; i < n; ++i){
+			sample[i] = i;
+		}
+		Random random = new Random(seed);
+		for(int i = 0; i < t; ++i){
+			int j = i + random.nextInt(n - i);
+			int tmp = sample[i];
+			sample[i] = sample[j];
+			sample[j] = tmp;
+		}
+		float[] training = new float[t * dim];
+		for(int i = 0; i < t; ++i){
+			System.arraycopy(data, sample[i] * dim, training, i * dim, dim);
+		}
+
+		//coarse quantizer
+		nlist = Math.max(1, Math.min(nlist, t));
+		float[] coarse = FastKMeansPP.kMeansPP(training, null, t, dim, nlist, 1e-5, KMEANS_ITERATIONS, seed).getCenters();
+
+		//product quantizer
+		m = Math.max(1, Math.min(m, dim));
+		int ksub = Math.min(MAX_CODEBOOK_SIZE, t);
+		int[] subStart = new int[m + 1];
+		for(int j = 0; j <= m; ++j){
+			subStart[j] = j * dim / m;
+		}
+		float[] codebooks = new float[ksub * dim];
+		for(int j = 0; j < m; ++j){
+			int len = subStart[j + 1] - subStart[j];
+			float[] sub = new float[t * len];
+			for(int i = 0; i < t; ++i){
+				System.arraycopy(training, i * dim + subStart[j], sub, i * len, len);
+			}
+			float[] centers = FastKMeansPP.kMeansPP(sub, null, t, len, ksub, 1e-6, KMEANS_ITERATIONS, seed + j + 1).getCenters();
+			System.arraycopy(centers, 0, codebooks, ksub * subStart[j], ksub * len);
+		}
+
+		//encoding
+		int[] assignment = new int[n];
+		int[] listSizes = new int[nlist];
+		byte[] codes = new byte[n * m];
+		for(int i = 0; i < n; ++i){
+			assignment[i] = nearest(data, i * dim, coarse, 0, nlist, dim);
+			++listSizes[assignment[i]];
+			for(int j = 0; j < m; ++j){
+				int len = subStart[j + 1] - subStart[j];
+				codes[i * m + j] = (byte) nearest(data, i * dim + subStart[j], codebooks, ksub * subStart[j], ksub, len);
+			}
+		}
+		long[][] listIds = new long[nlist][];
+		byte[][] listCodes = new byte[nlist][];
+		for(int l = 0; l < nlist; ++l){
+			listIds[l] = new long[listSizes[l]];
+			listCodes[l] = new byte[listSizes[l] * m];
+			listSizes[l] = 0;
+		}
+		for(int i = 0; i < n; ++i){
+			int l = assignment[i], pos = listSizes[l]++;
+			listIds[l][pos] = vectors.getId(i);
+			System.arraycopy(codes, i * m, listCodes[l], pos * m, m);
+		}
+
+		return new IVFPQIndex(dim, norm, nlist, m, ksub, coarse, subStart, codebooks, listIds, listCodes);
+	}
+
+	//squared euclidean nearest center, used for encoding
+	private static int nearest(float[] v, int offset, float[] centers, int centerOffset, int k, int len){
+		int best = 0;
+		double min = Double.POSITIVE_INFINITY;
+		for(int c = 0; c < k; ++c){
+			double d = 0;
+			int o = centerOffset + c * len;
+			for(int e = 0; e < len && d < min; ++e){
+				double diff = v[offset + e] - centers[o + e];
+				d += diff * diff;
+			}
+			if(d < min){
+				min = d;
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return the exact weighted Minkowski distance of order norm between a and b
+	 */
+	public static double distance(float[] a, float[] b, float[] weights, int norm){
+		double d = 0;
+		for(int e = 0; e < a.length; ++e){
+			double diff = Math.abs(a[e] - b[e]) * (weights == null ? 1f : weights[e]);
+			d += norm == 1 ? diff : diff * Math.abs(a[e] - b[e]);
+		}
+		return norm == 1 ? d : Math.sqrt(d);
+	}
+
+	private double elementDistance(float a, float b, float weight){
+		double d = Math.abs(a - b) * weight;
+		return this.norm == 1 ? d : d * Math.abs(a - b);
+	}
+
+	/**
+	 * @param query vector of the index dimension
+	 * @param weights per-element weights of the distance, null for unweighted
+	 * @param k number of results
+	 * @param nprobe number of inverted lists to scan, trades recall for latency
+	 * @return pairs of id and distance, ordered by ascending distance
+	 */
+	public List<LongDoublePair> search(float[] query, float[] weights, int k, int nprobe){
+		if(query.length != this.dim){
+			throw new IllegalArgumentException("expected query of dimension " + this.dim + ", got " + query.length);
+		}
+		nprobe = Math.max(1, Math.min(nprobe, this.nlist));
+
+		//closest lists
+		double[] listDistances = new double[this.nlist];
+		for(int l = 0; l < this.nlist; ++l){
+			double d = 0;
+			for(int e = 0; e < this.dim; ++e){
+				d += elementDistance(query[e], this.coarse[l * this.dim + e], weights == null ? 1f : weights[e]);
+			}
+			listDistances[l] = d;
+		}
+		int[] probes = new int[nprobe];
+		double[] probeDistances = new double[nprobe];
+		int probeCount = 0;
+		for(int l = 0; l < this.nlist; ++l){
+			double d = listDistances[l];
+			if(probeCount == nprobe && d >= probeDistances[probeCount - 1]){
+				continue;
+			}
+			int pos = probeCount < nprobe ? probeCount++ : probeCount - 1;
+			while(pos > 0 && probeDistances[pos - 1] > d){
+				probes[pos] = probes[pos - 1];
+				probeDistances[pos] = probeDistances[pos - 1];
+				--pos;
+			}
+			probes[pos] = l;
+			probeDistances[pos] = d;
+		}
+
+		//distance tables
+		double[] tables = new double[this.m * this.ksub];
+		for(int j = 0; j < this.m; ++j){
+			int start = this.subStart[j], len = this.subStart[j + 1] - start;
+			for(int c = 0; c < this.ksub; ++c){
+				int o = this.ksub * start + c * len;
+				double d = 0;
+				for(int e = 0; e < len; ++e){
+					d += elementDistance(query[start + e], this.codebooks[o + e], weights == null ? 1f : weights[start + e]);
+				}
+				tables[j * this.ksub + c] = d;
+			}
+		}
+
+		//scan
+		ResultHeap heap = new ResultHeap(k);
+		for(int p = 0; p < probeCount; ++p){
+			long[] ids = this.listIds[probes[p]];
+			byte[] codes = this.listCodes[probes[p]];
+			for(int i = 0; i < ids.length; ++i){
+				double d = 0;
+				int o = i * this.m;
+				for(int j = 0; j < this.m && d < heap.bound(); ++j){
+					d += tables[j * this.ksub + (codes[o + j] & 0xFF)];
+				}
+				heap.offer(ids[i], d);
+			}
+		}
+
+		List<LongDoublePair> _return = heap.toSortedList();
+		if(this.norm == 2){
+			for(LongDoublePair pair : _return){
+				pair.value = Math.sqrt(pair.value);
+			}
+		}
+		return _return;
+	}
+
+	/**
+	 * @return the approximation of the vector with the given id stored in the index or null if the id is not indexed
+	 */
+	public float[] reconstruct(long id){
+		if(!this.positions.containsKey(id)){
+			return null;
+		}
+		long position = this.positions.get(id);
+		byte[] codes = this.listCodes[(int) (position >>> 32)];
+		int o = ((int) position) * this.m;
+		float[] _return = new float[this.dim];
+		for(int j = 0; j < this.m; ++j){
+			int start = this.subStart[j], len = this.subStart[j + 1] - start;
+			System.arraycopy(this.codebooks, this.ksub * start + (codes[o + j] & 0xFF) * len, _return, start, len);
+		}
+		return _return;
+	}
+
+	public int size(){
+		return this.positions.size();
+	}
+
+	public int getDimension(){
+		return this.dim;
+	}
+
+	public int getNorm(){
+		return this.norm;
+	}
+
+	public int getListCount(){
+		return this.nlist;
+	}
+
+	public void save(File file) throws IOException{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(this.dim);
+			out.writeInt(this.norm);
+			out.writeInt(this.nlist);
+			out.writeInt(this.m);
+			out.writeInt(this.ksub);
+			for(float f : this.coarse){
+				out.writeFloat(f);
+			}
+			for(int i : this.subStart){
+				out.writeInt(i);
+			}
+			for(float f : this.codebooks){
+				out.writeFloat(f);
+			}
+			for(int l = 0; l < this.nlist; ++l){
+				out.writeInt(this.listIds[l].length);
+				for(long id : this.listIds[l]){
+					out.writeLong(id);
+				}
+				out.write(this.listCodes[l]);
+			}
+		}finally{
+			out.close();
+		}
+	}
+
+	public static IVFPQIndex load(File file) throws IOException{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try{
+			if(in.readInt() != MAGIC){
+				throw new IOException(file.getAbsolutePath() + " is not an index file");
+			}
+			int version = in.readInt();
+			if(version != VERSION){
+				throw new IOException("unsupported index version " + version);
+			}
+			int dim = in.readInt(), norm = in.readInt(), nlist = in.readInt(), m = in.readInt(), ksub = in.readInt();
+			float[] coarse = new float[nlist * dim];
+			for(int i = 0; i < coarse.length; ++i){
+				coarse[i] = in.readFloat();
+			}
+			int[] subStart = new int[m + 1];
+			for(int i = 0; i < subStart.length; ++i){
+				subStart[i] = in.readInt();
+			}
+			float[] codebooks = new float[ksub * dim];
+			for(int i = 0; i < codebooks.length; ++i){
+				codebooks[i] = in.readFloat();
+			}
+			long[][] listIds = new long[nlist][];
+			byte[][] listCodes = new byte[nlist][];
+			for(int l = 0; l < nlist; ++l){
+				int size = in.readInt();
+				listIds[l] = new long[size];
+				for(int i = 0; i < size; ++i){
+					listIds[l][i] = in.readLong();
+				}
+				listCodes[l] = new byte[size * m];
+				in.readFully(listCodes[l]);
+			}
+			return new IVFPQIndex(dim, norm, nlist, m, ksub, coarse, subStart, codebooks, listIds, listCodes);
+		}finally{
+			in.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "IVFPQIndex (" + size() + " vectors, dim " + this.dim + ", " + this.nlist + " lists, " + this.m + " bytes per code)";
+	}
+
+	/**
+	 * bounded max-heap keeping the k smallest distances
+	 */
+	static class ResultHeap{
+		private final long[] ids;
+		private final double[] distances;
+		private int size = 0;
+
+		ResultHeap(int k){
+			this.ids = new long[Math.max(k, 1)];
+			this.distances = new double[this.ids.length];
+		}
+
+		/**
+		 * @return the distance a candidate has to beat to enter the heap
+		 */
+		double bound(){
+			return this.size < this.ids.length ? Double.POSITIVE_INFINITY : this.distances[0];
+		}
+
+		void offer(long id, double distance){
+			if(this.size < this.ids.length){
+				int i = this.size++;
+				while(i > 0){
+					int parent = (i - 1) / 2;
+					if(this.distances[parent] >= distance){
+						break;
+					}
+					this.ids[i] = this.ids[parent];
+					this.distances[i] = this.distances[parent];
+					i = parent;
+				}
+				this.ids[i] = id;
+				this.distances[i] = distance;
+			}else if(distance < this.distances[0]){
+				int i = 0;
+				while(true){
+					int child = 2 * i + 1;
+					if(child >= this.size){
+						break;
+					}
+					if(child + 1 < this.size && this.distances[child + 1] > this.distances[child]){
+						++child;
+					}
+					if(this.distances[child] <= distance){
+						break;
+					}
+					this.ids[i] = this.ids[child];
+					this.distances[i] = this.distances[child];
+					i = child;
+				}
+				this.ids[i] = id;
+				this.distances[i] = distance;
+			}
+		}
+
+		List<LongDoublePair> toSortedList(){
+			ArrayList<LongDoublePair> _return = new ArrayList<>(this.size);
+			for(int i = 0; i < this.size; ++i){
+				_return.add(new LongDoublePair(this.ids[i], this.distances[i]));
+			}
+			Collections.sort(_return, new Comparator<LongDoublePair>() {
+
+				@Override
+				public int compare(LongDoublePair o1, LongDoublePair o2) {
+					return Double.compare(o1.value, o2.value);
+				}
+			});
+			return _return;
+		}
+	}
+
+}
@@ -0,0 +1,27 @@
+package ch.unibas.cs.dbis.cineast.core.index;
+
+import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
+import ch.unibas.cs.dbis.cineast.core.data.Pair;
+
+/**
+ * A feature module storing one fixed-dimension vector per shot which can be searched using an {@link IVFPQIndex}
+ */
+public interface IndexableFeature {
+
+	String getTableName();
+
+	String getColumnName();
+
+	/**
+	 * @return the order of the Minkowski distance used by the module, 1 or 2
+	 */
+	int getNorm();
+
+	float getMaxDistance();
+
+	/**
+	 * @return the query vector and per-element weights or null if the distance is unweighted
+	 */
+	Pair<float[], float[]> getIndexQuery(FrameContainer qc);
+
+}
@@ -0,0 +1,166 @@
+package ch.unibas.cs.dbis.cineast.core.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
+import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.db.DBSelector;
+import ch.unibas.cs.dbis.cineast.core.features.retriever.BatchRetriever;
+import ch.unibas.cs.dbis.cineast.core.features.retriever.RandomAccessRetriever;
+import ch.unibas.cs.dbis.cineast.core.features.retriever.Retriever;
+import ch.unibas.cs.dbis.cineast.core.util.MathHelper;
+import gnu.trove.map.hash.TLongDoubleHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * Answers unfiltered queries of a feature module from its {@link IVFPQIndex} instead of scanning the feature table.
+ * The best candidates are re-ranked by the exact distance of their stored vectors. Queries restricted to a result cache are
+ * passed on to the module since they only consider a small set of shots, batches of them are answered by a {@link BatchScan}.
+ */
+public class IndexedRetriever implements BatchRetriever, RandomAccessRetriever {
+
+	private final Retriever retriever;
+	private final IndexableFeature feature;
+	private final IVFPQIndex index;
+	private final int probes, rerankFactor;
+	private DBSelector selector;
+
+	public IndexedRetriever(Retriever retriever, IVFPQIndex index){
+		this(retriever, index, Config.getRetrieverConfig().getIndexProbes(), Config.getRetrieverConfig().getIndexRerankFactor());
+	}
+
+	public IndexedRetriever(Retriever retriever, IVFPQIndex index, int probes, int rerankFactor){
+		if(!(retriever instanceof IndexableFeature)){
+			throw new IllegalArgumentException(retriever.getClass().getSimpleName() + " is not an IndexableFeature");
+		}
+		this.retriever = retriever;
+		this.feature = (IndexableFeature) retriever;
+		this.index = index;
+		this.probes = probes;
+		this.rerankFactor = rerankFactor;
+	}
+
+	@Override
+	public void init(DBSelector selector) {
+		this.selector = selector;
+		this.retriever.init(selector);
+	}
+
+	@Override
+	public List<LongDoublePair> getSimilar(FrameContainer qc) {
+		Pair<float[], float[]> query = this.feature.getIndexQuery(qc);
+		if(query == null || query.first.length != this.index.getDimension()){
+			return this.retriever.getSimilar(qc);
+		}
+		return search(query.first, query.second);
+	}
+
+	@Override
+	public List<LongDoublePair> getSimilar(FrameContainer qc, String resultCacheName) {
+		return this.retriever.getSimilar(qc, resultCacheName);
+	}
+
+	@Override
+	public List<LongDoublePair> getSimilar(long shotId) {
+		return getSimilar(new long[]{shotId}, null).get(0);
+	}
+
+	@Override
+	public List<LongDoublePair> getSimilar(long shotId, String resultCacheName) {
+		return this.retriever.getSimilar(shotId, resultCacheName);
+	}
+
+	@Override
+	public List<List<LongDoublePair>> getSimilar(long[] shotIds, String resultCacheName) {
+		if(resultCacheName != null && this.selector != null){
+			return BatchScan.search(this.selector, this.feature, shotIds, resultCacheName, Config.getRetrieverConfig().getMaxResultsPerModule());
+		}
+		List<List<LongDoublePair>> _return = new ArrayList<>(shotIds.length);
+		if(resultCacheName != null){
+			for(long shotId : shotIds){
+				_return.add(this.retriever.getSimilar(shotId, resultCacheName));
+			}
+			return _return;
+		}
+		TLongObjectHashMap<float[]> queries = this.selector == null ? new TLongObjectHashMap<float[]>() :
+				FeatureVectors.load(this.selector, this.feature.getTableName(), this.feature.getColumnName(), shotIds);
+		for(long shotId : shotIds){
+			float[] query = queries.get(shotId);
+			if(query == null || query.length != this.index.getDimension()){
+				query = this.index.reconstruct(shotId);
+			}
+			_return.add(query == null ? this.retriever.getSimilar(shotId) : search(query, null));
+		}
+		return _return;
+	}
+
+	private List<LongDoublePair> search(float[] query, float[] weights){
+		int limit = Config.getRetrieverConfig().getMaxResultsPerModule();
+		List<LongDoublePair> _return = this.index.search(query, weights, this.rerankFactor > 1 ? limit * this.rerankFactor : limit, this.probes);
+		if(this.rerankFactor > 1 && this.selector != null){
+			_return = rerank(_return, query, weights, limit);
+		}
+		float maxDist = this.feature.getMaxDistance();
+		for(LongDoublePair pair : _return){
+			pair.value = MathHelper.getScore(pair.value, maxDist);
+		}
+		return _return;
+	}
+
+	private List<LongDoublePair> rerank(List<LongDoublePair> candidates, float[] query, float[] weights, int limit){
+		long[] ids = new long[candidates.size()];
+		for(int i = 0; i < ids.length; ++i){
+			ids[i] = candidates.get(i).key;
+		}
+		TLongObjectHashMap<float[]> vectors = FeatureVectors.load(this.selector, this.feature.getTableName(), this.feature.getColumnName(), ids);
+		for(LongDoublePair pair : candidates){
+			float[] vector = vectors.get(pair.key);
+			if(vector != null && vector.length == query.length){
+				pair.value = IVFPQIndex.distance(query, vector, weights, this.feature.getNorm());
+			}
+		}
+		Collections.sort(candidates, new Comparator<LongDoublePair>() {
+
+			@Override
+			public int compare(LongDoublePair o1, LongDoublePair o2) {
+				return Double.compare(o1.value, o2.value);
+			}
+		});
+		return candidates.size() > limit ? new ArrayList<>(candidates.subList(0, limit)) : candidates;
+	}
+
+	@Override
+	public TLongDoubleHashMap getScores(FrameContainer qc, long[] shotIds) {
+		return BatchScan.score(this.selector, this.feature, qc, shotIds);
+	}
+
+	@Override
+	public TLongDoubleHashMap getScores(long shotId, long[] shotIds) {
+		return BatchScan.score(this.selector, this.feature, shotId, shotIds);
+	}
+
+	@Override
+	public void finish() {
+		this.retriever.finish();
+	}
+
+	@Override
+	public float getConfidenceWeight() {
+		return this.retriever.getConfidenceWeight();
+	}
+
+	public Retriever getRetriever(){
+		return this.retriever;
+	}
+
+	@Override
+	public String toString() {
+		return "IndexedRetriever (" + this.retriever.getClass().getSimpleName() + ", " + this.index + ")";
+	}
+
+}
@@ -0,0 +1,187 @@
+package ch.unibas.cs.dbis.cineast.core.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * The k most similar shots of every shot of a category, with their fused scores. Answers queries by shot id with a lookup
+ * instead of searching the feature tables. All methods are thread-safe.
+ */
+public class ShotGraph {
+
+	private static final int MAGIC = 0x4B4E4E47;
+	private static final int VERSION = 1;
+
+	/**
+	 * neighbours of one shot, ordered by descending score
+	 */
+	private static final class Neighbours{
+		private final long[] ids;
+		private final float[] scores;
+		private int size = 0;
+
+		private Neighbours(int k){
+			this.ids = new long[k];
+			this.scores = new float[k];
+		}
+
+		/**
+		 * inserts a neighbour if it is better than the worst one, replacing a previous entry of the same shot
+		 */
+		private void offer(long id, float score){
+			int existing = -1;
+			for(int i = 0; i < this.size; ++i){
+				if(this.ids[i] == id){
+					existing = i;
+					break;
+				}
+			}
+			if(existing >= 0){
+				if(this.scores[existing] >= score){
+					return;
+				}
+				System.arraycopy(this.ids, existing + 1, this.ids, existing, this.size - existing - 1);
+				System.arraycopy(this.scores, existing + 1, this.scores, existing, this.size - existing - 1);
+				--this.size;
+			}else if(this.size == this.ids.length && this.scores[this.size - 1] >= score){
+				return;
+			}
+			int pos = Math.min(this.size, this.ids.length - 1);
+			while(pos > 0 && this.scores[pos - 1] < score){
+				--pos;
+			}
+			int moved = Math.min(this.size, this.ids.length - 1) - pos;
+			System.arraycopy(this.ids, pos, this.ids, pos + 1, moved);
+			System.arraycopy(this.scores, pos, this.scores, pos + 1, moved);
+			this.ids[pos] = id;
+			this.scores[pos] = score;
+			this.size = Math.min(this.size + 1, this.ids.length);
+		}
+	}
+
+	private final int k;
+	private final TLongObjectHashMap<Neighbours> graph = new TLongObjectHashMap<>();
+
+	public ShotGraph(int k){
+		if(k < 1){
+			throw new IllegalArgumentException("k must be positive, got " + k);
+		}
+		this.k = k;
+	}
+
+	/**
+	 * sets the neighbours of a shot, only the best k are kept
+	 */
+	public synchronized void put(long shotId, List<LongDoublePair> neighbours){
+		Neighbours n = new Neighbours(this.k);
+		for(LongDoublePair pair : neighbours){
+			n.offer(pair.key, (float) pair.value);
+		}
+		this.graph.put(shotId, n);
+	}
+
+	/**
+	 * adds a neighbour to a shot which is already in the graph if it is better than its current neighbours
+	 */
+	public synchronized void offer(long shotId, long neighbour, double score){
+		Neighbours n = this.graph.get(shotId);
+		if(n != null){
+			n.offer(neighbour, (float) score);
+		}
+	}
+
+	public synchronized boolean contains(long shotId){
+		return this.graph.containsKey(shotId);
+	}
+
+	/**
+	 * @return the neighbours of the shot as pairs of shot id and score ordered by descending score, null if the shot is not in the graph
+	 */
+	public synchronized List<LongDoublePair> getNeighbours(long shotId){
+		Neighbours n = this.graph.get(shotId);
+		if(n == null){
+			return null;
+		}
+		ArrayList<LongDoublePair> _return = new ArrayList<>(n.size);
+		for(int i = 0; i < n.size; ++i){
+			_return.add(new LongDoublePair(n.ids[i], n.scores[i]));
+		}
+		return _return;
+	}
+
+	public synchronized int size(){
+		return this.graph.size();
+	}
+
+	public int getK(){
+		return this.k;
+	}
+
+	public synchronized void save(File file) throws IOException{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(this.k);
+			out.writeInt(this.graph.size());
+			TLongObjectIterator<Neighbours> iter = this.graph.iterator();
+			while(iter.hasNext()){
+				iter.advance();
+				Neighbours n = iter.value();
+				out.writeLong(iter.key());
+				out.writeInt(n.size);
+				for(int i = 0; i < n.size; ++i){
+					out.writeLong(n.ids[i]);
+					out.writeFloat(n.scores[i]);
+				}
+			}
+		}finally{
+			out.close();
+		}
+	}
+
+	public static ShotGraph load(File file) throws IOException{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try{
+			if(in.readInt() != MAGIC){
+				throw new IOException(file.getAbsolutePath() + " is not a shot graph file");
+			}
+			int version = in.readInt();
+			if(version != VERSION){
+				throw new IOException("unsupported shot graph version " + version);
+			}
+			ShotGraph _return = new ShotGraph(in.readInt());
+			int shots = in.readInt();
+			for(int s = 0; s < shots; ++s){
+				long shotId = in.readLong();
+				int size = in.readInt();
+				Neighbours n = new Neighbours(_return.k);
+				for(int i = 0; i < size; ++i){
+					n.offer(in.readLong(), in.readFloat());
+				}
+				_return.graph.put(shotId, n);
+			}
+			return _return;
+		}finally{
+			in.close();
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "ShotGraph (" + this.graph.size() + " shots, k = " + this.k + ")";
+	}
+
+}
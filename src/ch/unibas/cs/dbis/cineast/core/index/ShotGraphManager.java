@@ -0,0 +1,62 @@
+package ch.unibas.cs.dbis.cineast.core.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
+
+/**
+ * Loads the {@link ShotGraph}s of the retrieval categories from {@link ch.unibas.cs.dbis.cineast.core.config.RetrieverConfig#getIndexFolder()}.
+ * A graph reflects the collection at the time it was built, shots extracted later are only found once it is extended.
+ */
+public class ShotGraphManager {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private static final String FILE_EXTENSION = ".knn";
+
+	private static final HashMap<String, ShotGraph> graphs = new HashMap<>();
+
+	private ShotGraphManager(){}
+
+	public static File getGraphFile(String category){
+		return new File(Config.getRetrieverConfig().getIndexFolder(), category.toLowerCase() + FILE_EXTENSION);
+	}
+
+	/**
+	 * @return the graph of the category or null if none has been built
+	 */
+	public static synchronized ShotGraph getGraph(String category){
+		File file = getGraphFile(category);
+		String key = file.getAbsolutePath();
+		if(graphs.containsKey(key)){
+			return graphs.get(key);
+		}
+		if(!file.isFile()){
+			return null;
+		}
+		ShotGraph graph = null;
+		try {
+			graph = ShotGraph.load(file);
+			LOGGER.info("loaded {} for {}", graph, category);
+		} catch (IOException e) {
+			LOGGER.warn("could not load shot graph {}: {}", file.getAbsolutePath(), LogHelper.getStackTrace(e));
+		}
+		graphs.put(key, graph);
+		return graph;
+	}
+
+	/**
+	 * forgets all loaded graphs, they are read again on the next query. Called by the reload command of the {@link ch.unibas.cs.dbis.cineast.api.API}
+	 * console once the graphs have been extended by the {@link ch.unibas.cs.dbis.cineast.core.run.ShotGraphBuilder}.
+	 */
+	public static synchronized void reload(){
+		graphs.clear();
+	}
+
+}
@@ -0,0 +1,149 @@
+package ch.unibas.cs.dbis.cineast.core.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.db.DBSelector;
+import ch.unibas.cs.dbis.cineast.core.features.AverageColorGrid8;
+import ch.unibas.cs.dbis.cineast.core.features.CLD;
+import ch.unibas.cs.dbis.cineast.core.features.EHD;
+import ch.unibas.cs.dbis.cineast.core.features.SubDivMotionHistogram2;
+import ch.unibas.cs.dbis.cineast.core.features.SubDivMotionHistogram3;
+import ch.unibas.cs.dbis.cineast.core.features.SubDivMotionHistogram4;
+import ch.unibas.cs.dbis.cineast.core.features.SubDivMotionHistogram5;
+import ch.unibas.cs.dbis.cineast.core.features.retriever.Retriever;
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
+import gnu.trove.iterator.TObjectDoubleIterator;
+import gnu.trove.map.hash.TObjectDoubleHashMap;
+
+/**
+ * Loads the indexes of the feature tables from {@link ch.unibas.cs.dbis.cineast.core.config.RetrieverConfig#getIndexFolder()}.
+ * An index reflects the table at the time it was built, shots extracted later are only found once the index is rebuilt.
+ */
+public class VectorIndexManager {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private static final String FILE_EXTENSION = ".ivfpq";
+
+	private static final HashMap<String, IVFPQIndex> indexes = new HashMap<>();
+	private static final HashMap<String, FeatureVectors> vectors = new HashMap<>();
+	private static final HashSet<Class<?>> indexableClasses = new HashSet<>();
+	
+	static{
+		for(IndexableFeature feature : getIndexableFeatures()){
+			indexableClasses.add(feature.getClass());
+		}
+	}
+
+	private VectorIndexManager(){}
+
+	/**
+	 * @return new instances of all feature modules which can be indexed
+	 */
+	public static List<IndexableFeature> getIndexableFeatures(){
+		ArrayList<IndexableFeature> _return = new ArrayList<>();
+		_return.add(new CLD());
+		_return.add(new EHD());
+		_return.add(new AverageColorGrid8());
+		_return.add(new SubDivMotionHistogram2());
+		_return.add(new SubDivMotionHistogram3());
+		_return.add(new SubDivMotionHistogram4());
+		_return.add(new SubDivMotionHistogram5());
+		return _return;
+	}
+
+	/**
+	 * only the registered classes are considered, subclasses may store different vectors in the same table
+	 */
+	private static boolean isIndexable(Retriever r){
+		return r instanceof IndexableFeature && indexableClasses.contains(r.getClass());
+	}
+
+	public static File getIndexFile(IndexableFeature feature){
+		return new File(Config.getRetrieverConfig().getIndexFolder(), feature.getTableName() + "." + feature.getColumnName() + FILE_EXTENSION);
+	}
+
+	/**
+	 * @return the index of the feature or null if none has been built
+	 */
+	public static synchronized IVFPQIndex getIndex(IndexableFeature feature){
+		File file = getIndexFile(feature);
+		String key = file.getAbsolutePath();
+		if(indexes.containsKey(key)){
+			return indexes.get(key);
+		}
+		if(!file.isFile()){
+			return null;
+		}
+		IVFPQIndex index = null;
+		try {
+			index = IVFPQIndex.load(file);
+			LOGGER.info("loaded {} for {}", index, feature.getTableName());
+		} catch (IOException e) {
+			LOGGER.warn("could not load index {}: {}", file.getAbsolutePath(), LogHelper.getStackTrace(e));
+		}
+		indexes.put(key, index);
+		return index;
+	}
+
+	/**
+	 * @return all stored vectors of the feature, loaded on the first call and shared by all {@link BatchScanRetriever}s until
+	 * they are {@link #invalidateVectors() invalidated}
+	 */
+	public static synchronized FeatureVectors getVectors(DBSelector selector, IndexableFeature feature){
+		String key = feature.getTableName() + "." + feature.getColumnName();
+		FeatureVectors _return = vectors.get(key);
+		if(_return == null){
+			_return = FeatureVectors.load(selector, feature.getTableName(), feature.getColumnName());
+			LOGGER.info("loaded {} vectors of {}", _return.size(), feature.getTableName());
+			vectors.put(key, _return);
+		}
+		return _return;
+	}
+
+	/**
+	 * forgets all loaded vectors, has to be called whenever shots are added to the collection
+	 */
+	public static synchronized void invalidateVectors(){
+		vectors.clear();
+	}
+
+	/**
+	 * replaces every retriever for which an index exists by an {@link IndexedRetriever} and every other indexable retriever by a
+	 * {@link BatchScanRetriever} with the same weight. Without an index, single queries are still answered by the module itself.
+	 */
+	public static TObjectDoubleHashMap<Retriever> wrap(TObjectDoubleHashMap<Retriever> retrievers){
+		TObjectDoubleHashMap<Retriever> _return = new TObjectDoubleHashMap<>(retrievers.size());
+		TObjectDoubleIterator<Retriever> iter = retrievers.iterator();
+		while(iter.hasNext()){
+			iter.advance();
+			Retriever r = iter.key();
+			if(!isIndexable(r)){
+				_return.put(r, iter.value());
+				continue;
+			}
+			IVFPQIndex index = getIndex((IndexableFeature) r);
+			_return.put(index == null ? new BatchScanRetriever(r) : new IndexedRetriever(r, index), iter.value());
+		}
+		return _return;
+	}
+
+	/**
+	 * forgets all loaded indexes and vectors, they are read again on the next query. Called by the reload command of the {@link ch.unibas.cs.dbis.cineast.api.API}
+	 * console once the indexes have been rebuilt.
+	 */
+	public static synchronized void reload(){
+		indexes.clear();
+		vectors.clear();
+	}
+
+}
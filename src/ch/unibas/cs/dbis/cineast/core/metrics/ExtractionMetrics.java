@@ -0,0 +1,235 @@
+package ch.unibas.cs.dbis.cineast.core.metrics;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.eclipsesource.json.JsonObject;
+
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
+import ch.unibas.cs.dbis.cineast.core.util.TimeHelper;
+
+/**
+ * Metrics of the running extraction: latency histograms per feature module, decoding and segmentation time per frame, database
+ * write latency, queue depths and how many frames were kept in memory or spilled to the disk cache, as well as the {@link
+ * TimeHelper} timers if profiling is switched on. Everything can be recorded concurrently from any thread. The metrics are reset
+ * when an extraction starts and can be exported periodically to the log and a JSON file while it runs.
+ */
+public class ExtractionMetrics {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private ExtractionMetrics(){}
+
+	private static final ConcurrentHashMap<String, LatencyHistogram> modules = new ConcurrentHashMap<>();
+	private static volatile LatencyHistogram decode = new LatencyHistogram(), segment = new LatencyHistogram(), dbWrite = new LatencyHistogram();
+	private static final AtomicLong frames = new AtomicLong(), shots = new AtomicLong();
+	private static final AtomicLong imagesInMemory = new AtomicLong(), imagesSpilled = new AtomicLong(), cacheReads = new AtomicLong();
+	private static final AtomicInteger maxShotQueue = new AtomicInteger(), maxTaskQueue = new AtomicInteger();
+	private static volatile Queue<?> shotQueue = null, taskQueue = null;
+	private static volatile long startTime = System.nanoTime();
+
+	private static ScheduledExecutorService exporter = null;
+	private static File exportFile = null;
+
+	/**
+	 * clears all metrics, called when an extraction starts
+	 */
+	public static synchronized void reset(){
+		modules.clear();
+		decode = new LatencyHistogram();
+		segment = new LatencyHistogram();
+		dbWrite = new LatencyHistogram();
+		frames.set(0);
+		shots.set(0);
+		imagesInMemory.set(0);
+		imagesSpilled.set(0);
+		cacheReads.set(0);
+		maxShotQueue.set(0);
+		maxTaskQueue.set(0);
+		TimeHelper.reset();
+		startTime = System.nanoTime();
+	}
+
+	public static void recordModule(String name, long nanos){
+		LatencyHistogram histogram = modules.get(name);
+		if(histogram == null){
+			LatencyHistogram newHistogram = new LatencyHistogram();
+			histogram = modules.putIfAbsent(name, newHistogram);
+			if(histogram == null){
+				histogram = newHistogram;
+			}
+		}
+		histogram.record(nanos);
+	}
+
+	/**
+	 * records the time the decoder needed to return a frame
+	 */
+	public static void recordDecode(long nanos){
+		decode.record(nanos);
+		frames.incrementAndGet();
+	}
+
+	/**
+	 * records the time the segmenter spent on a frame, without decoding
+	 */
+	public static void recordSegment(long nanos){
+		segment.record(nanos);
+	}
+
+	public static void recordShot(){
+		shots.incrementAndGet();
+	}
+
+	public static void recordDBWrite(long nanos){
+		dbWrite.record(nanos);
+	}
+
+	/**
+	 * counts a new image, either kept in memory or spilled to the disk cache
+	 */
+	public static void recordImage(boolean inMemory){
+		(inMemory ? imagesInMemory : imagesSpilled).incrementAndGet();
+	}
+
+	/**
+	 * counts a read of an image from the disk cache
+	 */
+	public static void recordCacheRead(){
+		cacheReads.incrementAndGet();
+	}
+
+	/**
+	 * sets the queues whose depth is reported
+	 */
+	public static void setQueues(Queue<?> shots, Queue<?> tasks){
+		shotQueue = shots;
+		taskQueue = tasks;
+	}
+
+	/**
+	 * updates the maximal observed queue depths
+	 */
+	public static void sampleQueues(){
+		Queue<?> s = shotQueue, t = taskQueue;
+		if(s != null){
+			updateMax(maxShotQueue, s.size());
+		}
+		if(t != null){
+			updateMax(maxTaskQueue, t.size());
+		}
+	}
+
+	private static void updateMax(AtomicInteger max, int value){
+		int m;
+		while(value > (m = max.get()) && !max.compareAndSet(m, value));
+	}
+
+	public static JsonObject toJSON(){
+		sampleQueues();
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		long f = frames.get();
+		LatencyHistogram d = decode;
+		JsonObject _return = new JsonObject()
+				.add("seconds", seconds)
+				.add("frames", f)
+				.add("shots", shots.get())
+				.add("framesPerSecond", seconds > 0 ? f / seconds : 0d)
+				.add("decoderFramesPerSecond", d.getSum() > 0 ? d.getCount() / (d.getSum() / 1e9) : 0d)
+				.add("decode", d.toJSON())
+				.add("segment", segment.toJSON())
+				.add("dbWrite", dbWrite.toJSON());
+
+		Queue<?> s = shotQueue, t = taskQueue;
+		_return.add("shotQueue", new JsonObject().add("size", s == null ? 0 : s.size()).add("max", maxShotQueue.get()));
+		_return.add("taskQueue", new JsonObject().add("size", t == null ? 0 : t.size()).add("max", maxTaskQueue.get()));
+		_return.add("imageCache", new JsonObject().add("inMemory", imagesInMemory.get()).add("spilled", imagesSpilled.get()).add("diskReads", cacheReads.get()));
+
+		JsonObject m = new JsonObject();
+		Map<String, LatencyHistogram> sorted = new TreeMap<>(modules);
+		for(Map.Entry<String, LatencyHistogram> entry : sorted.entrySet()){
+			m.add(entry.getKey(), entry.getValue().toJSON());
+		}
+		_return.add("modules", m);
+		if(TimeHelper.isEnabled()){
+			_return.add("timers", TimeHelper.toJSON());
+		}
+		return _return;
+	}
+
+	/**
+	 * writes the metrics to the log and, if a file is given, replaces its content with them
+	 */
+	public static void export(File file){
+		String json = toJSON().toString();
+		LOGGER.info(LogHelper.METRICS_MARKER, json);
+		if(file == null){
+			return;
+		}
+		try {
+			FileWriter writer = new FileWriter(file);
+			try{
+				writer.write(json);
+			}finally{
+				writer.close();
+			}
+		} catch (IOException e) {
+			LOGGER.warn("could not write metrics to {}: {}", file.getAbsolutePath(), LogHelper.getStackTrace(e));
+		}
+	}
+
+	/**
+	 * starts exporting the metrics every interval seconds, replaces a previously started export
+	 * @param file the file to write to or null to only log them
+	 */
+	public static synchronized void startExport(int interval, final File file){
+		stopExport();
+		if(interval <= 0){
+			return;
+		}
+		exportFile = file;
+		exporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "ExtractionMetricsExporter");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		exporter.scheduleAtFixedRate(new Runnable() {
+
+			@Override
+			public void run() {
+				export(file);
+			}
+		}, interval, interval, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * stops the periodic export and exports the metrics a last time, does nothing if no export was started
+	 */
+	public static synchronized void stopExport(){
+		if(exporter == null){
+			return;
+		}
+		exporter.shutdownNow();
+		exporter = null;
+		export(exportFile);
+	}
+
+}
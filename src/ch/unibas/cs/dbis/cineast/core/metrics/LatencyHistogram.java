@@ -0,0 +1,110 @@
+package ch.unibas.cs.dbis.cineast.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.eclipsesource.json.JsonObject;
+
+/**
+ * Histogram of durations in nanoseconds with a fixed relative precision in the style of HdrHistogram: every power of two is
+ * split into 32 linear buckets, so a recorded value is known to within about 3%, from nanoseconds up to about 18 minutes.
+ * Recording is lock-free and allocation-free, so it can be called from every extraction thread.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_MAGNITUDE = 40;
+	private static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong(), sum = new AtomicLong(), max = new AtomicLong();
+
+	private static int index(long value){
+		if(value < SUB_BUCKETS){
+			return (int) Math.max(0, value);
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		if(magnitude > MAX_MAGNITUDE){
+			return BUCKETS - 1;
+		}
+		int sub = (int) ((value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+		return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @return the largest value which falls into the bucket
+	 */
+	private static long upperBound(int index){
+		if(index < SUB_BUCKETS){
+			return index;
+		}
+		int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		int sub = index % SUB_BUCKETS;
+		long lower = (1l << magnitude) | ((long) sub << (magnitude - SUB_BUCKET_BITS));
+		return lower + (1l << (magnitude - SUB_BUCKET_BITS)) - 1;
+	}
+
+	public void record(long nanos){
+		this.counts.incrementAndGet(index(nanos));
+		this.count.incrementAndGet();
+		this.sum.addAndGet(nanos);
+		long m;
+		while(nanos > (m = this.max.get()) && !this.max.compareAndSet(m, nanos));
+	}
+
+	public long getCount(){
+		return this.count.get();
+	}
+
+	/**
+	 * @return the sum of all recorded values in nanoseconds
+	 */
+	public long getSum(){
+		return this.sum.get();
+	}
+
+	public long getMax(){
+		return this.max.get();
+	}
+
+	public double getMean(){
+		long c = this.count.get();
+		return c == 0 ? 0d : ((double) this.sum.get()) / c;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return an upper bound of the given percentile of the recorded values, 0 if nothing has been recorded
+	 */
+	public long getPercentile(double percentile){
+		long total = this.count.get();
+		if(total == 0){
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(total * percentile / 100d));
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; ++i){
+			seen += this.counts.get(i);
+			if(seen >= rank){
+				return Math.min(upperBound(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * @return count, mean, percentiles and maximum in milliseconds
+	 */
+	public JsonObject toJSON(){
+		return new JsonObject()
+				.add("count", getCount())
+				.add("meanMs", getMean() / 1e6)
+				.add("p50Ms", getPercentile(50) / 1e6)
+				.add("p90Ms", getPercentile(90) / 1e6)
+				.add("p99Ms", getPercentile(99) / 1e6)
+				.add("maxMs", getMax() / 1e6)
+				.add("totalMs", getSum() / 1e6);
+	}
+
+}
@@ -0,0 +1,102 @@
+package ch.unibas.cs.dbis.cineast.core.metrics;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.eclipsesource.json.JsonObject;
+
+/**
+ * Latency percentiles of the API queries per category over a rolling window of the most recent queries, so a slow category
+ * shows up right away and old outliers do not distort the numbers forever.
+ */
+public class QueryStatistics {
+
+	private static final int WINDOW = 1024;
+
+	private QueryStatistics(){}
+
+	private static final ConcurrentHashMap<String, Window> categories = new ConcurrentHashMap<>();
+
+	private static final class Window{
+		private final long[] values = new long[WINDOW];
+		private int next = 0, size = 0;
+		private long total = 0;
+
+		private synchronized void add(long nanos){
+			this.values[this.next] = nanos;
+			this.next = (this.next + 1) % WINDOW;
+			this.size = Math.min(this.size + 1, WINDOW);
+			++this.total;
+		}
+
+		private JsonObject toJSON(){
+			long[] sorted;
+			long count;
+			synchronized (this) {
+				sorted = Arrays.copyOf(this.values, this.size);
+				count = this.total;
+			}
+			Arrays.sort(sorted);
+			double sum = 0;
+			for(long value : sorted){
+				sum += value;
+			}
+			return new JsonObject()
+					.add("count", count)
+					.add("window", sorted.length)
+					.add("meanMs", sorted.length == 0 ? 0d : sum / sorted.length / 1e6)
+					.add("p50Ms", percentile(sorted, 50) / 1e6)
+					.add("p90Ms", percentile(sorted, 90) / 1e6)
+					.add("p99Ms", percentile(sorted, 99) / 1e6)
+					.add("maxMs", sorted.length == 0 ? 0d : sorted[sorted.length - 1] / 1e6);
+		}
+	}
+
+	private static long percentile(long[] sorted, double percentile){
+		if(sorted.length == 0){
+			return 0;
+		}
+		int rank = (int) Math.ceil(sorted.length * percentile / 100d);
+		return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+	}
+
+	/**
+	 * records the time a query of the category took
+	 */
+	public static void record(String category, long nanos){
+		String key = category.toLowerCase();
+		Window window = categories.get(key);
+		if(window == null){
+			Window newWindow = new Window();
+			window = categories.putIfAbsent(key, newWindow);
+			if(window == null){
+				window = newWindow;
+			}
+		}
+		window.add(nanos);
+	}
+
+	/**
+	 * @return the statistics of the category or null if no query of it has been recorded
+	 */
+	public static JsonObject toJSON(String category){
+		Window window = categories.get(category.toLowerCase());
+		return window == null ? null : window.toJSON();
+	}
+
+	public static JsonObject toJSON(){
+		JsonObject _return = new JsonObject();
+		Map<String, Window> sorted = new TreeMap<>(categories);
+		for(Map.Entry<String, Window> entry : sorted.entrySet()){
+			_return.add(entry.getKey(), entry.getValue().toJSON());
+		}
+		return _return;
+	}
+
+	public static void reset(){
+		categories.clear();
+	}
+
+}
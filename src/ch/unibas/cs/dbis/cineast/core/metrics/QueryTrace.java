@@ -0,0 +1,133 @@
+package ch.unibas.cs.dbis.cineast.core.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+
+/**
+ * Collects the timed stages of a single API query, such as parsing, connection setup, the feature extraction and SQL of every
+ * module, fusion and the shot lookups while printing the results. A trace is attached to the threads working on the query,
+ * the request thread and the retrieval threads while they run a task of it, so code deep down like {@link
+ * ch.unibas.cs.dbis.cineast.core.db.DBSelector} can record spans without the trace being passed to it. Recording on a thread
+ * without a trace does nothing.
+ */
+public class QueryTrace {
+
+	private static final ThreadLocal<QueryTrace> currentTrace = new ThreadLocal<>();
+	private static final ThreadLocal<String> currentModule = new ThreadLocal<>();
+
+	private final long startTime = System.nanoTime();
+	private final List<Span> spans = new ArrayList<>();
+	private volatile String category = null;
+
+	private static final class Span{
+		private final String stage, category, module;
+		private final long start, duration;
+
+		private Span(String stage, String category, String module, long start, long duration){
+			this.stage = stage;
+			this.category = category;
+			this.module = module;
+			this.start = start;
+			this.duration = duration;
+		}
+	}
+
+	/**
+	 * @return the trace attached to the calling thread or null
+	 */
+	public static QueryTrace current(){
+		return currentTrace.get();
+	}
+
+	/**
+	 * attaches the trace to the calling thread, spans recorded by it are attributed to the given module
+	 * @param trace the trace or null to record nothing
+	 * @param module the module the thread works for or null
+	 */
+	public static void attach(QueryTrace trace, String module){
+		currentTrace.set(trace);
+		currentModule.set(module);
+	}
+
+	public static void detach(){
+		currentTrace.remove();
+		currentModule.remove();
+	}
+
+	/**
+	 * records a span ending now in the trace of the calling thread, attributed to the module the thread works for
+	 * @param start the value of {@link System#nanoTime()} at the beginning of the span
+	 */
+	public static void record(String stage, long start){
+		QueryTrace trace = currentTrace.get();
+		if(trace != null){
+			trace.add(stage, currentModule.get(), start, System.nanoTime());
+		}
+	}
+
+	/**
+	 * records a span ending now in the trace of the calling thread
+	 * @param module the module the span belongs to or null
+	 * @param start the value of {@link System#nanoTime()} at the beginning of the span
+	 */
+	public static void record(String stage, String module, long start){
+		QueryTrace trace = currentTrace.get();
+		if(trace != null){
+			trace.add(stage, module, start, System.nanoTime());
+		}
+	}
+
+	/**
+	 * sets the category subsequent spans belong to
+	 */
+	public void setCategory(String category){
+		this.category = category;
+	}
+
+	public String getCategory(){
+		return this.category;
+	}
+
+	public void add(String stage, String module, long start, long end){
+		Span span = new Span(stage, this.category, module, start - this.startTime, end - start);
+		synchronized (this.spans) {
+			this.spans.add(span);
+		}
+	}
+
+	/**
+	 * @return all spans in the order they ended and the summed time per stage, in milliseconds since the query started
+	 */
+	public JsonObject toJSON(){
+		JsonArray array = new JsonArray();
+		Map<String, Long> stages = new TreeMap<>();
+		synchronized (this.spans) {
+			for(Span span : this.spans){
+				JsonObject obj = new JsonObject().add("stage", span.stage);
+				if(span.category != null){
+					obj.add("category", span.category);
+				}
+				if(span.module != null){
+					obj.add("module", span.module);
+				}
+				array.add(obj.add("startMs", span.start / 1e6).add("ms", span.duration / 1e6));
+				Long sum = stages.get(span.stage);
+				stages.put(span.stage, (sum == null ? 0 : sum) + span.duration);
+			}
+		}
+		JsonObject sums = new JsonObject();
+		for(Map.Entry<String, Long> entry : stages.entrySet()){
+			sums.add(entry.getKey(), entry.getValue() / 1e6);
+		}
+		return new JsonObject()
+				.add("totalMs", (System.nanoTime() - this.startTime) / 1e6)
+				.add("stages", sums)
+				.add("spans", array);
+	}
+
+}
@@ -1,8 +1,20 @@
 package ch.unibas.cs.dbis.cineast.core.run;
 
 import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -10,10 +22,31 @@ import org.apache.logging.log4j.Logger;
 import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
+import com.eclipsesource.json.ParseException;
 
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.config.DatabaseConfig;
+import ch.unibas.cs.dbis.cineast.core.config.DecoderConfig.SamplingMode;
+import ch.unibas.cs.dbis.cineast.core.db.ADAMTuple;
+import ch.unibas.cs.dbis.cineast.core.db.ADAMWriter;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
+import ch.unibas.cs.dbis.cineast.core.db.PersistencyWriter;
+import ch.unibas.cs.dbis.cineast.core.db.ReturningADAMTuple;
+import ch.unibas.cs.dbis.cineast.core.db.ShotLookup;
+import ch.unibas.cs.dbis.cineast.core.db.ShotLookup.ShotDescriptor;
+import ch.unibas.cs.dbis.cineast.core.db.WriteBehindWriter;
+import ch.unibas.cs.dbis.cineast.core.decode.subtitle.srt.SRTSubTitle;
+import ch.unibas.cs.dbis.cineast.core.decode.video.JLibAVVideoDecoder;
+import ch.unibas.cs.dbis.cineast.core.decode.video.VideoDecoder;
 import ch.unibas.cs.dbis.cineast.core.features.abstracts.AbstractFeatureModule;
 import ch.unibas.cs.dbis.cineast.core.features.extractor.Extractor;
+import ch.unibas.cs.dbis.cineast.core.features.extractor.ExtractorInitializer;
+import ch.unibas.cs.dbis.cineast.core.runtime.ExtractionJournal;
+import ch.unibas.cs.dbis.cineast.core.runtime.ShotDispatcher;
+import ch.unibas.cs.dbis.cineast.core.segmenter.ShotSegmenter;
+import ch.unibas.cs.dbis.cineast.core.util.ContinousRetrievalLogic;
 import ch.unibas.cs.dbis.cineast.core.util.FileUtil;
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
 import ch.unibas.cs.dbis.cineast.core.util.ReflectionHelper;
 
 public class ExtractionJobRunner implements Runnable{
@@ -25,6 +58,13 @@ public class ExtractionJobRunner implements Runnable{
 	private List<File> subtitleFiles = null;
 	private long inputId = -1;
 	private List<Extractor> extractors = new ArrayList<>();
+	private File journalFile = null;
+	private int retries = DEFAULT_RETRIES;
+	private boolean valid = false;
+	
+	private static final int DEFAULT_RETRIES = 3;
+	private static final long CHECKPOINT_INTERVAL = 30; //seconds
+	private static final int CHECKPOINT_ATTEMPTS = 3; //snapshots taken before a checkpoint is skipped because tuples keep being dropped
 	
 	public ExtractionJobRunner(JsonObject jobConfig){
 		parseJobConfig(jobConfig);
@@ -32,9 +72,25 @@ public class ExtractionJobRunner implements Runnable{
 	}
 	
 	private void chechValidity() {
-		//TODO implement validity check of input
-		throw new UnsupportedOperationException("not yet implemented");
-		
+		this.valid = true;
+		if(this.inputFile == null){
+			LOGGER.error("invalid job config: no valid input file");
+			this.valid = false;
+		}
+		if(this.extractors.isEmpty()){
+			LOGGER.error("invalid job config: no valid features or exporters");
+			this.valid = false;
+		}
+		if(this.valid && this.journalFile == null){
+			this.journalFile = new File(this.inputFile.getParentFile(), this.inputName + ".journal.json");
+		}
+	}
+	
+	/**
+	 * @return true if the job config contained everything needed to run the job
+	 */
+	public boolean isValid(){
+		return this.valid;
 	}
 
 	private void parseJobConfig(JsonObject jobConfig){
@@ -93,6 +149,27 @@ public class ExtractionJobRunner implements Runnable{
 				parseExportersEntry(inputArray);
 				break;
 			}
+			case "journal":{
+				try{
+					this.journalFile = new File(configEntry.asString());
+				}catch(UnsupportedOperationException notAString){
+					LOGGER.warn("Could not parse job config entry 'journal': entry is not a valid string, ignoring 'journal'");
+				}
+				break;
+			}
+			case "retries":{
+				try{
+					int retries = configEntry.asInt();
+					if(retries >= 0){
+						this.retries = retries;
+					}else{
+						LOGGER.warn("Could not parse job config entry 'retries': entry cannot be < 0, ignoring 'retries'");
+					}
+				}catch(UnsupportedOperationException | NumberFormatException notAValidNumber){
+					LOGGER.warn("Could not parse job config entry 'retries': entry is not a valid number, ignoring 'retries'");
+				}
+				break;
+			}
 		
 			default:{
 				LOGGER.warn("unrecognized config entry {}, ignoring", entryName);
@@ -323,10 +400,262 @@ public class ExtractionJobRunner implements Runnable{
 		
 	}
 
+	/**
+	 * Runs the job. Progress is kept in a journal (see {@link ExtractionJournal}) which is written every
+	 * CHECKPOINT_INTERVAL seconds once the features of the shots it marks as done have reached the database. Writes which fail
+	 * are retried with the shot, if write-behind drops tuples the journal is no longer updated, so the next run resumes from
+	 * the last checkpoint before the loss. When the job is started again
+	 * with the same journal, the decoder skips the known shots every module has already processed, the remaining shots are
+	 * processed only by the modules which have not finished them. A finished job does nothing.
+	 */
 	@Override
 	public void run() {
-		//TODO implement feature extraction based on json
-		throw new UnsupportedOperationException("not yet implemented");
+		if(!this.valid){
+			LOGGER.error("job config is not valid, not running");
+			return;
+		}
+		
+		final ExtractionJournal journal = ExtractionJournal.open(this.journalFile, this.inputFile.getAbsolutePath());
+		if(journal.isFinished()){
+			LOGGER.info("{} has already been extracted according to {}", this.inputName, this.journalFile.getAbsolutePath());
+			return;
+		}
+		
+		DatabaseConfig dbconfig = Config.getDatabaseConfig();
+		VideoDecoder vd = new JLibAVVideoDecoder(this.inputFile);
+		
+		int id = journal.getVideoId();
+		if(id <= 0 && this.inputId > 0){
+			id = (int) this.inputId;
+		}
+		List<ShotDescriptor> knownShots = null;
+		if(id <= 0){
+			ADAMWriter writer = new ADAMWriter(dbconfig.getLocation(), dbconfig.getUser(), dbconfig.getPassword(), "id"){
+
+				@Override
+				public int getParameterCount() {
+					return 6;
+				}
+
+				@Override
+				public String[] getParameterNames() {
+					return new String[]{"name", "path", "width", "height", "frames", "seconds"};
+				}
+				
+			};
+			writer.open("cineast.videos");
+			if(writer.check("select * from cineast.videos where name = \'" + ADAMTuple.escape(this.inputName) + "\'")){
+				ShotLookup lookup = new ShotLookup();
+				id = lookup.lookUpVideoid(ADAMTuple.escape(this.inputName));
+				lookup.close();
+			}else{
+				ReturningADAMTuple tuple = (ReturningADAMTuple) writer.makeTuple(this.inputName, this.inputFile.getAbsolutePath(), vd.getWidth(), vd.getHeight(), vd.getTotalFrameCount(), vd.getTotalFrameCount() / vd.getFPS());
+				writer.write(tuple);
+				id = (int) tuple.getReturnValue();
+				knownShots = new ArrayList<>(0);
+			}
+			writer.close();
+		}
+		journal.setVideoId(id);
+		
+		if(knownShots == null){
+			ShotLookup lookup = new ShotLookup();
+			knownShots = lookup.lookUpVideo(id);
+			lookup.close();
+			ExtractionState.setCurrent(ExtractionState.load(id));
+		}else{
+			ExtractionState.setCurrent(ExtractionState.empty(id));
+		}
+		Collections.sort(knownShots, new Comparator<ShotDescriptor>() {
+
+			@Override
+			public int compare(ShotDescriptor o1, ShotDescriptor o2) {
+				return Integer.compare(o1.getStartFrame(), o2.getStartFrame());
+			}
+		});
+		
+		ShotSegmenter segmenter = new ShotSegmenter(vd, id, new ADAMWriter(dbconfig.getLocation(), dbconfig.getUser(), dbconfig.getPassword(), "id") {
+			
+			@Override
+			public String[] getParameterNames() {
+				return new String[] { "id", "number", "video", "startFrame", "endFrame" };
+			}
+			
+			@Override
+			public int getParameterCount() {
+				return 5;
+			}
+		}, knownShots);
+		
+		for(File f : this.subtitleFiles){
+			segmenter.addSubTitle(new SRTSubTitle(f, (float) vd.getFPS()));
+			LOGGER.info("added subtitle {} to segmenter", f.getAbsolutePath());
+		}
+		
+		List<String> modules = new ArrayList<>(this.extractors.size());
+		for(Extractor e : this.extractors){
+			modules.add(e.getClass().getSimpleName());
+		}
+		int skip = journal.firstUnfinished(knownShots, modules);
+		if(skip > 0){
+			LOGGER.info("resuming {} after {} finished shots", this.inputName, skip);
+			segmenter.skipKnownShots(skip);
+		}
+		
+		final Map<WriteBehindWriter<?>, String> writers = Collections.synchronizedMap(new LinkedHashMap<WriteBehindWriter<?>, String>()); //module by writer
+		ExtractorInitializer initializer = new ExtractorInitializer() {
+			
+			@Override
+			public void initialize(Extractor e) {
+				ADAMWriter adamWriter = new ADAMWriter(){
+
+					@Override
+					public int getParameterCount() {
+						return 0;
+					}
+
+					@Override
+					public String[] getParameterNames() {
+						return null;
+					}
+					
+				};
+				adamWriter.setFailOnError(true); //without write-behind, failed writes fail the shot, which is then retried
+				PersistencyWriter<?> writer = WriteBehindWriter.wrap(adamWriter);
+				if(writer instanceof WriteBehindWriter){
+					writers.put((WriteBehindWriter<?>) writer, e.getClass().getSimpleName());
+				}
+				e.init(writer);
+			}
+		};
+		
+		ArrayList<Extractor> featureList = new ArrayList<>(this.extractors);
+		if(vd.getSamplingMode() != SamplingMode.ALL && ShotDispatcher.requiresDenseFrames(featureList)){
+			LOGGER.info("motion features track every frame, the other features only get the frames of sampling mode {}", vd.getSamplingMode());
+			vd.setDenseDecoding(true);
+		}
+		
+		ShotDispatcher dispatcher = new ShotDispatcher(featureList, initializer, segmenter);
+		dispatcher.setJournal(journal, this.retries);
+		
+		ScheduledExecutorService checkpoints = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "ExtractionJournalCheckpoint");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		checkpoints.scheduleWithFixedDelay(new Runnable() {
+			
+			@Override
+			public void run() {
+				checkpoint(journal, writers);
+			}
+		}, CHECKPOINT_INTERVAL, CHECKPOINT_INTERVAL, TimeUnit.SECONDS);
+		
+		try{
+			dispatcher.run();
+		}finally{
+			checkpoints.shutdown();
+			try {
+				checkpoints.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				LOGGER.warn("interrupted while waiting for the last checkpoint");
+			}
+			ExtractionState.setCurrent(null);
+			vd.close();
+		}
+		
+		collectDropped(journal, writers); //the writers are closed, so this covers all remaining drops
+		int failed = journal.getFailedCount();
+		journal.setFinished(failed == 0);
+		if(!checkpoint(journal, writers)){
+			LOGGER.error("could not write the final checkpoint of {}, the next run resumes from the last one", this.inputName);
+		}else if(failed == 0){
+			LOGGER.info("done extracting {}", this.inputName);
+		}else{
+			LOGGER.warn("extracted {}, {} shots failed and will be retried when the job is run again", this.inputName, failed);
+		}
+	}
+	
+	/**
+	 * Shots are marked as done after their tuples have been handed to the writers, so the marks taken after the snapshot cover
+	 * every tuple of the shots it contains. Only these are waited for, the extraction keeps writing in the meantime. Shots which
+	 * lost tuples are marked as failed, if that happened the snapshot is out of date and taken again.
+	 */
+	private static boolean checkpoint(ExtractionJournal journal, Map<WriteBehindWriter<?>, String> writers){
+		Map<WriteBehindWriter<?>, String> flushed;
+		synchronized (writers) {
+			flushed = new LinkedHashMap<>(writers);
+		}
+		for(int attempt = 0; attempt < CHECKPOINT_ATTEMPTS; ++attempt){
+			JsonObject snapshot = journal.snapshot();
+			Map<WriteBehindWriter<?>, Long> marks = new HashMap<>();
+			for(WriteBehindWriter<?> writer : flushed.keySet()){
+				marks.put(writer, writer.mark());
+			}
+			for(WriteBehindWriter<?> writer : flushed.keySet()){
+				if(!writer.flush(marks.get(writer)) && Thread.currentThread().isInterrupted()){
+					LOGGER.warn("interrupted while flushing {}, not writing checkpoint", writer.getName());
+					return false;
+				}
+			}
+			ContinousRetrievalLogic.invalidateResultCache();
+			if(collectDropped(journal, flushed)){
+				continue;
+			}
+			if(journal.write(snapshot)){
+				LOGGER.debug("wrote checkpoint to {}", journal.getFile().getAbsolutePath());
+				return true;
+			}
+			return false;
+		}
+		LOGGER.warn("tuples kept being dropped while writing the checkpoint, trying again with the next one");
+		return false;
+	}
+	
+	/**
+	 * marks the shots which lost tuples in one of the writers as failed for the module of the writer
+	 * @return true if there were any
+	 */
+	private static boolean collectDropped(ExtractionJournal journal, Map<WriteBehindWriter<?>, String> writers){
+		boolean _return = false;
+		synchronized (writers) {
+			for(Map.Entry<WriteBehindWriter<?>, String> entry : writers.entrySet()){
+				long[] shots = entry.getKey().takeDroppedShots();
+				for(long shotId : shots){
+					journal.markFailed(entry.getValue(), shotId);
+				}
+				if(shots.length > 0){
+					LOGGER.error("{} lost tuples of {} shots, they are extracted again on the next run", entry.getValue(), shots.length);
+					_return = true;
+				}
+			}
+		}
+		return _return;
+	}
+	
+	/**
+	 * runs the job config in the given file
+	 */
+	public static void main(String[] args) {
+		if(args.length < 1){
+			System.err.println("usage: ExtractionJobRunner <job config>");
+			return;
+		}
+		JsonObject jobConfig;
+		try(Reader reader = new FileReader(args[0])){
+			jobConfig = JsonObject.readFrom(reader);
+		}catch(IOException | UnsupportedOperationException | ParseException e){
+			LOGGER.error("could not read job config {}: {}", args[0], LogHelper.getStackTrace(e));
+			return;
+		}
+		ExtractionJobRunner runner = new ExtractionJobRunner(jobConfig);
+		if(runner.isValid()){
+			runner.run();
+		}
 	}
 
 
@@ -0,0 +1,239 @@
+package ch.unibas.cs.dbis.cineast.core.run;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.eclipsesource.json.JsonObject;
+
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.config.DecoderConfig.SamplingMode;
+import ch.unibas.cs.dbis.cineast.core.db.MemoryWriter;
+import ch.unibas.cs.dbis.cineast.core.decode.video.SyntheticVideoDecoder;
+import ch.unibas.cs.dbis.cineast.core.features.AverageColor;
+import ch.unibas.cs.dbis.cineast.core.features.AverageColorARP44;
+import ch.unibas.cs.dbis.cineast.core.features.AverageColorCLD;
+import ch.unibas.cs.dbis.cineast.core.features.AverageColorGrid8;
+import ch.unibas.cs.dbis.cineast.core.features.AverageColorRaster;
+import ch.unibas.cs.dbis.cineast.core.features.AverageFuzzyHist;
+import ch.unibas.cs.dbis.cineast.core.features.CLD;
+import ch.unibas.cs.dbis.cineast.core.features.ChromaGrid8;
+import ch.unibas.cs.dbis.cineast.core.features.DominantColors;
+import ch.unibas.cs.dbis.cineast.core.features.DominantEdgeGrid16;
+import ch.unibas.cs.dbis.cineast.core.features.DominantEdgeGrid8;
+import ch.unibas.cs.dbis.cineast.core.features.EHD;
+import ch.unibas.cs.dbis.cineast.core.features.EdgeARP88;
+import ch.unibas.cs.dbis.cineast.core.features.EdgeARP88Full;
+import ch.unibas.cs.dbis.cineast.core.features.EdgeGrid16;
+import ch.unibas.cs.dbis.cineast.core.features.EdgeGrid16Full;
+import ch.unibas.cs.dbis.cineast.core.features.HueValueVarianceGrid8;
+import ch.unibas.cs.dbis.cineast.core.features.MedianColor;
+import ch.unibas.cs.dbis.cineast.core.features.MedianColorARP44;
+import ch.unibas.cs.dbis.cineast.core.features.MedianColorGrid8;
+import ch.unibas.cs.dbis.cineast.core.features.MedianColorRaster;
+import ch.unibas.cs.dbis.cineast.core.features.MedianFuzzyHist;
+import ch.unibas.cs.dbis.cineast.core.features.MotionHistogram;
+import ch.unibas.cs.dbis.cineast.core.features.SaturationGrid8;
+import ch.unibas.cs.dbis.cineast.core.features.SubDivAverageFuzzyColor;
+import ch.unibas.cs.dbis.cineast.core.features.SubDivMedianFuzzyColor;
+import ch.unibas.cs.dbis.cineast.core.features.SubDivMotionHistogram2;
+import ch.unibas.cs.dbis.cineast.core.features.SubDivMotionHistogram3;
+import ch.unibas.cs.dbis.cineast.core.features.SubDivMotionHistogram4;
+import ch.unibas.cs.dbis.cineast.core.features.SubDivMotionHistogram5;
+import ch.unibas.cs.dbis.cineast.core.features.extractor.Extractor;
+import ch.unibas.cs.dbis.cineast.core.features.extractor.ExtractorInitializer;
+import ch.unibas.cs.dbis.cineast.core.metrics.ExtractionMetrics;
+import ch.unibas.cs.dbis.cineast.core.runtime.ShotDispatcher;
+import ch.unibas.cs.dbis.cineast.core.segmenter.ShotSegmenter;
+
+/**
+ * Runs the whole extraction pipeline, segmenter, dispatcher and all feature modules, on a {@link SyntheticVideoDecoder} and
+ * writes everything to {@link MemoryWriter}s, so neither a video file nor a database is needed. Reports frames and shots per
+ * second, the peak heap usage, the time spent in garbage collection and the {@link ExtractionMetrics} of the run as JSON.
+ * A shorter warmup video is extracted first so the report is not dominated by JIT compilation. Thumbnails are not exported,
+ * since that writes to disk and is skipped for shots which already have one.
+ *
+ * usage: ExtractionThroughputBenchmark [-w width] [-h height] [-f frames] [-warmup frames] [-s seed] [-o report.json]
+ */
+public class ExtractionThroughputBenchmark {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private static final int DEFAULT_WIDTH = 640;
+	private static final int DEFAULT_HEIGHT = 360;
+	private static final int DEFAULT_FRAMES = 3000;
+	private static final int DEFAULT_WARMUP_FRAMES = 500;
+
+	public static void main(String[] args) {
+		int width = DEFAULT_WIDTH, height = DEFAULT_HEIGHT, frames = DEFAULT_FRAMES, warmup = DEFAULT_WARMUP_FRAMES;
+		long seed = 0;
+		File output = null;
+		for(int i = 0; i + 1 < args.length; i += 2){
+			switch(args[i]){
+			case "-w":
+				width = Integer.parseInt(args[i + 1]);
+				break;
+			case "-h":
+				height = Integer.parseInt(args[i + 1]);
+				break;
+			case "-f":
+				frames = Integer.parseInt(args[i + 1]);
+				break;
+			case "-warmup":
+				warmup = Integer.parseInt(args[i + 1]);
+				break;
+			case "-s":
+				seed = Long.parseLong(args[i + 1]);
+				break;
+			case "-o":
+				output = new File(args[i + 1]);
+				break;
+			default:
+				LOGGER.warn("unknown option {}", args[i]);
+			}
+		}
+
+		if(warmup > 0){
+			LOGGER.info("warmup with {} frames", warmup);
+			run(width, height, warmup, seed + 1);
+		}
+		JsonObject report = run(width, height, frames, seed);
+		String json = report.toString();
+		System.out.println(json);
+		if(output != null){
+			try {
+				FileWriter writer = new FileWriter(output);
+				writer.write(json);
+				writer.close();
+			} catch (IOException e) {
+				LOGGER.error("could not write report to {}: {}", output.getAbsolutePath(), e.getMessage());
+			}
+		}
+	}
+
+	public static JsonObject run(int width, int height, int frames, long seed){
+		SyntheticVideoDecoder decoder = new SyntheticVideoDecoder(width, height, frames, SyntheticVideoDecoder.DEFAULT_FPS, seed);
+		MemoryWriter shotWriter = new MemoryWriter();
+		ShotSegmenter segmenter = new ShotSegmenter(decoder, 1, shotWriter, null);
+
+		ArrayList<Extractor> featureList = getExtractors();
+		if(decoder.getSamplingMode() != SamplingMode.ALL && ShotDispatcher.requiresDenseFrames(featureList)){
+			decoder.setDenseDecoding(true);
+		}
+		final List<MemoryWriter> writers = Collections.synchronizedList(new ArrayList<MemoryWriter>());
+		ExtractorInitializer initializer = new ExtractorInitializer() {
+
+			@Override
+			public void initialize(Extractor e) {
+				MemoryWriter writer = new MemoryWriter();
+				writers.add(writer);
+				e.init(writer);
+			}
+		};
+
+		System.gc();
+		List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()){
+			if(pool.getType() == MemoryType.HEAP && pool.isValid()){
+				pool.resetPeakUsage();
+				heapPools.add(pool);
+			}
+		}
+		List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+		long[] gcCounts = new long[collectors.size()], gcTimes = new long[collectors.size()];
+		for(int i = 0; i < collectors.size(); ++i){
+			gcCounts[i] = collectors.get(i).getCollectionCount();
+			gcTimes[i] = collectors.get(i).getCollectionTime();
+		}
+
+		long start = System.nanoTime();
+		new ShotDispatcher(featureList, initializer, segmenter).run();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		decoder.close();
+
+		//the sum of the pool peaks is an upper bound, the pools do not necessarily peak at the same time
+		long peakHeap = 0;
+		for(MemoryPoolMXBean pool : heapPools){
+			peakHeap += pool.getPeakUsage().getUsed();
+		}
+		JsonObject gc = new JsonObject();
+		long gcCount = 0, gcTime = 0;
+		for(int i = 0; i < collectors.size(); ++i){
+			long count = collectors.get(i).getCollectionCount() - gcCounts[i], time = collectors.get(i).getCollectionTime() - gcTimes[i];
+			gc.add(collectors.get(i).getName(), new JsonObject().add("collections", count).add("ms", time));
+			gcCount += count;
+			gcTime += time;
+		}
+		gc.add("collections", gcCount).add("ms", gcTime);
+
+		long tuples = 0, bytes = 0;
+		for(MemoryWriter writer : writers){
+			tuples += writer.size();
+			bytes += writer.getBytes();
+		}
+
+		int shots = shotWriter.size();
+		return new JsonObject()
+				.add("width", width)
+				.add("height", height)
+				.add("frames", frames)
+				.add("scenes", decoder.getSceneStarts().length)
+				.add("shots", shots)
+				.add("threads", Config.getExtractorConfig().getThreadPoolSize())
+				.add("seconds", seconds)
+				.add("framesPerSecond", frames / seconds)
+				.add("shotsPerSecond", shots / seconds)
+				.add("realtimeFactor", frames / (seconds * decoder.getFPS()))
+				.add("tuples", tuples)
+				.add("tupleBytes", bytes)
+				.add("peakHeapBytes", peakHeap)
+				.add("gc", gc)
+				.add("metrics", ExtractionMetrics.toJSON());
+	}
+
+	private static ArrayList<Extractor> getExtractors(){
+		ArrayList<Extractor> featureList = new ArrayList<>();
+		featureList.add(new AverageColor());
+		featureList.add(new DominantColors());
+		featureList.add(new MedianColor());
+		featureList.add(new AverageFuzzyHist());
+		featureList.add(new MedianFuzzyHist());
+		featureList.add(new AverageColorARP44());
+		featureList.add(new MedianColorARP44());
+		featureList.add(new SubDivAverageFuzzyColor());
+		featureList.add(new SubDivMedianFuzzyColor());
+		featureList.add(new AverageColorGrid8());
+		featureList.add(new ChromaGrid8());
+		featureList.add(new SaturationGrid8());
+		featureList.add(new AverageColorCLD());
+		featureList.add(new CLD());
+		featureList.add(new HueValueVarianceGrid8());
+		featureList.add(new MedianColorGrid8());
+		featureList.add(new EdgeARP88());
+		featureList.add(new EdgeGrid16());
+		featureList.add(new EdgeARP88Full());
+		featureList.add(new EdgeGrid16Full());
+		featureList.add(new EHD());
+		featureList.add(new AverageColorRaster());
+		featureList.add(new MedianColorRaster());
+		featureList.add(new MotionHistogram());
+		featureList.add(new SubDivMotionHistogram2());
+		featureList.add(new SubDivMotionHistogram3());
+		featureList.add(new SubDivMotionHistogram4());
+		featureList.add(new SubDivMotionHistogram5());
+		featureList.add(new DominantEdgeGrid16());
+		featureList.add(new DominantEdgeGrid8());
+		return featureList;
+	}
+
+}
@@ -11,11 +11,14 @@ import org.apache.logging.log4j.Logger;
 
 import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.config.DatabaseConfig;
+import ch.unibas.cs.dbis.cineast.core.config.DecoderConfig.SamplingMode;
 import ch.unibas.cs.dbis.cineast.core.db.ADAMTuple;
 import ch.unibas.cs.dbis.cineast.core.db.ADAMWriter;
+import ch.unibas.cs.dbis.cineast.core.db.ExtractionState;
 import ch.unibas.cs.dbis.cineast.core.db.ReturningADAMTuple;
 import ch.unibas.cs.dbis.cineast.core.db.ShotLookup;
 import ch.unibas.cs.dbis.cineast.core.db.ShotLookup.ShotDescriptor;
+import ch.unibas.cs.dbis.cineast.core.db.WriteBehindWriter;
 import ch.unibas.cs.dbis.cineast.core.decode.subtitle.SubTitle;
 import ch.unibas.cs.dbis.cineast.core.decode.subtitle.srt.SRTSubTitle;
 import ch.unibas.cs.dbis.cineast.core.decode.video.JLibAVVideoDecoder;
@@ -111,11 +114,13 @@ public class FeatureExtractionRunner {
 			id = lookup.lookUpVideoid(ADAMTuple.escape(fileName));
 			knownShots = lookup.lookUpVideo(id);
 			lookup.close();
+			ExtractionState.setCurrent(ExtractionState.load(id));
 		}else{
 			ReturningADAMTuple tuple = (ReturningADAMTuple) writer.makeTuple(fileName, fileName, vd.getWidth(), vd.getHeight(), vd.getTotalFrameCount(), vd.getTotalFrameCount() / vd.getFPS());
 			writer.write(tuple);
 			
 			id = (int) tuple.getReturnValue();
+			ExtractionState.setCurrent(ExtractionState.empty(id));
 		}
 		
 		
@@ -170,7 +175,7 @@ public class FeatureExtractionRunner {
 			
 			@Override
 			public void initialize(Extractor e) {
-				e.init(new ADAMWriter(){
+				e.init(WriteBehindWriter.wrap(new ADAMWriter(){
 
 					@Override
 					public int getParameterCount() {
@@ -182,13 +187,19 @@ public class FeatureExtractionRunner {
 						return null;
 					}
 					
-				});				
+				}));
 			}
 		};
 		
+		if(vd.getSamplingMode() != SamplingMode.ALL && ShotDispatcher.requiresDenseFrames(featureList)){
+			LOGGER.info("motion features track every frame, the other features only get the frames of sampling mode {}", vd.getSamplingMode());
+			vd.setDenseDecoding(true);
+		}
+		
 		ShotDispatcher dispatcher = new ShotDispatcher(featureList, initializer, segmenter);
 		
 		dispatcher.run();		
+		ExtractionState.setCurrent(null);
 		
 		System.out.println("done");
 	}
@@ -256,12 +267,14 @@ public class FeatureExtractionRunner {
 			id = lookup.lookUpVideoid(ADAMTuple.escape(folderName));
 			knownShots = lookup.lookUpVideo(id);
 			lookup.close();
+			ExtractionState.setCurrent(ExtractionState.load(id));
 		} else {
 			ReturningADAMTuple tuple = (ReturningADAMTuple) writer.makeTuple(folderName, path, vd.getWidth(),
 					vd.getHeight(), vd.getTotalFrameCount(), vd.getTotalFrameCount() / vd.getFPS());
 			writer.write(tuple);
 
 			id = (int) tuple.getReturnValue();
+			ExtractionState.setCurrent(ExtractionState.empty(id));
 		}
 
 		ShotSegmenter segmenter = new ShotSegmenter(vd, id,
@@ -340,7 +353,7 @@ public class FeatureExtractionRunner {
 
 			@Override
 			public void initialize(Extractor e) {
-				e.init(new ADAMWriter() {
+				e.init(WriteBehindWriter.wrap(new ADAMWriter() {
 
 					@Override
 					public int getParameterCount() {
@@ -352,13 +365,19 @@ public class FeatureExtractionRunner {
 						return null;
 					}
 
-				});
+				}));
 			}
 		};
 
+		if(vd.getSamplingMode() != SamplingMode.ALL && ShotDispatcher.requiresDenseFrames(featureList)){
+			LOGGER.info("motion features track every frame, the other features only get the frames of sampling mode {}", vd.getSamplingMode());
+			vd.setDenseDecoding(true);
+		}
+		
 		ShotDispatcher dispatcher = new ShotDispatcher(featureList, initializer, segmenter);
 
 		dispatcher.run();
+		ExtractionState.setCurrent(null);
 
 		vd.close();
 
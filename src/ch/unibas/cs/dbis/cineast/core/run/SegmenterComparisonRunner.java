@@ -0,0 +1,135 @@
+package ch.unibas.cs.dbis.cineast.core.run;
+
+import java.io.File;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ch.unibas.cs.dbis.cineast.core.config.ExtractorConfig.SegmenterMode;
+import ch.unibas.cs.dbis.cineast.core.data.Shot;
+import ch.unibas.cs.dbis.cineast.core.db.PersistencyWriter;
+import ch.unibas.cs.dbis.cineast.core.db.PersistentTuple;
+import ch.unibas.cs.dbis.cineast.core.decode.video.JLibAVVideoDecoder;
+import ch.unibas.cs.dbis.cineast.core.decode.video.VideoDecoder;
+import ch.unibas.cs.dbis.cineast.core.segmenter.ShotSegmenter;
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Segments a set of reference videos with the {@link SegmenterMode#FUZZY_COLOR} and the {@link SegmenterMode#FAST} detector
+ * and reports how well the boundaries found by the fast detector agree with the ones of the original detector.
+ * Nothing is written to the database.
+ *
+ * usage: SegmenterComparisonRunner [-t tolerance] video...
+ */
+public class SegmenterComparisonRunner {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private static final int DEFAULT_TOLERANCE = 2; //frames
+
+	public static void main(String[] args) {
+		int tolerance = DEFAULT_TOLERANCE;
+		int totalReference = 0, totalFast = 0, totalMatched = 0;
+
+		for(int i = 0; i < args.length; ++i){
+			if(args[i].equals("-t") && i + 1 < args.length){
+				tolerance = Integer.parseInt(args[++i]);
+				continue;
+			}
+			File video = new File(args[i]);
+			if(!video.isFile()){
+				LOGGER.warn("{} is not a file, skipping", video.getAbsolutePath());
+				continue;
+			}
+
+			long start = System.currentTimeMillis();
+			TIntArrayList reference = segment(video, SegmenterMode.FUZZY_COLOR);
+			long referenceTime = System.currentTimeMillis() - start;
+
+			start = System.currentTimeMillis();
+			TIntArrayList fast = segment(video, SegmenterMode.FAST);
+			long fastTime = System.currentTimeMillis() - start;
+
+			int matched = countMatches(reference, fast, tolerance);
+			LOGGER.info("{}: {} reference boundaries in {}ms, {} fast boundaries in {}ms, {} matched (precision {}, recall {})",
+					video.getName(), reference.size(), referenceTime, fast.size(), fastTime, matched,
+					ratio(matched, fast.size()), ratio(matched, reference.size()));
+
+			totalReference += reference.size();
+			totalFast += fast.size();
+			totalMatched += matched;
+		}
+
+		LOGGER.info("total: {} reference boundaries, {} fast boundaries, {} matched (precision {}, recall {})",
+				totalReference, totalFast, totalMatched, ratio(totalMatched, totalFast), ratio(totalMatched, totalReference));
+	}
+
+	/**
+	 * @return the first frame id of every shot except the first one
+	 */
+	private static TIntArrayList segment(File video, SegmenterMode mode){
+		VideoDecoder vd = new JLibAVVideoDecoder(video);
+		ShotSegmenter segmenter = new ShotSegmenter(vd, 0, new NullWriter(), null, mode);
+		TIntArrayList _return = new TIntArrayList();
+		Shot shot;
+		boolean first = true;
+		while((shot = segmenter.getNextShot()) != null){
+			if(!first){
+				_return.add(shot.getStart());
+			}
+			first = false;
+			shot.clear();
+		}
+		vd.close();
+		return _return;
+	}
+
+	/**
+	 * greedily matches every boundary in the reference to the closest unmatched boundary within tolerance, both lists are sorted
+	 */
+	private static int countMatches(TIntArrayList reference, TIntArrayList candidates, int tolerance){
+		int matched = 0, j = 0;
+		for(int i = 0; i < reference.size(); ++i){
+			int r = reference.get(i);
+			while(j < candidates.size() && candidates.get(j) < r - tolerance){
+				++j;
+			}
+			if(j < candidates.size() && candidates.get(j) <= r + tolerance){
+				++matched;
+				++j;
+			}
+		}
+		return matched;
+	}
+
+	private static double ratio(int a, int b){
+		return b == 0 ? 1d : ((double) a) / b;
+	}
+
+	private static class NullWriter implements PersistencyWriter<PersistentTuple<Object>>{
+
+		@Override
+		public boolean open(String name) {
+			return true;
+		}
+
+		@Override
+		public boolean check(String condition) {
+			return false;
+		}
+
+		@Override
+		public PersistentTuple<Object> makeTuple(Object... objects) {
+			return null;
+		}
+
+		@Override
+		public void write(PersistentTuple<Object> tuple) {}
+
+		@Override
+		public boolean close() {
+			return true;
+		}
+
+	}
+}
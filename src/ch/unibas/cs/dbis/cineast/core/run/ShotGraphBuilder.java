@@ -0,0 +1,132 @@
+package ch.unibas.cs.dbis.cineast.core.run;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ch.unibas.cs.dbis.cineast.api.API;
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.db.DBSelector;
+import ch.unibas.cs.dbis.cineast.core.features.retriever.Retriever;
+import ch.unibas.cs.dbis.cineast.core.index.ShotGraph;
+import ch.unibas.cs.dbis.cineast.core.index.ShotGraphManager;
+import ch.unibas.cs.dbis.cineast.core.index.VectorIndexManager;
+import ch.unibas.cs.dbis.cineast.core.runtime.ContinousQueryDispatcher;
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TObjectDoubleHashMap;
+
+/**
+ * Builds or extends the shot graphs of the retrieval categories and writes them to the index folder. Only shots which are not yet
+ * in a graph are queried, so the builder can be re-run after every extraction. The new shots are also offered as neighbours to
+ * the shots already in the graph. The number of neighbours is at most the configured maximum number of results. A running
+ * API picks up the extended graphs after the reload command.
+ *
+ * usage: ShotGraphBuilder [-k neighbours] [category...]
+ */
+public class ShotGraphBuilder {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private static final List<String> DEFAULT_CATEGORIES = Arrays.asList("globalcolor", "localcolor", "edge", "motion", "all");
+	private static final int BATCH_SIZE = 32;
+
+	public static void main(String[] args) {
+		int k = Config.getRetrieverConfig().getMaxResults();
+		List<String> categories = new ArrayList<>();
+		for(int i = 0; i < args.length; ++i){
+			if(args[i].equals("-k") && i + 1 < args.length){
+				k = Integer.parseInt(args[++i]);
+			}else{
+				categories.add(args[i].toLowerCase());
+			}
+		}
+		if(categories.isEmpty()){
+			categories.addAll(DEFAULT_CATEGORIES);
+		}
+
+		long[] shotIds = getShotIds();
+		for(String category : categories){
+			long start = System.currentTimeMillis();
+			File file = ShotGraphManager.getGraphFile(category);
+			ShotGraph graph = null;
+			if(file.isFile()){
+				try {
+					graph = ShotGraph.load(file);
+				} catch (IOException e) {
+					LOGGER.warn("could not load shot graph {}, rebuilding it: {}", file.getAbsolutePath(), LogHelper.getStackTrace(e));
+				}
+			}
+			if(graph == null || graph.getK() != k){
+				graph = new ShotGraph(k);
+			}
+			int added = extend(graph, category, shotIds);
+			try {
+				file.getParentFile().mkdirs();
+				graph.save(file);
+				LOGGER.info("added {} shots to {} for {} in {}ms", added, graph, category, System.currentTimeMillis() - start);
+			} catch (IOException e) {
+				LOGGER.error("could not write shot graph {}: {}", file.getAbsolutePath(), LogHelper.getStackTrace(e));
+			}
+		}
+		ContinousQueryDispatcher.shutdown();
+	}
+
+	/**
+	 * queries the neighbours of all shots which are not yet in the graph
+	 * @return the number of added shots
+	 */
+	public static int extend(ShotGraph graph, String category, long[] shotIds){
+		TLongArrayList missing = new TLongArrayList();
+		for(long shotId : shotIds){
+			if(!graph.contains(shotId)){
+				missing.add(shotId);
+			}
+		}
+		if(missing.isEmpty()){
+			return 0;
+		}
+		//the vectors of features without an index are loaded once by the first batch and scanned in memory for all others
+		TObjectDoubleHashMap<Retriever> retrievers = VectorIndexManager.wrap(API.getRetrieversByCategory(category));
+		for(int from = 0; from < missing.size(); from += BATCH_SIZE){
+			long[] batch = missing.toArray(from, Math.min(BATCH_SIZE, missing.size() - from));
+			List<List<LongDoublePair>> results = ContinousQueryDispatcher.retrieve(batch, retrievers, API.getInitializer(), null);
+			for(int i = 0; i < batch.length; ++i){
+				graph.put(batch[i], results.get(i));
+				for(LongDoublePair pair : results.get(i)){
+					if(pair.key != batch[i]){
+						graph.offer(pair.key, batch[i], pair.value);
+					}
+				}
+			}
+			LOGGER.debug("{}: {} of {} shots", category, from + batch.length, missing.size());
+		}
+		return missing.size();
+	}
+
+	private static long[] getShotIds(){
+		TLongArrayList _return = new TLongArrayList();
+		DBSelector selector = new DBSelector();
+		ResultSet rset = selector.select("SELECT id FROM cineast.shots");
+		if(rset != null){
+			try {
+				while(rset.next()){
+					_return.add(rset.getLong(1));
+				}
+			} catch (SQLException e) {
+				LOGGER.fatal(LogHelper.SQL_MARKER, LogHelper.getStackTrace(e));
+			}
+		}
+		selector.close();
+		return _return.toArray();
+	}
+
+}
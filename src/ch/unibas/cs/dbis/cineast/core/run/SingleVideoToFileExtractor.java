@@ -12,6 +12,7 @@ import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import ch.unibas.cs.dbis.cineast.core.config.DecoderConfig.SamplingMode;
 import ch.unibas.cs.dbis.cineast.core.db.CSVWriter;
 import ch.unibas.cs.dbis.cineast.core.db.ShotLookup.ShotDescriptor;
 import ch.unibas.cs.dbis.cineast.core.decode.subtitle.SubTitle;
@@ -134,6 +135,11 @@ public class SingleVideoToFileExtractor {
 		
 		ArrayList<Extractor> featureList = getExtractors();
 		
+		if(vd.getSamplingMode() != SamplingMode.ALL && ShotDispatcher.requiresDenseFrames(featureList)){
+			LOGGER.info("motion features track every frame, the other features only get the frames of sampling mode {}", vd.getSamplingMode());
+			vd.setDenseDecoding(true);
+		}
+		
 		ShotDispatcher dispatcher = new ShotDispatcher(featureList, initializer, segmenter);
 		
 		long startTime = System.currentTimeMillis();
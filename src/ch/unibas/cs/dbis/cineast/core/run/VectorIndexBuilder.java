@@ -0,0 +1,83 @@
+package ch.unibas.cs.dbis.cineast.core.run;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ch.unibas.cs.dbis.cineast.core.db.DBSelector;
+import ch.unibas.cs.dbis.cineast.core.index.FeatureVectors;
+import ch.unibas.cs.dbis.cineast.core.index.IVFPQIndex;
+import ch.unibas.cs.dbis.cineast.core.index.IndexableFeature;
+import ch.unibas.cs.dbis.cineast.core.index.VectorIndexManager;
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
+
+/**
+ * Builds the approximate nearest neighbour indexes of the feature tables from the stored vectors and writes them to the index folder.
+ * Has to be re-run after extraction, shots which are not in an index are not found by index queries.
+ *
+ * usage: VectorIndexBuilder [-nlist lists] [-m bytes per vector] [-train training vectors] [table...]
+ */
+public class VectorIndexBuilder {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	public static final int DEFAULT_TRAINING_SIZE = 100000;
+	public static final long SEED = 7411903l;
+
+	public static void main(String[] args) {
+		int nlist = 0, m = 0, trainingSize = DEFAULT_TRAINING_SIZE;
+		List<String> tables = new ArrayList<>();
+		for(int i = 0; i < args.length; ++i){
+			if(args[i].equals("-nlist") && i + 1 < args.length){
+				nlist = Integer.parseInt(args[++i]);
+			}else if(args[i].equals("-m") && i + 1 < args.length){
+				m = Integer.parseInt(args[++i]);
+			}else if(args[i].equals("-train") && i + 1 < args.length){
+				trainingSize = Integer.parseInt(args[++i]);
+			}else{
+				tables.add(args[i].toLowerCase());
+			}
+		}
+
+		DBSelector selector = new DBSelector();
+		for(IndexableFeature feature : VectorIndexManager.getIndexableFeatures()){
+			if(!tables.isEmpty() && !tables.contains(feature.getTableName().toLowerCase())){
+				continue;
+			}
+			long start = System.currentTimeMillis();
+			FeatureVectors vectors = FeatureVectors.load(selector, feature.getTableName(), feature.getColumnName());
+			if(vectors.size() == 0){
+				LOGGER.warn("no vectors in {}, skipping", feature.getTableName());
+				continue;
+			}
+			IVFPQIndex index = build(vectors, feature.getNorm(), nlist, m, trainingSize);
+			File file = VectorIndexManager.getIndexFile(feature);
+			try {
+				file.getParentFile().mkdirs();
+				index.save(file);
+				LOGGER.info("built {} for {} in {}ms", index, feature.getTableName(), System.currentTimeMillis() - start);
+			} catch (IOException e) {
+				LOGGER.error("could not write index {}: {}", file.getAbsolutePath(), LogHelper.getStackTrace(e));
+			}
+		}
+		selector.close();
+	}
+
+	/**
+	 * builds an index, choosing sqrt(n) lists and one byte per four dimensions for parameters which are not positive
+	 */
+	public static IVFPQIndex build(FeatureVectors vectors, int norm, int nlist, int m, int trainingSize){
+		if(nlist <= 0){
+			nlist = Math.max(1, Math.min(4096, (int) Math.sqrt(vectors.size())));
+		}
+		if(m <= 0){
+			m = Math.max(1, Math.min(64, vectors.getDimension() / 4));
+		}
+		return IVFPQIndex.build(vectors, norm, nlist, m, trainingSize, SEED);
+	}
+
+}
@@ -0,0 +1,174 @@
+package ch.unibas.cs.dbis.cineast.core.run;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.db.DBSelector;
+import ch.unibas.cs.dbis.cineast.core.index.FeatureVectors;
+import ch.unibas.cs.dbis.cineast.core.index.IVFPQIndex;
+import ch.unibas.cs.dbis.cineast.core.index.IndexableFeature;
+import ch.unibas.cs.dbis.cineast.core.index.VectorIndexManager;
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.set.hash.TLongHashSet;
+
+/**
+ * Measures recall@k and latency of the vector indexes for an increasing number of probed lists against an exact scan of the
+ * stored vectors, with and without re-ranking the candidates by their exact distance. Randomly chosen stored vectors are used
+ * as queries. If no index has been built for a table, one is built in memory.
+ *
+ * usage: VectorIndexRecallBenchmark [-k results] [-q queries] [table...]
+ */
+public class VectorIndexRecallBenchmark {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private static final int DEFAULT_K = 50;
+	private static final int DEFAULT_QUERIES = 200;
+	private static final int MAX_PROBES = 256;
+
+	public static void main(String[] args) {
+		int k = DEFAULT_K, queries = DEFAULT_QUERIES;
+		List<String> tables = new ArrayList<>();
+		for(int i = 0; i < args.length; ++i){
+			if(args[i].equals("-k") && i + 1 < args.length){
+				k = Integer.parseInt(args[++i]);
+			}else if(args[i].equals("-q") && i + 1 < args.length){
+				queries = Integer.parseInt(args[++i]);
+			}else{
+				tables.add(args[i].toLowerCase());
+			}
+		}
+
+		DBSelector selector = new DBSelector();
+		for(IndexableFeature feature : VectorIndexManager.getIndexableFeatures()){
+			if(!tables.isEmpty() && !tables.contains(feature.getTableName().toLowerCase())){
+				continue;
+			}
+			FeatureVectors vectors = FeatureVectors.load(selector, feature.getTableName(), feature.getColumnName());
+			if(vectors.size() == 0){
+				LOGGER.warn("no vectors in {}, skipping", feature.getTableName());
+				continue;
+			}
+			IVFPQIndex index = null;
+			File file = VectorIndexManager.getIndexFile(feature);
+			if(file.isFile()){
+				try {
+					index = IVFPQIndex.load(file);
+				} catch (IOException e) {
+					LOGGER.warn("could not load index {}: {}", file.getAbsolutePath(), LogHelper.getStackTrace(e));
+				}
+			}
+			if(index == null){
+				index = VectorIndexBuilder.build(vectors, feature.getNorm(), 0, 0, VectorIndexBuilder.DEFAULT_TRAINING_SIZE);
+			}
+			benchmark(feature.getTableName(), vectors, index, feature.getNorm(), k, queries);
+		}
+		selector.close();
+	}
+
+	private static void benchmark(String name, FeatureVectors vectors, IVFPQIndex index, int norm, int k, int queries){
+		Random random = new Random(VectorIndexBuilder.SEED);
+		queries = Math.min(queries, vectors.size());
+		float[][] queryVectors = new float[queries][];
+		TLongHashSet[] truth = new TLongHashSet[queries];
+
+		long start = System.nanoTime();
+		for(int q = 0; q < queries; ++q){
+			queryVectors[q] = vectors.getVector(random.nextInt(vectors.size()));
+			truth[q] = new TLongHashSet();
+			for(LongDoublePair pair : exactSearch(vectors, queryVectors[q], norm, k)){
+				truth[q].add(pair.key);
+			}
+		}
+		double exactTime = (System.nanoTime() - start) / (1e6 * queries);
+		LOGGER.info("{}: {}, {} queries, k = {}, exact scan {}ms per query", name, index, queries, k, exactTime);
+
+		TLongIntHashMap rows = new TLongIntHashMap(vectors.size());
+		for(int i = 0; i < vectors.size(); ++i){
+			rows.put(vectors.getId(i), i);
+		}
+		int rerankFactor = Math.max(1, Config.getRetrieverConfig().getIndexRerankFactor());
+		
+		for(int probes = 1; probes <= Math.min(MAX_PROBES, index.getListCount()); probes *= 2){
+			int found = 0, foundReranked = 0, expected = 0;
+			start = System.nanoTime();
+			for(int q = 0; q < queries; ++q){
+				List<LongDoublePair> candidates = index.search(queryVectors[q], null, k * rerankFactor, probes);
+				for(int i = 0; i < Math.min(k, candidates.size()); ++i){
+					if(truth[q].contains(candidates.get(i).key)){
+						++found;
+					}
+				}
+				for(LongDoublePair pair : rerank(candidates, queryVectors[q], vectors, rows, norm, k)){
+					if(truth[q].contains(pair.key)){
+						++foundReranked;
+					}
+				}
+				expected += truth[q].size();
+			}
+			double time = (System.nanoTime() - start) / (1e6 * queries);
+			LOGGER.info("{}: {} probes, recall@{} {}, re-ranked from {} candidates {}, {}ms per query", name, probes, k,
+					ratio(found, expected), k * rerankFactor, ratio(foundReranked, expected), time);
+		}
+	}
+
+	private static double ratio(int a, int b){
+		return b == 0 ? 1d : ((double) a) / b;
+	}
+
+	private static List<LongDoublePair> rerank(List<LongDoublePair> candidates, float[] query, FeatureVectors vectors, TLongIntHashMap rows, int norm, int k){
+		ArrayList<LongDoublePair> _return = new ArrayList<>(candidates.size());
+		for(LongDoublePair pair : candidates){
+			_return.add(new LongDoublePair(pair.key, IVFPQIndex.distance(query, vectors.getVector(rows.get(pair.key)), null, norm)));
+		}
+		Collections.sort(_return, new Comparator<LongDoublePair>() {
+
+			@Override
+			public int compare(LongDoublePair o1, LongDoublePair o2) {
+				return Double.compare(o1.value, o2.value);
+			}
+		});
+		return _return.size() > k ? _return.subList(0, k) : _return;
+	}
+
+	private static List<LongDoublePair> exactSearch(FeatureVectors vectors, float[] query, int norm, int k){
+		float[] data = vectors.getVectors();
+		int dim = vectors.getDimension();
+		ArrayList<LongDoublePair> _return = new ArrayList<>(k + 1);
+		double bound = Double.POSITIVE_INFINITY;
+		for(int i = 0; i < vectors.size(); ++i){
+			double d = 0;
+			for(int e = 0; e < dim && d < bound; ++e){
+				double diff = Math.abs(query[e] - data[i * dim + e]);
+				d += norm == 1 ? diff : diff * diff;
+			}
+			if(d >= bound){
+				continue;
+			}
+			int pos = _return.size();
+			while(pos > 0 && _return.get(pos - 1).value > d){
+				--pos;
+			}
+			_return.add(pos, new LongDoublePair(vectors.getId(i), d));
+			if(_return.size() > k){
+				_return.remove(k);
+			}
+			if(_return.size() == k){
+				bound = _return.get(k - 1).value;
+			}
+		}
+		return _return;
+	}
+
+}
@@ -0,0 +1,68 @@
+package ch.unibas.cs.dbis.cineast.core.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+import ch.unibas.cs.dbis.cineast.core.data.Pair;
+import ch.unibas.cs.dbis.cineast.core.features.retriever.BatchRetriever;
+import ch.unibas.cs.dbis.cineast.core.features.retriever.Retriever;
+import ch.unibas.cs.dbis.cineast.core.metrics.QueryTrace;
+
+/**
+ * Runs several shot queries against one retriever, in a single call if it is a {@link BatchRetriever} and one after the other otherwise
+ */
+public class BatchRetrievalTask implements Callable<Pair<Retriever, List<List<LongDoublePair>>>> {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private final Retriever retriever;
+	private final long[] shotIds;
+	private final String resultCacheName;
+	private final QueryTrace trace = QueryTrace.current();
+	private final long created = System.nanoTime();
+
+	public BatchRetrievalTask(Retriever retriever, long[] shotIds, String resultCacheName) {
+		this.retriever = retriever;
+		this.shotIds = shotIds;
+		this.resultCacheName = resultCacheName;
+	}
+
+	public BatchRetrievalTask(Retriever retriever, long[] shotIds) {
+		this(retriever, shotIds, null);
+	}
+
+	@Override
+	public Pair<Retriever, List<List<LongDoublePair>>> call() throws Exception {
+		LOGGER.entry();
+		String module = retriever.getClass().getSimpleName();
+		LOGGER.debug("starting {} for {} queries", module, this.shotIds.length);
+		QueryTrace.attach(this.trace, module);
+		QueryTrace.record("queued", this.created);
+		long start = System.nanoTime();
+		List<List<LongDoublePair>> result;
+		try{
+			if(this.retriever instanceof BatchRetriever){
+				result = ((BatchRetriever) this.retriever).getSimilar(this.shotIds, this.resultCacheName);
+			}else{
+				result = new ArrayList<>(this.shotIds.length);
+				for(long shotId : this.shotIds){
+					if(this.resultCacheName != null){
+						result.add(this.retriever.getSimilar(shotId, this.resultCacheName));
+					}else{
+						result.add(this.retriever.getSimilar(shotId));
+					}
+				}
+			}
+		}finally{
+			QueryTrace.record("module", start);
+			QueryTrace.detach();
+		}
+		return LOGGER.exit(new Pair<Retriever, List<List<LongDoublePair>>>(this.retriever, result));
+	}
+
+}
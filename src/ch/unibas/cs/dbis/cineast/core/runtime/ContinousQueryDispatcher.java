@@ -1,12 +1,15 @@
 package ch.unibas.cs.dbis.cineast.core.runtime;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -20,8 +23,10 @@ import ch.unibas.cs.dbis.cineast.core.data.LimitedQueue;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.Pair;
 import ch.unibas.cs.dbis.cineast.core.data.QueryContainer;
+import ch.unibas.cs.dbis.cineast.core.features.retriever.RandomAccessRetriever;
 import ch.unibas.cs.dbis.cineast.core.features.retriever.Retriever;
 import ch.unibas.cs.dbis.cineast.core.features.retriever.RetrieverInitializer;
+import ch.unibas.cs.dbis.cineast.core.metrics.QueryTrace;
 import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
 import gnu.trove.map.hash.TLongDoubleHashMap;
 import gnu.trove.map.hash.TObjectDoubleHashMap;
@@ -33,6 +38,7 @@ public class ContinousQueryDispatcher {
 	private static final int TASK_QUEUE_SIZE = Config.getRetrieverConfig().getTaskQueueSize();
 	private static final int THREAD_COUNT = Config.getRetrieverConfig().getThreadPoolSize();
 	private static final int MAX_RESULTS = Config.getRetrieverConfig().getMaxResults();
+	private static final boolean THRESHOLD_FUSION = Config.getRetrieverConfig().getThresholdFusion();
 	
 	
 	private static ExecutorService executor = null;
@@ -56,10 +62,21 @@ public class ContinousQueryDispatcher {
 	}
 	
 	public static List<LongDoublePair> retrieve(QueryContainer query, TObjectDoubleHashMap<Retriever> retrievers, RetrieverInitializer initializer, String resultCacheName){
+		return retrieve(query, retrievers, initializer, resultCacheName, MAX_RESULTS);
+	}
+	
+	/**
+	 * @param limit the maximum number of fused results
+	 */
+	public static List<LongDoublePair> retrieve(QueryContainer query, TObjectDoubleHashMap<Retriever> retrievers, RetrieverInitializer initializer, String resultCacheName, int limit){
 		if(executor == null || executor.isShutdown()){
 			init();
 		}
-		LinkedList<Future<Pair<Retriever, List<LongDoublePair>>>> futures = new LinkedList<>();
+		if(THRESHOLD_FUSION){
+			return thresholdFusion(query, -1, retrievers, initializer, resultCacheName, limit);
+		}
+		CompletionService<Pair<Retriever, List<LongDoublePair>>> completion = new ExecutorCompletionService<>(executor);
+		int tasks = 0;
 		double wheightSum = 0;
 		Set<Retriever> features = retrievers.keySet();
 		for(Retriever r : features){
@@ -67,18 +84,30 @@ public class ContinousQueryDispatcher {
 				wheightSum += retrievers.get(r);
 				initializer.initialize(r);
 				
-				futures.add(executor.submit(new RetrievalTask(r, query, resultCacheName)));
+				completion.submit(new RetrievalTask(r, query, resultCacheName));
+				++tasks;
 			}
 		}		
 		
-		return handleFutures(futures, retrievers, wheightSum);
+		return handleFutures(completion, tasks, retrievers, wheightSum, limit);
 	}
 	
 	public static List<LongDoublePair> retrieve(long shotId, TObjectDoubleHashMap<Retriever> retrievers, RetrieverInitializer initializer, String resultCacheName){
+		return retrieve(shotId, retrievers, initializer, resultCacheName, MAX_RESULTS);
+	}
+	
+	/**
+	 * @param limit the maximum number of fused results
+	 */
+	public static List<LongDoublePair> retrieve(long shotId, TObjectDoubleHashMap<Retriever> retrievers, RetrieverInitializer initializer, String resultCacheName, int limit){
 		if(executor == null || executor.isShutdown()){
 			init();
 		}
-		LinkedList<Future<Pair<Retriever, List<LongDoublePair>>>> futures = new LinkedList<>();
+		if(THRESHOLD_FUSION){
+			return thresholdFusion(null, shotId, retrievers, initializer, resultCacheName, limit);
+		}
+		CompletionService<Pair<Retriever, List<LongDoublePair>>> completion = new ExecutorCompletionService<>(executor);
+		int tasks = 0;
 		double wheightSum = 0;
 		Set<Retriever> features = retrievers.keySet();
 		for(Retriever r : features){
@@ -86,49 +115,241 @@ public class ContinousQueryDispatcher {
 				wheightSum += retrievers.get(r);
 				initializer.initialize(r);
 				
-				futures.add(executor.submit(new RetrievalTask(r, shotId, resultCacheName)));
+				completion.submit(new RetrievalTask(r, shotId, resultCacheName));
+				++tasks;
 			}
 		}		
 		
-		return handleFutures(futures, retrievers, wheightSum);
+		return handleFutures(completion, tasks, retrievers, wheightSum, limit);
 	}
 	
 	
-	private static List<LongDoublePair> handleFutures(LinkedList<Future<Pair<Retriever, List<LongDoublePair>>>> futures, TObjectDoubleHashMap<Retriever> retrievers, double wheightSum) {
-		TLongDoubleHashMap result = new TLongDoubleHashMap();
+	/**
+	 * runs several shot queries at once, retrievers which are {@link ch.unibas.cs.dbis.cineast.core.features.retriever.BatchRetriever}s
+	 * answer all of them in a single pass
+	 * @return the fused results per query, in the order of the shot ids
+	 */
+	public static List<List<LongDoublePair>> retrieve(long[] shotIds, TObjectDoubleHashMap<Retriever> retrievers, RetrieverInitializer initializer, String resultCacheName){
+		if(executor == null || executor.isShutdown()){
+			init();
+		}
+		CompletionService<Pair<Retriever, List<List<LongDoublePair>>>> completion = new ExecutorCompletionService<>(executor);
+		int tasks = 0;
+		double wheightSum = 0;
+		Set<Retriever> features = retrievers.keySet();
+		for(Retriever r : features){
+			if(retrievers.get(r) > 0){
+				wheightSum += retrievers.get(r);
+				initializer.initialize(r);
+				
+				completion.submit(new BatchRetrievalTask(r, shotIds, resultCacheName));
+				++tasks;
+			}
+		}
+		
+		TLongDoubleHashMap[] results = new TLongDoubleHashMap[shotIds.length];
+		for(int i = 0; i < results.length; ++i){
+			results[i] = new TLongDoubleHashMap();
+		}
+		
+		//results are fused in the order in which the retrievers finish
+		for(int t = 0; t < tasks; ++t){
+			try {
+				Pair<Retriever, List<List<LongDoublePair>>> pair = completion.take().get();
+				long start = System.nanoTime();
+				double weight = retrievers.get(pair.first);
+				for(int i = 0; i < results.length && i < pair.second.size(); ++i){
+					accumulate(results[i], pair.second.get(i), weight);
+				}
+				QueryTrace.record("fusion", pair.first.getClass().getSimpleName(), start);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				LOGGER.warn(LogHelper.getStackTrace(e));
+				break;
+			} catch (ExecutionException e) {
+				LOGGER.warn(LogHelper.getStackTrace(e));
+			}
+		}
+		
+		finish(retrievers);
+		
+		long start = System.nanoTime();
+		List<List<LongDoublePair>> _return = new ArrayList<>(results.length);
+		for(TLongDoubleHashMap result : results){
+			_return.add(toSortedList(result, wheightSum, MAX_RESULTS));
+		}
+		QueryTrace.record("sort", start);
+		return _return;
+	}
+	
+	/**
+	 * Runs the retrievers in stages of descending weight. Since every score is at most 1, a shot can gain at most the summed weight
+	 * of the retrievers which have not run yet. Once the lowest score of the current top results is at least that much higher than
+	 * the best score outside of them, the top results can no longer change and the remaining retrievers are skipped if they are
+	 * all {@link RandomAccessRetriever}s, which then only score the top results. Otherwise every retriever runs in full, so the
+	 * result is always the same as without threshold fusion.
+	 * @param query the query or null for a query by shot id
+	 */
+	private static List<LongDoublePair> thresholdFusion(QueryContainer query, long shotId, final TObjectDoubleHashMap<Retriever> retrievers, RetrieverInitializer initializer, String resultCacheName, int limit){
+		ArrayList<Retriever> ordered = new ArrayList<>(retrievers.size());
+		double wheightSum = 0;
+		for(Retriever r : retrievers.keySet()){
+			if(retrievers.get(r) > 0){
+				ordered.add(r);
+				wheightSum += retrievers.get(r);
+			}
+		}
+		Collections.sort(ordered, new Comparator<Retriever>() {
 
-		while (!futures.isEmpty()) {
-			Iterator<Future<Pair<Retriever, List<LongDoublePair>>>> iter = futures.iterator();
-			while (iter.hasNext()) {
-				Future<Pair<Retriever, List<LongDoublePair>>> future = iter.next();
-				if (future.isDone()) {
-					try {
-						Pair<Retriever, List<LongDoublePair>> pair = future.get();
-						double weight = retrievers.get(pair.first);
-						List<LongDoublePair> list = pair.second;
-						for (LongDoublePair ldp : list) {
-							if (Double.isInfinite(ldp.value) || Double.isNaN(ldp.value)) {
-								continue;
-							}
-							if (!result.containsKey(ldp.key)) {
-								result.put(ldp.key, (double) 0);
-							}
-							result.put(ldp.key, result.get(ldp.key) + (weight * ldp.value));
-						}
-					} catch (InterruptedException e) {
-						LOGGER.warn(LogHelper.getStackTrace(e));
-					} catch (ExecutionException e) {
-						LOGGER.warn(LogHelper.getStackTrace(e));
-					}
-					iter.remove();
+			@Override
+			public int compare(Retriever o1, Retriever o2) {
+				return Double.compare(retrievers.get(o2), retrievers.get(o1));
+			}
+		});
+		
+		TLongDoubleHashMap result = new TLongDoubleHashMap();
+		double remaining = wheightSum;
+		int next = 0;
+		while(next < ordered.size()){
+			LinkedList<Future<Pair<Retriever, List<LongDoublePair>>>> futures = new LinkedList<>();
+			for(int i = 0; i < THREAD_COUNT && next < ordered.size(); ++i){
+				Retriever r = ordered.get(next++);
+				remaining -= retrievers.get(r);
+				initializer.initialize(r);
+				futures.add(executor.submit(query == null ? new RetrievalTask(r, shotId, resultCacheName) : new RetrievalTask(r, query, resultCacheName)));
+			}
+			for(Future<Pair<Retriever, List<LongDoublePair>>> future : futures){
+				try {
+					Pair<Retriever, List<LongDoublePair>> pair = future.get();
+					long start = System.nanoTime();
+					accumulate(result, pair.second, retrievers.get(pair.first));
+					QueryTrace.record("fusion", pair.first.getClass().getSimpleName(), start);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					LOGGER.warn(LogHelper.getStackTrace(e));
+				} catch (ExecutionException e) {
+					LOGGER.warn(LogHelper.getStackTrace(e));
 				}
 			}
+			if(isStable(result, remaining, limit) && onlyRandomAccess(ordered, next)){
+				break;
+			}
+		}
+		
+		if(next < ordered.size()){
+			LOGGER.debug("top {} results stable after {} of {} retrievers", limit, next, ordered.size());
+			List<LongDoublePair> top = toSortedList(result, 1d, limit);
+			long[] ids = new long[top.size()];
+			for(int i = 0; i < ids.length; ++i){
+				ids[i] = top.get(i).key;
+			}
+			result = new TLongDoubleHashMap(ids.length);
+			for(LongDoublePair pair : top){
+				result.put(pair.key, pair.value);
+			}
+			for(int i = next; i < ordered.size(); ++i){
+				Retriever r = ordered.get(i); //only random access retrievers are left, see onlyRandomAccess
+				initializer.initialize(r);
+				long start = System.nanoTime();
+				RandomAccessRetriever rar = (RandomAccessRetriever) r;
+				TLongDoubleHashMap scores = query == null ? rar.getScores(shotId, ids) : rar.getScores(query, ids);
+				QueryTrace.record("scores", r.getClass().getSimpleName(), start);
+				double weight = retrievers.get(r);
+				for(long id : scores.keys()){
+					result.adjustValue(id, weight * scores.get(id));
+				}
+			}
+		}
+		
+		finish(retrievers);
+		
+		long start = System.nanoTime();
+		List<LongDoublePair> _return = toSortedList(result, wheightSum, limit);
+		QueryTrace.record("sort", start);
+		return _return;
+	}
+	
+	/**
+	 * only retrievers which can score the top results afterwards may be skipped, the others would be missing from the final scores
+	 * @return true if all retrievers from index from on are {@link RandomAccessRetriever}s
+	 */
+	private static boolean onlyRandomAccess(List<Retriever> retrievers, int from){
+		for(int i = from; i < retrievers.size(); ++i){
+			if(!(retrievers.get(i) instanceof RandomAccessRetriever)){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @param remaining the summed weight of the retrievers which have not contributed yet
+	 * @return true if no shot outside of the current top results can overtake them
+	 */
+	private static boolean isStable(TLongDoubleHashMap result, double remaining, int limit){
+		if(remaining <= 0){
+			return true;
+		}
+		if(result.size() < limit){
+			return false; //unseen shots can still enter
+		}
+		double[] values = result.values();
+		Arrays.sort(values);
+		double last = values[values.length - limit];
+		double challenger = values.length > limit ? values[values.length - limit - 1] : 0d;
+		return last >= challenger + remaining;
+	}
+	
+	/**
+	 * fuses the results in the order in which the retrievers finish
+	 * @param tasks the number of tasks submitted to the completion service
+	 */
+	private static List<LongDoublePair> handleFutures(CompletionService<Pair<Retriever, List<LongDoublePair>>> completion, int tasks, TObjectDoubleHashMap<Retriever> retrievers, double wheightSum, int limit) {
+		TLongDoubleHashMap result = new TLongDoubleHashMap();
+
+		for(int t = 0; t < tasks; ++t){
 			try {
-				Thread.sleep(10);
+				Pair<Retriever, List<LongDoublePair>> pair = completion.take().get();
+				long start = System.nanoTime();
+				accumulate(result, pair.second, retrievers.get(pair.first));
+				QueryTrace.record("fusion", pair.first.getClass().getSimpleName(), start);
 			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				LOGGER.warn(LogHelper.getStackTrace(e));
+				break;
+			} catch (ExecutionException e) {
+				LOGGER.warn(LogHelper.getStackTrace(e));
 			}
 		}
 		
+		finish(retrievers);
+		
+		long start = System.nanoTime();
+		List<LongDoublePair> _return = toSortedList(result, wheightSum, limit);
+		QueryTrace.record("sort", start);
+		return _return;
+	}
+	
+	private static void accumulate(TLongDoubleHashMap result, List<LongDoublePair> list, double weight){
+		for (LongDoublePair ldp : list) {
+			if (Double.isInfinite(ldp.value) || Double.isNaN(ldp.value)) {
+				continue;
+			}
+			if (!result.containsKey(ldp.key)) {
+				result.put(ldp.key, (double) 0);
+			}
+			result.put(ldp.key, result.get(ldp.key) + (weight * ldp.value));
+		}
+	}
+	
+	private static void finish(TObjectDoubleHashMap<Retriever> retrievers){
+		Set<Retriever> features = retrievers.keySet();
+		for(Retriever r : features){
+			r.finish();
+		}
+	}
+	
+	private static List<LongDoublePair> toSortedList(TLongDoubleHashMap result, double wheightSum, int limit){
 		List<LongDoublePair> _return = new ArrayList<>(result.size());
 		long[] keys = result.keys();
 		for(long key : keys){
@@ -137,13 +358,8 @@ public class ContinousQueryDispatcher {
 		
 		Collections.sort(_return, LongDoublePair.COMPARATOR);
 		
-		Set<Retriever> features = retrievers.keySet();
-		for(Retriever r : features){
-			r.finish();
-		}
-		
-		if(_return.size() > MAX_RESULTS){
-			_return = _return.subList(0, MAX_RESULTS);
+		if(_return.size() > limit){
+			_return = _return.subList(0, limit);
 		}
 
 		for(LongDoublePair p : _return){
@@ -0,0 +1,228 @@
+package ch.unibas.cs.dbis.cineast.core.runtime;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+
+import ch.unibas.cs.dbis.cineast.core.db.ShotLookup.ShotDescriptor;
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
+import gnu.trove.set.hash.TLongHashSet;
+
+/**
+ * Remembers which module has processed which shot of an extraction job and which shots failed, so a job can be resumed after
+ * a crash or restart without redoing finished work. The journal is kept in memory and written to a JSON file at checkpoints,
+ * the file is replaced atomically so a crash while writing leaves the previous checkpoint intact.
+ */
+public class ExtractionJournal {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private final File file;
+	private final String input;
+	private int videoId = -1;
+	private boolean finished = false;
+	private final Map<String, TLongHashSet> done = new HashMap<>();
+	private final Map<String, TLongHashSet> failed = new HashMap<>();
+	private final Map<String, TLongHashSet> failedInRun = new HashMap<>(); //not cleared by markDone, unlike failures of earlier runs
+
+	private ExtractionJournal(File file, String input){
+		this.file = file;
+		this.input = input;
+	}
+
+	/**
+	 * reads the journal from the file if it exists and belongs to the same input, starts a new one otherwise
+	 * @param input the path of the input, used to detect a journal of another job
+	 */
+	public static ExtractionJournal open(File file, String input){
+		ExtractionJournal _return = new ExtractionJournal(file, input);
+		if(!file.exists()){
+			return _return;
+		}
+		try {
+			Reader reader = new FileReader(file);
+			JsonObject json;
+			try{
+				json = JsonObject.readFrom(reader);
+			}finally{
+				reader.close();
+			}
+			if(json.get("input") == null || !input.equals(json.get("input").asString())){
+				LOGGER.warn("journal {} belongs to another input, starting a new one", file.getAbsolutePath());
+				return _return;
+			}
+			_return.videoId = json.get("video") == null ? -1 : json.get("video").asInt();
+			_return.finished = json.get("finished") != null && json.get("finished").asBoolean();
+			read(json.get("done"), _return.done);
+			read(json.get("failed"), _return.failed);
+			LOGGER.info("resuming journal {}", file.getAbsolutePath());
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("could not read journal {}, starting a new one: {}", file.getAbsolutePath(), LogHelper.getStackTrace(e));
+		}
+		return _return;
+	}
+
+	private static void read(JsonValue value, Map<String, TLongHashSet> map){
+		if(value == null){
+			return;
+		}
+		JsonObject obj = value.asObject();
+		for(String module : obj.names()){
+			TLongHashSet shots = new TLongHashSet();
+			for(JsonValue shot : obj.get(module).asArray()){
+				shots.add(shot.asLong());
+			}
+			map.put(module, shots);
+		}
+	}
+
+	private static JsonObject write(Map<String, TLongHashSet> map){
+		JsonObject _return = new JsonObject();
+		for(Map.Entry<String, TLongHashSet> entry : map.entrySet()){
+			JsonArray shots = new JsonArray();
+			for(long shot : entry.getValue().toArray()){
+				shots.add(shot);
+			}
+			_return.add(entry.getKey(), shots);
+		}
+		return _return;
+	}
+
+	private static void add(Map<String, TLongHashSet> map, String module, long shotId){
+		TLongHashSet shots = map.get(module);
+		if(shots == null){
+			shots = new TLongHashSet();
+			map.put(module, shots);
+		}
+		shots.add(shotId);
+	}
+
+	private static boolean contains(Map<String, TLongHashSet> map, String module, long shotId){
+		TLongHashSet shots = map.get(module);
+		return shots != null && shots.contains(shotId);
+	}
+
+	public synchronized boolean isDone(String module, long shotId){
+		return contains(this.done, module, shotId);
+	}
+
+	/**
+	 * records that the module has processed the shot, unless it has already been marked as failed during this run
+	 */
+	public synchronized void markDone(String module, long shotId){
+		if(contains(this.failedInRun, module, shotId)){
+			return;
+		}
+		add(this.done, module, shotId);
+		TLongHashSet shots = this.failed.get(module);
+		if(shots != null){
+			shots.remove(shotId);
+		}
+	}
+
+	/**
+	 * records that the module gave up on the shot or that its tuples were lost, it is processed again when the job is resumed
+	 */
+	public synchronized void markFailed(String module, long shotId){
+		add(this.failed, module, shotId);
+		add(this.failedInRun, module, shotId);
+		TLongHashSet shots = this.done.get(module);
+		if(shots != null){
+			shots.remove(shotId);
+		}
+	}
+
+	/**
+	 * @return the number of shots on which a module gave up
+	 */
+	public synchronized int getFailedCount(){
+		int _return = 0;
+		for(TLongHashSet shots : this.failed.values()){
+			_return += shots.size();
+		}
+		return _return;
+	}
+
+	public synchronized int getVideoId(){
+		return this.videoId;
+	}
+
+	public synchronized void setVideoId(int videoId){
+		this.videoId = videoId;
+	}
+
+	public synchronized boolean isFinished(){
+		return this.finished;
+	}
+
+	public synchronized void setFinished(boolean finished){
+		this.finished = finished;
+	}
+
+	/**
+	 * @return the index of the first shot which has not been processed by all modules, the size of the list if there is none
+	 */
+	public synchronized int firstUnfinished(List<ShotDescriptor> shots, Collection<String> modules){
+		for(int i = 0; i < shots.size(); ++i){
+			for(String module : modules){
+				if(!contains(this.done, module, shots.get(i).getShotId())){
+					return i;
+				}
+			}
+		}
+		return shots.size();
+	}
+
+	/**
+	 * @return the current state, to be written with {@link #write(JsonObject)} once everything it contains has been persisted
+	 */
+	public synchronized JsonObject snapshot(){
+		return new JsonObject()
+				.add("input", this.input)
+				.add("video", this.videoId)
+				.add("finished", this.finished)
+				.add("done", write(this.done))
+				.add("failed", write(this.failed));
+	}
+
+	/**
+	 * replaces the journal file with the given snapshot
+	 * @return false if it could not be written
+	 */
+	public boolean write(JsonObject snapshot){
+		File tmp = new File(this.file.getAbsolutePath() + ".tmp");
+		try {
+			FileWriter writer = new FileWriter(tmp);
+			try{
+				writer.write(snapshot.toString());
+			}finally{
+				writer.close();
+			}
+			Files.move(tmp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (IOException e) {
+			LOGGER.error("could not write journal {}: {}", this.file.getAbsolutePath(), LogHelper.getStackTrace(e));
+			return false;
+		}
+	}
+
+	public File getFile(){
+		return this.file;
+	}
+
+}
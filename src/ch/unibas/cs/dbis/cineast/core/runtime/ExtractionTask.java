@@ -4,29 +4,82 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
+import ch.unibas.cs.dbis.cineast.core.db.WriteBehindWriter;
 import ch.unibas.cs.dbis.cineast.core.features.extractor.Extractor;
+import ch.unibas.cs.dbis.cineast.core.metrics.ExtractionMetrics;
 import ch.unibas.cs.dbis.cineast.core.util.DecodingError;
+import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
 
 class ExtractionTask implements Runnable {
 
+	private static final long RETRY_DELAY = 1000; //ms, doubled for every attempt
+
 	private Extractor feature;
 	private FrameContainer shot;
+	private final ExtractionJournal journal;
+	private final int retries;
 	private static final Logger LOGGER = LogManager.getLogger();
 	
 	ExtractionTask(Extractor feature, FrameContainer shot) {
+		this(feature, shot, null, 0);
+	}
+	
+	/**
+	 * @param journal the journal of the job or null, shots it contains are skipped and failures are retried and recorded in it
+	 * instead of stopping the extraction
+	 * @param retries how often a failed shot is retried
+	 */
+	ExtractionTask(Extractor feature, FrameContainer shot, ExtractionJournal journal, int retries) {
 		this.feature = feature;
 		this.shot = shot;
+		this.journal = journal;
+		this.retries = retries;
 	}
 	
 	@Override
 	public void run() {
 		LOGGER.entry();
-		LOGGER.debug("starting {} on shotId {}", feature.getClass().getSimpleName(), shot.getId());
-		try{
-			feature.processShot(shot);
-		}catch(DecodingError e){
-			LOGGER.fatal("DECODING ERROR");
-			throw e;
+		String module = feature.getClass().getSimpleName();
+		if(this.journal != null && this.journal.isDone(module, shot.getId())){
+			LOGGER.debug("skipping {} on shotId {}, already in journal", module, shot.getId());
+			return;
+		}
+		LOGGER.debug("starting {} on shotId {}", module, shot.getId());
+		long delay = RETRY_DELAY;
+		for(int attempt = 0; ; ++attempt){
+			long start = System.nanoTime();
+			WriteBehindWriter.setCurrentShot(shot.getId());
+			try{
+				feature.processShot(shot);
+				break;
+			}catch(DecodingError e){
+				LOGGER.fatal("DECODING ERROR");
+				throw e;
+			}catch(RuntimeException e){
+				if(this.journal == null){
+					throw e;
+				}
+				if(attempt >= this.retries){
+					LOGGER.error("{} failed on shotId {}, giving up: {}", module, shot.getId(), LogHelper.getStackTrace(e));
+					this.journal.markFailed(module, shot.getId());
+					return;
+				}
+				LOGGER.warn("{} failed on shotId {}, retrying in {}ms: {}", module, shot.getId(), delay, e.toString());
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					this.journal.markFailed(module, shot.getId());
+					return;
+				}
+				delay *= 2;
+			}finally{
+				WriteBehindWriter.clearCurrentShot();
+				ExtractionMetrics.recordModule(module, System.nanoTime() - start);
+			}
+		}
+		if(this.journal != null){
+			this.journal.markDone(module, shot.getId());
 		}
 		LOGGER.exit();
 	}
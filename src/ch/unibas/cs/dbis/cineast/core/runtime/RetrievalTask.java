@@ -10,6 +10,7 @@ import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.Pair;
 import ch.unibas.cs.dbis.cineast.core.data.QueryContainer;
 import ch.unibas.cs.dbis.cineast.core.features.retriever.Retriever;
+import ch.unibas.cs.dbis.cineast.core.metrics.QueryTrace;
 
 public class RetrievalTask implements Callable<Pair<Retriever, List<LongDoublePair>>> {
 
@@ -17,6 +18,8 @@ public class RetrievalTask implements Callable<Pair<Retriever, List<LongDoublePa
 	private QueryContainer query = null;
 	private long shotId = -1;
 	private String resultCacheName = null;
+	private final QueryTrace trace = QueryTrace.current();
+	private final long created = System.nanoTime();
 	private static final Logger LOGGER = LogManager.getLogger();
 		
 	private RetrievalTask(Retriever retriever){
@@ -47,22 +50,32 @@ public class RetrievalTask implements Callable<Pair<Retriever, List<LongDoublePa
 	@Override
 	public Pair<Retriever, List<LongDoublePair>> call() throws Exception {
 		LOGGER.entry();
-		LOGGER.debug("starting {}", retriever.getClass().getSimpleName());
+		String module = retriever.getClass().getSimpleName();
+		LOGGER.debug("starting {}", module);
+		QueryTrace.attach(this.trace, module);
+		QueryTrace.record("queued", this.created);
+		long start = System.nanoTime();
 		List<LongDoublePair> result;
-		if(this.query == null){
-			if(this.resultCacheName != null){
-				result = this.retriever.getSimilar(this.shotId, this.resultCacheName);
+		try{
+			if(this.query == null){
+				if(this.resultCacheName != null){
+					result = this.retriever.getSimilar(this.shotId, this.resultCacheName);
+				}else{
+					result = this.retriever.getSimilar(this.shotId);
+				}
+				
 			}else{
-				result = this.retriever.getSimilar(this.shotId);
-			}
-			
-		}else{
-			if(this.resultCacheName != null){
-				result = this.retriever.getSimilar(this.query, this.resultCacheName);
-
-			}else{
-				result = this.retriever.getSimilar(this.query);
+				if(this.resultCacheName != null){
+					result = this.retriever.getSimilar(this.query, this.resultCacheName);
+	
+				}else{
+					result = this.retriever.getSimilar(this.query);
+				}
 			}
+		}finally{
+			//includes the feature extraction from the query and the sql spans recorded by the selector
+			QueryTrace.record("module", start);
+			QueryTrace.detach();
 		}
 		return LOGGER.exit(new Pair<Retriever, List<LongDoublePair>>(this.retriever, result));
 	}
@@ -1,7 +1,9 @@
 package ch.unibas.cs.dbis.cineast.core.runtime;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
@@ -15,8 +17,12 @@ import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.data.FrameContainer;
 import ch.unibas.cs.dbis.cineast.core.data.LimitedQueue;
 import ch.unibas.cs.dbis.cineast.core.data.providers.ShotProvider;
+import ch.unibas.cs.dbis.cineast.core.features.abstracts.MotionHistogramCalculator;
+import ch.unibas.cs.dbis.cineast.core.features.exporter.MotionFrameExporter;
 import ch.unibas.cs.dbis.cineast.core.features.extractor.Extractor;
 import ch.unibas.cs.dbis.cineast.core.features.extractor.ExtractorInitializer;
+import ch.unibas.cs.dbis.cineast.core.metrics.ExtractionMetrics;
+import ch.unibas.cs.dbis.cineast.core.util.ContinousRetrievalLogic;
 import ch.unibas.cs.dbis.cineast.core.util.DecodingError;
 import ch.unibas.cs.dbis.cineast.core.util.LogHelper;
 
@@ -30,14 +36,17 @@ public class ShotDispatcher implements Runnable {
 	private ArrayList<Extractor> extractors;
 	private LinkedBlockingQueue<FrameContainer> shotQueue = new LinkedBlockingQueue<FrameContainer>(Config.getExtractorConfig().getShotQueueSize());
 	private ExecutorService executor;
+	private LimitedQueue<Runnable> taskQueue;
 	private ShotProviderThread providerThread;
 	private ExtractorInitializer initializer;
+	private ExtractionJournal journal = null;
+	private int retries = 0;
 	
 	public ShotDispatcher(ArrayList<Extractor> extractorList, ExtractorInitializer initializer, ShotProvider provider){
 		this.extractors = extractorList;
 		Collections.shuffle(this.extractors);
-		LimitedQueue<Runnable> taskQueue = new LimitedQueue<>(TASK_QUEUE_SIZE);
-		this.executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 60, TimeUnit.SECONDS, taskQueue){
+		this.taskQueue = new LimitedQueue<>(TASK_QUEUE_SIZE);
+		this.executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 60, TimeUnit.SECONDS, this.taskQueue){
 
 			@Override
 			protected void afterExecute(Runnable r, Throwable t) {
@@ -56,9 +65,24 @@ public class ShotDispatcher implements Runnable {
 		this.initializer = initializer;
 	}
 	
+	/**
+	 * shots the journal contains are skipped, a module which fails on a shot is retried and the shot is recorded as failed in
+	 * the journal instead of stopping the extraction
+	 * @param retries how often a failed shot is retried
+	 */
+	public void setJournal(ExtractionJournal journal, int retries){
+		this.journal = journal;
+		this.retries = retries;
+	}
+	
 	@Override
 	public void run() {
 
+		ExtractionMetrics.reset();
+		ExtractionMetrics.setQueues(this.shotQueue, this.taskQueue);
+		String metricsFile = Config.getExtractorConfig().getMetricsFile();
+		ExtractionMetrics.startExport(Config.getExtractorConfig().getMetricsInterval(), metricsFile == null ? null : new File(metricsFile));
+		
 		//init shot provider
 		this.providerThread.start();
 		LOGGER.debug("ShotSegmenterThread started");
@@ -75,9 +99,11 @@ public class ShotDispatcher implements Runnable {
 				FrameContainer s = this.shotQueue.poll(1, TimeUnit.MINUTES);
 				if(s != null){
 					LOGGER.info("start dispatching shot " + s.getId());
+					ExtractionMetrics.recordShot();
+					ExtractionMetrics.sampleQueues();
 					for(Extractor f : extractors){
 						try{
-							this.executor.execute(new ExtractionTask(f, s));
+							this.executor.execute(new ExtractionTask(f, s, this.journal, this.retries));
 							LOGGER.debug("submitted shot {} for feature {}", s, f);
 						}catch(RejectedExecutionException e){
 							this.providerThread.interrupt();
@@ -106,7 +132,24 @@ public class ShotDispatcher implements Runnable {
 		for(Extractor e : extractors){
 			e.finish();
 		}
+		//the writers are flushed when the extractors are finished, only now the new shots can be found by queries
+		ContinousRetrievalLogic.invalidateResultCache();
+		ExtractionMetrics.stopExport();
 		
 	}
+	
+	/**
+	 * motion features and the motion frame exporter track points from frame to frame and therefore need every frame of a shot.
+	 * If this returns true, the decoder should be set to {@link ch.unibas.cs.dbis.cineast.core.decode.video.VideoDecoder#setDenseDecoding(boolean) dense decoding},
+	 * the other extractors still only see the sampled frames through {@link FrameContainer#getFrames()}.
+	 */
+	public static boolean requiresDenseFrames(List<Extractor> extractors){
+		for(Extractor e : extractors){
+			if(e instanceof MotionHistogramCalculator || e instanceof MotionFrameExporter){
+				return true;
+			}
+		}
+		return false;
+	}
 
 }
@@ -0,0 +1,66 @@
+package ch.unibas.cs.dbis.cineast.core.segmenter;
+
+import ch.unibas.cs.dbis.cineast.core.color.ReadableRGBContainer;
+import ch.unibas.cs.dbis.cineast.core.data.Frame;
+
+/**
+ * Cheap frame histogram for shot boundary detection: a joint 4x4x4 RGB histogram and a 16 bin luma histogram,
+ * computed directly on the packed thumbnail colors without any color space conversion or object allocation.
+ * Both parts are normalized to a mass of 0.5 so that {@link #distance(float[], float[])} lies in [0, 1].
+ */
+public class FastHistogramCalculator {
+
+	private FastHistogramCalculator(){}
+
+	public static final int RGB_BINS = 64;
+	public static final int LUMA_BINS = 16;
+	public static final int BINS = RGB_BINS + LUMA_BINS;
+
+	public static float[] newHistogram(){
+		return new float[BINS];
+	}
+
+	public static void getHistogram(Frame f, float[] hist){
+		getHistogram(f.getImage().getThumbnailColors(), hist);
+	}
+
+	/**
+	 * fills hist, which needs to have at least {@link #BINS} elements
+	 */
+	public static void getHistogram(int[] colors, float[] hist){
+		for(int i = 0; i < BINS; ++i){
+			hist[i] = 0f;
+		}
+		int count = 0;
+		for(int color : colors){
+			if(ReadableRGBContainer.getAlpha(color) < 127){
+				continue;
+			}
+			int r = (color >> 16) & 0xFF, g = (color >> 8) & 0xFF, b = color & 0xFF;
+			++hist[((r >> 6) << 4) | ((g >> 6) << 2) | (b >> 6)];
+			//integer approximation of BT.601 luma
+			int y = (77 * r + 150 * g + 29 * b) >> 8;
+			++hist[RGB_BINS + (y >> 4)];
+			++count;
+		}
+		if(count == 0){
+			return;
+		}
+		float norm = 0.5f / count;
+		for(int i = 0; i < BINS; ++i){
+			hist[i] *= norm;
+		}
+	}
+
+	/**
+	 * half of the L1 distance between two histograms as computed by {@link #getHistogram(int[], float[])}
+	 */
+	public static double distance(float[] h1, float[] h2){
+		double sum = 0;
+		for(int i = 0; i < BINS; ++i){
+			sum += Math.abs(h1[i] - h2[i]);
+		}
+		return sum / 2d;
+	}
+
+}
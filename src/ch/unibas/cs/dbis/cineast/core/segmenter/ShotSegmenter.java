@@ -1,10 +1,14 @@
 package ch.unibas.cs.dbis.cineast.core.segmenter;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.config.ExtractorConfig.SegmenterMode;
 import ch.unibas.cs.dbis.cineast.core.data.Frame;
 import ch.unibas.cs.dbis.cineast.core.data.Histogram;
 import ch.unibas.cs.dbis.cineast.core.data.Shot;
@@ -15,28 +19,74 @@ import ch.unibas.cs.dbis.cineast.core.db.ShotLookup.ShotDescriptor;
 import ch.unibas.cs.dbis.cineast.core.decode.subtitle.SubTitle;
 import ch.unibas.cs.dbis.cineast.core.decode.subtitle.SubtitleItem;
 import ch.unibas.cs.dbis.cineast.core.decode.video.VideoDecoder;
+import ch.unibas.cs.dbis.cineast.core.metrics.ExtractionMetrics;
 
 public class ShotSegmenter implements ShotProvider{
 	
 	private static final double THRESHOLD = 0.05;
-	private static final int PRE_QUEUE_LEN = 10;
-	private static final int MAX_SHOT_LENGTH = 720;
+	private static final int PRE_QUEUE_LEN = 10; //frames returned by the decoder, so sampled frames unless every frame is decoded
+	private static final int MAX_SHOT_LENGTH = 720; //frames of the video, independent of the sampling
+	
+	//adaptive threshold used in SegmenterMode.FAST, see getThreshold()
+	private static final double FAST_MIN_THRESHOLD = 0.25;
+	private static final double FAST_MAX_THRESHOLD = 0.6;
+	private static final double FAST_SIGMA = 3d;
+	private static final double FAST_ALPHA = 0.05;
 
 	private VideoDecoder vdecoder;
 	private final long movieId;
 	private LinkedList<Frame> frameQueue = new LinkedList<>();
-	private LinkedList<DoublePair<Frame>> preShotQueue = new LinkedList<>();
+	private FrameDistanceQueue preShotQueue = new FrameDistanceQueue(PRE_QUEUE_LEN + 1);
 	private ArrayList<SubTitle> subtitles = new ArrayList<SubTitle>();
 	@SuppressWarnings("rawtypes")
 	private PersistencyWriter pwriter;
 	private List<ShotDescriptor> knownShotBoundaries;
+	private final SegmenterMode mode;
+	
+	private Histogram prevHistogram;
+	private float[] prevFastHistogram = FastHistogramCalculator.newHistogram(), fastHistogram = FastHistogramCalculator.newHistogram();
+	private double distanceMean = 0, distanceVariance = 0;
 	
 	public ShotSegmenter(VideoDecoder vdecoder, long movieId, @SuppressWarnings("rawtypes") PersistencyWriter pwriter, List<ShotDescriptor> knownShotBoundaries){
+		this(vdecoder, movieId, pwriter, knownShotBoundaries, Config.getExtractorConfig().getSegmenterMode());
+	}
+	
+	public ShotSegmenter(VideoDecoder vdecoder, long movieId, @SuppressWarnings("rawtypes") PersistencyWriter pwriter, List<ShotDescriptor> knownShotBoundaries, SegmenterMode mode){
+		this.mode = mode;
 		this.vdecoder = vdecoder;
 		this.movieId = movieId;
 		this.pwriter = pwriter;
 		this.pwriter.open("cineast.shots");
-		this.knownShotBoundaries = ((knownShotBoundaries == null) ? new LinkedList<ShotDescriptor>() : knownShotBoundaries);
+		this.knownShotBoundaries = ((knownShotBoundaries == null) ? new LinkedList<ShotDescriptor>() : new LinkedList<>(knownShotBoundaries));
+		Collections.sort(this.knownShotBoundaries, new Comparator<ShotDescriptor>() {
+
+			@Override
+			public int compare(ShotDescriptor o1, ShotDescriptor o2) {
+				return Integer.compare(o1.getStartFrame(), o2.getStartFrame());
+			}
+		});
+		//new shots are numbered after the known ones
+		for(ShotDescriptor shot : this.knownShotBoundaries){
+			if(shot.getShotNumber() > this.idCounter.get()){
+				this.idCounter.set(shot.getShotNumber());
+			}
+		}
+	}
+	
+	/**
+	 * drops the first known shots and seeks the decoder behind them, used to resume an interrupted extraction
+	 * @param count the number of known shots, in the order of their start frames, which do not have to be processed again
+	 */
+	public void skipKnownShots(int count){
+		ShotDescriptor last = null;
+		for(int i = 0; i < count && !this.knownShotBoundaries.isEmpty(); ++i){
+			last = this.knownShotBoundaries.remove(0);
+		}
+		if(last == null){
+			return;
+		}
+		int frame = this.knownShotBoundaries.isEmpty() ? last.getEndFrame() + 1 : this.knownShotBoundaries.get(0).getStartFrame();
+		this.vdecoder.seekToFrame(frame);
 	}
 	
 	public void addSubTitle(SubTitle st) {
@@ -50,7 +100,11 @@ public class ShotSegmenter implements ShotProvider{
 	private boolean queueFrames(int number){
 		Frame f;
 		for(int i = 0; i < number; ++i){
+			long start = System.nanoTime();
 			f = this.vdecoder.getFrame();
+			if(f != null){
+				ExtractionMetrics.recordDecode(System.nanoTime() - start);
+			}
 			if(f == null){ //no more frames
 				return false;
 			}else{
@@ -72,7 +126,7 @@ public class ShotSegmenter implements ShotProvider{
 		if (!preShotQueue.isEmpty()){
 			_return = new Shot(this.movieId, this.vdecoder.getTotalFrameCount());
 			while (!preShotQueue.isEmpty()) {
-				_return.addFrame(preShotQueue.removeFirst().first);
+				_return.addFrame(preShotQueue.removeFirst());
 			}
 		}
 		if(this.frameQueue.isEmpty()){
@@ -109,7 +163,7 @@ public class ShotSegmenter implements ShotProvider{
 			return _return;
 			
 		}else{
-			Histogram hPrev, h = getHistogram(frame);
+			setReference(frame);
 			_return.addFrame(frame);
 			while (true) {
 				if ((frame = this.frameQueue.poll()) == null) {
@@ -118,30 +172,22 @@ public class ShotSegmenter implements ShotProvider{
 						return finishShot(_return);
 					}
 				}
-				hPrev = h;
-				h = getHistogram(frame);
-				double distance = hPrev.getDistance(h);
+				double distance = distanceToReference(frame);
 
-				preShotQueue.offer(new DoublePair<Frame>(frame, distance));
+				preShotQueue.offer(frame, distance);
 
 				if (preShotQueue.size() > PRE_QUEUE_LEN) {
-					double max = 0;
-					int index = -1, i = 0;
-					for (DoublePair<Frame> pair : preShotQueue) {
-						if (pair.second > max) {
-							index = i;
-							max = pair.second;
-						}
-						i++;
-					}
-					if (max <= THRESHOLD && _return.getNumberOfFrames() < MAX_SHOT_LENGTH) { //no cut
-						for (DoublePair<Frame> pair : preShotQueue) {
-							_return.addFrame(pair.first);
+					int index = preShotQueue.indexOfMax();
+					double max = index < 0 ? 0 : preShotQueue.getDistance(index);
+					if (max <= getThreshold() && _return.getEnd() - _return.getStart() + 1 < MAX_SHOT_LENGTH) { //no cut
+						for (int i = 0; i < preShotQueue.size(); ++i) {
+							_return.addFrame(preShotQueue.getFrame(i));
+							updateStatistics(preShotQueue.getDistance(i));
 						}
 						preShotQueue.clear();
 					} else {
-						for (i = 0; i < index; ++i) {
-							_return.addFrame(preShotQueue.removeFirst().first);
+						for (int i = 0; i < index; ++i) {
+							_return.addFrame(preShotQueue.removeFirst());
 						}
 						break;
 					}
@@ -154,6 +200,66 @@ public class ShotSegmenter implements ShotProvider{
 	private static Histogram getHistogram(Frame f){
 		return FuzzyColorHistogramCalculator.getSubdividedHistogramNormalized(f.getImage().getThumbnailImage(), 3);
 	}
+	
+	private void setReference(Frame f){
+		long start = System.nanoTime();
+		if(this.mode == SegmenterMode.FAST){
+			FastHistogramCalculator.getHistogram(f, this.prevFastHistogram);
+		}else{
+			this.prevHistogram = getHistogram(f);
+		}
+		ExtractionMetrics.recordSegment(System.nanoTime() - start);
+	}
+	
+	/**
+	 * computes the distance between f and the previous frame and makes f the new reference
+	 */
+	private double distanceToReference(Frame f){
+		long start = System.nanoTime();
+		try{
+			return computeDistanceToReference(f);
+		}finally{
+			ExtractionMetrics.recordSegment(System.nanoTime() - start);
+		}
+	}
+	
+	private double computeDistanceToReference(Frame f){
+		if(this.mode == SegmenterMode.FAST){
+			FastHistogramCalculator.getHistogram(f, this.fastHistogram);
+			double distance = FastHistogramCalculator.distance(this.prevFastHistogram, this.fastHistogram);
+			float[] tmp = this.prevFastHistogram;
+			this.prevFastHistogram = this.fastHistogram;
+			this.fastHistogram = tmp;
+			return distance;
+		}
+		Histogram h = getHistogram(f);
+		double distance = this.prevHistogram.getDistance(h);
+		this.prevHistogram = h;
+		return distance;
+	}
+	
+	/**
+	 * in FAST mode, a cut is detected if a distance exceeds the running mean of the within-shot distances by
+	 * FAST_SIGMA standard deviations, bounded by FAST_MIN_THRESHOLD and FAST_MAX_THRESHOLD
+	 */
+	private double getThreshold(){
+		if(this.mode != SegmenterMode.FAST){
+			return THRESHOLD;
+		}
+		double threshold = this.distanceMean + FAST_SIGMA * Math.sqrt(this.distanceVariance);
+		return Math.min(FAST_MAX_THRESHOLD, Math.max(FAST_MIN_THRESHOLD, threshold));
+	}
+	
+	//exponentially weighted mean and variance of the distances within shots
+	private void updateStatistics(double distance){
+		if(this.mode != SegmenterMode.FAST){
+			return;
+		}
+		double diff = distance - this.distanceMean;
+		double increment = FAST_ALPHA * diff;
+		this.distanceMean += increment;
+		this.distanceVariance = (1d - FAST_ALPHA) * (this.distanceVariance + diff * increment);
+	}
 
 	private AtomicInteger idCounter = new AtomicInteger(0);
 	
@@ -196,12 +302,77 @@ public class ShotSegmenter implements ShotProvider{
 	
 }
 
-class DoublePair<K>{
-	K first;
-	double second;
+/**
+ * fixed capacity ring buffer of frames and their distance to the respective previous frame
+ */
+class FrameDistanceQueue{
+	private final Frame[] frames;
+	private final double[] distances;
+	private int head = 0, size = 0;
+	
+	FrameDistanceQueue(int capacity){
+		this.frames = new Frame[capacity];
+		this.distances = new double[capacity];
+	}
+	
+	void offer(Frame frame, double distance){
+		if(this.size == this.frames.length){
+			throw new IllegalStateException("queue is full");
+		}
+		int pos = (this.head + this.size) % this.frames.length;
+		this.frames[pos] = frame;
+		this.distances[pos] = distance;
+		++this.size;
+	}
+	
+	Frame removeFirst(){
+		if(this.size == 0){
+			throw new IllegalStateException("queue is empty");
+		}
+		Frame _return = this.frames[this.head];
+		this.frames[this.head] = null;
+		this.head = (this.head + 1) % this.frames.length;
+		--this.size;
+		return _return;
+	}
 	
-	DoublePair(K first, double second){
-		this.first = first;
-		this.second = second;
+	Frame getFrame(int i){
+		return this.frames[(this.head + i) % this.frames.length];
+	}
+	
+	double getDistance(int i){
+		return this.distances[(this.head + i) % this.frames.length];
+	}
+	
+	/**
+	 * @return the index of the first element with the maximal distance or -1 if no distance is larger than 0
+	 */
+	int indexOfMax(){
+		double max = 0;
+		int index = -1;
+		for(int i = 0; i < this.size; ++i){
+			double d = getDistance(i);
+			if(d > max){
+				max = d;
+				index = i;
+			}
+		}
+		return index;
+	}
+	
+	int size(){
+		return this.size;
+	}
+	
+	boolean isEmpty(){
+		return this.size == 0;
+	}
+	
+	void clear(){
+		for(int i = 0; i < this.frames.length; ++i){
+			this.frames[i] = null;
+		}
+		this.head = 0;
+		this.size = 0;
 	}
 }
\ No newline at end of file
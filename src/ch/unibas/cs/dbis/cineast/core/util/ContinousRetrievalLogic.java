@@ -1,35 +1,237 @@
 package ch.unibas.cs.dbis.cineast.core.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.eclipsesource.json.JsonObject;
 
 import ch.unibas.cs.dbis.cineast.api.API;
+import ch.unibas.cs.dbis.cineast.api.JSONUtils;
+import ch.unibas.cs.dbis.cineast.core.config.Config;
 import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
 import ch.unibas.cs.dbis.cineast.core.data.QueryContainer;
+import ch.unibas.cs.dbis.cineast.core.db.DBResultCache;
 import ch.unibas.cs.dbis.cineast.core.features.retriever.Retriever;
+import ch.unibas.cs.dbis.cineast.core.index.ShotGraph;
+import ch.unibas.cs.dbis.cineast.core.index.ShotGraphManager;
+import ch.unibas.cs.dbis.cineast.core.index.VectorIndexManager;
+import ch.unibas.cs.dbis.cineast.core.metrics.QueryTrace;
 import ch.unibas.cs.dbis.cineast.core.runtime.ContinousQueryDispatcher;
+import gnu.trove.iterator.TObjectDoubleIterator;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongDoubleHashMap;
 import gnu.trove.map.hash.TObjectDoubleHashMap;
 
 public class ContinousRetrievalLogic {
 
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private static final FusedResultCache resultCache = new FusedResultCache(Config.getRetrieverConfig().getResultCacheSize());
+
+	/**
+	 * answers a query of the JSON API, either by example or by the shot id in its id member. Repeated queries are answered from
+	 * a cache of fused results until the collection changes.
+	 */
+	public static List<LongDoublePair> retrieve(JsonObject query, String category, String resultCacheName) {
+		String key = null;
+		if(Config.getRetrieverConfig().getResultCacheSize() > 0){
+			long start = System.nanoTime();
+			key = FusedResultCache.key(JSONUtils.canonicalJSON(query, "categories"), category, resultCacheName);
+			List<LongDoublePair> cached = resultCache.get(key);
+			QueryTrace.record(cached == null ? "cacheMiss" : "cacheHit", start);
+			if(cached != null){
+				LOGGER.debug("answered {} query from {}", category, resultCache);
+				return cached;
+			}
+		}
+		List<LongDoublePair> result;
+		if (query.get("id") != null && query.get("id").asLong() > 0) {
+			result = retrieve(query.get("id").asLong(), category, resultCacheName);
+		} else {
+			long start = System.nanoTime();
+			QueryContainer qc = JSONUtils.queryContainerFromJSON(query);
+			QueryTrace.record("parse", start);
+			result = retrieve(qc, category, resultCacheName);
+		}
+		if(key != null){
+			resultCache.put(key, result);
+		}
+		return result;
+	}
+
 	public static List<LongDoublePair> retrieve(QueryContainer qc, String category, String resultCacheName) {
 		TObjectDoubleHashMap<Retriever> retrievers = API.getRetrieversByCategory(category);
 		if(retrievers.isEmpty()){
 			return new ArrayList<LongDoublePair>(1);
 		}
-		return ContinousQueryDispatcher.retrieve(qc, retrievers, API.getInitializer(), resultCacheName);
+		if(isCascaded(retrievers)){
+			return cascade(qc, -1, retrievers, resultCacheName);
+		}
+		return ContinousQueryDispatcher.retrieve(qc, VectorIndexManager.wrap(retrievers), API.getInitializer(), resultCacheName);
 	}
 
 	public static List<LongDoublePair> retrieve(long id, String category, String resultCacheName) {
+		List<LongDoublePair> neighbours = getNeighbours(id, category, resultCacheName);
+		if(neighbours != null){
+			return neighbours;
+		}
 		TObjectDoubleHashMap<Retriever> retrievers = API.getRetrieversByCategory(category);
 		if(retrievers.isEmpty()){
 			return new ArrayList<LongDoublePair>(1);
 		}
-		return ContinousQueryDispatcher.retrieve(id, retrievers, API.getInitializer(), resultCacheName);
+		if(isCascaded(retrievers)){
+			return cascade(null, id, retrievers, resultCacheName);
+		}
+		return ContinousQueryDispatcher.retrieve(id, VectorIndexManager.wrap(retrievers), API.getInitializer(), resultCacheName);
+	}
+
+	/**
+	 * @return the results of all shot queries, in the order of the ids
+	 */
+	public static List<List<LongDoublePair>> retrieve(long[] ids, String category, String resultCacheName) {
+		List<List<LongDoublePair>> _return = new ArrayList<>(ids.length);
+		TLongArrayList missing = new TLongArrayList();
+		for(long id : ids){
+			List<LongDoublePair> neighbours = getNeighbours(id, category, resultCacheName);
+			if(neighbours == null){
+				missing.add(id);
+			}
+			_return.add(neighbours);
+		}
+		if(missing.isEmpty()){
+			return _return;
+		}
+		TObjectDoubleHashMap<Retriever> retrievers = VectorIndexManager.wrap(API.getRetrieversByCategory(category));
+		List<List<LongDoublePair>> results = null;
+		if(!retrievers.isEmpty()){
+			results = ContinousQueryDispatcher.retrieve(missing.toArray(), retrievers, API.getInitializer(), resultCacheName);
+		}
+		for(int i = 0, j = 0; i < ids.length; ++i){
+			if(_return.get(i) == null){
+				_return.set(i, results == null ? new ArrayList<LongDoublePair>(1) : results.get(j++));
+			}
+		}
+		return _return;
 	}
-	
+
+	/**
+	 * drops all cached results and loaded vectors, has to be called whenever shots are added to the collection. This is only
+	 * done by an extraction running in the same process and by the reload command of the API, the cache is not notified of
+	 * extractions running in another process, reload the API after those.
+	 */
+	public static void invalidateResultCache(){
+		resultCache.invalidate();
+		VectorIndexManager.invalidateVectors();
+	}
+
 	public static void shutdown(){
 		ContinousQueryDispatcher.shutdown();
 	}
 
+	/**
+	 * @return the neighbours of the shot from the shot graph of the category or null if the query has to be run
+	 */
+	private static List<LongDoublePair> getNeighbours(long id, String category, String resultCacheName){
+		if(resultCacheName != null){
+			return null;
+		}
+		ShotGraph graph = ShotGraphManager.getGraph(category);
+		if(graph == null){
+			return null;
+		}
+		List<LongDoublePair> _return = graph.getNeighbours(id);
+		int maxResults = Config.getRetrieverConfig().getMaxResults();
+		if(_return != null && _return.size() > maxResults){
+			_return = _return.subList(0, maxResults);
+		}
+		return _return;
+	}
+
+	/**
+	 * @return true if cascaded retrieval is enabled and the retrievers contain both coarse and other modules
+	 */
+	private static boolean isCascaded(TObjectDoubleHashMap<Retriever> retrievers){
+		if(Config.getRetrieverConfig().getCascadePoolSize() <= 0){
+			return false;
+		}
+		Set<String> coarse = Config.getRetrieverConfig().getCascadeCoarseModules();
+		boolean hasCoarse = false, hasFine = false;
+		for(Retriever r : retrievers.keySet()){
+			if(coarse.contains(r.getClass().getSimpleName())){
+				hasCoarse = true;
+			}else{
+				hasFine = true;
+			}
+		}
+		return hasCoarse && hasFine;
+	}
+
+	/**
+	 * Runs the coarse modules on the whole collection and the other modules only on the best candidates of the coarse modules,
+	 * which are passed to them as a result cache. The results of both stages are fused with the weights of their modules.
+	 * @param qc the query or null for a query by shot id
+	 */
+	private static List<LongDoublePair> cascade(QueryContainer qc, long id, TObjectDoubleHashMap<Retriever> retrievers, String resultCacheName){
+		Set<String> coarseModules = Config.getRetrieverConfig().getCascadeCoarseModules();
+		TObjectDoubleHashMap<Retriever> coarse = new TObjectDoubleHashMap<>(), fine = new TObjectDoubleHashMap<>();
+		double coarseWeight = 0, fineWeight = 0;
+		TObjectDoubleIterator<Retriever> iter = retrievers.iterator();
+		while(iter.hasNext()){
+			iter.advance();
+			if(iter.value() <= 0){
+				continue;
+			}
+			if(coarseModules.contains(iter.key().getClass().getSimpleName())){
+				coarse.put(iter.key(), iter.value());
+				coarseWeight += iter.value();
+			}else{
+				fine.put(iter.key(), iter.value());
+				fineWeight += iter.value();
+			}
+		}
+
+		int poolSize = Config.getRetrieverConfig().getCascadePoolSize();
+		long start = System.currentTimeMillis();
+		List<LongDoublePair> pool = qc == null ?
+				ContinousQueryDispatcher.retrieve(id, VectorIndexManager.wrap(coarse), API.getInitializer(), resultCacheName, poolSize) :
+				ContinousQueryDispatcher.retrieve(qc, VectorIndexManager.wrap(coarse), API.getInitializer(), resultCacheName, poolSize);
+		LOGGER.info("cascade stage 1: {} modules selected {} candidates in {}ms", coarse.size(), pool.size(), System.currentTimeMillis() - start);
+		if(pool.isEmpty()){
+			return pool;
+		}
+
+		start = System.currentTimeMillis();
+		String poolName = DBResultCache.newCachedResult(pool);
+		List<LongDoublePair> refined;
+		try{
+			refined = qc == null ?
+					ContinousQueryDispatcher.retrieve(id, VectorIndexManager.wrap(fine), API.getInitializer(), poolName, poolSize) :
+					ContinousQueryDispatcher.retrieve(qc, VectorIndexManager.wrap(fine), API.getInitializer(), poolName, poolSize);
+		}finally{
+			DBResultCache.deleteResult(poolName);
+		}
+		LOGGER.info("cascade stage 2: {} modules scored {} of {} candidates in {}ms", fine.size(), refined.size(), pool.size(), System.currentTimeMillis() - start);
+
+		TLongDoubleHashMap fused = new TLongDoubleHashMap(pool.size());
+		double weightSum = coarseWeight + fineWeight;
+		for(LongDoublePair pair : pool){
+			fused.put(pair.key, pair.value * coarseWeight / weightSum);
+		}
+		for(LongDoublePair pair : refined){
+			fused.adjustValue(pair.key, pair.value * fineWeight / weightSum);
+		}
+		List<LongDoublePair> _return = new ArrayList<>(fused.size());
+		for(long key : fused.keys()){
+			_return.add(new LongDoublePair(key, fused.get(key)));
+		}
+		Collections.sort(_return, LongDoublePair.COMPARATOR);
+		int maxResults = Config.getRetrieverConfig().getMaxResults();
+		return _return.size() > maxResults ? _return.subList(0, maxResults) : _return;
+	}
+
 }
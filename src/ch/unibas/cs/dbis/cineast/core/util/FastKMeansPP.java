@@ -0,0 +1,344 @@
+package ch.unibas.cs.dbis.cineast.core.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * k-means++ on points packed into a single float array (point i occupies [i * dim, (i + 1) * dim)).
+ * In contrast to {@link KMeansPP}, no objects are created per point or per iteration and points can carry a weight,
+ * which allows identical points (such as identical pixel colors) to be collapsed into one before clustering.
+ */
+public final class FastKMeansPP {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	public static final int DEFAULT_MAX_ITERATIONS = 50;
+	private static final long BASE_SEED = 3914511920l;
+
+	private FastKMeansPP(){}
+
+	public static final class Result {
+		private final int k, dim;
+		private final float[] centers;
+		private final double[] weights;
+		private final double distance;
+
+		private Result(int k, int dim, float[] centers, double[] weights, double distance){
+			this.k = k;
+			this.dim = dim;
+			this.centers = centers;
+			this.weights = weights;
+			this.distance = distance;
+		}
+
+		public int getK(){
+			return this.k;
+		}
+
+		public int getDimension(){
+			return this.dim;
+		}
+
+		/**
+		 * @return the packed cluster centers, sorted by descending cluster weight
+		 */
+		public float[] getCenters(){
+			return this.centers;
+		}
+
+		public float getCenterElement(int center, int element){
+			return this.centers[center * this.dim + element];
+		}
+
+		/**
+		 * @return the summed weight of all points assigned to cluster i
+		 */
+		public double getWeight(int i){
+			return this.weights[i];
+		}
+
+		/**
+		 * @return the weighted sum of the distances of all points to their cluster center
+		 */
+		public double getDistance(){
+			return this.distance;
+		}
+	}
+
+	private static ExecutorService executor = null;
+
+	private static synchronized ExecutorService getExecutor(){
+		if(executor == null){
+			executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "FastKMeansPP");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * performs {@link #kMeansPP(float[], float[], int, int, int, double, int, long)} runs times with different seeds and returns the result with the
+	 * minimal overall distance
+	 *
+	 * @param points packed points
+	 * @param weights per point weights, null if all points have weight 1
+	 * @param n number of points
+	 * @param dim dimensionality of the points
+	 * @param k number of clusters
+	 * @param minDist minimal summed movement of the centers required to continue iterating
+	 * @param runs number of restarts
+	 * @param parallel if true, the restarts are distributed over a shared thread pool
+	 * @return the best result, or null if there are no points
+	 */
+	public static Result bestOfKMeansPP(final float[] points, final float[] weights, final int n, final int dim, final int k, final double minDist, int runs, boolean parallel){
+		if(n == 0){
+			return null;
+		}
+		Result _return = null;
+		if(!parallel || runs < 2){
+			for(int i = 0; i < runs; ++i){
+				_return = better(_return, kMeansPP(points, weights, n, dim, k, minDist, DEFAULT_MAX_ITERATIONS, BASE_SEED + i));
+			}
+			return _return;
+		}
+
+		List<Future<Result>> futures = new ArrayList<>(runs);
+		ExecutorService ex = getExecutor();
+		for(int i = 0; i < runs; ++i){
+			final long seed = BASE_SEED + i;
+			futures.add(ex.submit(new Callable<Result>() {
+
+				@Override
+				public Result call() throws Exception {
+					return kMeansPP(points, weights, n, dim, k, minDist, DEFAULT_MAX_ITERATIONS, seed);
+				}
+			}));
+		}
+		for(Future<Result> future : futures){
+			try {
+				_return = better(_return, future.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				LOGGER.warn(LogHelper.getStackTrace(e));
+			} catch (ExecutionException e) {
+				LOGGER.warn(LogHelper.getStackTrace(e));
+			}
+		}
+		return _return;
+	}
+
+	private static Result better(Result r1, Result r2){
+		if(r1 == null){
+			return r2;
+		}
+		if(r2 == null){
+			return r1;
+		}
+		return r2.getDistance() < r1.getDistance() ? r2 : r1;
+	}
+
+	/**
+	 * Single k-means++ run. Terminates once no point changes its cluster, the summed center movement drops below minDist or maxIter is reached.
+	 *
+	 * @param points packed points
+	 * @param weights per point weights, null if all points have weight 1
+	 * @param n number of points
+	 * @param dim dimensionality of the points
+	 * @param k number of clusters
+	 * @param minDist minimal summed movement of the centers required to continue iterating
+	 * @param maxIter maximum number of iterations
+	 * @param randomSeed seed for the k-means++ initialisation
+	 */
+	public static Result kMeansPP(float[] points, float[] weights, int n, int dim, int k, double minDist, int maxIter, long randomSeed){
+		if(points.length < n * dim){
+			throw new IllegalArgumentException("expected at least " + (n * dim) + " elements, got " + points.length);
+		}
+		if(weights != null && weights.length < n){
+			throw new IllegalArgumentException("expected at least " + n + " weights, got " + weights.length);
+		}
+		if(n == 0 || k < 1){
+			return null;
+		}
+
+		float[] centers = new float[k * dim];
+		double[] distances = new double[n];
+		seed(points, weights, n, dim, k, centers, distances, randomSeed);
+
+		int[] assignment = new int[n];
+		double[] sums = new double[k * dim];
+		double[] clusterWeights = new double[k];
+
+		int iter = 0;
+		boolean changed = true;
+		double movement = Double.POSITIVE_INFINITY;
+
+		while(changed && movement > minDist && iter < maxIter){
+			changed = false;
+
+			//assignment step
+			for(int i = 0; i < n; ++i){
+				int offset = i * dim, best = 0;
+				double min = Double.POSITIVE_INFINITY;
+				for(int c = 0; c < k; ++c){
+					double d = squaredDistance(points, offset, centers, c * dim, dim, min);
+					if(d < min){
+						min = d;
+						best = c;
+					}
+				}
+				if(iter == 0 || assignment[i] != best){
+					changed = true;
+					assignment[i] = best;
+				}
+			}
+
+			//update step
+			update(points, weights, n, dim, k, assignment, sums, clusterWeights);
+			movement = 0;
+			for(int c = 0; c < k; ++c){
+				if(clusterWeights[c] <= 0){ //empty cluster keeps its center
+					continue;
+				}
+				double m = 0;
+				for(int j = 0; j < dim; ++j){
+					float v = (float) (sums[c * dim + j] / clusterWeights[c]);
+					float diff = v - centers[c * dim + j];
+					m += diff * diff;
+					centers[c * dim + j] = v;
+				}
+				movement += Math.sqrt(m);
+			}
+			++iter;
+		}
+
+		//final statistics
+		double total = 0;
+		for(int c = 0; c < k; ++c){
+			clusterWeights[c] = 0;
+		}
+		for(int i = 0; i < n; ++i){
+			int c = assignment[i];
+			double w = weights == null ? 1d : weights[i];
+			total += w * Math.sqrt(squaredDistance(points, i * dim, centers, c * dim, dim, Double.POSITIVE_INFINITY));
+			clusterWeights[c] += w;
+		}
+
+		sortByWeight(centers, clusterWeights, k, dim);
+
+		return new Result(k, dim, centers, clusterWeights, total);
+	}
+
+	private static void update(float[] points, float[] weights, int n, int dim, int k, int[] assignment, double[] sums, double[] clusterWeights){
+		for(int i = 0; i < sums.length; ++i){
+			sums[i] = 0;
+		}
+		for(int c = 0; c < k; ++c){
+			clusterWeights[c] = 0;
+		}
+		for(int i = 0; i < n; ++i){
+			int c = assignment[i];
+			double w = weights == null ? 1d : weights[i];
+			int offset = i * dim, cOffset = c * dim;
+			for(int j = 0; j < dim; ++j){
+				sums[cOffset + j] += w * points[offset + j];
+			}
+			clusterWeights[c] += w;
+		}
+	}
+
+	// k-means++ seeding, see KMeansPP#getSeeds; the D^2 sampling is additionally scaled by the point weights
+	private static void seed(float[] points, float[] weights, int n, int dim, int k, float[] centers, double[] distances, long randomSeed){
+		Random rand = new Random(randomSeed);
+		int j;
+		if(weights == null){
+			j = rand.nextInt(n);
+		}else{ //the first center is drawn proportionally to the weights as well
+			double sum = 0;
+			for(j = 0; j < n; ++j){
+				sum += weights[j];
+			}
+			double target = rand.nextDouble() * sum;
+			j = 0;
+			double acc = weights[0];
+			while(acc <= target && j < n - 1){
+				++j;
+				acc += weights[j];
+			}
+		}
+		System.arraycopy(points, j * dim, centers, 0, dim);
+
+		for(int i = 0; i < n; ++i){
+			distances[i] = Double.POSITIVE_INFINITY;
+		}
+
+		for(int c = 1; c < k; ++c){
+			int last = (c - 1) * dim;
+			double sum = 0;
+			for(j = 0; j < n; ++j){
+				double d = squaredDistance(points, j * dim, centers, last, dim, distances[j]);
+				if(d < distances[j]){
+					distances[j] = d;
+				}
+				sum += weights == null ? distances[j] : distances[j] * weights[j];
+			}
+
+			double target = rand.nextDouble() * sum;
+			j = 0;
+			double acc = weights == null ? distances[0] : distances[0] * weights[0];
+			while(acc < target && j < n - 1){
+				++j;
+				acc += weights == null ? distances[j] : distances[j] * weights[j];
+			}
+			System.arraycopy(points, j * dim, centers, c * dim, dim);
+		}
+	}
+
+	/**
+	 * squared euclidean distance, stops accumulating once bound is exceeded
+	 */
+	private static double squaredDistance(float[] a, int aOffset, float[] b, int bOffset, int dim, double bound){
+		double d = 0;
+		for(int j = 0; j < dim; ++j){
+			float e = a[aOffset + j] - b[bOffset + j];
+			d += e * e;
+			if(d > bound){
+				return d;
+			}
+		}
+		return d;
+	}
+
+	// insertion sort, k is small
+	private static void sortByWeight(float[] centers, double[] clusterWeights, int k, int dim){
+		float[] tmp = new float[dim];
+		for(int i = 1; i < k; ++i){
+			double w = clusterWeights[i];
+			System.arraycopy(centers, i * dim, tmp, 0, dim);
+			int j = i - 1;
+			while(j >= 0 && clusterWeights[j] < w){
+				clusterWeights[j + 1] = clusterWeights[j];
+				System.arraycopy(centers, j * dim, centers, (j + 1) * dim, dim);
+				--j;
+			}
+			clusterWeights[j + 1] = w;
+			System.arraycopy(tmp, 0, centers, (j + 1) * dim, dim);
+		}
+	}
+
+}
@@ -0,0 +1,111 @@
+package ch.unibas.cs.dbis.cineast.core.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.hash.Hashing;
+
+import ch.unibas.cs.dbis.cineast.core.data.LongDoublePair;
+
+/**
+ * Least recently used cache of fused query results within a memory budget. Results are copied on the way in and out since
+ * callers modify the scores of the returned pairs. All methods are thread-safe.
+ */
+public class FusedResultCache {
+
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	private static final long ENTRY_OVERHEAD = 160; //key, map entry and list
+	private static final long PAIR_SIZE = 40; //object and reference
+
+	private final long capacity;
+	private long size = 0;
+	private long hits = 0, misses = 0;
+	private final LinkedHashMap<String, List<LongDoublePair>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * @param capacity the approximate number of bytes the cached results may occupy
+	 */
+	public FusedResultCache(long capacity){
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @param query a canonical representation of the query, equal for equal queries
+	 * @param resultCacheName the result cache the query is restricted to or null
+	 */
+	public static String key(String query, String category, String resultCacheName){
+		return Hashing.sha256().newHasher()
+				.putString(query, StandardCharsets.UTF_8).putChar('\n')
+				.putString(category.toLowerCase(), StandardCharsets.UTF_8).putChar('\n')
+				.putString(resultCacheName == null ? "" : resultCacheName, StandardCharsets.UTF_8)
+				.hash().toString();
+	}
+
+	private static long sizeOf(List<LongDoublePair> result){
+		return ENTRY_OVERHEAD + PAIR_SIZE * result.size();
+	}
+
+	private static List<LongDoublePair> copy(List<LongDoublePair> result){
+		ArrayList<LongDoublePair> _return = new ArrayList<>(result.size());
+		for(LongDoublePair pair : result){
+			_return.add(new LongDoublePair(pair.key, pair.value));
+		}
+		return _return;
+	}
+
+	/**
+	 * @return a copy of the cached result or null if there is none
+	 */
+	public synchronized List<LongDoublePair> get(String key){
+		List<LongDoublePair> result = this.entries.get(key);
+		if(result == null){
+			++this.misses;
+			return null;
+		}
+		++this.hits;
+		return copy(result);
+	}
+
+	public synchronized void put(String key, List<LongDoublePair> result){
+		long entrySize = sizeOf(result);
+		if(entrySize > this.capacity){
+			return;
+		}
+		List<LongDoublePair> previous = this.entries.put(key, copy(result));
+		if(previous != null){
+			this.size -= sizeOf(previous);
+		}
+		this.size += entrySize;
+		Iterator<Entry<String, List<LongDoublePair>>> iter = this.entries.entrySet().iterator();
+		while(this.size > this.capacity && iter.hasNext()){
+			Entry<String, List<LongDoublePair>> eldest = iter.next();
+			this.size -= sizeOf(eldest.getValue());
+			iter.remove();
+		}
+	}
+
+	/**
+	 * removes all cached results, to be called whenever the collection changes
+	 */
+	public synchronized void invalidate(){
+		if(!this.entries.isEmpty()){
+			LOGGER.debug("invalidating {} cached results", this.entries.size());
+		}
+		this.entries.clear();
+		this.size = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "FusedResultCache (" + this.entries.size() + " results, " + this.size + " of " + this.capacity + " bytes, " + this.hits + " hits, " + this.misses + " misses)";
+	}
+
+}
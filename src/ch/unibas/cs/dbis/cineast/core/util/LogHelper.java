@@ -12,6 +12,7 @@ public class LogHelper {
 	}
 
 	public static final Marker SQL_MARKER = MarkerManager.getMarker("SQL");
+	public static final Marker METRICS_MARKER = MarkerManager.getMarker("METRICS");
 
 	public static String getStackTrace(Throwable e){
 	    StringWriter sWriter = new StringWriter();
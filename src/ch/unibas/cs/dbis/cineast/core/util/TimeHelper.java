@@ -1,19 +1,182 @@
 package ch.unibas.cs.dbis.cineast.core.util;
 
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.eclipsesource.json.JsonObject;
+
+import ch.unibas.cs.dbis.cineast.core.config.Config;
+import ch.unibas.cs.dbis.cineast.core.metrics.LatencyHistogram;
 import gnu.trove.stack.array.TDoubleArrayStack;
 
+/**
+ * Scoped timers for profiling, used with try-with-resources:
+ * <pre>
+ * try(TimeHelper.Timer timer = TimeHelper.start("AverageColor.processShot")){
+ * 	...
+ * 	LOGGER.debug("done in {}", timer.elapsed());
+ * }
+ * </pre>
+ * Every thread keeps its own ring of reusable timers, so starting a timer neither allocates nor takes a lock, and the
+ * durations are aggregated lock-free into a {@link LatencyHistogram} per name. When profiling is switched off, timers still
+ * measure {@link Timer#elapsed()}, only the aggregation is skipped.
+ */
 public class TimeHelper {
 
 	private TimeHelper(){}
-	
-	private static TDoubleArrayStack tic = new TDoubleArrayStack();
-	
-	public static synchronized void tic(){
-		tic.push(System.nanoTime() / 1000000d);
-	}
-	
-	public static synchronized double toc(){
-		double d = tic.pop();
+
+	private static final int RING_SIZE = 32;
+
+	private static volatile boolean enabled = Config.getExtractorConfig().getProfiling();
+
+	private static final ConcurrentHashMap<String, LatencyHistogram> counters = new ConcurrentHashMap<>();
+
+	private static final ThreadLocal<Ring> rings = new ThreadLocal<Ring>(){
+		@Override
+		protected Ring initialValue() {
+			return new Ring();
+		}
+	};
+
+	private static final ThreadLocal<TDoubleArrayStack> tic = new ThreadLocal<TDoubleArrayStack>(){
+		@Override
+		protected TDoubleArrayStack initialValue() {
+			return new TDoubleArrayStack();
+		}
+	};
+
+	public static class Timer implements AutoCloseable {
+
+		private final Ring ring;
+		private String name;
+		private long start;
+		private boolean open = false;
+		private boolean taken = false; //slot of the ring in use
+
+		private Timer(Ring ring){
+			this.ring = ring;
+		}
+
+		/**
+		 * @return the milliseconds since the timer was started, 0 once it has been closed
+		 */
+		public double elapsed(){
+			return this.open ? (System.nanoTime() - this.start) / 1e6 : 0d;
+		}
+
+		/**
+		 * stops the timer and adds its duration to the counter of its name if profiling is switched on
+		 */
+		@Override
+		public void close(){
+			if(!this.open){
+				return;
+			}
+			this.open = false;
+			record(this.name, System.nanoTime() - this.start);
+			if(this.ring != null){
+				this.ring.release(this);
+			}
+		}
+	}
+
+	/**
+	 * the timers of one thread, a timer is free again once it is closed, regardless of the order in which they are closed
+	 */
+	private static final class Ring {
+		private final Timer[] timers = new Timer[RING_SIZE];
+
+		private Ring(){
+			for(int i = 0; i < RING_SIZE; ++i){
+				this.timers[i] = new Timer(this);
+			}
+		}
+
+		private Timer take(){
+			for(Timer timer : this.timers){
+				if(!timer.taken){
+					timer.taken = true;
+					return timer;
+				}
+			}
+			return new Timer(null); //too many open timers, not reused
+		}
+
+		private void release(Timer timer){
+			timer.taken = false;
+		}
+	}
+
+	/**
+	 * starts a timer on the calling thread, has to be closed on the same thread
+	 * @param name the counter the duration is added to
+	 */
+	public static Timer start(String name){
+		Timer timer = rings.get().take();
+		timer.name = name;
+		timer.open = true;
+		timer.start = System.nanoTime();
+		return timer;
+	}
+
+	/**
+	 * adds a duration to the counter of the given name, does nothing if profiling is switched off
+	 */
+	public static void record(String name, long nanos){
+		if(!enabled){
+			return;
+		}
+		LatencyHistogram histogram = counters.get(name);
+		if(histogram == null){
+			LatencyHistogram newHistogram = new LatencyHistogram();
+			histogram = counters.putIfAbsent(name, newHistogram);
+			if(histogram == null){
+				histogram = newHistogram;
+			}
+		}
+		histogram.record(nanos);
+	}
+
+	public static boolean isEnabled(){
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled){
+		TimeHelper.enabled = enabled;
+	}
+
+	public static void reset(){
+		counters.clear();
+	}
+
+	/**
+	 * @return the statistics of every counter, empty if nothing has been recorded
+	 */
+	public static JsonObject toJSON(){
+		JsonObject _return = new JsonObject();
+		Map<String, LatencyHistogram> sorted = new TreeMap<>(counters);
+		for(Map.Entry<String, LatencyHistogram> entry : sorted.entrySet()){
+			_return.add(entry.getKey(), entry.getValue().toJSON());
+		}
+		return _return;
+	}
+
+	/**
+	 * @deprecated use {@link #start(String)}, the timestamps are only kept per thread
+	 */
+	@Deprecated
+	public static void tic(){
+		tic.get().push(System.nanoTime() / 1000000d);
+	}
+
+	/**
+	 * @deprecated use {@link #start(String)}
+	 * @return the milliseconds since the matching {@link #tic()} on this thread
+	 */
+	@Deprecated
+	public static double toc(){
+		double d = tic.get().pop();
 		return (System.nanoTime() / 1000000d) - d;
 	}
 }